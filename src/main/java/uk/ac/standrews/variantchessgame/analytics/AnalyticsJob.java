@@ -0,0 +1,120 @@
+package uk.ac.standrews.variantchessgame.analytics;
+
+import uk.ac.standrews.variantchessgame.model.GameState;
+import uk.ac.standrews.variantchessgame.model.MoveExecutor;
+import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+import uk.ac.standrews.variantchessgame.persistence.GameArchiveReader;
+import uk.ac.standrews.variantchessgame.persistence.GameRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Batch job that replays every game of an archive and aggregates {@link GameStatistics}.
+ * <p>
+ * The archive is read on the calling thread and each chunk is replayed as a task on a {@link ForkJoinPool},
+ * into its own counters, which are then merged. Workers share nothing but the pool, so throughput grows
+ * with the number of cores until reading the archive becomes the limit.
+ * <p>
+ * Usage: {@code AnalyticsJob <archive> [csv|json] [output file] [parallelism]}; without an output file
+ * the report is written to standard output.
+ */
+public class AnalyticsJob {
+
+    private final int parallelism;
+
+    /**
+     * Constructor for an analytics job.
+     *
+     * @param parallelism The number of worker threads.
+     */
+    public AnalyticsJob(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Replays every game of an archive.
+     *
+     * @param archive The archive, as written by {@code GameArchiveWriter}.
+     * @return The aggregated counters.
+     * @throws IOException If the archive cannot be read.
+     */
+    public GameStatistics run(InputStream archive) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (GameArchiveReader reader = new GameArchiveReader(archive)) {
+            return reader.decodeParallel(pool, 4 * parallelism, GameStatistics::new,
+                    AnalyticsJob::replay, GameStatistics::merge);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Replays a game and records it, counting the effects reported by {@link MoveExecutor}.
+     *
+     * @param statistics The counters to record into.
+     * @param game The game.
+     */
+    static void replay(GameStatistics statistics, GameRecord game) {
+        int detonations = 0;
+        int conversions = 0;
+        int promotions = 0;
+        try {
+            VariantChessBoard board = new VariantChessBoard(game.getBackRank());
+            GameState gameState = new GameState(board);
+            gameState.selectRuleByIndex(game.getRuleId());
+            for (int i = 0; i < game.getPlyCount(); i++) {
+                int effects = MoveExecutor.execute(board, gameState, GameRecord.decodePly(game.getPly(i)));
+                if ((effects & MoveExecutor.DETONATION) != 0) {
+                    detonations++;
+                }
+                if ((effects & MoveExecutor.RULE_STATE_CHANGED) != 0) {
+                    conversions++;
+                }
+                if ((effects & MoveExecutor.PROMOTION) != 0) {
+                    promotions++;
+                }
+            }
+        } catch (RuntimeException e) {
+            statistics.recordInvalid(); // For example a ply that starts on an empty square
+            return;
+        }
+        statistics.record(game, detonations, conversions, promotions);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: AnalyticsJob <archive> [csv|json] [output file] [parallelism]");
+            System.exit(2);
+        }
+        String format = args.length > 1 ? args[1] : "csv";
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        GameStatistics statistics;
+        try (InputStream in = Files.newInputStream(Paths.get(args[0]))) {
+            statistics = new AnalyticsJob(parallelism).run(in);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Replayed %d games in %.1f s on %d threads%n", statistics.getGameCount(), seconds, parallelism);
+
+        String report = "json".equals(format) ? statistics.toJson() : statistics.toCsv();
+        if (args.length > 2) {
+            Path output = Paths.get(args[2]);
+            try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                writer.write(report);
+            }
+        } else {
+            System.out.print(report);
+        }
+    }
+}
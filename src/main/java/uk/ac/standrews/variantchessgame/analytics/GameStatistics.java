@@ -0,0 +1,262 @@
+package uk.ac.standrews.variantchessgame.analytics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import uk.ac.standrews.variantchessgame.persistence.GameNotation;
+import uk.ac.standrews.variantchessgame.persistence.GameRecord;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Counters aggregated over replayed games, kept in primitive arrays so that partial results from
+ * different threads can be merged by adding the arrays together.
+ * <p>
+ * Results are counted per rule and per back-rank layout. For each rule the job also counts Cannon
+ * detonations, KingQueen conversions and promotions, and how many games had at least one of each.
+ */
+public class GameStatistics {
+
+    private static final int RULES = 3;
+
+    // Indexed by rule id
+    private final long[] ruleGames = new long[RULES];
+    private final long[] ruleWhiteWins = new long[RULES];
+    private final long[] ruleBlackWins = new long[RULES];
+    private final long[] ruleDraws = new long[RULES];
+    private final long[] rulePlies = new long[RULES];
+    private final long[] detonations = new long[RULES];
+    private final long[] gamesWithDetonation = new long[RULES];
+    private final long[] conversions = new long[RULES];
+    private final long[] gamesWithConversion = new long[RULES];
+    private final long[] promotions = new long[RULES];
+
+    // Indexed by layout code
+    private final long[] layoutGames = new long[GameRecord.LAYOUT_CODES];
+    private final long[] layoutWhiteWins = new long[GameRecord.LAYOUT_CODES];
+    private final long[] layoutBlackWins = new long[GameRecord.LAYOUT_CODES];
+    private final long[] layoutDraws = new long[GameRecord.LAYOUT_CODES];
+
+    private long invalidGames;
+
+    /**
+     * Records a replayed game.
+     *
+     * @param game The game.
+     * @param gameDetonations The number of Cannon detonations in the game.
+     * @param gameConversions The number of KingQueen conversions in the game.
+     * @param gamePromotions The number of pawn promotions in the game.
+     */
+    public void record(GameRecord game, int gameDetonations, int gameConversions, int gamePromotions) {
+        int rule = game.getRuleId();
+        int layout = GameRecord.layoutCode(game.getBackRank());
+        ruleGames[rule]++;
+        layoutGames[layout]++;
+        rulePlies[rule] += game.getPlyCount();
+        switch (game.getResult()) {
+            case GameRecord.RESULT_WHITE_WINS:
+                ruleWhiteWins[rule]++;
+                layoutWhiteWins[layout]++;
+                break;
+            case GameRecord.RESULT_BLACK_WINS:
+                ruleBlackWins[rule]++;
+                layoutBlackWins[layout]++;
+                break;
+            case GameRecord.RESULT_DRAW:
+                ruleDraws[rule]++;
+                layoutDraws[layout]++;
+                break;
+            default:
+                break; // Unfinished games count towards the totals only
+        }
+        detonations[rule] += gameDetonations;
+        conversions[rule] += gameConversions;
+        promotions[rule] += gamePromotions;
+        if (gameDetonations > 0) {
+            gamesWithDetonation[rule]++;
+        }
+        if (gameConversions > 0) {
+            gamesWithConversion[rule]++;
+        }
+    }
+
+    /**
+     * Records a game that could not be replayed.
+     */
+    public void recordInvalid() {
+        invalidGames++;
+    }
+
+    /**
+     * Adds the counters of another instance to this one.
+     *
+     * @param other The counters to add.
+     * @return This instance.
+     */
+    public GameStatistics merge(GameStatistics other) {
+        add(ruleGames, other.ruleGames);
+        add(ruleWhiteWins, other.ruleWhiteWins);
+        add(ruleBlackWins, other.ruleBlackWins);
+        add(ruleDraws, other.ruleDraws);
+        add(rulePlies, other.rulePlies);
+        add(detonations, other.detonations);
+        add(gamesWithDetonation, other.gamesWithDetonation);
+        add(conversions, other.conversions);
+        add(gamesWithConversion, other.gamesWithConversion);
+        add(promotions, other.promotions);
+        add(layoutGames, other.layoutGames);
+        add(layoutWhiteWins, other.layoutWhiteWins);
+        add(layoutBlackWins, other.layoutBlackWins);
+        add(layoutDraws, other.layoutDraws);
+        invalidGames += other.invalidGames;
+        return this;
+    }
+
+    private static void add(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    /**
+     * Gets the total number of games recorded, excluding invalid games.
+     *
+     * @return The game count.
+     */
+    public long getGameCount() {
+        long total = 0;
+        for (long games : ruleGames) {
+            total += games;
+        }
+        return total;
+    }
+
+    public long getGameCount(int ruleId) {
+        return ruleGames[ruleId];
+    }
+
+    public long getWhiteWins(int ruleId) {
+        return ruleWhiteWins[ruleId];
+    }
+
+    public long getBlackWins(int ruleId) {
+        return ruleBlackWins[ruleId];
+    }
+
+    public long getDraws(int ruleId) {
+        return ruleDraws[ruleId];
+    }
+
+    public long getDetonations(int ruleId) {
+        return detonations[ruleId];
+    }
+
+    public long getConversions(int ruleId) {
+        return conversions[ruleId];
+    }
+
+    public long getPromotions(int ruleId) {
+        return promotions[ruleId];
+    }
+
+    public long getLayoutGameCount(String layout) {
+        return layoutGames[GameRecord.layoutCode(layout)];
+    }
+
+    public long getInvalidGames() {
+        return invalidGames;
+    }
+
+    /**
+     * Formats the counters as CSV: one row per rule, then one row per layout that occurred.
+     * Rule rows also carry the detonation, conversion and promotion counters.
+     *
+     * @return The CSV text, with a header row.
+     */
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder();
+        csv.append("dimension,key,games,white_wins,black_wins,draws,white_win_rate,black_win_rate,draw_rate,")
+                .append("plies,detonations,games_with_detonation,conversions,games_with_conversion,promotions\n");
+        for (int rule = 0; rule < RULES; rule++) {
+            appendResultColumns(csv, "rule", GameNotation.ruleName(rule), ruleGames[rule], ruleWhiteWins[rule],
+                    ruleBlackWins[rule], ruleDraws[rule]);
+            csv.append(',').append(rulePlies[rule]).append(',').append(detonations[rule])
+                    .append(',').append(gamesWithDetonation[rule]).append(',').append(conversions[rule])
+                    .append(',').append(gamesWithConversion[rule]).append(',').append(promotions[rule]).append('\n');
+        }
+        for (int layout = 0; layout < GameRecord.LAYOUT_CODES; layout++) {
+            if (layoutGames[layout] > 0) {
+                appendResultColumns(csv, "layout", GameRecord.layoutOf(layout), layoutGames[layout],
+                        layoutWhiteWins[layout], layoutBlackWins[layout], layoutDraws[layout]);
+                csv.append(",,,,,,\n");
+            }
+        }
+        return csv.toString();
+    }
+
+    private static void appendResultColumns(StringBuilder csv, String dimension, String key,
+                                            long games, long whiteWins, long blackWins, long draws) {
+        csv.append(dimension).append(',').append(key).append(',').append(games).append(',').append(whiteWins)
+                .append(',').append(blackWins).append(',').append(draws).append(',').append(rate(whiteWins, games))
+                .append(',').append(rate(blackWins, games)).append(',').append(rate(draws, games));
+    }
+
+    private static String rate(long count, long games) {
+        return games == 0 ? "" : String.format(Locale.ROOT, "%.4f", (double) count / games);
+    }
+
+    /**
+     * Formats the counters as JSON with a "rules" array, a "layouts" array and the invalid game count.
+     *
+     * @return The JSON text.
+     */
+    public String toJson() {
+        List<Map<String, Object>> rules = new ArrayList<>();
+        for (int rule = 0; rule < RULES; rule++) {
+            Map<String, Object> row = resultRow("rule", GameNotation.ruleName(rule), ruleGames[rule],
+                    ruleWhiteWins[rule], ruleBlackWins[rule], ruleDraws[rule]);
+            row.put("plies", rulePlies[rule]);
+            row.put("detonations", detonations[rule]);
+            row.put("gamesWithDetonation", gamesWithDetonation[rule]);
+            row.put("conversions", conversions[rule]);
+            row.put("gamesWithConversion", gamesWithConversion[rule]);
+            row.put("promotions", promotions[rule]);
+            rules.add(row);
+        }
+        List<Map<String, Object>> layouts = new ArrayList<>();
+        for (int layout = 0; layout < GameRecord.LAYOUT_CODES; layout++) {
+            if (layoutGames[layout] > 0) {
+                layouts.add(resultRow("layout", GameRecord.layoutOf(layout), layoutGames[layout],
+                        layoutWhiteWins[layout], layoutBlackWins[layout], layoutDraws[layout]));
+            }
+        }
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("games", getGameCount());
+        root.put("invalidGames", invalidGames);
+        root.put("rules", rules);
+        root.put("layouts", layouts);
+        try {
+            return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(root);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to format statistics", e);
+        }
+    }
+
+    private static Map<String, Object> resultRow(String dimension, String key, long games,
+                                                 long whiteWins, long blackWins, long draws) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put(dimension, key);
+        row.put("games", games);
+        row.put("whiteWins", whiteWins);
+        row.put("blackWins", blackWins);
+        row.put("draws", draws);
+        row.put("whiteWinRate", games == 0 ? 0.0 : (double) whiteWins / games);
+        row.put("blackWinRate", games == 0 ? 0.0 : (double) blackWins / games);
+        row.put("drawRate", games == 0 ? 0.0 : (double) draws / games);
+        return row;
+    }
+}
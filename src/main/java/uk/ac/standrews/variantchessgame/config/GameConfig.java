@@ -1,8 +1,30 @@
 package uk.ac.standrews.variantchessgame.config;
 
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import uk.ac.standrews.variantchessgame.events.EventOutbox;
+import uk.ac.standrews.variantchessgame.events.EventPublisher;
+import uk.ac.standrews.variantchessgame.index.BulkIndexer;
+import uk.ac.standrews.variantchessgame.index.ElasticsearchPositionIndex;
+import uk.ac.standrews.variantchessgame.index.GamePositionIndex;
+import uk.ac.standrews.variantchessgame.index.InMemoryPositionIndex;
+import uk.ac.standrews.variantchessgame.model.EvalWeights;
+import uk.ac.standrews.variantchessgame.model.NeuralNetwork;
+import uk.ac.standrews.variantchessgame.model.PositionCache;
 import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+import uk.ac.standrews.variantchessgame.persistence.GameJournal;
+import uk.ac.standrews.variantchessgame.persistence.SessionStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 @Configuration
 public class GameConfig {
@@ -11,4 +33,81 @@ public class GameConfig {
     public VariantChessBoard variantChessBoard() {
         return new VariantChessBoard();
     }
+
+    @Bean
+    public PositionCache positionCache(@Value("${chess.cache.max-mb:64}") int maxMegabytes,
+                                       @Value("${chess.cache.shards:16}") int shards,
+                                       @Value("${chess.cache.mirror-symmetry:false}") boolean mirrorSymmetry) {
+        return new PositionCache(maxMegabytes, shards, mirrorSymmetry);
+    }
+
+    @Bean
+    public EvalWeights evalWeights(@Value("${chess.eval.weights-file:}") String file) throws IOException {
+        if (file.isEmpty()) {
+            return EvalWeights.getDefault();
+        }
+        try (InputStream in = Files.newInputStream(Paths.get(file))) {
+            return EvalWeights.read(in);
+        }
+    }
+
+    @Bean
+    @ConditionalOnExpression("!'${chess.eval.network-file:}'.isEmpty()")
+    public NeuralNetwork neuralNetwork(@Value("${chess.eval.network-file}") String file) throws IOException {
+        try (InputStream in = Files.newInputStream(Paths.get(file))) {
+            return NeuralNetwork.read(in);
+        }
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "chess.journal.enabled", havingValue = "true", matchIfMissing = true)
+    public GameJournal gameJournal(@Value("${chess.journal.dir:data}") String directory,
+                                   @Value("${chess.journal.commit-interval-ms:5}") long commitIntervalMillis) throws IOException {
+        return new GameJournal(Paths.get(directory), commitIntervalMillis);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "chess.session.enabled", havingValue = "true", matchIfMissing = true)
+    public SessionStore sessionStore(@Value("${chess.session.file:data/sessions.bin}") String file) {
+        return new SessionStore(Paths.get(file));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "chess.events.enabled", havingValue = "true")
+    public EventOutbox eventOutbox(@Value("${chess.events.outbox-capacity:65536}") int capacity) {
+        return new EventOutbox(capacity);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "chess.events.enabled", havingValue = "true")
+    public EventPublisher eventPublisher(EventOutbox eventOutbox,
+                                         @Value("${chess.events.bootstrap-servers:localhost:9092}") String bootstrapServers,
+                                         @Value("${chess.events.topic:game-events}") String topic,
+                                         @Value("${chess.events.linger-ms:20}") int lingerMillis,
+                                         @Value("${chess.events.batch-bytes:65536}") int batchBytes,
+                                         @Value("${chess.events.compression:lz4}") String compression) {
+        KafkaProducer<String, String> producer = new KafkaProducer<>(
+                EventPublisher.producerConfig(bootstrapServers, lingerMillis, batchBytes, compression));
+        return new EventPublisher(eventOutbox, producer, topic);
+    }
+
+    @Bean
+    public GamePositionIndex gamePositionIndex(@Value("${chess.index.type:memory}") String type,
+                                               ObjectProvider<ElasticsearchOperations> elasticsearchOperations) {
+        switch (type) {
+            case "memory":
+                return new InMemoryPositionIndex();
+            case "elasticsearch":
+                return new ElasticsearchPositionIndex(elasticsearchOperations.getObject());
+            default:
+                throw new IllegalArgumentException("Invalid index type: " + type);
+        }
+    }
+
+    @Bean
+    public BulkIndexer bulkIndexer(GamePositionIndex gamePositionIndex,
+                                   @Value("${chess.index.batch-size:500}") int batchSize,
+                                   @Value("${chess.index.queue-capacity:10000}") int queueCapacity) {
+        return new BulkIndexer(gamePositionIndex, batchSize, queueCapacity);
+    }
 }
@@ -1,11 +1,31 @@
 package uk.ac.standrews.variantchessgame.controller;
 
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import uk.ac.standrews.variantchessgame.events.EventOutbox;
+import uk.ac.standrews.variantchessgame.events.GameEvent;
+import uk.ac.standrews.variantchessgame.index.BulkIndexer;
 import uk.ac.standrews.variantchessgame.model.*;
+import uk.ac.standrews.variantchessgame.persistence.GameJournal;
+import uk.ac.standrews.variantchessgame.persistence.GameNotation;
+import uk.ac.standrews.variantchessgame.persistence.GameRecord;
+import uk.ac.standrews.variantchessgame.persistence.RecoveredGame;
+import uk.ac.standrews.variantchessgame.persistence.SavedSession;
+import uk.ac.standrews.variantchessgame.persistence.SessionStore;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Controller for handling HTTP requests related to the variant chess game.
@@ -15,24 +35,335 @@ import java.util.List;
 @RequestMapping("/api/game")
 public class GameController {
 
+    static final int MAX_ANALYSIS_LINES = 10; // Most lines an analysis request may ask for
+
     private final VariantChessBoard board; // The chess board instance
     private GameState gameState; // The current state of the game
-    private final MoveHistory moveHistory; // MoveHistory instance
+    private MoveHistory moveHistory; // MoveHistory instance
 
     private final ChessAI chessAI;
+    private final PositionCache positionCache; // Cache of legal moves and AI results shared by all games
+    private final GameJournal journal; // Append-only journal of the game, may be null
+    private long gameId; // Identifier of the current game in the journal and in published events
+    private boolean gameOpen; // Whether the current game was journaled and has not ended
+    private final SessionStore sessionStore; // Where the game is saved on shutdown, may be null
+    private SessionStore.SessionFile pendingSession; // Saved session not yet restored onto the board
+    private final EventOutbox eventOutbox; // Outbox of events published about the game, may be null
+    private long eventSequence; // Sequence number of the last event of the current game
+    private volatile DifficultyProfile difficulty; // Limits of the AI search, null for the fixed-depth search
+    private final BulkIndexer indexer; // Feeds finished games to the position index, may be null
+    // Latest position of the game, replaced after every change so that readers never see the board mid-move
+    private final AtomicReference<PublishedPosition> publishedPosition = new AtomicReference<>();
 
     /**
-     * Constructor to initialize the GameController with the chess board.
-     * Initializes the game state with the given board.
+     * Constructor to initialize the GameController with the chess board and every collaborator.
+     * Collaborators whose beans are disabled are passed as {@code null}.
+     * A session saved on shutdown is preferred when it is up to date with the journal; it is only mapped here and
+     * restored onto the board on first access. Otherwise the latest unfinished game in the journal is rebuilt,
+     * and if there is none a new game is journaled.
      *
      * @param board The VariantChessBoard instance to be used.
+     * @param positionCache The cache of legal moves, evaluations and best moves shared between games.
+     * @param snapshotInterval The number of plies between position snapshots kept for navigation.
+     * @param journal The journal that records the game, or {@code null} to keep the game in memory only.
+     * @param sessionStore The store the game is saved to on shutdown, or {@code null} to not save it.
+     * @param eventOutbox The outbox for game start, move and game end events, or {@code null} to not publish events.
+     * @param indexer The indexer that adds finished games to the position index, or {@code null} to not index them.
+     * @param weights The weights of the AI evaluation, or {@code null} for the shipped weights.
+     * @param network The network the AI evaluates positions with, or {@code null} to use the weights.
      */
     @Autowired
-    public GameController(VariantChessBoard board) {
+    public GameController(VariantChessBoard board, PositionCache positionCache,
+                          @Value("${chess.history.snapshot-interval:16}") int snapshotInterval,
+                          @Nullable GameJournal journal, @Nullable SessionStore sessionStore,
+                          @Nullable EventOutbox eventOutbox, @Nullable BulkIndexer indexer,
+                          @Nullable EvalWeights weights, @Nullable NeuralNetwork network) {
         this.board = board;
-        this.gameState = new GameState(board);
-        this.chessAI = new ChessAI();
-        this.moveHistory = new MoveHistory();
+        startGame(GameRandom.withNewSeed());
+        this.positionCache = positionCache;
+        this.chessAI = new ChessAI(positionCache, weights == null ? EvalWeights.getDefault() : weights, network);
+        this.moveHistory = new MoveHistory(snapshotInterval);
+        this.journal = journal;
+        this.sessionStore = sessionStore;
+        this.eventOutbox = eventOutbox;
+        this.indexer = indexer;
+        startHistory();
+        pendingSession = openSavedSession();
+        RecoveredGame recovered = journal == null ? null : journal.getLatestUnfinishedGame();
+        if (pendingSession != null) {
+            gameId = pendingSession.getGameId(0);
+            gameOpen = journal != null;
+        } else if (recovered != null) {
+            restoreGame(recovered);
+        } else {
+            recordGameStart();
+        }
+    }
+
+    /**
+     * Maps the session file saved on the last shutdown, if it still describes the latest state of the game.
+     * The file is stale if the journal has recorded anything since it was written.
+     *
+     * @return The session file, or {@code null} if there is no usable saved session.
+     */
+    private SessionStore.SessionFile openSavedSession() {
+        if (sessionStore == null) {
+            return null;
+        }
+        try {
+            SessionStore.SessionFile file = sessionStore.open();
+            long journalRecordCount = journal == null ? -1 : journal.getRecordCount();
+            if (file == null || file.getSessionCount() == 0 || file.getJournalRecordCount() != journalRecordCount) {
+                return null;
+            }
+            return file;
+        } catch (IOException e) {
+            System.err.println("Could not read the saved session: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Restores the saved session onto the board the first time the game is accessed after startup.
+     */
+    private void ensureRestored() {
+        if (pendingSession == null) {
+            return;
+        }
+        SavedSession session = pendingSession.read(0);
+        pendingSession = null;
+        board.initializeBoard(session.getBackRank());
+        gameState = new GameState(board, new GameRandom(session.getSeed()));
+        session.getPosition().restoreTo(board, gameState);
+        gameState.restoreReversibleHashes(session.getReversibleHashes()); // Repetitions may span the restart
+        gameState.getRandom().skipTo(session.getDraws()); // Continue the stream where the game left it
+        difficulty = DifficultyProfile.byIndex(session.getDifficultyIndex());
+        moveHistory = session.getHistory();
+        publishPosition();
+        System.out.println("Restored game " + gameId + " at ply " + moveHistory.getCurrentPly() + " from the saved session.");
+    }
+
+    /**
+     * Saves the game to the session store when the application shuts down, so the next startup
+     * can resume it without replaying the journal. The journal is compacted first, so that the
+     * finished and abandoned games it holds are not replayed again.
+     */
+    @PreDestroy
+    public void saveSession() {
+        if (sessionStore == null) {
+            return;
+        }
+        ensureRestored();
+        try {
+            long journalRecordCount = -1;
+            if (journal != null) {
+                journal.compact();
+                journalRecordCount = journal.getRecordCount();
+            }
+            GameRandom random = gameState.getRandom();
+            PublishedPosition published = publishedPosition.get();
+            SavedSession session = new SavedSession(gameId, board.getBackRank(), random.getSeed(), random.getDraws(),
+                    DifficultyProfile.presetIndex(difficulty), published.position, published.reversibleHashes, moveHistory);
+            sessionStore.save(Collections.singletonList(session), journalRecordCount);
+        } catch (IOException e) {
+            System.err.println("Could not save the session: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sets up a new game whose layout, rule and every later random decision are drawn from a random stream.
+     *
+     * @param random The random stream of the new game.
+     */
+    private void startGame(GameRandom random) {
+        board.initializeBoard(random);
+        gameState = new GameState(board, random);
+    }
+
+    /**
+     * Allocates an id for the game now on the board, records its start and random seed in the journal and publishes it.
+     * A journaled game that had not ended is recorded as abandoned, since it can no longer be resumed.
+     */
+    private void recordGameStart() {
+        int ruleId = gameState.getSelectedRule().getRuleId();
+        long seed = gameState.getRandom().getSeed();
+        if (journal != null) {
+            if (gameOpen) {
+                journal.gameAbandoned(gameId);
+            }
+            gameOpen = true;
+            gameId = journal.nextGameId();
+            journal.gameStarted(gameId, ruleId, board.getBackRank());
+            journal.gameSeeded(gameId, seed);
+            journal.randomDrawn(gameId, gameState.getRandom().getDraws());
+            if (difficulty != null) { // The difficulty carries over to the new game
+                journal.difficultySet(gameId, DifficultyProfile.presetIndex(difficulty));
+            }
+        } else {
+            gameId = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+        }
+        publish(GameEvent.gameStarted(gameId, nextEventSequence(), board.getBackRank(), ruleId, seed));
+    }
+
+    /**
+     * Records the end of the game in the journal, publishes it and queues the game for the position index.
+     *
+     * @param moveResult "WHITE_WINS", "BLACK_WINS" or "STALEMATE".
+     */
+    private void recordGameEnd(String moveResult) {
+        int result = resultCode(moveResult);
+        if (journal != null) {
+            journal.gameEnded(gameId, result);
+            gameOpen = false;
+        }
+        publish(GameEvent.gameEnded(gameId, nextEventSequence(), result));
+        if (indexer != null) {
+            indexer.offer(gameId, GameRecord.of(board.getBackRank(), gameState.getSelectedRule().getRuleId(), result, moveHistory));
+        }
+    }
+
+    /**
+     * Hands an event to the outbox; this never blocks on the broker.
+     *
+     * @param event The event to publish.
+     */
+    private void publish(GameEvent event) {
+        if (eventOutbox != null) {
+            eventOutbox.offer(event);
+        }
+    }
+
+    /**
+     * Returns the next event sequence number of the current game.
+     * Sequence numbers start from the clock, so they keep increasing when a game is resumed after a restart.
+     *
+     * @return The sequence number.
+     */
+    private long nextEventSequence() {
+        eventSequence = Math.max(eventSequence + 1, System.currentTimeMillis() * 1000);
+        return eventSequence;
+    }
+
+    /**
+     * Rebuilds a journaled game on the board by replaying its plies from the starting position.
+     *
+     * @param recovered The game read from the journal.
+     */
+    private void restoreGame(RecoveredGame recovered) {
+        board.initializeBoard(recovered.getBackRank());
+        gameState = new GameState(board, recovered.hasSeed() ? new GameRandom(recovered.getSeed()) : GameRandom.withNewSeed());
+        gameState.selectRuleByIndex(recovered.getRuleId());
+        difficulty = DifficultyProfile.byIndex(recovered.getDifficultyIndex());
+        gameId = recovered.getGameId();
+        gameOpen = true;
+        startHistory();
+
+        List<VariantChessMove> fullMove = new ArrayList<>();
+        List<PositionSnapshot> snapshots = new ArrayList<>();
+        for (int ply = 0; ply < recovered.getPlyCount(); ply++) {
+            if (recovered.isFullMoveStart(ply) && !fullMove.isEmpty()) {
+                recordFullMove(fullMove, snapshots, false);
+                fullMove = new ArrayList<>();
+                snapshots = new ArrayList<>();
+            }
+            VariantChessMove move = MoveHistory.unpack(recovered.getPackedMove(ply), PieceCodec.EMPTY);
+            MoveExecutor.execute(board, gameState, move);
+            fullMove.add(move);
+            snapshots.add(snapshotIfDue(fullMove.size()));
+        }
+        if (!fullMove.isEmpty()) {
+            recordFullMove(fullMove, snapshots, false);
+        }
+        if (recovered.getCurrentPly() < moveHistory.getCurrentPly()) {
+            int fromPly = moveHistory.getCurrentPly();
+            moveHistory.jumpTo(recovered.getCurrentPly());
+            navigate(fromPly, recovered.getCurrentPly());
+        }
+        if (recovered.hasSeed() && recovered.getDraws() >= gameState.getRandom().getDraws()) {
+            gameState.getRandom().skipTo(recovered.getDraws()); // Replayed plies reuse their recorded promotions
+        }
+        publishPosition();
+        System.out.println("Recovered game " + gameId + " at ply " + moveHistory.getCurrentPly() + " from the journal.");
+    }
+
+    /**
+     * Adds a full move to the history, stores the snapshots due during it, journals its plies and publishes them.
+     *
+     * @param fullMove The plies of the full move.
+     * @param snapshots The snapshot due after each ply, or {@code null} where none is due.
+     * @param journaled Whether the plies are new and should be written to the journal and published.
+     */
+    private void recordFullMove(List<VariantChessMove> fullMove, List<PositionSnapshot> snapshots, boolean journaled) {
+        int firstPly = moveHistory.getCurrentPly();
+        moveHistory.addFullMove(fullMove); // Record the full move in history
+        for (int i = 0; i < fullMove.size(); i++) {
+            if (snapshots.get(i) != null) {
+                moveHistory.recordSnapshot(firstPly + i + 1, snapshots.get(i));
+            }
+            if (journaled && journal != null) {
+                journal.plyPlayed(gameId, firstPly + i, moveHistory.getPackedMove(firstPly + i), i == 0);
+            }
+            if (journaled) {
+                publish(GameEvent.movePlayed(gameId, nextEventSequence(), firstPly + i, GameRecord.encodePly(fullMove.get(i))));
+            }
+        }
+        if (journaled && journal != null) {
+            journal.randomDrawn(gameId, gameState.getRandom().getDraws());
+        }
+    }
+
+    /**
+     * Records in the journal which ply the board shows after undo, redo or a jump.
+     */
+    private void journalNavigation() {
+        if (journal != null) {
+            journal.navigated(gameId, moveHistory.getCurrentPly());
+        }
+    }
+
+    /**
+     * Clears the move history and stores the current position as the snapshot of ply 0.
+     */
+    private void startHistory() {
+        moveHistory.clear();
+        moveHistory.recordSnapshot(0, publishPosition());
+    }
+
+    /**
+     * Publishes the position now on the board as the latest position of the game, together with the hashes of the
+     * positions that can still recur from it and its threats, read from the attack map the board keeps up to date.
+     * The snapshot shares unchanged rows with the one it replaces.
+     *
+     * @return The published snapshot.
+     */
+    private PositionSnapshot publishPosition() {
+        PublishedPosition previous = publishedPosition.get();
+        PositionSnapshot position = PositionSnapshot.capture(board, gameState, previous == null ? null : previous.position);
+        publishedPosition.set(new PublishedPosition(position, gameState.getReversibleHashes(), ThreatMap.of(board)));
+        return position;
+    }
+
+    /**
+     * Gets the latest published snapshot of the game.
+     *
+     * @return The snapshot.
+     */
+    private PositionSnapshot latestPosition() {
+        return publishedPosition.get().position;
+    }
+
+    /**
+     * Gets the latest published position of the game. The snapshot is immutable, so it can be analyzed
+     * from any thread, without locking, while moves are being made.
+     *
+     * @return The latest position.
+     */
+    @GetMapping("/position")
+    public PositionSnapshot getPublishedPosition() {
+        ensureRestored();
+        return latestPosition();
     }
 
     /**
@@ -42,6 +373,7 @@ public class GameController {
      */
     @PostMapping("/setRule/{rule}")
     public void setGameRule(@PathVariable String rule) {
+        ensureRestored();
         int ruleIndex;
         switch (rule) {
             case "CannonSpecialRule":
@@ -56,11 +388,47 @@ public class GameController {
             default:
                 throw new IllegalArgumentException("Invalid rule: " + rule);
         }
-        board.initializeBoard(); // Restart the game with the new rule
+        startGame(GameRandom.withNewSeed()); // Restart the game with the new rule
         gameState.selectRuleByIndex(ruleIndex);
+        startHistory();
+        recordGameStart();
         System.out.println("Game rule set and board reinitialized."); // Debugging line
     }
 
+    /**
+     * Endpoint to set the difficulty of the AI, which applies from its next move until changed again.
+     * The difficulty is journaled and saved with the game, so it survives a restart.
+     * With a difficulty set, a game restarted from an earlier seed is only replayed move for move if no search
+     * reaches its time ceiling.
+     *
+     * @param level The name of the difficulty ("BEGINNER", "CASUAL", "CLUB", "EXPERT"), or "CLASSIC" for the
+     *              fixed-depth search.
+     * @throws ResponseStatusException With status 400 if no difficulty has that name.
+     */
+    @PostMapping("/difficulty/{level}")
+    public void setDifficulty(@PathVariable String level) {
+        ensureRestored(); // A session restored later would bring back its own difficulty
+        try {
+            difficulty = "CLASSIC".equalsIgnoreCase(level) ? null : DifficultyProfile.byName(level);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (journal != null && gameOpen) {
+            journal.difficultySet(gameId, DifficultyProfile.presetIndex(difficulty));
+        }
+    }
+
+    /**
+     * Endpoint to retrieve the difficulty of the AI.
+     *
+     * @return The name of the difficulty, or "CLASSIC" for the fixed-depth search.
+     */
+    @GetMapping("/difficulty")
+    public String getDifficulty() {
+        ensureRestored();
+        return difficulty == null ? "CLASSIC" : difficulty.getName();
+    }
+
     /**
      * Handles the undo operation for the last move in the game.
      * This method is mapped to the "/undo" POST request and will attempt to undo the last move(s) made.
@@ -70,26 +438,11 @@ public class GameController {
      */
     @PostMapping("/undo")
     public String undoLastMove() {
-        List<VariantChessMove> lastFullMove = moveHistory.undo();
-        if (lastFullMove != null) {
-            // Undo moves in reverse order to properly restore the game state
-            for (int i = lastFullMove.size() - 1; i >= 0; i--) {
-                VariantChessMove move = lastFullMove.get(i);
-                // Undo the move by moving the piece back to its original position
-                board.movePiece(new VariantChessMove(move.getEndX(), move.getEndY(), move.getStartX(), move.getStartY()));
-                if (move.isCapture() && move.getCapturedPiece() != null) {
-                    // Restore the captured piece to its original position
-                    board.setPieceAt(move.getEndX(), move.getEndY(), move.getCapturedPiece());
-                }
-
-                // Restore the first move status for pawns
-                VariantChessPiece piece = board.getPieceAt(move.getStartX(), move.getStartY());
-                if (piece instanceof Pawn) {
-                    ((Pawn) piece).setFirstMove(move.wasFirstMove());
-                }
-
-                gameState.switchTurn(); // Switch back the turn to the previous player
-            }
+        ensureRestored();
+        int fromPly = moveHistory.getCurrentPly();
+        if (moveHistory.undo()) {
+            navigate(fromPly, moveHistory.getCurrentPly());
+            journalNavigation();
             return "UNDO_SUCCESS"; // Return success message
         }
         return "UNDO_FAIL"; // Return failure message if undo is not possible
@@ -104,21 +457,126 @@ public class GameController {
      */
     @PostMapping("/redo")
     public String redoLastMove() {
-        List<VariantChessMove> nextFullMove = moveHistory.redo();
-        if (nextFullMove != null) {
-            for (VariantChessMove move : nextFullMove) {
-                board.movePiece(move); // Redo the move by moving the piece to its previous position
-                if (move.isCapture() && move.getCapturedPiece() != null) {
-                    // Re-capture the piece by removing it from the board
-                    board.setPieceAt(move.getEndX(), move.getEndY(), null);
-                }
-                gameState.switchTurn(); // Switch the turn to the next player
-            }
+        ensureRestored();
+        int fromPly = moveHistory.getCurrentPly();
+        if (moveHistory.redo()) {
+            navigate(fromPly, moveHistory.getCurrentPly());
+            journalNavigation();
             return "REDO_SUCCESS"; // Return success message
         }
         return "REDO_FAIL"; // Return failure message if redo is not possible
     }
 
+    /**
+     * Jumps directly to any ply of the recorded game.
+     * The nearest snapshot at or before the ply is restored and the remaining plies are replayed,
+     * so the cost is bounded by the snapshot interval rather than by the length of the game.
+     *
+     * @param ply The number of plies that should be applied, from 0 to the number of recorded plies.
+     * @return "JUMP_SUCCESS" with the current turn, or "JUMP_FAIL" if the ply is out of range.
+     */
+    @PostMapping("/jumpToPly/{ply}")
+    public String jumpToPly(@PathVariable int ply) {
+        ensureRestored();
+        if (ply < 0 || ply > moveHistory.getTotalPlies()) {
+            return "JUMP_FAIL";
+        }
+        int fromPly = moveHistory.getCurrentPly();
+        moveHistory.jumpTo(ply);
+        navigate(fromPly, ply);
+        journalNavigation();
+        return "JUMP_SUCCESS;CURRENT_TURN=" + gameState.getCurrentTurn().toString();
+    }
+
+    /**
+     * Brings the board from one recorded ply to another.
+     * Moving forward from the current position replays the plies in between; otherwise the nearest
+     * snapshot at or before the target is restored and the rest is replayed from there.
+     *
+     * @param fromPly The ply currently shown on the board.
+     * @param toPly The ply to show.
+     */
+    private void navigate(int fromPly, int toPly) {
+        int basePly = moveHistory.nearestSnapshotPly(toPly);
+        if (fromPly > toPly || fromPly < basePly) {
+            moveHistory.getSnapshot(basePly).restoreTo(board, gameState);
+        } else {
+            basePly = fromPly;
+        }
+        for (VariantChessMove move : moveHistory.getPlies(basePly, toPly)) {
+            MoveExecutor.execute(board, gameState, move);
+        }
+        publishPosition();
+    }
+
+    /**
+     * Exports the game as shown on the board in the variant notation (see {@link GameNotation}).
+     *
+     * @return The notation of the layout, rule, plies played and result.
+     */
+    @GetMapping(value = "/export", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String exportGame() {
+        ensureRestored();
+        int result = GameRecord.RESULT_UNKNOWN;
+        if (gameState.isWin()) {
+            result = gameState.getCurrentTurn() == Color.WHITE ? GameRecord.RESULT_BLACK_WINS : GameRecord.RESULT_WHITE_WINS;
+        } else if (gameState.isDraw()) {
+            result = GameRecord.RESULT_DRAW;
+        }
+        return GameNotation.format(GameRecord.of(board.getBackRank(), gameState.getSelectedRule().getRuleId(), result, moveHistory));
+    }
+
+    /**
+     * Imports a game in the variant notation and replaces the current game with it.
+     * The plies are checked and replayed with their recorded promotion outcomes; replay stops at the first
+     * illegal ply, leaving the game at the last legal position.
+     *
+     * @param notation The notation of the game.
+     * @return "IMPORT_SUCCESS" with the current turn, or "IMPORT_FAIL" if the notation is invalid or a ply is illegal.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public String importGame(@RequestBody String notation) {
+        ensureRestored();
+        GameRecord record;
+        try {
+            record = GameNotation.parse(notation);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid notation: " + e.getMessage());
+            return "IMPORT_FAIL";
+        }
+        board.initializeBoard(record.getBackRank());
+        gameState = new GameState(board);
+        gameState.selectRuleByIndex(record.getRuleId());
+        startHistory();
+        recordGameStart();
+
+        for (int i = 0; i < record.getPlyCount(); i += 2) {
+            List<VariantChessMove> fullMove = new ArrayList<>();
+            List<PositionSnapshot> snapshots = new ArrayList<>();
+            boolean legal = true;
+            for (int ply = i; ply < Math.min(i + 2, record.getPlyCount()) && legal; ply++) {
+                VariantChessMove move = GameRecord.decodePly(record.getPly(ply));
+                VariantChessPiece piece = board.getPieceAt(move.getStartX(), move.getStartY());
+                legal = piece != null && piece.getColor() == gameState.getCurrentTurn() && piece.isValidMove(move, board);
+                if (legal) {
+                    MoveExecutor.execute(board, gameState, move);
+                    fullMove.add(move);
+                    snapshots.add(snapshotIfDue(fullMove.size()));
+                }
+            }
+            if (!fullMove.isEmpty()) {
+                recordFullMove(fullMove, snapshots, true);
+            }
+            if (!legal) {
+                publishPosition();
+                System.out.println("Import stopped at an illegal ply.");
+                return "IMPORT_FAIL";
+            }
+        }
+        publishPosition();
+        return "IMPORT_SUCCESS;CURRENT_TURN=" + gameState.getCurrentTurn().toString();
+    }
+
     /**
      * Endpoint to retrieve the initial state of the chess board.
      *
@@ -126,19 +584,21 @@ public class GameController {
      */
     @GetMapping("/initialBoard")
     public VariantChessPiece[][] getInitialBoard() {
+        ensureRestored();
         return board.getInitialBoard();
     }
 
     /**
      * Endpoint to retrieve the current state of the chess board.
+     * The board is built from the latest published position with shared read-only pieces,
+     * so it can be served while a move is being made.
      *
      * @return The current configuration of the board as a 2D array of VariantChessPiece.
      */
     @GetMapping("/board")
     public VariantChessPiece[][] getBoard() {
-        System.out.println("Returning current board state:");
-        board.printBoard(); // Add a method in VariantChessBoard to print the board state
-        return board.getBoard();
+        ensureRestored();
+        return latestPosition().toPieces();
     }
 
     /**
@@ -148,16 +608,23 @@ public class GameController {
      */
     @GetMapping("/currentRule")
     public String getCurrentRule() {
+        ensureRestored();
         return gameState.getSelectedRule().getClass().getSimpleName();
     }
 
     /**
      * Endpoint to restart the game by reinitializing the board and game state.
+     * Passing the seed journaled for an earlier game starts it again with the same layout and rule,
+     * and the AI answers the same player moves with the same moves.
+     *
+     * @param seed The seed of the random stream of the new game, or {@code null} for a new seed.
      */
     @PostMapping("/restart")
-    public void restartGame() {
-        board.initializeBoard();
-        this.gameState = new GameState(board);
+    public void restartGame(@RequestParam(required = false) Long seed) {
+        ensureRestored();
+        startGame(seed == null ? GameRandom.withNewSeed() : new GameRandom(seed));
+        startHistory();
+        recordGameStart();
         System.out.println("Game restarted and board reinitialized.");
     }
 
@@ -170,61 +637,16 @@ public class GameController {
      * @return A string indicating the result of the move ("VALID_MOVE", "INVALID_MOVE", "WHITE_WINS", "BLACK_WINS", or "STALEMATE").
      */
     private String processMove(VariantChessMove move, Class<? extends VariantChessPiece> pieceClass) {
+        ensureRestored();
         VariantChessPiece piece = board.getPieceAt(move.getStartX(), move.getStartY());
         if (piece == null || !pieceClass.isInstance(piece)) {
             System.out.println("Invalid move: No piece at the start position or piece type mismatch.");
             return "INVALID_MOVE";
         }
 
-        // Save the first move status for pawns
-        if (piece instanceof Pawn) {
-            move.setWasFirstMove(((Pawn) piece).isFirstMove());
-        }
-
         if (piece.isValidMove(move, board)) {
-            VariantChessPiece targetPiece = board.getPieceAt(move.getEndX(), move.getEndY());
-            boolean isCapture = targetPiece != null;
-
-            if (isCapture) {
-                System.out.println("Capture occurred.");
-                move.setCapture(true); // Mark the move as a capture
-                move.setCapturedPiece(targetPiece); // Track the captured piece
-                board.setPieceAt(move.getEndX(), move.getEndY(), null);
-                gameState.resetMoveWithoutCapture();
-            } else {
-                gameState.incrementMoveWithoutCapture();
-            }
-
-            board.movePiece(move);
-            gameState.incrementMoveCount();
-
-            // Check the current rule and apply the Cannon explosion logic only for CannonSpecialRule
-            if (piece instanceof Cannon && isCapture) {
-                if (gameState.getSelectedRule() instanceof CannonSpecialRule) {
-                    ((Cannon) piece).incrementCaptureCount();
-                    if (((Cannon) piece).getCaptureCount() >= 3) {
-                        ((Cannon) piece).detonate(board, move.getEndX(), move.getEndY());
-                    }
-                }
-            }
-
-            // Apply other special rules
-            if ((piece instanceof Pawn || piece.isPromotedFromPawn()) && isCapture) {
-                gameState.getSelectedRule().applyRule(move, piece, board);
-                VariantChessPiece newPiece = board.getPieceAt(move.getEndX(), move.getEndY());
-                System.out.println("New piece type after promotion: " + newPiece.getClass().getSimpleName());
-            } else if (piece instanceof King || piece instanceof Queen) {
-                if (isCapture) {
-                    gameState.getSelectedRule().applyRule(move, piece, board);
-                }
-            }
-
-            // Update the first move status for the pawn
-            if (piece instanceof Pawn) {
-                ((Pawn) piece).setFirstMove(false); // Mark the pawn's first move as done
-            }
-
-            gameState.switchTurn();
+            MoveExecutor.execute(board, gameState, move);
+            publishPosition();
             System.out.println("Move is valid, piece moved.");
 
             if (gameState.isWin()) {
@@ -251,24 +673,43 @@ public class GameController {
      */
     @PostMapping("/movePiece")
     public String movePiece(@RequestBody VariantChessMove move) {
-        String moveResult = processMove(move, board.getPieceAt(move.getStartX(), move.getStartY()).getClass());
+        ensureRestored();
+        String moveResult = playMove(move, board.getPieceAt(move.getStartX(), move.getStartY()).getClass(), true);
+        return moveResult + ";CURRENT_TURN=" + gameState.getCurrentTurn().toString();
+    }
+
+    /**
+     * Plays a player move and, if asked, the reply of the AI, then records them as a full move in the history
+     * and the journal, and the end of the game if it ended.
+     *
+     * @param move       The move of the player.
+     * @param pieceClass The class of the piece that is moving.
+     * @param aiReplies  Whether the AI replies when the move leaves Black to move.
+     * @return The result of the last move played ("VALID_MOVE", "INVALID_MOVE", "WHITE_WINS", "BLACK_WINS", or "STALEMATE").
+     */
+    private String playMove(VariantChessMove move, Class<? extends VariantChessPiece> pieceClass, boolean aiReplies) {
+        String moveResult = processMove(move, pieceClass);
 
         List<VariantChessMove> fullMove = new ArrayList<>(); // Track both player and AI moves
+        List<PositionSnapshot> snapshots = new ArrayList<>(); // Snapshots due after each ply of the full move
 
-        if ("VALID_MOVE".equals(moveResult)) {
+        if (!"INVALID_MOVE".equals(moveResult)) {
             fullMove.add(move); // Add player move to the full move list
+            snapshots.add(snapshotIfDue(fullMove.size()));
 
-            if (gameState.getCurrentTurn() == Color.BLACK) {
+            if (aiReplies && "VALID_MOVE".equals(moveResult) && gameState.getCurrentTurn() == Color.BLACK) {
                 System.out.println("AI's turn.");
                 GameRule currentRule = gameState.getSelectedRule(); // Get the current rule
-                VariantChessMove aiMove = chessAI.calculateBestMove(board, Color.BLACK, currentRule); // Pass rule to AI
+                VariantChessMove aiMove = chessAI.calculateBestMove(board, Color.BLACK, currentRule,
+                        gameState.getReversibleHashes(), gameState.getRandom(), difficulty); // Pass rule, repetition history, game stream and difficulty to AI
                 if (aiMove != null) {
                     System.out.println("AI moves from (" + aiMove.getStartX() + ", " + aiMove.getStartY() + ") to (" + aiMove.getEndX() + ", " + aiMove.getEndY() + ")");
                     String aiMoveResult = processMove(aiMove, board.getPieceAt(aiMove.getStartX(), aiMove.getStartY()).getClass());
 
-                    if ("VALID_MOVE".equals(aiMoveResult)) {
+                    if (!"INVALID_MOVE".equals(aiMoveResult)) {
                         System.out.println("AI move complete, switching back to white.");
                         fullMove.add(aiMove); // Add AI move to the full move list
+                        snapshots.add(snapshotIfDue(fullMove.size()));
                         moveResult = aiMoveResult; // Update move result to AI's move result
                     }
                 } else {
@@ -276,91 +717,140 @@ public class GameController {
                 }
             }
 
-            moveHistory.addFullMove(fullMove); // Record the full move in history
+            recordFullMove(fullMove, snapshots, true);
+            if (!"VALID_MOVE".equals(moveResult)) {
+                recordGameEnd(moveResult);
+            }
         }
+        return moveResult;
+    }
 
-        return moveResult + ";CURRENT_TURN=" + gameState.getCurrentTurn().toString();
+    /**
+     * Converts the result of a finished game into the code stored in the journal and in game records.
+     *
+     * @param moveResult "WHITE_WINS", "BLACK_WINS" or "STALEMATE".
+     * @return 1 for a white win, 2 for a black win, 3 for a draw.
+     */
+    private static int resultCode(String moveResult) {
+        switch (moveResult) {
+            case "WHITE_WINS":
+                return 1;
+            case "BLACK_WINS":
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    /**
+     * Captures the current position if the ply just played is due for a snapshot.
+     *
+     * @param pliesInFullMove The number of plies of the current full move played so far.
+     * @return The snapshot, or {@code null} if none is due.
+     */
+    private PositionSnapshot snapshotIfDue(int pliesInFullMove) {
+        int ply = moveHistory.getCurrentPly() + pliesInFullMove;
+        return moveHistory.isSnapshotPly(ply) ? PositionSnapshot.capture(board, gameState, latestPosition()) : null;
+    }
+
+    /**
+     * Endpoint to retrieve the hash of the current position, as used by the position index.
+     *
+     * @return The Zobrist hash of the board with the side to move.
+     */
+    @GetMapping("/positionHash")
+    public long getPositionHash() {
+        ensureRestored();
+        return latestPosition().getHash();
     }
 
     @GetMapping("/currentTurn")
     public String getCurrentTurn() {
-        return gameState.getCurrentTurn().toString();
+        ensureRestored();
+        return latestPosition().getCurrentTurn().toString();
     }
     /**
-     * Endpoint to move a Pawn piece.
+     * Endpoint to move a Pawn piece, without a reply from the AI.
      *
      * @param move The move request for the Pawn.
      * @return The result of the move ("VALID_MOVE", "INVALID_MOVE", "WHITE_WINS", "BLACK_WINS", or "STALEMATE").
      */
     @PostMapping("/movePawn")
     public String movePawn(@RequestBody VariantChessMove move) {
-        return processMove(move, Pawn.class);
+        ensureRestored();
+        return playMove(move, Pawn.class, false);
     }
 
     /**
-     * Endpoint to move a Cannon piece.
+     * Endpoint to move a Cannon piece, without a reply from the AI.
      *
      * @param move The move request for the Cannon.
      * @return The result of the move ("VALID_MOVE", "INVALID_MOVE", "WHITE_WINS", "BLACK_WINS", or "STALEMATE").
      */
     @PostMapping("/moveCannon")
     public String moveCannon(@RequestBody VariantChessMove move) {
-        return processMove(move, Cannon.class);
+        ensureRestored();
+        return playMove(move, Cannon.class, false);
     }
 
     /**
-     * Endpoint to move a King piece.
+     * Endpoint to move a King piece, without a reply from the AI.
      *
      * @param move The move request for the King.
      * @return The result of the move ("VALID_MOVE", "INVALID_MOVE", "WHITE_WINS", "BLACK_WINS", or "STALEMATE").
      */
     @PostMapping("/moveKing")
     public String moveKing(@RequestBody VariantChessMove move) {
-        return processMove(move, King.class);
+        ensureRestored();
+        return playMove(move, King.class, false);
     }
 
     /**
-     * Endpoint to move a Knight piece.
+     * Endpoint to move a Knight piece, without a reply from the AI.
      *
      * @param move The move request for the Knight.
      * @return The result of the move ("VALID_MOVE", "INVALID_MOVE", "WHITE_WINS", "BLACK_WINS", or "STALEMATE").
      */
     @PostMapping("/moveKnight")
     public String moveKnight(@RequestBody VariantChessMove move) {
-        return processMove(move, Knight.class);
+        ensureRestored();
+        return playMove(move, Knight.class, false);
     }
 
     /**
-     * Endpoint to move a Bishop piece.
+     * Endpoint to move a Bishop piece, without a reply from the AI.
      *
      * @param move The move request for the Bishop.
      * @return The result of the move ("VALID_MOVE", "INVALID_MOVE", "WHITE_WINS", "BLACK_WINS", or "STALEMATE").
      */
     @PostMapping("/moveBishop")
     public String moveBishop(@RequestBody VariantChessMove move) {
-        return processMove(move, Bishop.class);
+        ensureRestored();
+        return playMove(move, Bishop.class, false);
     }
 
     /**
-     * Endpoint to move a Queen piece.
+     * Endpoint to move a Queen piece, without a reply from the AI.
      *
      * @param move The move request for the Queen.
      * @return The result of the move ("VALID_MOVE", "INVALID_MOVE", "WHITE_WINS", "BLACK_WINS", or "STALEMATE").
      */
     @PostMapping("/moveQueen")
     public String moveQueen(@RequestBody VariantChessMove move) {
-        return processMove(move, Queen.class);
+        ensureRestored();
+        return playMove(move, Queen.class, false);
     }
 
     /**
-     * Endpoint to move a Rook piece.
+     * Endpoint to move a Rook piece, without a reply from the AI.
      *
      * @param move The move request for the Rook.
      * @return The result of the move ("VALID_MOVE", "INVALID_MOVE", "WHITE_WINS", "BLACK_WINS", or "STALEMATE").
      */
     @PostMapping("/moveRook")
     public String moveRook(@RequestBody VariantChessMove move) {
-        return processMove(move, Rook.class);
+        ensureRestored();
+        return playMove(move, Rook.class, false);
     }
 
     /**
@@ -371,19 +861,36 @@ public class GameController {
      */
     @PostMapping("/validMoves")
     public List<VariantChessMove> getValidMoves(@RequestBody ValidMovesRequest request) {
+        ensureRestored();
         int startX = request.getStartX();
         int startY = request.getStartY();
         VariantChessPiece piece = board.getPieceAt(startX, startY);
 
         List<VariantChessMove> validMoves = new ArrayList<>();
         if (piece != null && piece.getColor() == request.getColor()) {
-            for (int endX = 0; endX < 8; endX++) {
-                for (int endY = 0; endY < 8; endY++) {
-                    VariantChessMove move = new VariantChessMove(startX, startY, endX, endY);
-                    if (piece.isValidMove(move, board)) {
-                        validMoves.add(move);
-                    }
-                }
+            long hash = Zobrist.hash(board);
+            boolean mirrored = false; // Whether the cache holds the mirror image of this position
+            if (positionCache.isMirrorSymmetric()) {
+                long canonical = Symmetry.canonical(hash, Symmetry.mirrorHash(board));
+                mirrored = canonical != hash;
+                hash = canonical;
+            }
+            int ruleKey = PositionCache.ruleKey(gameState.getSelectedRule());
+            int square = startX * 8 + startY;
+            int cachedSquare = mirrored ? Symmetry.mirror(square) : square;
+            int[] destinations = positionCache.getLegalMoves(hash, ruleKey, cachedSquare);
+            if (destinations != null && mirrored) {
+                destinations = mirrorDestinations(destinations);
+            }
+            if (destinations == null) {
+                destinations = computeDestinations(piece, startX, startY);
+                positionCache.putLegalMoves(hash, ruleKey, cachedSquare, mirrored ? mirrorDestinations(destinations) : destinations);
+            }
+            for (int destination : destinations) {
+                int to = destination & 63;
+                VariantChessMove move = new VariantChessMove(startX, startY, to / 8, to % 8);
+                move.setCapture((destination & 64) != 0);
+                validMoves.add(move);
             }
         } else {
             System.out.println(String.format("No piece at position (%d, %d) or piece color does not match request color.", startX, startY));
@@ -391,6 +898,101 @@ public class GameController {
         return validMoves;
     }
 
+    /**
+     * Generates the legal destinations of a piece in the packed form stored by the position cache.
+     *
+     * @param piece The piece to generate moves for.
+     * @param startX The row index of the piece.
+     * @param startY The column index of the piece.
+     * @return The destination square indexes, with bit 6 set for captures.
+     */
+    private int[] computeDestinations(VariantChessPiece piece, int startX, int startY) {
+        long targets = piece.getTargets(startX * 8 + startY, board);
+        long occupied = board.getOccupancy();
+        int[] destinations = new int[Long.bitCount(targets)];
+        for (int i = 0; targets != 0; i++, targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            destinations[i] = to | ((occupied & (1L << to)) != 0 ? 64 : 0);
+        }
+        return destinations;
+    }
+
+    /**
+     * Mirrors packed destinations to the other side of the board, keeping their capture flags.
+     *
+     * @param destinations The packed destinations, see {@link #computeDestinations}.
+     * @return A new array of the mirrored destinations.
+     */
+    private static int[] mirrorDestinations(int[] destinations) {
+        int[] mirrored = new int[destinations.length];
+        for (int i = 0; i < destinations.length; i++) {
+            mirrored[i] = (destinations[i] & 64) | Symmetry.mirror(destinations[i] & 63);
+        }
+        return mirrored;
+    }
+
+    /**
+     * Endpoint to retrieve the threats in the published position, for highlighting attacked and hanging pieces.
+     * The threats are published with the position, so they are served without building a board.
+     *
+     * @return The attacker counts of every square, the hanging pieces and the mobility of each color.
+     */
+    @GetMapping("/threats")
+    public ThreatMap getThreats() {
+        ensureRestored();
+        return publishedPosition.get().threats;
+    }
+
+    /**
+     * Endpoint to analyse the published position: the best moves for the side to move, each with its score,
+     * the depth searched and the line of play expected to follow, as used by hints and move reviews.
+     * The search runs on a scratch copy of the position, so the live game is not locked or changed.
+     *
+     * @param lines The number of best moves to return, from 1 to {@value #MAX_ANALYSIS_LINES}.
+     * @param depth The depth to search to in plies, from 1 to {@value ChessAI#MAX_ANALYSIS_DEPTH}.
+     * @return The analysis, best move first.
+     */
+    @GetMapping("/analysis")
+    public Analysis analyzePosition(@RequestParam(defaultValue = "3") int lines,
+                                    @RequestParam(defaultValue = "4") int depth) {
+        if (lines < 1 || lines > MAX_ANALYSIS_LINES || depth < 1 || depth > ChessAI.MAX_ANALYSIS_DEPTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid number of lines or depth");
+        }
+        ensureRestored();
+        PublishedPosition published = publishedPosition.get(); // The position and its history, read together
+        VariantChessBoard scratch = new VariantChessBoard(null);
+        GameState scratchState = new GameState(scratch, new GameRandom(0));
+        published.position.restoreTo(scratch, scratchState); // Fresh pieces and rule, which the search changes and restores
+        return chessAI.analyze(scratch, published.position.getCurrentTurn(), scratchState.getSelectedRule(),
+                published.reversibleHashes, lines, depth);
+    }
+
+    /**
+     * Endpoint to retrieve the hit-rate and size metrics of the shared position cache.
+     *
+     * @return The current cache statistics.
+     */
+    @GetMapping("/cacheStats")
+    public PositionCache.Stats getCacheStats() {
+        return positionCache.getStats();
+    }
+
+    /**
+     * A published snapshot with the hashes of the positions that can still recur from it, oldest first and ending
+     * with its own, and its threats, so that readers always see them from the same moment.
+     */
+    private static final class PublishedPosition {
+        private final PositionSnapshot position;
+        private final long[] reversibleHashes;
+        private final ThreatMap threats;
+
+        private PublishedPosition(PositionSnapshot position, long[] reversibleHashes, ThreatMap threats) {
+            this.position = position;
+            this.reversibleHashes = reversibleHashes;
+            this.threats = threats;
+        }
+    }
+
     /**
      * Inner class representing the request for retrieving valid moves.
      */
@@ -0,0 +1,76 @@
+package uk.ac.standrews.variantchessgame.controller;
+
+import org.springframework.web.bind.annotation.*;
+import uk.ac.standrews.variantchessgame.index.GamePositionIndex;
+import uk.ac.standrews.variantchessgame.persistence.GameNotation;
+
+/**
+ * Controller for querying the index of finished games.
+ * Each endpoint returns the ids of the matching games.
+ */
+@RestController
+@RequestMapping("/api/games")
+public class GameIndexController {
+
+    private final GamePositionIndex index;
+
+    /**
+     * Constructor to initialize the GameIndexController with the position index.
+     *
+     * @param index The index of finished games.
+     */
+    public GameIndexController(GamePositionIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Endpoint to find games that reached a position.
+     *
+     * @param hash The position hash, as returned by {@code /api/game/positionHash}.
+     * @param limit The maximum number of games to return.
+     * @return The ids of the games.
+     */
+    @GetMapping("/byPosition/{hash}")
+    public long[] findByPosition(@PathVariable long hash, @RequestParam(defaultValue = "100") int limit) {
+        return index.findByPosition(hash, limit);
+    }
+
+    /**
+     * Endpoint to find games played with a rule.
+     *
+     * @param rule The name of the rule ("CannonSpecialRule", "KingQueenSpecialRule" or "PawnPromotionRule").
+     * @param limit The maximum number of games to return.
+     * @return The ids of the games.
+     */
+    @GetMapping("/byRule/{rule}")
+    public long[] findByRule(@PathVariable String rule, @RequestParam(defaultValue = "100") int limit) {
+        for (int ruleId = 0; ruleId < 3; ruleId++) {
+            if (GameNotation.ruleName(ruleId).equals(rule)) {
+                return index.findByRule(ruleId, limit);
+            }
+        }
+        throw new IllegalArgumentException("Invalid rule: " + rule);
+    }
+
+    /**
+     * Endpoint to find games that started from a back-rank layout.
+     *
+     * @param layout The back-rank layout, for example "RNBQKBNR".
+     * @param limit The maximum number of games to return.
+     * @return The ids of the games.
+     */
+    @GetMapping("/byLayout/{layout}")
+    public long[] findByLayout(@PathVariable String layout, @RequestParam(defaultValue = "100") int limit) {
+        return index.findByLayout(layout, limit);
+    }
+
+    /**
+     * Endpoint to count the indexed games.
+     *
+     * @return The number of games.
+     */
+    @GetMapping("/count")
+    public long count() {
+        return index.count();
+    }
+}
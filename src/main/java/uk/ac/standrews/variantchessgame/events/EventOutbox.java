@@ -0,0 +1,81 @@
+package uk.ac.standrews.variantchessgame.events;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded in-memory outbox between the request threads that create events and the publisher that sends them.
+ * Adding an event never blocks: if the publisher has fallen a full outbox behind, for example because the
+ * broker is down, the event is dropped and counted instead of slowing down the request.
+ */
+public class EventOutbox {
+
+    private final BlockingQueue<GameEvent> queue;
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Constructor for an outbox.
+     *
+     * @param capacity The maximum number of events waiting to be published.
+     */
+    public EventOutbox(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Adds an event without blocking.
+     *
+     * @param event The event.
+     * @return {@code true} if the event was added, {@code false} if the outbox was full and the event was dropped.
+     */
+    public boolean offer(GameEvent event) {
+        if (queue.offer(event)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Waits for the next event.
+     *
+     * @param timeoutMillis The longest time to wait.
+     * @return The event, or {@code null} if none arrived in time.
+     * @throws InterruptedException If the wait is interrupted.
+     */
+    GameEvent poll(long timeoutMillis) throws InterruptedException {
+        return queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Moves waiting events into a batch.
+     *
+     * @param batch The batch to add to.
+     * @param maxEvents The maximum number of events to move.
+     * @return The number of events moved.
+     */
+    int drainTo(Collection<GameEvent> batch, int maxEvents) {
+        return queue.drainTo(batch, maxEvents);
+    }
+
+    /**
+     * Gets the number of events waiting to be published.
+     *
+     * @return The outbox size.
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the number of events dropped because the outbox was full.
+     *
+     * @return The dropped event count.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+}
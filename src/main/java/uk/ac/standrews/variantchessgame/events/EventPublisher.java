@@ -0,0 +1,179 @@
+package uk.ac.standrews.variantchessgame.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the events of an {@link EventOutbox} to a Kafka topic from a background thread.
+ * <p>
+ * Events are drained from the outbox in batches and handed to the producer, which groups them further
+ * according to its linger and batch-size settings and compresses each batch. Every record is keyed by
+ * its game id, so the events of a game stay in order on one partition, and carries its event id in the
+ * {@code event-id} header. The producer is idempotent and retries retriable errors itself until its delivery
+ * timeout, without duplicating or reordering records; an event that fails after that is discarded, since sending
+ * it again would put it behind the later events of its game. Only events the producer refused to take at all are
+ * kept and sent again after a back-off, together with every event after them, so their order is kept.
+ */
+public class EventPublisher implements AutoCloseable {
+
+    public static final String EVENT_ID_HEADER = "event-id";
+
+    private static final int MAX_BATCH = 512;
+    private static final long POLL_MILLIS = 50;
+    private static final long RETRY_BACKOFF_MILLIS = 500;
+
+    private final EventOutbox outbox;
+    private final Producer<String, String> producer;
+    private final String topic;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Deque<GameEvent> retry = new ArrayDeque<>(); // Events refused by the producer, used only by the publisher thread
+    private final LongAdder published = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Builds the producer settings for publishing events.
+     *
+     * @param bootstrapServers The Kafka bootstrap servers.
+     * @param lingerMillis How long the producer waits for more records before sending a batch.
+     * @param batchBytes The maximum size of a producer batch.
+     * @param compression The compression type, for example "lz4".
+     * @return The producer configuration.
+     */
+    public static Map<String, Object> producerConfig(String bootstrapServers, int lingerMillis, int batchBytes, String compression) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMillis);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchBytes);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        config.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 2000); // Only the publisher thread ever blocks on the broker
+        return config;
+    }
+
+    /**
+     * Constructor for a publisher. Starts the background thread.
+     *
+     * @param outbox The outbox to drain.
+     * @param producer The producer to send with; it is closed with the publisher.
+     * @param topic The topic to publish to.
+     */
+    public EventPublisher(EventOutbox outbox, Producer<String, String> producer, String topic) {
+        this.outbox = outbox;
+        this.producer = producer;
+        this.topic = topic;
+        this.thread = new Thread(this::publishLoop, "game-event-publisher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Gets the number of events acknowledged by the broker.
+     *
+     * @return The published event count.
+     */
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * Gets the number of events given up on because of a non-retriable error, or a retriable error that outlasted
+     * the retries of the producer.
+     *
+     * @return The discarded event count.
+     */
+    public long getDiscardedCount() {
+        return discarded.sum();
+    }
+
+    private void publishLoop() {
+        List<GameEvent> batch = new ArrayList<>(MAX_BATCH);
+        while (running || outbox.size() > 0) {
+            try {
+                if (!retry.isEmpty()) {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS);
+                    while (!retry.isEmpty() && batch.size() < MAX_BATCH) {
+                        batch.add(retry.poll());
+                    }
+                } else {
+                    GameEvent first = outbox.poll(POLL_MILLIS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    outbox.drainTo(batch, MAX_BATCH - 1);
+                }
+                send(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void send(List<GameEvent> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            GameEvent event = batch.get(i);
+            ProducerRecord<String, String> record;
+            try {
+                record = new ProducerRecord<>(topic, null, event.getTimestamp(),
+                        Long.toString(event.getGameId()), objectMapper.writeValueAsString(event));
+            } catch (JsonProcessingException e) {
+                discarded.increment();
+                continue;
+            }
+            record.headers().add(EVENT_ID_HEADER, event.getEventId().getBytes(StandardCharsets.UTF_8));
+            try {
+                producer.send(record, (metadata, exception) -> {
+                    if (exception == null) {
+                        published.increment();
+                    } else {
+                        discarded.increment(); // The producer has already retried as long as it may
+                    }
+                });
+            } catch (RetriableException e) {
+                // The broker could not be reached in time; keep this event and the rest of the batch for later
+                retry.addAll(batch.subList(i, batch.size()));
+                return;
+            } catch (KafkaException e) {
+                discarded.increment();
+            }
+        }
+    }
+
+    /**
+     * Publishes the events still in the outbox, waiting at most a few seconds, then closes the producer.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread.interrupt();
+        producer.close(Duration.ofSeconds(5));
+    }
+}
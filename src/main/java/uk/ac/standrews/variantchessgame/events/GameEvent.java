@@ -0,0 +1,133 @@
+package uk.ac.standrews.variantchessgame.events;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import uk.ac.standrews.variantchessgame.persistence.GameNotation;
+
+/**
+ * An event published about a game: its start, a ply or its end.
+ * Events of a game carry increasing sequence numbers, so {@link #getEventId()} is unique and
+ * consumers can drop duplicates delivered after a retry.
+ * Fields that do not apply to the type of the event are left out of its JSON form.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GameEvent {
+
+    public static final String GAME_START = "GAME_START";
+    public static final String MOVE = "MOVE";
+    public static final String GAME_END = "GAME_END";
+
+    private final String type;
+    private final long gameId;
+    private final long sequence;
+    private final long timestamp;
+    private String layout;   // Game start only
+    private String rule;     // Game start only
+    private Long seed;       // Game start only
+    private Integer ply;     // Move only
+    private String move;     // Move only, in the variant notation
+    private String result;   // Game end only
+
+    private GameEvent(String type, long gameId, long sequence) {
+        this.type = type;
+        this.gameId = gameId;
+        this.sequence = sequence;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates the event for the start of a game.
+     *
+     * @param gameId The game id.
+     * @param sequence The sequence number of the event within the game.
+     * @param layout The back-rank layout.
+     * @param ruleId The id of the selected rule.
+     * @param seed The seed of the random stream of the game.
+     * @return The event.
+     */
+    public static GameEvent gameStarted(long gameId, long sequence, String layout, int ruleId, long seed) {
+        GameEvent event = new GameEvent(GAME_START, gameId, sequence);
+        event.layout = layout;
+        event.rule = GameNotation.ruleName(ruleId);
+        event.seed = seed;
+        return event;
+    }
+
+    /**
+     * Creates the event for a ply.
+     *
+     * @param gameId The game id.
+     * @param sequence The sequence number of the event within the game.
+     * @param ply The index of the ply.
+     * @param encodedPly The ply in the {@code GameRecord} format.
+     * @return The event.
+     */
+    public static GameEvent movePlayed(long gameId, long sequence, int ply, int encodedPly) {
+        GameEvent event = new GameEvent(MOVE, gameId, sequence);
+        event.ply = ply;
+        event.move = GameNotation.formatPly(encodedPly);
+        return event;
+    }
+
+    /**
+     * Creates the event for the end of a game.
+     *
+     * @param gameId The game id.
+     * @param sequence The sequence number of the event within the game.
+     * @param result One of the {@code GameRecord.RESULT_} constants.
+     * @return The event.
+     */
+    public static GameEvent gameEnded(long gameId, long sequence, int result) {
+        GameEvent event = new GameEvent(GAME_END, gameId, sequence);
+        event.result = GameNotation.resultName(result);
+        return event;
+    }
+
+    /**
+     * Gets the identifier used to drop duplicates: the game id and the sequence number.
+     *
+     * @return The event id.
+     */
+    public String getEventId() {
+        return gameId + "-" + sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getLayout() {
+        return layout;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public Integer getPly() {
+        return ply;
+    }
+
+    public String getMove() {
+        return move;
+    }
+
+    public String getResult() {
+        return result;
+    }
+}
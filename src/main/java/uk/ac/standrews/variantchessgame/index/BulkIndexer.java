@@ -0,0 +1,215 @@
+package uk.ac.standrews.variantchessgame.index;
+
+import uk.ac.standrews.variantchessgame.persistence.GameRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds finished games into a {@link GamePositionIndex} in bulk from a background thread.
+ * <p>
+ * Submitted games wait in a bounded queue. The indexing thread replays each game to collect its
+ * positions and sends them to the index in batches. When the index cannot keep up the queue fills:
+ * {@link #submit} then blocks, slowing a batch producer down to the rate the index can absorb,
+ * while {@link #offer} drops and counts the game so that a request thread never waits on the index.
+ */
+public class BulkIndexer implements AutoCloseable {
+
+    private static final long POLL_MILLIS = 50;
+
+    private final GamePositionIndex index;
+    private final int batchSize;
+    private final BlockingQueue<PendingGame> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final Object progressLock = new Object();
+    private long submitted;   // Guarded by progressLock
+    private long indexed;     // Guarded by progressLock
+    private long failed;      // Guarded by progressLock
+    private long dropped;     // Guarded by progressLock
+
+    /**
+     * Constructor for a bulk indexer. Starts the indexing thread.
+     *
+     * @param index The index to feed.
+     * @param batchSize The maximum number of games per bulk request.
+     * @param capacity The maximum number of games waiting to be indexed before {@link #submit} blocks.
+     */
+    public BulkIndexer(GamePositionIndex index, int batchSize, int capacity) {
+        if (batchSize <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Batch size and capacity must be positive");
+        }
+        this.index = index;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(this::indexLoop, "bulk-indexer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Submits a finished game, waiting while the queue is full.
+     *
+     * @param gameId The id of the game.
+     * @param game The record of the game.
+     * @throws InterruptedException If interrupted while waiting for space.
+     */
+    public void submit(long gameId, GameRecord game) throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Indexer is closed");
+        }
+        synchronized (progressLock) {
+            submitted++;
+        }
+        try {
+            queue.put(new PendingGame(gameId, game));
+        } catch (InterruptedException e) {
+            synchronized (progressLock) {
+                submitted--;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Submits a finished game without waiting. If the queue is full the game is dropped and counted.
+     *
+     * @param gameId The id of the game.
+     * @param game The record of the game.
+     * @return {@code true} if the game was queued, {@code false} if it was dropped.
+     */
+    public boolean offer(long gameId, GameRecord game) {
+        if (!running) {
+            throw new IllegalStateException("Indexer is closed");
+        }
+        synchronized (progressLock) {
+            submitted++;
+        }
+        if (queue.offer(new PendingGame(gameId, game))) {
+            return true;
+        }
+        synchronized (progressLock) {
+            submitted--;
+            dropped++;
+        }
+        return false;
+    }
+
+    /**
+     * Waits until every game submitted so far has been sent to the index, then refreshes the index.
+     *
+     * @throws InterruptedException If the wait is interrupted.
+     */
+    public void flush() throws InterruptedException {
+        synchronized (progressLock) {
+            long target = submitted;
+            while (indexed + failed < target && thread.isAlive()) {
+                progressLock.wait(POLL_MILLIS);
+            }
+        }
+        index.refresh();
+    }
+
+    /**
+     * Gets the number of games sent to the index.
+     *
+     * @return The indexed game count.
+     */
+    public long getIndexedCount() {
+        synchronized (progressLock) {
+            return indexed;
+        }
+    }
+
+    /**
+     * Gets the number of games whose batch the index rejected.
+     *
+     * @return The failed game count.
+     */
+    public long getFailedCount() {
+        synchronized (progressLock) {
+            return failed;
+        }
+    }
+
+    /**
+     * Gets the number of games dropped by {@link #offer} because the queue was full.
+     *
+     * @return The dropped game count.
+     */
+    public long getDroppedCount() {
+        synchronized (progressLock) {
+            return dropped;
+        }
+    }
+
+    private void indexLoop() {
+        List<PendingGame> pending = new ArrayList<>(batchSize);
+        List<IndexedGame> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingGame first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                pending.add(first);
+                queue.drainTo(pending, batchSize - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            boolean succeeded;
+            try {
+                for (PendingGame game : pending) {
+                    batch.add(IndexedGame.of(game.gameId, game.game));
+                }
+                index.indexAll(batch);
+                succeeded = true;
+            } catch (RuntimeException e) {
+                System.err.println("Failed to index " + pending.size() + " games: " + e.getMessage());
+                succeeded = false;
+            }
+            synchronized (progressLock) {
+                if (succeeded) {
+                    indexed += pending.size();
+                } else {
+                    failed += pending.size();
+                }
+                progressLock.notifyAll();
+            }
+            pending.clear();
+            batch.clear();
+        }
+    }
+
+    /**
+     * Indexes the games still queued and stops the indexing thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread.interrupt();
+    }
+
+    /**
+     * A game waiting to be indexed.
+     */
+    private static final class PendingGame {
+        private final long gameId;
+        private final GameRecord game;
+
+        private PendingGame(long gameId, GameRecord game) {
+            this.gameId = gameId;
+            this.game = game;
+        }
+    }
+}
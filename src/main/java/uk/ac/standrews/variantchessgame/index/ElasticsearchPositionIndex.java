@@ -0,0 +1,110 @@
+package uk.ac.standrews.variantchessgame.index;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.Criteria;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A position index stored in Elasticsearch, one {@link GameDocument} per game.
+ * Each batch is sent as a single bulk request; the index and its mapping are created on first use.
+ */
+public class ElasticsearchPositionIndex implements GamePositionIndex {
+
+    private final ElasticsearchOperations operations;
+    private volatile boolean indexReady;
+
+    /**
+     * Constructor for an Elasticsearch position index.
+     *
+     * @param operations The Elasticsearch operations configured by Spring Boot.
+     */
+    public ElasticsearchPositionIndex(ElasticsearchOperations operations) {
+        this.operations = operations;
+    }
+
+    @Override
+    public void indexAll(List<IndexedGame> games) {
+        if (games.isEmpty()) {
+            return;
+        }
+        ensureIndex();
+        List<IndexQuery> queries = new ArrayList<>(games.size());
+        for (IndexedGame game : games) {
+            GameDocument document = new GameDocument();
+            document.setId(Long.toString(game.getGameId()));
+            document.setLayout(game.getGame().getBackRank());
+            document.setRuleId(game.getGame().getRuleId());
+            document.setResult(game.getGame().getResult());
+            document.setPlyCount(game.getGame().getPlyCount());
+            List<Long> positions = new ArrayList<>(game.getPositionHashes().length);
+            for (long hash : game.getPositionHashes()) {
+                positions.add(hash);
+            }
+            document.setPositions(positions);
+            queries.add(new IndexQueryBuilder().withId(document.getId()).withObject(document).build());
+        }
+        operations.bulkIndex(queries, GameDocument.class);
+    }
+
+    @Override
+    public long[] findByPosition(long positionHash, int limit) {
+        return find(new Criteria("positions").is(positionHash), limit);
+    }
+
+    @Override
+    public long[] findByRule(int ruleId, int limit) {
+        return find(new Criteria("ruleId").is(ruleId), limit);
+    }
+
+    @Override
+    public long[] findByLayout(String layout, int limit) {
+        return find(new Criteria("layout").is(layout), limit);
+    }
+
+    @Override
+    public long count() {
+        ensureIndex();
+        return operations.count(Query.findAll(), GameDocument.class);
+    }
+
+    @Override
+    public void refresh() {
+        ensureIndex();
+        operations.indexOps(GameDocument.class).refresh();
+    }
+
+    private long[] find(Criteria criteria, int limit) {
+        if (limit <= 0) {
+            return new long[0];
+        }
+        ensureIndex();
+        Query query = new CriteriaQuery(criteria, PageRequest.of(0, limit));
+        SearchHits<GameDocument> hits = operations.search(query, GameDocument.class);
+        List<SearchHit<GameDocument>> found = hits.getSearchHits();
+        long[] ids = new long[found.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Long.parseLong(found.get(i).getContent().getId());
+        }
+        return ids;
+    }
+
+    private void ensureIndex() {
+        if (!indexReady) {
+            IndexOperations indexOps = operations.indexOps(GameDocument.class);
+            if (!indexOps.exists()) {
+                indexOps.createWithMapping();
+            }
+            indexReady = true;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package uk.ac.standrews.variantchessgame.index;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+import java.util.List;
+
+/**
+ * The Elasticsearch document of a finished game.
+ */
+@Document(indexName = "variant-chess-games")
+public class GameDocument {
+
+    @Id
+    private String id;
+
+    @Field(type = FieldType.Keyword)
+    private String layout;
+
+    @Field(type = FieldType.Integer)
+    private int ruleId;
+
+    @Field(type = FieldType.Integer)
+    private int result;
+
+    @Field(type = FieldType.Integer)
+    private int plyCount;
+
+    @Field(type = FieldType.Long)
+    private List<Long> positions;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getLayout() {
+        return layout;
+    }
+
+    public void setLayout(String layout) {
+        this.layout = layout;
+    }
+
+    public int getRuleId() {
+        return ruleId;
+    }
+
+    public void setRuleId(int ruleId) {
+        this.ruleId = ruleId;
+    }
+
+    public int getResult() {
+        return result;
+    }
+
+    public void setResult(int result) {
+        this.result = result;
+    }
+
+    public int getPlyCount() {
+        return plyCount;
+    }
+
+    public void setPlyCount(int plyCount) {
+        this.plyCount = plyCount;
+    }
+
+    public List<Long> getPositions() {
+        return positions;
+    }
+
+    public void setPositions(List<Long> positions) {
+        this.positions = positions;
+    }
+}
@@ -0,0 +1,58 @@
+package uk.ac.standrews.variantchessgame.index;
+
+import java.util.List;
+
+/**
+ * An index of finished games and of every position reached in them.
+ * Positions are identified by their Zobrist hash including the side to move
+ * (see {@code Zobrist.hash(board, side)}). Queries return at most {@code limit} game ids.
+ */
+public interface GamePositionIndex {
+
+    /**
+     * Indexes a batch of games. Indexing a game id again replaces or ignores the earlier entry.
+     *
+     * @param games The games to index.
+     */
+    void indexAll(List<IndexedGame> games);
+
+    /**
+     * Finds games that reached a position.
+     *
+     * @param positionHash The Zobrist hash of the position with the side to move.
+     * @param limit The maximum number of game ids to return.
+     * @return The ids of the games.
+     */
+    long[] findByPosition(long positionHash, int limit);
+
+    /**
+     * Finds games played with a rule.
+     *
+     * @param ruleId The id of the rule.
+     * @param limit The maximum number of game ids to return.
+     * @return The ids of the games.
+     */
+    long[] findByRule(int ruleId, int limit);
+
+    /**
+     * Finds games that started from a back-rank layout.
+     *
+     * @param layout The back-rank layout, for example "RNBQKBNR".
+     * @param limit The maximum number of game ids to return.
+     * @return The ids of the games.
+     */
+    long[] findByLayout(String layout, int limit);
+
+    /**
+     * Counts the indexed games.
+     *
+     * @return The number of games.
+     */
+    long count();
+
+    /**
+     * Makes every game indexed so far visible to queries. Implementations that index synchronously do nothing.
+     */
+    default void refresh() {
+    }
+}
@@ -0,0 +1,94 @@
+package uk.ac.standrews.variantchessgame.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-process inverted index over finished games, for tests and single-node deployments.
+ * Each position hash, rule and layout maps to a posting list of game ids held in a growable long array,
+ * so queries return games in the order they were indexed.
+ * Batches are applied under a write lock; queries share a read lock.
+ */
+public class InMemoryPositionIndex implements GamePositionIndex {
+
+    private final Map<Long, Postings> byPosition = new HashMap<>();
+    private final Map<Integer, Postings> byRule = new HashMap<>();
+    private final Map<String, Postings> byLayout = new HashMap<>();
+    private final Set<Long> gameIds = new HashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void indexAll(List<IndexedGame> games) {
+        lock.writeLock().lock();
+        try {
+            for (IndexedGame game : games) {
+                if (!gameIds.add(game.getGameId())) {
+                    continue; // Already indexed
+                }
+                for (long hash : game.getPositionHashes()) {
+                    byPosition.computeIfAbsent(hash, key -> new Postings()).add(game.getGameId());
+                }
+                byRule.computeIfAbsent(game.getGame().getRuleId(), key -> new Postings()).add(game.getGameId());
+                byLayout.computeIfAbsent(game.getGame().getBackRank(), key -> new Postings()).add(game.getGameId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] findByPosition(long positionHash, int limit) {
+        return find(byPosition, positionHash, limit);
+    }
+
+    @Override
+    public long[] findByRule(int ruleId, int limit) {
+        return find(byRule, ruleId, limit);
+    }
+
+    @Override
+    public long[] findByLayout(String layout, int limit) {
+        return find(byLayout, layout, limit);
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return gameIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <K> long[] find(Map<K, Postings> postings, K key, int limit) {
+        lock.readLock().lock();
+        try {
+            Postings list = postings.get(key);
+            return list == null ? new long[0] : Arrays.copyOf(list.ids, Math.max(0, Math.min(list.size, limit)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A posting list: game ids in the order they were indexed.
+     */
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        private void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package uk.ac.standrews.variantchessgame.index;
+
+import uk.ac.standrews.variantchessgame.model.GameState;
+import uk.ac.standrews.variantchessgame.model.MoveExecutor;
+import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+import uk.ac.standrews.variantchessgame.model.Zobrist;
+import uk.ac.standrews.variantchessgame.persistence.GameRecord;
+
+import java.util.Arrays;
+
+/**
+ * A finished game prepared for indexing: its id, its record and the distinct positions it reached.
+ */
+public class IndexedGame {
+
+    private final long gameId;
+    private final GameRecord game;
+    private final long[] positionHashes;
+
+    /**
+     * Constructor for an indexed game.
+     *
+     * @param gameId The id of the game.
+     * @param game The record of the game.
+     * @param positionHashes The distinct hashes of the positions reached, in ascending order.
+     */
+    public IndexedGame(long gameId, GameRecord game, long[] positionHashes) {
+        this.gameId = gameId;
+        this.game = game;
+        this.positionHashes = positionHashes;
+    }
+
+    /**
+     * Replays a game to collect the hash of every position it reached, including the starting position.
+     *
+     * @param gameId The id of the game.
+     * @param game The record of the game.
+     * @return The game ready for indexing.
+     */
+    public static IndexedGame of(long gameId, GameRecord game) {
+        VariantChessBoard board = new VariantChessBoard(game.getBackRank());
+        GameState gameState = new GameState(board);
+        gameState.selectRuleByIndex(game.getRuleId());
+
+        long[] hashes = new long[game.getPlyCount() + 1];
+        hashes[0] = Zobrist.hash(board, gameState.getCurrentTurn());
+        for (int i = 0; i < game.getPlyCount(); i++) {
+            MoveExecutor.execute(board, gameState, GameRecord.decodePly(game.getPly(i)));
+            hashes[i + 1] = Zobrist.hash(board, gameState.getCurrentTurn());
+        }
+        Arrays.sort(hashes);
+        int distinct = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1]) {
+                hashes[distinct++] = hashes[i];
+            }
+        }
+        return new IndexedGame(gameId, game, Arrays.copyOf(hashes, distinct));
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public GameRecord getGame() {
+        return game;
+    }
+
+    public long[] getPositionHashes() {
+        return positionHashes;
+    }
+}
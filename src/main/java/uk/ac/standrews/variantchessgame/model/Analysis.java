@@ -0,0 +1,103 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import java.util.List;
+
+/**
+ * The result of analysing a position with {@link ChessAI#analyze}: the best moves found, best first, each with
+ * its score and the line of play expected to follow it.
+ */
+public final class Analysis {
+
+    private final Color sideToMove;
+    private final int depth;
+    private final long nodes;
+    private final List<Line> lines;
+
+    Analysis(Color sideToMove, int depth, long nodes, List<Line> lines) {
+        this.sideToMove = sideToMove;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.lines = lines;
+    }
+
+    /**
+     * One of the best moves of the position.
+     */
+    public static final class Line {
+
+        private final VariantChessMove move;
+        private final int score;
+        private final int depth;
+        private final List<VariantChessMove> principalVariation;
+
+        Line(VariantChessMove move, int score, int depth, List<VariantChessMove> principalVariation) {
+            this.move = move;
+            this.score = score;
+            this.depth = depth;
+            this.principalVariation = principalVariation;
+        }
+
+        public VariantChessMove getMove() {
+            return move;
+        }
+
+        /**
+         * Gets the score of the move for the side to move.
+         *
+         * @return The score in hundredths of a Pawn, beyond 100000 in absolute value for a forced win or loss.
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * Gets the depth the move was searched to.
+         *
+         * @return The depth in plies, the move included.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Gets the line of play expected after the position, starting with the move. It may be shorter than
+         * the depth when the game ends in it or its end was taken from the transposition table.
+         *
+         * @return The moves, alternating between the side to move and its opponent.
+         */
+        public List<VariantChessMove> getPrincipalVariation() {
+            return principalVariation;
+        }
+    }
+
+    public Color getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Gets the depth of the last completed iteration of the search.
+     *
+     * @return The depth in plies.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the number of positions visited by every iteration together.
+     *
+     * @return The number of nodes searched.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the best moves, best first; fewer than requested if the position has fewer moves.
+     *
+     * @return The lines.
+     */
+    public List<Line> getLines() {
+        return lines;
+    }
+}
@@ -0,0 +1,193 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import java.util.Arrays;
+
+/**
+ * The squares each color attacks and the number of attackers of every square, kept up to date by the board
+ * as pieces are placed and removed, so that threats can be read without generating moves.
+ * <p>
+ * The attacks of each piece are those returned by {@link VariantChessPiece#getAttacks}. When a square changes,
+ * the attacks of the piece on it are replaced, and so are those of every Rook, Queen and Cannon on a line through
+ * the square, since their slides and the screens of the Cannons depend on it. Other pieces attack the same
+ * squares wherever the other pieces stand.
+ */
+public final class AttackMap {
+
+    private final long[] pieceAttacks = new long[64]; // Attacks of the piece on each square
+    private final int[] pieceColors = new int[64];    // Color ordinal of the piece on each square, or -1
+    private final int[][] attackerCounts = new int[2][64];
+    private final long[] attacked = new long[2];      // Squares with at least one attacker of each color
+    private final long[] pieces = new long[2];        // Squares of the pieces of each color
+    private long straightSliders;                     // Squares of Rooks, Queens and Cannons
+    private long diagonalSliders;                     // Squares of Queens
+
+    AttackMap() {
+        Arrays.fill(pieceColors, -1);
+    }
+
+    /**
+     * Gets the squares attacked by at least one piece of a color.
+     *
+     * @param color The color.
+     * @return A bitboard of the attacked squares.
+     */
+    public long getAttacks(Color color) {
+        return attacked[color.ordinal()];
+    }
+
+    /**
+     * Gets the number of pieces of a color attacking a square.
+     *
+     * @param color The color of the attackers.
+     * @param square The square, {@code x * 8 + y}.
+     * @return The number of attackers.
+     */
+    public int getAttackerCount(Color color, int square) {
+        return attackerCounts[color.ordinal()][square];
+    }
+
+    /**
+     * Gets the squares attacked by the piece on a square.
+     *
+     * @param square The square of the piece, {@code x * 8 + y}.
+     * @return A bitboard of the attacked squares, empty if the square is empty.
+     */
+    public long getAttacksFrom(int square) {
+        return pieceAttacks[square];
+    }
+
+    /**
+     * Gets the pieces of a color attacking a square.
+     *
+     * @param color The color of the attackers.
+     * @param square The square, {@code x * 8 + y}.
+     * @return A bitboard of the squares of the attackers.
+     */
+    public long getAttackers(Color color, int square) {
+        long attackers = 0L;
+        for (long remaining = pieces[color.ordinal()]; remaining != 0; remaining &= remaining - 1) {
+            int from = Long.numberOfTrailingZeros(remaining);
+            if ((pieceAttacks[from] & (1L << square)) != 0) {
+                attackers |= remaining & -remaining;
+            }
+        }
+        return attackers;
+    }
+
+    /**
+     * Gets the mobility of a color: the number of attacked squares summed over its pieces,
+     * leaving out squares held by its own pieces.
+     *
+     * @param color The color.
+     * @return The mobility.
+     */
+    public int getMobility(Color color) {
+        int mobility = 0;
+        long own = pieces[color.ordinal()];
+        for (long remaining = own; remaining != 0; remaining &= remaining - 1) {
+            mobility += Long.bitCount(pieceAttacks[Long.numberOfTrailingZeros(remaining)] & ~own);
+        }
+        return mobility;
+    }
+
+    /**
+     * Gets the pieces of a color attacked by the opponent and not defended by any piece of their own color.
+     *
+     * @param color The color of the pieces.
+     * @return A bitboard of the undefended attacked pieces.
+     */
+    public long getUndefended(Color color) {
+        int own = color.ordinal();
+        return pieces[own] & attacked[1 - own] & ~attacked[own];
+    }
+
+    /**
+     * Updates the map after the piece on a square was placed, removed or changed.
+     *
+     * @param board The board, already holding the new piece and occupancy.
+     * @param square The square that changed.
+     */
+    void squareChanged(VariantChessBoard board, int square) {
+        VariantChessPiece piece = board.getPieceAt(square >> 3, square & 7);
+        long bit = 1L << square;
+        straightSliders &= ~bit;
+        diagonalSliders &= ~bit;
+        if (piece instanceof Rook || piece instanceof Queen || piece instanceof Cannon) {
+            straightSliders |= bit;
+        }
+        if (piece instanceof Queen) {
+            diagonalSliders |= bit;
+        }
+        update(board, square, piece);
+
+        // Attacks.straight and Attacks.diagonal on an empty board give the whole lines through the square
+        long affected = (straightSliders & Attacks.straight(square, 0L)) | (diagonalSliders & Attacks.diagonal(square, 0L));
+        for (; affected != 0; affected &= affected - 1) {
+            int slider = Long.numberOfTrailingZeros(affected);
+            update(board, slider, board.getPieceAt(slider >> 3, slider & 7));
+        }
+    }
+
+    /**
+     * Rebuilds the whole map from the pieces on the board.
+     *
+     * @param board The board.
+     */
+    void rebuild(VariantChessBoard board) {
+        Arrays.fill(pieceAttacks, 0L);
+        Arrays.fill(pieceColors, -1);
+        Arrays.fill(attackerCounts[0], 0);
+        Arrays.fill(attackerCounts[1], 0);
+        attacked[0] = attacked[1] = 0L;
+        pieces[0] = pieces[1] = 0L;
+        straightSliders = diagonalSliders = 0L;
+        for (int square = 0; square < 64; square++) {
+            VariantChessPiece piece = board.getPieceAt(square >> 3, square & 7);
+            if (piece instanceof Rook || piece instanceof Queen || piece instanceof Cannon) {
+                straightSliders |= 1L << square;
+            }
+            if (piece instanceof Queen) {
+                diagonalSliders |= 1L << square;
+            }
+            update(board, square, piece);
+        }
+    }
+
+    private void update(VariantChessBoard board, int square, VariantChessPiece piece) {
+        long before = pieceAttacks[square];
+        int beforeColor = pieceColors[square];
+        long after = piece == null ? 0L : piece.getAttacks(square, board);
+        int afterColor = piece == null ? -1 : piece.getColor().ordinal();
+        if (beforeColor == afterColor) {
+            if (before == after) {
+                return;
+            }
+            count(afterColor, before & ~after, -1);
+            count(afterColor, after & ~before, 1);
+        } else {
+            if (beforeColor >= 0) {
+                count(beforeColor, before, -1);
+                pieces[beforeColor] &= ~(1L << square);
+            }
+            if (afterColor >= 0) {
+                count(afterColor, after, 1);
+                pieces[afterColor] |= 1L << square;
+            }
+        }
+        pieceAttacks[square] = after;
+        pieceColors[square] = afterColor;
+    }
+
+    private void count(int color, long squares, int delta) {
+        int[] counts = attackerCounts[color];
+        for (; squares != 0; squares &= squares - 1) {
+            int square = Long.numberOfTrailingZeros(squares);
+            counts[square] += delta;
+            if (counts[square] == 0) {
+                attacked[color] &= ~(1L << square);
+            } else {
+                attacked[color] |= 1L << square;
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package uk.ac.standrews.variantchessgame.model;
+
+/**
+ * Precomputed attack tables, so that the squares a piece can reach are found with a constant number of lookups
+ * instead of walking rays through the board.
+ * <p>
+ * Sets of squares are bitboards: bit {@code x * 8 + y} stands for the square in row x and column y.
+ * Knight, King and Bishop moves do not depend on other pieces; the Bishop of this variant jumps exactly
+ * two squares diagonally. Straight and diagonal slides use magic bitboards: the relevant occupancy of a
+ * square is multiplied by a magic number whose top bits index a table of attack sets. The magic numbers were
+ * found offline by a seeded random search and are checked against ray walks by the tests. The Cannon shares the straight-slide index with a
+ * second table holding, for each occupancy, the squares lying beyond the first piece in each direction up
+ * to and including the next piece, so its capture targets are one lookup masked with the occupancy.
+ */
+public final class Attacks {
+
+    private static final int[][] STRAIGHT = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] DIAGONAL = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final int[][] KNIGHT_STEPS = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] BISHOP_JUMPS = {{2, 2}, {2, -2}, {-2, 2}, {-2, -2}};
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[] BISHOP = new long[64];
+
+    private static final long[] STRAIGHT_MASKS = new long[64];
+    // Magic numbers of the straight slides, chosen so that the Cannon hop sets never collide either
+    private static final long[] STRAIGHT_MAGICS = {
+            0x2080024000883120L, 0x0340012000401001L, 0x1080081000802000L, 0x8100100100080420L,
+            0x0600042052001008L, 0x6200044200100128L, 0x1300020004008100L, 0x0600040020804211L,
+            0x0320800040008029L, 0x4021004000802100L, 0x0060802000841002L, 0x8003002210010008L,
+            0x0009000801001004L, 0x8022808016000C00L, 0x900A808042000100L, 0x00020000A0420401L,
+            0x1920228004400088L, 0xB010004000402000L, 0x1000808020001000L, 0x0000828010008802L,
+            0x38020200080510A0L, 0x8000808004000200L, 0x0008C40008121110L, 0x0008020000A10044L,
+            0x0000800080204000L, 0x0100400080802000L, 0x8021004100200012L, 0x0200400A00220010L,
+            0x0008040080800800L, 0x2400020080800400L, 0x0000C81400412230L, 0x0400140200008061L,
+            0x0020804000800021L, 0x0010002004400049L, 0x0480100080802000L, 0x0400084202001021L,
+            0x8040800800800400L, 0x0303000289000400L, 0x4012020804000110L, 0x2000206102000084L,
+            0x5080002000404008L, 0x0420810040010020L, 0x7001002000410010L, 0x0010010020110008L,
+            0x0820050008010011L, 0x0102002010040400L, 0x0000422110040028L, 0x0000109041020004L,
+            0x00008012400C2080L, 0x0020008040002080L, 0x0848490012200300L, 0x0000080080100080L,
+            0x4084008004080080L, 0x021D040080820080L, 0x3002000401080200L, 0x0009800100086080L,
+            0x0400620044810116L, 0x0000820010482102L, 0x0800200008104101L, 0x0800049001210009L,
+            0x0105000402100801L, 0x4002000408104162L, 0x3080084200900104L, 0x0000022581040442L
+    };
+    private static final int[] STRAIGHT_SHIFTS = new int[64];
+    private static final long[][] STRAIGHT_ATTACKS = new long[64][];
+    private static final long[][] CANNON_HOPS = new long[64][];
+
+    private static final long[] DIAGONAL_MASKS = new long[64];
+    private static final long[] DIAGONAL_MAGICS = {
+            0x0820081001002820L, 0x01040810892A0008L, 0x0024112622001808L, 0x00080A0020600000L,
+            0x0404042201210401L, 0x0000822022040000L, 0x0000411010100002L, 0x8508120104424001L,
+            0x0000210401120400L, 0x0808084801140024L, 0x1066040400820802L, 0x0080082600410110L,
+            0x0288020210002080L, 0x8240008804400080L, 0x2100008801082009L, 0x0000C02404420800L,
+            0x0104881020020402L, 0x4044801044008424L, 0x8008000408032808L, 0x200400204100A040L,
+            0x0304100202024034L, 0x3824800500A00110L, 0x0004080044320821L, 0x8085400080580882L,
+            0x0004420004080800L, 0x0002080030019808L, 0x5002020440408200L, 0x800A0800040040C9L,
+            0x0148840082020200L, 0x10091E0020405000L, 0x0002020024110100L, 0x0000520403012100L,
+            0x0044A02808202230L, 0x1000821098A00400L, 0x6000E80808140220L, 0x0043010800D10040L,
+            0x00080E0400181100L, 0x8020080084004040L, 0x1801211702021800L, 0x00180984A2028620L,
+            0x4000841040440840L, 0x0201012120013000L, 0x0009002101005000L, 0x010A804208010080L,
+            0x40282018A0821400L, 0x21403A0082080100L, 0x8620911101048212L, 0x0108020086104020L,
+            0x008110D004200900L, 0xC90484088210A300L, 0x0000002211102050L, 0x014004A084240624L,
+            0x0410058505040121L, 0x010A405186028060L, 0x0140910401004440L, 0x00880A0082121208L,
+            0x0042008A08020202L, 0x4004024644042110L, 0x4008208A02010441L, 0x0024002400208808L,
+            0x4021020090020220L, 0x0000000420041C42L, 0x1004100222880200L, 0x004182080D002080L
+    };
+    private static final int[] DIAGONAL_SHIFTS = new int[64];
+    private static final long[][] DIAGONAL_ATTACKS = new long[64][];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = steps(square, KNIGHT_STEPS);
+            KING[square] = steps(square, STRAIGHT) | steps(square, DIAGONAL);
+            BISHOP[square] = steps(square, BISHOP_JUMPS);
+
+            STRAIGHT_MASKS[square] = relevantOccupancy(square, STRAIGHT);
+            DIAGONAL_MASKS[square] = relevantOccupancy(square, DIAGONAL);
+            STRAIGHT_SHIFTS[square] = 64 - Long.bitCount(STRAIGHT_MASKS[square]);
+            DIAGONAL_SHIFTS[square] = 64 - Long.bitCount(DIAGONAL_MASKS[square]);
+            STRAIGHT_ATTACKS[square] = fillTable(square, STRAIGHT, STRAIGHT_MASKS[square], STRAIGHT_MAGICS[square],
+                    STRAIGHT_SHIFTS[square], false);
+            CANNON_HOPS[square] = fillTable(square, STRAIGHT, STRAIGHT_MASKS[square], STRAIGHT_MAGICS[square],
+                    STRAIGHT_SHIFTS[square], true);
+            DIAGONAL_ATTACKS[square] = fillTable(square, DIAGONAL, DIAGONAL_MASKS[square], DIAGONAL_MAGICS[square],
+                    DIAGONAL_SHIFTS[square], false);
+        }
+    }
+
+    private Attacks() {
+    }
+
+    /**
+     * Gets the bit of a square.
+     *
+     * @param x The row index.
+     * @param y The column index.
+     * @return The bitboard holding only that square.
+     */
+    public static long bit(int x, int y) {
+        return 1L << (x * 8 + y);
+    }
+
+    /**
+     * Gets the squares a Knight attacks.
+     *
+     * @param square The square of the Knight.
+     * @return The attacked squares.
+     */
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    /**
+     * Gets the squares a King attacks.
+     *
+     * @param square The square of the King.
+     * @return The attacked squares.
+     */
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    /**
+     * Gets the squares a Bishop of this variant attacks, two squares away diagonally.
+     *
+     * @param square The square of the Bishop.
+     * @return The attacked squares.
+     */
+    public static long bishop(int square) {
+        return BISHOP[square];
+    }
+
+    /**
+     * Gets the squares reached by sliding horizontally or vertically, up to and including the first piece in each direction.
+     *
+     * @param square The start square.
+     * @param occupancy The occupied squares.
+     * @return The attacked squares.
+     */
+    public static long straight(int square, long occupancy) {
+        return STRAIGHT_ATTACKS[square][(int) (((occupancy & STRAIGHT_MASKS[square]) * STRAIGHT_MAGICS[square]) >>> STRAIGHT_SHIFTS[square])];
+    }
+
+    /**
+     * Gets the squares reached by sliding diagonally, up to and including the first piece in each direction.
+     *
+     * @param square The start square.
+     * @param occupancy The occupied squares.
+     * @return The attacked squares.
+     */
+    public static long diagonal(int square, long occupancy) {
+        return DIAGONAL_ATTACKS[square][(int) (((occupancy & DIAGONAL_MASKS[square]) * DIAGONAL_MAGICS[square]) >>> DIAGONAL_SHIFTS[square])];
+    }
+
+    /**
+     * Gets the squares a Queen attacks.
+     *
+     * @param square The square of the Queen.
+     * @param occupancy The occupied squares.
+     * @return The attacked squares.
+     */
+    public static long queen(int square, long occupancy) {
+        return straight(square, occupancy) | diagonal(square, occupancy);
+    }
+
+    /**
+     * Gets the empty squares a Cannon can slide to.
+     *
+     * @param square The square of the Cannon.
+     * @param occupancy The occupied squares.
+     * @return The squares reachable without capturing.
+     */
+    public static long cannonQuiet(int square, long occupancy) {
+        return straight(square, occupancy) & ~occupancy;
+    }
+
+    /**
+     * Gets the squares a Cannon attacks: in each direction, the squares beyond the first piece up to and including
+     * the next piece. An opponent's piece on any of them could be captured by hopping over the first piece.
+     *
+     * @param square The square of the Cannon.
+     * @param occupancy The occupied squares.
+     * @return The squares beyond the screen in each direction.
+     */
+    public static long cannonHops(int square, long occupancy) {
+        return CANNON_HOPS[square][(int) (((occupancy & STRAIGHT_MASKS[square]) * STRAIGHT_MAGICS[square]) >>> STRAIGHT_SHIFTS[square])];
+    }
+
+    /**
+     * Gets the occupied squares a Cannon can capture on by hopping over exactly one piece.
+     * The result still has to be restricted to the opponent's pieces.
+     *
+     * @param square The square of the Cannon.
+     * @param occupancy The occupied squares.
+     * @return The first occupied square beyond the screen in each direction.
+     */
+    public static long cannonCaptures(int square, long occupancy) {
+        return cannonHops(square, occupancy) & occupancy;
+    }
+
+    private static long steps(int square, int[][] steps) {
+        long targets = 0L;
+        for (int[] step : steps) {
+            int x = square / 8 + step[0];
+            int y = square % 8 + step[1];
+            if (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                targets |= bit(x, y);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Gets the squares whose occupancy changes the slides from a square: every square on the rays except the last one.
+     */
+    private static long relevantOccupancy(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int x = square / 8 + direction[0];
+            int y = square % 8 + direction[1];
+            while (x + direction[0] >= 0 && x + direction[0] < 8 && y + direction[1] >= 0 && y + direction[1] < 8) {
+                mask |= bit(x, y);
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Walks the rays from a square. Without hops, collects the squares up to and including the first piece;
+     * with hops, collects the squares after the first piece up to and including the second piece or the edge.
+     */
+    private static long walk(int square, int[][] directions, long occupancy, boolean hops) {
+        long result = 0L;
+        for (int[] direction : directions) {
+            boolean screened = false;
+            int x = square / 8 + direction[0];
+            int y = square % 8 + direction[1];
+            while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                boolean occupied = (occupancy & bit(x, y)) != 0;
+                if (hops == screened) {
+                    result |= bit(x, y);
+                }
+                if (occupied) {
+                    if (screened || !hops) {
+                        break;
+                    }
+                    screened = true;
+                }
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the subset of a mask selected by the bits of an index, used to enumerate every relevant occupancy.
+     */
+    private static long subset(long mask, int index) {
+        long occupancy = 0L;
+        for (int i = 0; mask != 0; i++) {
+            long lowest = mask & -mask;
+            if ((index & (1 << i)) != 0) {
+                occupancy |= lowest;
+            }
+            mask &= mask - 1;
+        }
+        return occupancy;
+    }
+
+    private static long[] fillTable(int square, int[][] directions, long mask, long magic, int shift, boolean hops) {
+        long[] table = new long[1 << (64 - shift)];
+        for (int i = 0; i < table.length; i++) {
+            long occupancy = subset(mask, i);
+            table[(int) ((occupancy * magic) >>> shift)] = walk(square, directions, occupancy, hops);
+        }
+        return table;
+    }
+}
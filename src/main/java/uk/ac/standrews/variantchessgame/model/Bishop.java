@@ -26,37 +26,24 @@ public class Bishop extends VariantChessPiece {
     }
     @Override
     public boolean isValidMove(VariantChessMove move, VariantChessBoard board) {
+        return isTarget(move, board);
+    }
 
-        int startX = move.getStartX();
-        int startY = move.getStartY();
-        int endX = move.getEndX();
-        int endY = move.getEndY();
-
-        // Ensure the move is within board boundaries.
-        if (endX < 0 || endX >= 8 || endY < 0 || endY >= 8) {
-            return false;
-        }
-
-        // The Bishop must move to a different position.
-        if (startX == endX && startY == endY) {
-            return false;
-        }
-
-        // Move two squares diagonally
-        if (Math.abs(endX - startX) == 2 && Math.abs(endY - startY) == 2) {
-            VariantChessPiece targetPiece = board.getPieceAt(endX, endY);
-            // The move is valid if the target position is empty or occupied by an opponent's piece.
-            if (targetPiece == null || targetPiece.getColor() != this.getColor()) {
-                if (targetPiece != null) {
-                    move.setCapture(true); // Mark as a capture move.
-                }
-                return true;
-            }
-            return false; // Blocked by a piece of the same color.
-        }
-
-        // No further checks needed for other types of movements
-        return false;
+    /**
+     * Gets the squares two steps away diagonally that do not hold a piece of the Bishop's color.
+     * The Bishop jumps over the square in between.
+     *
+     * @param square The square of the piece, {@code x * 8 + y}.
+     * @param board The current state of the board.
+     * @return The squares the piece can move to, including captures.
+     */
+    @Override
+    public long getTargets(int square, VariantChessBoard board) {
+        return Attacks.bishop(square) & ~board.getOccupancy(getColor());
     }
 
+    @Override
+    public long getAttacks(int square, VariantChessBoard board) {
+        return Attacks.bishop(square);
+    }
 }
@@ -36,60 +36,21 @@ public class Cannon extends VariantChessPiece {
      */
     @Override
     public boolean isValidMove(VariantChessMove move, VariantChessBoard board) {
+        return isTarget(move, board);
+    }
 
-        int startX = move.getStartX();
-        int startY = move.getStartY();
-        int endX = move.getEndX();
-        int endY = move.getEndY();
-
-        // Ensure the target position is within the board boundaries.
-        if (endX < 0 || endX >= 8 || endY < 0 || endY >= 8) {
-            return false;
-        }
-
-        // Ensure the move is to a different position.
-        if (startX == endX && startY == endY) {
-            return false;
-        }
-
-        // Cannon moves in straight lines only (either horizontally or vertically).
-        if (startX != endX && startY != endY) {
-            return false;
-        }
-
-        boolean isCapture = board.getPieceAt(endX, endY) != null;
-        int piecesInBetween = 0;
-
-        // Handle vertical movement.
-        if (startX == endX) {
-            int step = (endY > startY) ? 1 : -1;
-            for (int y = startY + step; y != endY; y += step) {
-                if (board.getPieceAt(startX, y) != null) {
-                    piecesInBetween++;
-                }
-            }
-        } else { // Handle horizontal movement.
-            int step = (endX > startX) ? 1 : -1;
-            for (int x = startX + step; x != endX; x += step) {
-                if (board.getPieceAt(x, startY) != null) {
-                    piecesInBetween++;
-                }
-            }
-        }
-
-        // Determine if the move is valid based on capture and obstructions.
-        if (isCapture) {
-            if (piecesInBetween == 1 && board.getPieceAt(endX, endY).getColor() != this.getColor()) {
-                move.setCapture(true); // Mark as a capture move.
-                return true;
-            }
-        } else {
-            if (piecesInBetween == 0) {
-                return true; // Valid move with no obstructions.
-            }
-        }
-
-        return false;
+    /**
+     * Gets the empty squares the Cannon slides to and the opponent's pieces it captures by hopping over exactly one piece.
+     *
+     * @param square The square of the piece, {@code x * 8 + y}.
+     * @param board The current state of the board.
+     * @return The squares the piece can move to, including captures.
+     */
+    @Override
+    public long getTargets(int square, VariantChessBoard board) {
+        long occupancy = board.getOccupancy();
+        return Attacks.cannonQuiet(square, occupancy)
+                | (Attacks.cannonCaptures(square, occupancy) & board.getOccupancy(getColor().opposite()));
     }
 
     /**
@@ -114,20 +75,29 @@ public class Cannon extends VariantChessPiece {
      */
     public void detonate(VariantChessBoard board, int x, int y) {
         int[][] directions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
-        System.out.println("Detonating cannon at position: (" + x + ", " + y + ")");
         for (int[] dir : directions) {
             int newX = x + dir[0];
             int newY = y + dir[1];
             if (board.isInBounds(newX, newY)) {
                 VariantChessPiece piece = board.getPieceAt(newX, newY);
                 if (piece != null && piece.getColor() != this.getColor()) {
-                    System.out.println("Removing piece at position: (" + newX + ", " + newY + ")");
                     board.setPieceAt(newX, newY, null); // Remove enemy pieces.
                 }
             }
         }
-        System.out.println("Removing cannon at position: (" + x + ", " + y + ")");
         board.setPieceAt(x, y, null); // Remove the Cannon itself.
     }
 
+    /**
+     * Gets the squares this Cannon attacks, beyond exactly one screen in each direction.
+     * They change whenever a piece on one of its lines moves.
+     *
+     * @param square The square of the Cannon, {@code x * 8 + y}.
+     * @param board The current state of the board.
+     * @return The attacked squares.
+     */
+    @Override
+    public long getAttacks(int square, VariantChessBoard board) {
+        return Attacks.cannonHops(square, board.getOccupancy());
+    }
 }
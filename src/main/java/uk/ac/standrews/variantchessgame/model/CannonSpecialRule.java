@@ -7,26 +7,31 @@ package uk.ac.standrews.variantchessgame.model;
 public class CannonSpecialRule implements GameRule {
 
     /**
-     * Applies the special rule for the Cannon piece.
-     * If the Cannon has captured three or more pieces, it will detonate and remove itself and enemy pieces
-     * from the surrounding positions on the board.
+     * Registers the capture hook of Cannons: each capture is counted, and the third one detonates the Cannon.
      *
-     * @param move The move that triggered the rule application.
-     * @param piece The piece that is affected by the rule.
-     * @param board The current state of the chess board.
+     * @param engine The engine to register with.
      */
     @Override
-    public void applyRule(VariantChessMove move, VariantChessPiece piece, VariantChessBoard board) {
-        // Check if the piece is a Cannon.
-        if (piece instanceof Cannon) {
-            Cannon cannon = (Cannon) piece;
-            int captureCount = cannon.getCaptureCount();
-            // If the Cannon has captured three or more pieces, apply the detonation.
-            if (captureCount >= 3) {
-                int x = move.getEndX();
-                int y = move.getEndY();
-                cannon.detonate(board, x, y); // Detonate the Cannon and clear the surrounding pieces.
-            }
+    public void registerHooks(RuleEngine engine) {
+        engine.on(RuleEngine.ON_CAPTURE, Zobrist.CANNON, this::onCannonCapture);
+    }
+
+    private int onCannonCapture(VariantChessMove move, VariantChessPiece piece, VariantChessPiece captured, VariantChessBoard board) {
+        piece.incrementCaptureCount();
+        if (piece.getCaptureCount() >= 3) {
+            ((Cannon) piece).detonate(board, move.getEndX(), move.getEndY());
+            return MoveExecutor.DETONATION;
         }
+        return 0;
+    }
+
+    /**
+     * Returns the identifier of the Cannon rule.
+     *
+     * @return 0, the index of this rule.
+     */
+    @Override
+    public int getRuleId() {
+        return 0;
     }
 }
@@ -1,90 +1,146 @@
 package uk.ac.standrews.variantchessgame.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class ChessAI {
 
-    private final Random random = new Random(); // Random object used for selecting among equally good moves
+    private static final int WIN_SCORE = 100000; // Score of a position where the opponent has no pieces left
+    private static final int MAX_PLY = 8; // Plies of move lists preallocated for each searching thread
+    private static final int IMMOBILE = 1 << 30; // Marks an immobile piece in the piece state saved around rule hooks
+    private static final int INFINITY = 2 * WIN_SCORE; // Beyond any score, negated safely unlike Integer.MIN_VALUE
+    public static final int MAX_ANALYSIS_DEPTH = 8;
+    private static final int TABLE_BITS = 16; // Entries of the transposition table of an analysis, 1 MB
+
+    private final PositionCache cache; // Shared cache of evaluations and best moves, may be null
+    private final EvalWeights weights; // Piece-square tables and mobility weight of the evaluation
+    private final NeuralNetwork network; // Replaces the hand-written evaluation when set, may be null
+    private final ThreadLocal<SearchContext> contexts = ThreadLocal.withInitial(SearchContext::new); // Search buffers of each thread
+
+    /**
+     * Constructs an AI that does not share results with other games.
+     */
+    public ChessAI() {
+        this(null);
+    }
+
+    /**
+     * Constructs an AI that reads and stores evaluations and best moves in a shared cache.
+     *
+     * @param cache The cache shared between games, or {@code null} to disable caching.
+     */
+    public ChessAI(PositionCache cache) {
+        this(cache, EvalWeights.getDefault());
+    }
 
     /**
-     * Evaluates the value of a piece based on its type and the current game rule.
+     * Constructs an AI that evaluates positions with the given weights.
+     *
+     * @param cache The cache shared between games, or {@code null} to disable caching.
+     * @param weights The piece values, piece-square tables and mobility weight, see {@link EvalWeights}.
+     */
+    public ChessAI(PositionCache cache, EvalWeights weights) {
+        this(cache, weights, null);
+    }
+
+    /**
+     * Constructs an AI that evaluates positions with a neural network, if one is given.
+     * The piece-square tables of the weights are still tracked by the board for move ordering and analysis.
+     *
+     * @param cache The cache shared between games, or {@code null} to disable caching.
+     * @param weights The weights of the hand-written evaluation, see {@link EvalWeights}.
+     * @param network The network that evaluates positions, or {@code null} to use the weights.
+     */
+    public ChessAI(PositionCache cache, EvalWeights weights, NeuralNetwork network) {
+        this.cache = cache;
+        this.weights = weights;
+        this.network = network;
+    }
+
+    /**
+     * Gets the number of positions visited by the last search made on the calling thread.
+     *
+     * @return The number of nodes of the search tree, the root excluded.
+     */
+    public long getLastSearchNodes() {
+        return contexts.get().nodes;
+    }
+
+    /**
+     * Evaluates the value of a piece based on its type, its captures and the current game rule.
      *
      * @param piece       The piece to evaluate.
      * @param currentRule The current rule of the game.
-     * @return The evaluated value of the piece.
+     * @return The evaluated value of the piece, in hundredths of a Pawn.
      */
     private int evaluatePieceValue(VariantChessPiece piece, GameRule currentRule) {
         if (piece == null) return 0; // If the piece is null, its value is 0
-        if (piece instanceof Knight || piece instanceof Bishop) return 3; // Knight and Bishop are valued at 3
-        if (piece instanceof Rook) return 6; // Rook is valued at 6
-
-        if (piece instanceof Cannon) {
-            Cannon cannon = (Cannon) piece;
-            int baseValue = 5;
-            int bonusValue = 0;
-
-            if (currentRule instanceof CannonSpecialRule) {
-                int captureCount = cannon.getCaptureCount();
-                if (captureCount == 0) {
-                    bonusValue = 1; // Bonus value if capture count is 1
-                } else if (captureCount == 1) {
-                    bonusValue = 2; // Bonus value if capture count is 2
-                } else if (captureCount >= 2) {
-                    bonusValue = 3; // Bonus value if capture count is 3 or more
-                }
-            }
-
-            return baseValue + bonusValue; // Return the total evaluated value for the Cannon
-        }
-
-        if (piece instanceof Pawn) {
-            Pawn pawn = (Pawn) piece;
-            int baseValue = 1;
-            int bonusValue = 0;
+        return weights.getPieceValue(EvalWeights.ruleId(currentRule), piece);
+    }
 
-            if (currentRule instanceof PawnPromotionRule) {
-                int captureCount = pawn.getCaptureCount();
-                if (captureCount == 0) {
-                    bonusValue = 1; // Bonus value if capture count is 0
-                } else if (captureCount == 1) {
-                    bonusValue = 3; // Bonus value if capture count is 1
-                } else if (captureCount >= 2) {
-                    bonusValue = 4; // Bonus value if capture count is 2 or more
-                }
-            }
 
-            return baseValue + bonusValue; // Return the total evaluated value for the Pawn
+    /**
+     * Evaluates the board state for the AI's perspective.
+     *
+     * @param board      The current state of the chessboard.
+     * @param aiColor    The color of the AI player.
+     * @param currentRule The current rule of the game.
+     * @return The evaluated score of the board.
+     */
+    private int evaluateBoard(VariantChessBoard board, Color aiColor, GameRule currentRule) {
+        if (cache == null) {
+            return computeBoardScore(board, aiColor, currentRule);
         }
-
-        if (piece instanceof King || piece instanceof Queen) {
-            int baseValue = (piece instanceof King) ? 4 : 7; // Base Value: King is 4, Queen is 7
-            int bonusValue = 0;
-
-            if (currentRule instanceof KingQueenSpecialRule) {
-                int captureCount = piece.getCaptureCount();
-                if (captureCount == 0) {
-                    bonusValue = 1;
-                }
-            }
-
-            return baseValue + bonusValue; // Return the total value
+        long hash = Zobrist.hash(board);
+        if (cache.isMirrorSymmetric()) {
+            hash = Symmetry.canonical(hash, Symmetry.mirrorHash(board)); // Mirror images evaluate the same
         }
-
-        return 0; // Default case if the piece is not recognized
+        int ruleKey = PositionCache.ruleKey(currentRule);
+        Integer cached = cache.getEvaluation(hash, ruleKey, aiColor);
+        if (cached != null) {
+            return cached;
+        }
+        int score = computeBoardScore(board, aiColor, currentRule);
+        cache.putEvaluation(hash, ruleKey, aiColor, score);
+        return score;
     }
 
-
     /**
-     * Evaluates the board state for the AI's perspective.
+     * Computes the score of the board from the AI's perspective, in hundredths of a Pawn: the material, the
+     * piece-square values summed by the board as pieces move, and the mobility read from its attack map.
+     * The board must be using the piece-square tables of the rule, see {@link #calculateBestPackedMove}.
+     * With a neural network, the score is the output of the network accumulated by the board instead.
      *
      * @param board      The current state of the chessboard.
      * @param aiColor    The color of the AI player.
      * @param currentRule The current rule of the game.
      * @return The evaluated score of the board.
      */
-    private int evaluateBoard(VariantChessBoard board, Color aiColor, GameRule currentRule) {
+    private int computeBoardScore(VariantChessBoard board, Color aiColor, GameRule currentRule) {
+        if (network != null) {
+            return board.getNeuralAccumulator().evaluate(board, aiColor, EvalWeights.ruleId(currentRule));
+        }
+        Color opponent = aiColor.opposite();
+        int positional = board.getPlacementScore(aiColor) - board.getPlacementScore(opponent);
+        int mobility = weights.getMobility(EvalWeights.ruleId(currentRule));
+        if (mobility != 0) {
+            AttackMap attacks = board.getAttackMap();
+            positional += mobility * (attacks.getMobility(aiColor) - attacks.getMobility(opponent));
+        }
+        return computeMaterial(board, aiColor, currentRule) + positional;
+    }
+
+    /**
+     * Computes the material score of the board from the AI's perspective.
+     *
+     * @param board      The current state of the chessboard.
+     * @param aiColor    The color of the AI player.
+     * @param currentRule The current rule of the game.
+     * @return The material balance, in hundredths of a Pawn.
+     */
+    private int computeMaterial(VariantChessBoard board, Color aiColor, GameRule currentRule) {
         int score = 0; // Initialize the board score
         // Iterate over all positions on the board
         for (int i = 0; i < 8; i++) {
@@ -102,54 +158,89 @@ public class ChessAI {
 
     /**
      * Recursively implements the Minimax algorithm to find the best move.
+     * Moves are generated into the preallocated list of the ply, so the search itself creates no objects.
      *
      * @param board      The current state of the chessboard.
      * @param depth      The current depth in the Minimax tree.
      * @param maximizingPlayer True if AI is the maximizing player, false if minimizing.
      * @param aiColor    The color of the AI player.
      * @param currentRule The current rule of the game.
+     * @param context    The buffers of the searching thread.
+     * @param ply        The distance from the root of the search.
+     * @param pathLength The number of hashes in the path, from the last capture of the game onwards.
      * @return The evaluated score for the board at this node in the tree.
      */
-    private int minimax(VariantChessBoard board, int depth, boolean maximizingPlayer, Color aiColor, GameRule currentRule, int alpha, int beta) {
+    private int minimax(VariantChessBoard board, int depth, boolean maximizingPlayer, Color aiColor, GameRule currentRule,
+                        int alpha, int beta, SearchContext context, int ply, int pathLength) {
+        context.nodes++;
+        if (context.limited && context.outOfBudget()) {
+            return 0; // The score is discarded as the search unwinds
+        }
+        // Terminal positions, found from the piece counts kept by the board; quicker wins score higher
+        if (board.getPieceCount(aiColor) == 0) {
+            return -WIN_SCORE - depth;
+        }
+        if (board.getPieceCount(aiColor.opposite()) == 0) {
+            return WIN_SCORE + depth;
+        }
+        if (board.isLoneKings()) {
+            return 0;
+        }
+
+        // A position already reached with the same player to move is scored as a draw, since repeating it is the best
+        // either side can force; comparing hashes of every second position since the last capture is enough
+        Color sideToMove = maximizingPlayer ? aiColor : aiColor.opposite();
+        long hash = Zobrist.hash(board, sideToMove);
+        long[] path = context.path;
+        for (int i = pathLength - 2; i >= 0; i -= 2) {
+            if (path[i] == hash) {
+                return 0;
+            }
+        }
+        path[pathLength] = hash;
+
         if (depth == 0) {
-            return evaluateBoard(board, aiColor, currentRule); // Evaluate the board if at max depth
+            int score = evaluateBoard(board, aiColor, currentRule); // Evaluate the board if at max depth
+            return context.noise == 0 ? score : score + context.noise(hash);
         }
 
         int bestScore = maximizingPlayer ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        MoveBuffer moves = context.moves;
+        int count = moves.generate(ply, board, sideToMove);
 
-        for (int startX = 0; startX < 8; startX++) {
-            for (int startY = 0; startY < 8; startY++) {
-                VariantChessPiece piece = board.getPieceAt(startX, startY); // Get the piece at the starting position
-                if (piece != null && piece.getColor() == (maximizingPlayer ? aiColor : aiColor.opposite())) {
-                    for (int endX = 0; endX < 8; endX++) {
-                        for (int endY = 0; endY < 8; endY++) {
-                            VariantChessMove move = new VariantChessMove(startX, startY, endX, endY); // Create a move object
-                            if (piece.isValidMove(move, board)) { // Check if the move is valid
-                                VariantChessPiece originalEndPiece = board.getPieceAt(endX, endY); // Save the original piece at the end position
-                                board.movePiece(move); // Execute the move
-
-                                // Recursively call minimax with alpha-beta pruning
-                                int score = minimax(board, depth - 1, !maximizingPlayer, aiColor, currentRule, alpha, beta);
-
-                                board.movePiece(new VariantChessMove(endX, endY, startX, startY)); // Undo the move
-                                board.setPieceAt(endX, endY, originalEndPiece); // Restore the original piece at the end position
-
-                                if (maximizingPlayer) {
-                                    bestScore = Math.max(bestScore, score);
-                                    alpha = Math.max(alpha, score);
-                                } else {
-                                    bestScore = Math.min(bestScore, score);
-                                    beta = Math.min(beta, score);
-                                }
-
-                                // Alpha-beta pruning
-                                if (beta <= alpha) {
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                }
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(ply, i);
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            VariantChessPiece originalEndPiece = board.getPieceAt(to >> 3, to & 7); // Save the original piece at the end position
+            VariantChessPiece piece = board.getPieceAt(from >> 3, from & 7);
+            board.movePiece(from, to); // Execute the move
+            boolean ruled = context.applyRules(ply, board, currentRule, move, piece, originalEndPiece);
+
+            // Recursively call minimax with alpha-beta pruning
+            int score = minimax(board, depth - 1, !maximizingPlayer, aiColor, currentRule, alpha, beta,
+                    context, ply + 1, pathLength + 1);
+
+            if (ruled) {
+                context.undoRules(ply, board, currentRule, piece, originalEndPiece);
+            }
+            board.movePiece(to, from); // Undo the move
+            board.setPieceAt(to >> 3, to & 7, originalEndPiece); // Restore the original piece at the end position
+            if (context.aborted) {
+                return 0;
+            }
+
+            if (maximizingPlayer) {
+                bestScore = Math.max(bestScore, score);
+                alpha = Math.max(alpha, score);
+            } else {
+                bestScore = Math.min(bestScore, score);
+                beta = Math.min(beta, score);
+            }
+
+            // Alpha-beta pruning
+            if (beta <= alpha) {
+                break;
             }
         }
 
@@ -166,50 +257,786 @@ public class ChessAI {
      * @return The best move found by the AI.
      */
     public VariantChessMove calculateBestMove(VariantChessBoard board, Color color, GameRule currentRule) {
-        List<VariantChessMove> bestMoves = new ArrayList<>(); // List to store the best moves with the highest score
+        return calculateBestMove(board, color, currentRule, new long[]{Zobrist.hash(board, color)});
+    }
+
+    /**
+     * Finds the best move for the AI player, scoring moves that repeat an earlier position of the game as draws.
+     *
+     * @param board      The current state of the chessboard.
+     * @param color      The color of the AI player.
+     * @param currentRule The current rule of the game.
+     * @param history    Hashes of the positions since the last capture, ending with the current position,
+     *                   as returned by {@link GameState#getReversibleHashes()}.
+     * @return The best move found by the AI, or {@code null} if there are no possible moves.
+     */
+    public VariantChessMove calculateBestMove(VariantChessBoard board, Color color, GameRule currentRule, long[] history) {
+        return calculateBestMove(board, color, currentRule, history, null);
+    }
+
+    /**
+     * Finds the best move for the AI player, drawing the choice between equally good moves from the random
+     * stream of the game, so that a game replayed from the same seed gets the same moves.
+     *
+     * @param board      The current state of the chessboard.
+     * @param color      The color of the AI player.
+     * @param currentRule The current rule of the game.
+     * @param history    Hashes of the positions since the last capture, ending with the current position.
+     * @param random     The random stream of the game, as returned by {@link GameState#getRandom()},
+     *                   or {@code null} to draw from the generator of the calling thread.
+     * @return The best move found by the AI, or {@code null} if there are no possible moves.
+     */
+    public VariantChessMove calculateBestMove(VariantChessBoard board, Color color, GameRule currentRule, long[] history,
+                                              GameRandom random) {
+        int bestMove = calculateBestPackedMove(board, color, currentRule, history, random);
+        return bestMove == PackedMove.NONE ? null : PackedMove.toMove(bestMove);
+    }
+
+    /**
+     * Finds the best move for the AI player in its packed form.
+     * Once the buffers of the calling thread have grown to fit the positions searched, this allocates no memory
+     * unless a position cache is used.
+     *
+     * @param board      The current state of the chessboard.
+     * @param color      The color of the AI player.
+     * @param currentRule The current rule of the game.
+     * @param history    Hashes of the positions since the last capture, ending with the current position.
+     * @return The best move as a {@link PackedMove}, or {@link PackedMove#NONE} if there are no possible moves.
+     */
+    public int calculateBestPackedMove(VariantChessBoard board, Color color, GameRule currentRule, long[] history) {
+        return calculateBestPackedMove(board, color, currentRule, history, null);
+    }
+
+    /**
+     * Finds the best move for the AI player in its packed form, drawing its random choice from the stream of the game.
+     * The outcome of the promotions tried by the search follows from the position, so the best score and the moves
+     * sharing it do not depend on the stream: they are looked up in and stored to the shared cache, keyed by the
+     * position, the rule with its state and the earlier positions that a move could repeat. Every search then draws
+     * once from the stream to choose between those moves, taken in a fixed order, so a game started again from its
+     * seed plays the same moves whatever other games have cached.
+     *
+     * @param board      The current state of the chessboard.
+     * @param color      The color of the AI player.
+     * @param currentRule The current rule of the game.
+     * @param history    Hashes of the positions since the last capture, ending with the current position.
+     * @param random     The random stream of the game, or {@code null} to draw from the generator of the calling thread.
+     * @return The best move as a {@link PackedMove}, or {@link PackedMove#NONE} if there are no possible moves.
+     */
+    public int calculateBestPackedMove(VariantChessBoard board, Color color, GameRule currentRule, long[] history,
+                                       GameRandom random) {
         int bestScore = Integer.MIN_VALUE; // Initialize the best score to the lowest possible value
         int depth = 2; // Set the desired search depth for the Minimax algorithm
+        SearchContext context = contexts.get();
+        context.startPath(history, depth);
+        context.useRule(currentRule);
+        context.nodes = 0;
+        board.setPlacementTables(weights.getTables(EvalWeights.ruleId(currentRule)));
+        board.setNeuralNetwork(network);
+
+        long positionHash = Zobrist.hash(board, color);
+        long hash = positionHash; // The key of the position in the cache
+        boolean mirrored = false; // Whether the cache holds the mirror image of this position
+        int ruleKey = PositionCache.ruleKey(currentRule);
+        if (cache != null) {
+            if (history.length > 1) {
+                hash ^= historyKey(history); // Moves repeating an earlier position score differently
+            } else if (cache.isMirrorSymmetric()) {
+                long canonical = Symmetry.canonical(hash, Symmetry.mirrorHash(board) ^ Zobrist.sideKey(color));
+                mirrored = canonical != hash;
+                hash = canonical;
+            }
+            PositionCache.BestMoves cached = cache.getBestMoves(hash, ruleKey, depth);
+            // Guard against hash collisions by re-validating the cached moves
+            if (cached != null && isLegal(board, color, cached, mirrored, context.moves)) {
+                int bestMove = cached.getMove(nextInt(random, cached.getMoveCount()));
+                return mirrored ? Symmetry.mirrorMove(bestMove) : bestMove;
+            }
+        }
+
+        // The promotions tried by the search follow from the position, so that its result does not depend on the stream
+        context.promotionSeed = positionHash;
+        MoveBuffer moves = context.moves;
+        int count = moves.generate(0, board, color);
+        int bestCount = 0; // Number of moves sharing the highest score
+        int[] bestMoves = context.bestMoves(count);
+
+        for (int i = 0; i < count; i++) {
+            int move = moves.get(0, i);
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            VariantChessPiece originalEndPiece = board.getPieceAt(to >> 3, to & 7); // Save the original piece at the end position
+            VariantChessPiece piece = board.getPieceAt(from >> 3, from & 7);
+            board.movePiece(from, to); // Execute the move
+            boolean ruled = context.applyRules(0, board, currentRule, move, piece, originalEndPiece);
+
+            // Use minimax with alpha-beta pruning to evaluate the move
+            int score = minimax(board, depth - 1, false, color, currentRule, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                    context, 1, history.length);
+
+            if (ruled) {
+                context.undoRules(0, board, currentRule, piece, originalEndPiece);
+            }
+            board.movePiece(to, from); // Undo the move
+            board.setPieceAt(to >> 3, to & 7, originalEndPiece); // Restore the original piece at the end position
+
+            // Choose the move with the highest score
+            if (score > bestScore) {
+                bestScore = score; // Update the best score
+                bestCount = 0; // Forget the moves with a lower score
+                bestMoves[bestCount++] = move;
+            } else if (score == bestScore) {
+                bestMoves[bestCount++] = move; // Add the move to the best moves if it has the same score
+            }
+        }
+
+        // If no valid moves are found
+        if (bestCount == 0) {
+            return PackedMove.NONE;
+        }
+
+        // Put the highest-scoring moves in a fixed order, in the orientation of the cache, and randomly choose one
+        for (int i = 0; mirrored && i < bestCount; i++) {
+            bestMoves[i] = Symmetry.mirrorMove(bestMoves[i]);
+        }
+        Arrays.sort(bestMoves, 0, bestCount);
+        if (cache != null) {
+            cache.putBestMoves(hash, ruleKey, depth, bestScore, Arrays.copyOf(bestMoves, bestCount));
+        }
+        int bestMove = bestMoves[nextInt(random, bestCount)];
+        return mirrored ? Symmetry.mirrorMove(bestMove) : bestMove;
+    }
+
+    /**
+     * Draws a number below the bound from the stream of the game, or from the generator of the calling thread.
+     */
+    private static int nextInt(GameRandom random, int bound) {
+        return random == null ? ThreadLocalRandom.current().nextInt(bound) : random.nextInt(bound);
+    }
+
+    /**
+     * Combines the hashes of the positions before the current one, so that searches which score different moves
+     * as repetitions are cached apart.
+     *
+     * @param history Hashes of the positions since the last capture, ending with the current position.
+     * @return The key of the earlier positions.
+     */
+    private static long historyKey(long[] history) {
+        long key = 0L;
+        for (int i = 0; i < history.length - 1; i++) {
+            key = (key ^ history[i]) * 0x9E3779B97F4A7C15L;
+        }
+        return key;
+    }
+
+    /**
+     * Checks that every cached best move is legal on the board, since a different position may share the hash.
+     */
+    private static boolean isLegal(VariantChessBoard board, Color color, PositionCache.BestMoves cached, boolean mirrored,
+                                   MoveBuffer moves) {
+        for (int i = 0; i < cached.getMoveCount(); i++) {
+            int move = cached.getMove(i);
+            if (!moves.isLegal(board, color, mirrored ? Symmetry.mirrorMove(move) : move)) {
+                return false;
+            }
+        }
+        return cached.getMoveCount() > 0;
+    }
 
-        // Iterate through all possible moves on the board
-        for (int startX = 0; startX < 8; startX++) {
-            for (int startY = 0; startY < 8; startY++) {
-                VariantChessPiece piece = board.getPieceAt(startX, startY); // Get the piece at the starting position
-                if (piece != null && piece.getColor() == color) { // Check if the piece belongs to the AI
-                    for (int endX = 0; endX < 8; endX++) {
-                        for (int endY = 0; endY < 8; endY++) {
-                            VariantChessMove move = new VariantChessMove(startX, startY, endX, endY); // Create a move object
-                            if (piece.isValidMove(move, board)) { // Check if the move is valid
-                                VariantChessPiece originalEndPiece = board.getPieceAt(endX, endY); // Save the original piece at the end position
-                                board.movePiece(move); // Execute the move
-
-                                // Use minimax with alpha-beta pruning to evaluate the move
-                                int score = minimax(board, depth - 1, false, color, currentRule, Integer.MIN_VALUE, Integer.MAX_VALUE);
-
-                                board.movePiece(new VariantChessMove(endX, endY, startX, startY)); // Undo the move
-                                board.setPieceAt(endX, endY, originalEndPiece); // Restore the original piece at the end position
-
-                                // Choose the move with the highest score
-                                if (score > bestScore) {
-                                    bestScore = score; // Update the best score
-                                    bestMoves.clear(); // Clear the list of best moves
-                                    bestMoves.add(move); // Add the new best move
-                                } else if (score == bestScore) {
-                                    bestMoves.add(move); // Add the move to the list of best moves if it has the same score
-                                }
-                            }
-                        }
+    /**
+     * Finds the best move for the AI player within the limits of a difficulty profile, see {@link DifficultyProfile}.
+     *
+     * @param board      The current state of the chessboard.
+     * @param color      The color of the AI player.
+     * @param currentRule The current rule of the game.
+     * @param history    Hashes of the positions since the last capture, ending with the current position.
+     * @param random     The random stream of the game, or {@code null} to draw from the generator of the calling thread.
+     * @param profile    The limits of the search, or {@code null} for the fixed-depth search.
+     * @return The best move found by the AI, or {@code null} if there are no possible moves.
+     */
+    public VariantChessMove calculateBestMove(VariantChessBoard board, Color color, GameRule currentRule, long[] history,
+                                              GameRandom random, DifficultyProfile profile) {
+        int bestMove = calculateBestPackedMove(board, color, currentRule, history, random, profile);
+        return bestMove == PackedMove.NONE ? null : PackedMove.toMove(bestMove);
+    }
+
+    /**
+     * Finds the best move for the AI player in its packed form within the limits of a difficulty profile.
+     * The search deepens one ply at a time, starting each iteration with the best move of the previous one, until
+     * the depth of the profile is reached or the node budget or time ceiling runs out; the moves of the deepest
+     * finished iteration are kept, or those of the first iteration found so far if even that did not finish.
+     * Each evaluation gets noise of up to the profile's amount, the same for a position throughout the search.
+     * The shared cache of best moves is not used, since its moves come from full-strength searches.
+     * Like the fixed-depth search, this allocates no memory once the buffers of the calling thread have grown.
+     *
+     * @param board      The current state of the chessboard.
+     * @param color      The color of the AI player.
+     * @param currentRule The current rule of the game.
+     * @param history    Hashes of the positions since the last capture, ending with the current position.
+     * @param random     The random stream of the game, or {@code null} to draw from the generator of the calling thread.
+     * @param profile    The limits of the search, or {@code null} for the fixed-depth search.
+     * @return The best move as a {@link PackedMove}, or {@link PackedMove#NONE} if there are no possible moves.
+     */
+    public int calculateBestPackedMove(VariantChessBoard board, Color color, GameRule currentRule, long[] history,
+                                       GameRandom random, DifficultyProfile profile) {
+        if (profile == null) {
+            return calculateBestPackedMove(board, color, currentRule, history, random);
+        }
+        SearchContext context = contexts.get();
+        context.startPath(history, profile.getMaxDepth());
+        context.useRule(currentRule);
+        context.nodes = 0;
+        board.setPlacementTables(weights.getTables(EvalWeights.ruleId(currentRule)));
+        board.setNeuralNetwork(network);
+        context.promotionSeed = random == null ? ThreadLocalRandom.current().nextLong() : random.nextLong();
+        context.limit(profile);
+        try {
+            MoveBuffer moves = context.moves;
+            int count = moves.generate(0, board, color);
+            if (count == 0) {
+                return PackedMove.NONE;
+            }
+            int[] bestMoves = context.bestMoves(count);
+            int[] candidates = context.candidates(count);
+            int bestCount = 0;
+            int first = 0; // Index of the move searched first, the best of the last iteration
+            for (int depth = 1; depth <= profile.getMaxDepth() && !context.aborted; depth++) {
+                int bestScore = Integer.MIN_VALUE;
+                int candidateCount = 0;
+                int bestIndex = first;
+                for (int k = 0; k < count; k++) {
+                    int i = k == 0 ? first : k <= first ? k - 1 : k;
+                    int move = moves.get(0, i);
+                    int from = PackedMove.from(move);
+                    int to = PackedMove.to(move);
+                    VariantChessPiece originalEndPiece = board.getPieceAt(to >> 3, to & 7);
+                    VariantChessPiece piece = board.getPieceAt(from >> 3, from & 7);
+                    board.movePiece(from, to);
+                    boolean ruled = context.applyRules(0, board, currentRule, move, piece, originalEndPiece);
+
+                    int score = minimax(board, depth - 1, false, color, currentRule, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                            context, 1, history.length);
+
+                    if (ruled) {
+                        context.undoRules(0, board, currentRule, piece, originalEndPiece);
+                    }
+                    board.movePiece(to, from);
+                    board.setPieceAt(to >> 3, to & 7, originalEndPiece);
+                    if (context.aborted) {
+                        break; // The score of this move is incomplete
                     }
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestIndex = i;
+                        candidateCount = 0;
+                        candidates[candidateCount++] = move;
+                    } else if (score == bestScore) {
+                        candidates[candidateCount++] = move;
+                    }
+                }
+                if (!context.aborted || bestCount == 0) {
+                    System.arraycopy(candidates, 0, bestMoves, 0, candidateCount);
+                    bestCount = candidateCount;
+                    first = bestIndex;
                 }
             }
+            if (bestCount == 0) {
+                return moves.get(0, first); // Out of time before any move was scored
+            }
+            return bestMoves[random == null ? ThreadLocalRandom.current().nextInt(bestCount) : random.nextInt(bestCount)];
+        } finally {
+            context.unlimit();
         }
+    }
 
-        // If no valid moves are found
-        if (bestMoves.isEmpty()) {
-            return null; // Return null if there are no possible moves
+    /**
+     * Analyses a position: finds the best moves for the side to move, each with its score and principal variation.
+     * The search deepens one ply at a time up to the given depth, searching the root moves in the order of the
+     * previous iteration. The lines share each iteration: once {@code lines} moves have been scored, the others are
+     * only searched to find whether they beat the weakest of them, which mostly fails quickly. Every iteration and
+     * line also shares one transposition table for move ordering and cut-offs, so the analysis costs far less than
+     * searching each line on its own. The table and the root buffers are kept by the calling thread and cleared for
+     * each analysis, so once they have grown, an analysis allocates only the lines it returns.
+     * <p>
+     * The board and the rule are changed during the search and restored, so analysis of a live game should
+     * run on a scratch board, see {@link PositionSnapshot#restoreTo}.
+     *
+     * @param board      The position to analyse.
+     * @param color      The side to move.
+     * @param currentRule The current rule of the game.
+     * @param history    Hashes of the positions since the last capture, ending with the current position.
+     * @param lines      The number of best moves to return, at least 1.
+     * @param maxDepth   The depth of the last iteration, from 1 to {@link #MAX_ANALYSIS_DEPTH}.
+     * @return The best moves, best first.
+     */
+    public Analysis analyze(VariantChessBoard board, Color color, GameRule currentRule, long[] history,
+                            int lines, int maxDepth) {
+        if (lines <= 0) {
+            throw new IllegalArgumentException("Invalid number of lines: " + lines);
         }
+        if (maxDepth <= 0 || maxDepth > MAX_ANALYSIS_DEPTH) {
+            throw new IllegalArgumentException("Invalid analysis depth: " + maxDepth);
+        }
+        SearchContext context = contexts.get();
+        context.startPath(history, maxDepth);
+        context.useRule(currentRule);
+        context.nodes = 0;
+        context.promotionSeed = Zobrist.hash(board, color); // The same position always gets the same analysis
+        context.preparePrincipalVariations(maxDepth);
+        board.setPlacementTables(weights.getTables(EvalWeights.ruleId(currentRule)));
+        board.setNeuralNetwork(network);
+        TranspositionTable table = context.transpositionTable();
+
+        int count = context.moves.generate(0, board, color);
+        context.prepareRoot(count);
+        int[] rootMoves = context.rootMoves;
+        for (int i = 0; i < count; i++) {
+            rootMoves[i] = context.moves.get(0, i);
+        }
+        int[] scores = context.rootScores;          // Score of each root move in the last iteration
+        boolean[] exact = context.rootExact;        // Whether that score is exact, or only an upper bound
+        int[][] variations = context.variations;    // Principal variation of each root move, starting with it
+        int[] variationLengths = context.variationLengths;
+        int[] iterationScores = context.iterationScores;
+        boolean[] iterationExact = context.iterationExact;
+        Arrays.fill(exact, 0, count, false);
+        int depth = 0;
+
+        for (int iteration = 1; iteration <= maxDepth; iteration++) {
+            sortRootMoves(count, rootMoves, scores, exact, variations, variationLengths);
+            Arrays.fill(iterationScores, 0, count, 0);
+            Arrays.fill(iterationExact, 0, count, false);
+            for (int i = 0; i < count; i++) {
+                int threshold = weakestLine(iterationScores, iterationExact, i, lines); // Score a new line must beat
+                int move = rootMoves[i];
+                int from = PackedMove.from(move);
+                int to = PackedMove.to(move);
+                VariantChessPiece originalEndPiece = board.getPieceAt(to >> 3, to & 7);
+                VariantChessPiece piece = board.getPieceAt(from >> 3, from & 7);
+                board.movePiece(from, to);
+                boolean ruled = context.applyRules(0, board, currentRule, move, piece, originalEndPiece);
+
+                int score = -analyse(board, iteration - 1, color.opposite(), currentRule, -INFINITY, -threshold,
+                        context, 1, history.length, table);
 
-        // Randomly choose one of the highest-scoring moves
-        return bestMoves.get(random.nextInt(bestMoves.size())); // Select a random move from the best moves
+                if (ruled) {
+                    context.undoRules(0, board, currentRule, piece, originalEndPiece);
+                }
+                board.movePiece(to, from);
+                board.setPieceAt(to >> 3, to & 7, originalEndPiece);
+
+                iterationScores[i] = score;
+                if (score > threshold) {
+                    iterationExact[i] = true;
+                    variations[i][0] = move;
+                    System.arraycopy(context.pv[1], 0, variations[i], 1, context.pvLength[1]);
+                    variationLengths[i] = context.pvLength[1] + 1;
+                }
+            }
+            System.arraycopy(iterationScores, 0, scores, 0, count);
+            System.arraycopy(iterationExact, 0, exact, 0, count);
+            depth = iteration;
+        }
+
+        sortRootMoves(count, rootMoves, scores, exact, variations, variationLengths);
+        List<Analysis.Line> result = new ArrayList<>();
+        for (int i = 0; i < count && result.size() < lines && exact[i]; i++) {
+            List<VariantChessMove> variation = new ArrayList<>();
+            for (int j = 0; j < variationLengths[i]; j++) {
+                variation.add(PackedMove.toMove(variations[i][j]));
+            }
+            result.add(new Analysis.Line(PackedMove.toMove(rootMoves[i]), scores[i], depth, variation));
+        }
+        return new Analysis(color, depth, context.nodes, result);
+    }
+
+    /**
+     * Finds the score a root move must beat to be among the best lines, given the moves searched so far.
+     *
+     * @return The lowest score of the best {@code lines} exact scores, or {@code -INFINITY} if fewer were found.
+     */
+    private static int weakestLine(int[] scores, boolean[] exact, int searched, int lines) {
+        int found = 0;
+        for (int i = 0; i < searched; i++) {
+            found += exact[i] ? 1 : 0;
+        }
+        if (found < lines) {
+            return -INFINITY;
+        }
+        // The lines-th highest exact score: count the exact scores above each candidate
+        int weakest = INFINITY;
+        for (int i = 0; i < searched; i++) {
+            if (!exact[i]) {
+                continue;
+            }
+            int above = 0;
+            for (int j = 0; j < searched; j++) {
+                if (exact[j] && (scores[j] > scores[i] || (scores[j] == scores[i] && j < i))) {
+                    above++;
+                }
+            }
+            if (above == lines - 1) {
+                weakest = scores[i];
+            }
+        }
+        return weakest;
+    }
+
+    /**
+     * Sorts the first {@code count} root moves, exact scores first and best first, keeping the order of equal moves.
+     */
+    private static void sortRootMoves(int count, int[] moves, int[] scores, boolean[] exact, int[][] variations,
+                                      int[] variationLengths) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            boolean isExact = exact[i];
+            int[] variation = variations[i];
+            int variationLength = variationLengths[i];
+            int j = i - 1;
+            while (j >= 0 && (isExact && !exact[j] || isExact == exact[j] && score > scores[j])) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                exact[j + 1] = exact[j];
+                variations[j + 1] = variations[j];
+                variationLengths[j + 1] = variationLengths[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+            exact[j + 1] = isExact;
+            variations[j + 1] = variation;
+            variationLengths[j + 1] = variationLength;
+        }
+    }
+
+    /**
+     * Negamax search with alpha-beta pruning and a transposition table, recording the principal variation
+     * of each ply in the search context.
+     *
+     * @param board      The current state of the chessboard.
+     * @param depth      The remaining depth.
+     * @param side       The side to move, which the score is given for.
+     * @param currentRule The current rule of the game.
+     * @param alpha      The score the side to move is already sure of.
+     * @param beta       The score above which the opponent avoids this position.
+     * @param context    The buffers of the searching thread.
+     * @param ply        The distance from the root of the search.
+     * @param pathLength The number of hashes in the path, from the last capture of the game onwards.
+     * @param table      The transposition table of the analysis.
+     * @return The score of the position for the side to move, exact if between alpha and beta, a bound otherwise.
+     */
+    private int analyse(VariantChessBoard board, int depth, Color side, GameRule currentRule, int alpha, int beta,
+                        SearchContext context, int ply, int pathLength, TranspositionTable table) {
+        context.nodes++;
+        context.pvLength[ply] = 0;
+        if (board.getPieceCount(side) == 0) {
+            return -WIN_SCORE - depth;
+        }
+        if (board.getPieceCount(side.opposite()) == 0) {
+            return WIN_SCORE + depth;
+        }
+        if (board.isLoneKings()) {
+            return 0;
+        }
+        long hash = Zobrist.hash(board, side);
+        long[] path = context.path;
+        for (int i = pathLength - 2; i >= 0; i -= 2) {
+            if (path[i] == hash) {
+                return 0;
+            }
+        }
+        path[pathLength] = hash;
+        if (depth == 0) {
+            return evaluateBoard(board, side, currentRule);
+        }
+
+        // Rule state, such as a conversion already used, changes the value of otherwise identical positions
+        long key = hash ^ (currentRule == null ? 0L : currentRule.getStateFlags() * 0x9E3779B97F4A7C15L);
+        long entry = table.probe(key);
+        int tableMove = entry == 0 ? PackedMove.NONE : TranspositionTable.moveOf(entry);
+        if (entry != 0 && TranspositionTable.depthOf(entry) >= depth) {
+            int score = TranspositionTable.scoreOf(entry);
+            int bound = TranspositionTable.boundOf(entry);
+            if (bound == TranspositionTable.EXACT
+                    || bound == TranspositionTable.LOWER_BOUND && score >= beta
+                    || bound == TranspositionTable.UPPER_BOUND && score <= alpha) {
+                if (bound == TranspositionTable.EXACT && tableMove != PackedMove.NONE) {
+                    context.pv[ply][0] = tableMove;
+                    context.pvLength[ply] = 1;
+                }
+                return score;
+            }
+        }
+
+        MoveBuffer moves = context.moves;
+        int count = moves.generate(ply, board, side);
+        if (count == 0) {
+            return 0; // No legal move is a stalemate
+        }
+        boolean tableMoveFound = false; // The move from the table may be a hash collision, so only play it if generated
+        for (int i = 0; i < count && tableMove != PackedMove.NONE; i++) {
+            tableMoveFound |= moves.get(ply, i) == tableMove;
+        }
+
+        int alphaStart = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        for (int i = tableMoveFound ? -1 : 0; i < count; i++) {
+            int move = i < 0 ? tableMove : moves.get(ply, i);
+            if (i >= 0 && tableMoveFound && move == tableMove) {
+                continue; // Already searched first
+            }
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            VariantChessPiece originalEndPiece = board.getPieceAt(to >> 3, to & 7);
+            VariantChessPiece piece = board.getPieceAt(from >> 3, from & 7);
+            board.movePiece(from, to);
+            boolean ruled = context.applyRules(ply, board, currentRule, move, piece, originalEndPiece);
+
+            int score = -analyse(board, depth - 1, side.opposite(), currentRule, -beta, -alpha,
+                    context, ply + 1, pathLength + 1, table);
+
+            if (ruled) {
+                context.undoRules(ply, board, currentRule, piece, originalEndPiece);
+            }
+            board.movePiece(to, from);
+            board.setPieceAt(to >> 3, to & 7, originalEndPiece);
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    context.pv[ply][0] = move;
+                    System.arraycopy(context.pv[ply + 1], 0, context.pv[ply], 1, context.pvLength[ply + 1]);
+                    context.pvLength[ply] = context.pvLength[ply + 1] + 1;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore <= alphaStart ? TranspositionTable.UPPER_BOUND
+                : bestScore >= beta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+        table.store(key, depth, bestScore, bound, bestMove);
+        return bestScore;
+    }
+
+    /**
+     * Buffers reused by every search made on one thread, so that a search does not allocate.
+     */
+    private static final class SearchContext {
+
+        private final MoveBuffer moves = new MoveBuffer(MAX_PLY);
+        private long[] path = new long[64];     // Game history followed by the hashes along the search path
+        private int[] bestMoves = new int[128]; // Root moves sharing the best score
+        private final VariantChessMove ruleMove = new VariantChessMove(0, 0, 0, 0); // Passed to rule hooks
+        private GameRule rule;                  // Rule the engine was built for
+        private long promotionSeed;             // Decides the outcome of the promotions tried by the current search
+        private long nodes;                     // Positions visited by the current search
+        private int[] candidates = new int[128]; // Root moves sharing the best score in the current iteration
+        // Limits of a search made for a difficulty profile
+        private boolean limited;
+        private boolean aborted;                // Whether the search ran out of nodes or time
+        private long nodeBudget;
+        private long deadline;                  // System.nanoTime() at which the search must stop
+        private int noise;                      // Largest noise added to evaluations, 0 for none
+        private int[][] pv = new int[0][];      // Principal variation found below each ply of an analysis
+        private int[] pvLength = new int[0];
+        private TranspositionTable table;       // Transposition table of an analysis, created by the first one
+        // Root moves of an analysis with their scores and principal variations, kept in step by sorting
+        private int[] rootMoves = new int[0];
+        private int[] rootScores = new int[0];
+        private boolean[] rootExact = new boolean[0];
+        private int[] iterationScores = new int[0];
+        private boolean[] iterationExact = new boolean[0];
+        private int[][] variations = new int[0][];
+        private int[] variationLengths = new int[0];
+        private RuleEngine engine = new RuleEngine(null);
+        // State saved before rule hooks ran at each ply, restored by undoRules
+        private VariantChessPiece[][] savedSquares = new VariantChessPiece[MAX_PLY][64];
+        private int[] savedState = new int[MAX_PLY * 4];
+
+        /**
+         * Builds the rule engine for the rule of this search, unless the last search used the same rule.
+         */
+        private void useRule(GameRule currentRule) {
+            if (currentRule != rule) {
+                rule = currentRule;
+                engine = new RuleEngine(currentRule);
+            }
+        }
+
+        /**
+         * Fires the rule events of a move that has just been made, if the rule registered hooks for them.
+         * The squares of the board and the state of the pieces and the rule are saved first, for {@link #undoRules}.
+         *
+         * @return {@code true} if hooks ran and have to be undone before the move.
+         */
+        private boolean applyRules(int ply, VariantChessBoard board, GameRule currentRule, int move,
+                                   VariantChessPiece piece, VariantChessPiece captured) {
+            if (!engine.triggers(piece, captured != null)) {
+                return false;
+            }
+            if (ply >= savedSquares.length) {
+                savedSquares = Arrays.copyOf(savedSquares, ply + 1);
+                savedSquares[ply] = new VariantChessPiece[64];
+                savedState = Arrays.copyOf(savedState, (ply + 1) * 4);
+            }
+            VariantChessPiece[] squares = savedSquares[ply];
+            for (int square = 0; square < 64; square++) {
+                squares[square] = board.getPieceAt(square >> 3, square & 7);
+            }
+            savedState[ply * 4] = currentRule == null ? 0 : currentRule.getStateFlags();
+            savedState[ply * 4 + 1] = piece.getCaptureCount() | (piece.isImmobile() ? IMMOBILE : 0);
+            if (captured != null) {
+                savedState[ply * 4 + 2] = captured.getCaptureCount() | (captured.isImmobile() ? IMMOBILE : 0);
+                savedState[ply * 4 + 3] = captured.getColor().ordinal();
+            }
+
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            ruleMove.reset(from >> 3, from & 7, to >> 3, to & 7);
+            ruleMove.setCapture(captured != null);
+            ruleMove.setPromotionChoice(1 + (int) (((promotionSeed ^ move) * 0x9E3779B97F4A7C15L) >>> 63));
+            engine.fire(RuleEngine.ON_MOVE, ruleMove, piece, captured, board);
+            if (captured != null) {
+                engine.fire(RuleEngine.ON_CAPTURE, ruleMove, piece, captured, board);
+            }
+            engine.fire(RuleEngine.ON_TURN_END, ruleMove, piece, captured, board);
+            return true;
+        }
+
+        /**
+         * Undoes the rule hooks run by {@link #applyRules}, leaving the board as it was just after the move.
+         * A piece the moving piece was promoted to is handed back to the board, as nothing else refers to it.
+         */
+        private void undoRules(int ply, VariantChessBoard board, GameRule currentRule,
+                               VariantChessPiece piece, VariantChessPiece captured) {
+            VariantChessPiece[] squares = savedSquares[ply];
+            for (int square = 0; square < 64; square++) {
+                VariantChessPiece current = board.getPieceAt(square >> 3, square & 7);
+                if (current != squares[square]) {
+                    board.setPieceAt(square >> 3, square & 7, squares[square]);
+                    if (squares[square] == piece && current != null) {
+                        board.recyclePiece(current);
+                    }
+                }
+            }
+            // The pieces are back where they were, so a piece state change no longer affects the board counts
+            restorePiece(piece, savedState[ply * 4 + 1]);
+            if (captured != null) {
+                restorePiece(captured, savedState[ply * 4 + 2]);
+                if (captured.getColor().ordinal() != savedState[ply * 4 + 3]) {
+                    captured.setColor(savedState[ply * 4 + 3] == 0 ? Color.WHITE : Color.BLACK);
+                }
+            }
+            if (currentRule != null) {
+                currentRule.restoreStateFlags(savedState[ply * 4]);
+            }
+        }
+
+        private static void restorePiece(VariantChessPiece piece, int state) {
+            piece.setCaptureCount(state & ~IMMOBILE);
+            piece.setImmobile((state & IMMOBILE) != 0);
+        }
+
+        /**
+         * Copies the game history to the start of the path, growing the path if needed.
+         */
+        private void startPath(long[] history, int depth) {
+            if (path.length < history.length + depth + 1) {
+                path = new long[Math.max(history.length + depth + 1, path.length * 2)];
+            }
+            System.arraycopy(history, 0, path, 0, history.length);
+        }
+
+        /**
+         * Grows the principal variation buffers to fit an analysis of the given depth.
+         */
+        private void preparePrincipalVariations(int depth) {
+            if (pv.length < depth + 2) {
+                pv = new int[depth + 2][depth + 1];
+                pvLength = new int[depth + 2];
+            }
+        }
+
+        /**
+         * Gets the transposition table of this thread, emptied of the entries of its last analysis.
+         */
+        private TranspositionTable transpositionTable() {
+            if (table == null) {
+                table = new TranspositionTable(TABLE_BITS);
+            } else {
+                table.clear();
+            }
+            return table;
+        }
+
+        /**
+         * Grows the root buffers of an analysis to fit the given number of root moves.
+         */
+        private void prepareRoot(int count) {
+            if (rootMoves.length < count) {
+                int size = Math.max(count, rootMoves.length * 2);
+                rootMoves = new int[size];
+                rootScores = new int[size];
+                rootExact = new boolean[size];
+                iterationScores = new int[size];
+                iterationExact = new boolean[size];
+                variationLengths = new int[size];
+                variations = new int[size][MAX_ANALYSIS_DEPTH + 1];
+            }
+        }
+
+        private void limit(DifficultyProfile profile) {
+            limited = true;
+            aborted = false;
+            nodeBudget = profile.getNodeBudget();
+            deadline = System.nanoTime() + profile.getTimeCeilingNanos();
+            noise = profile.getEvalNoise();
+        }
+
+        private void unlimit() {
+            limited = false;
+            aborted = false;
+            noise = 0;
+        }
+
+        /**
+         * Checks the limits of the search at a new node, reading the clock every 64 nodes only.
+         *
+         * @return {@code true} if the search must stop.
+         */
+        private boolean outOfBudget() {
+            if (nodes >= nodeBudget || (nodes & 63) == 0 && System.nanoTime() - deadline > 0) {
+                aborted = true;
+            }
+            return aborted;
+        }
+
+        /**
+         * Computes the noise of a position, fixed for the search so that the position always scores the same.
+         */
+        private int noise(long hash) {
+            long mixed = (hash ^ promotionSeed ^ 0x5DEECE66DL) * 0x9E3779B97F4A7C15L;
+            return (int) ((mixed >>> 33) % (2L * noise + 1)) - noise;
+        }
+
+        private int[] candidates(int count) {
+            if (candidates.length < count) {
+                candidates = new int[Math.max(count, candidates.length * 2)];
+            }
+            return candidates;
+        }
+
+        private int[] bestMoves(int count) {
+            if (bestMoves.length < count) {
+                bestMoves = new int[Math.max(count, bestMoves.length * 2)];
+            }
+            return bestMoves;
+        }
     }
 
 }
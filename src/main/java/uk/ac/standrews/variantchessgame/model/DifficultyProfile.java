@@ -0,0 +1,122 @@
+package uk.ac.standrews.variantchessgame.model;
+
+/**
+ * Strength of the AI, set by how many positions it may search, how noisy its evaluation is and how long it may
+ * think, rather than by a fixed depth. The search deepens one ply at a time up to the depth of the profile and
+ * stops as soon as it has visited the node budget or reached the time ceiling, whichever comes first, playing
+ * the best move of the deepest iteration it finished. Weak profiles search a few dozen positions, so a move costs
+ * microseconds; the time ceiling bounds the latency of every profile whatever the position.
+ */
+public final class DifficultyProfile {
+
+    public static final DifficultyProfile BEGINNER = new DifficultyProfile("BEGINNER", 48, 1, 150, 2);
+    public static final DifficultyProfile CASUAL = new DifficultyProfile("CASUAL", 600, 2, 60, 10);
+    public static final DifficultyProfile CLUB = new DifficultyProfile("CLUB", 6_000, 3, 20, 50);
+    public static final DifficultyProfile EXPERT = new DifficultyProfile("EXPERT", 60_000, 4, 0, 250);
+
+    private static final DifficultyProfile[] PRESETS = {BEGINNER, CASUAL, CLUB, EXPERT};
+
+    private final String name;
+    private final long nodeBudget;
+    private final int maxDepth;
+    private final int evalNoise;
+    private final long timeCeilingNanos;
+
+    /**
+     * Constructs a profile.
+     *
+     * @param name The name of the profile, as shown to players.
+     * @param nodeBudget The most positions a search may visit, at least 1.
+     * @param maxDepth The depth of the last iteration, from 1 to {@link ChessAI#MAX_ANALYSIS_DEPTH}.
+     * @param evalNoise The largest amount added to or subtracted from each evaluation, in hundredths of a Pawn.
+     * @param timeCeilingMillis The longest a search may take, in milliseconds, at least 1.
+     */
+    public DifficultyProfile(String name, long nodeBudget, int maxDepth, int evalNoise, long timeCeilingMillis) {
+        if (nodeBudget < 1) {
+            throw new IllegalArgumentException("Invalid node budget: " + nodeBudget);
+        }
+        if (maxDepth < 1 || maxDepth > ChessAI.MAX_ANALYSIS_DEPTH) {
+            throw new IllegalArgumentException("Invalid depth: " + maxDepth);
+        }
+        if (evalNoise < 0) {
+            throw new IllegalArgumentException("Invalid evaluation noise: " + evalNoise);
+        }
+        if (timeCeilingMillis < 1) {
+            throw new IllegalArgumentException("Invalid time ceiling: " + timeCeilingMillis);
+        }
+        this.name = name;
+        this.nodeBudget = nodeBudget;
+        this.maxDepth = maxDepth;
+        this.evalNoise = evalNoise;
+        this.timeCeilingNanos = timeCeilingMillis * 1_000_000L;
+    }
+
+    /**
+     * Finds a preset profile by name.
+     *
+     * @param name The name, such as {@code "CASUAL"}, in any case.
+     * @return The profile.
+     * @throws IllegalArgumentException If there is no preset of that name.
+     */
+    public static DifficultyProfile byName(String name) {
+        for (DifficultyProfile profile : PRESETS) {
+            if (profile.name.equalsIgnoreCase(name)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Invalid difficulty: " + name);
+    }
+
+    /**
+     * Gets the index of a preset profile, as stored in the journal and in saved sessions.
+     *
+     * @param profile A preset profile, or {@code null} for the fixed-depth search.
+     * @return The index of the preset, or -1 for {@code null}.
+     * @throws IllegalArgumentException If the profile is not a preset.
+     */
+    public static int presetIndex(DifficultyProfile profile) {
+        if (profile == null) {
+            return -1;
+        }
+        for (int i = 0; i < PRESETS.length; i++) {
+            if (PRESETS[i] == profile) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not a preset difficulty: " + profile.name);
+    }
+
+    /**
+     * Finds a preset profile by the index returned by {@link #presetIndex}.
+     *
+     * @param index The index of the preset, or -1 for the fixed-depth search.
+     * @return The profile, or {@code null} for -1.
+     * @throws IllegalArgumentException If there is no preset with that index.
+     */
+    public static DifficultyProfile byIndex(int index) {
+        if (index < -1 || index >= PRESETS.length) {
+            throw new IllegalArgumentException("Invalid difficulty index: " + index);
+        }
+        return index < 0 ? null : PRESETS[index];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getNodeBudget() {
+        return nodeBudget;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getEvalNoise() {
+        return evalNoise;
+    }
+
+    public long getTimeCeilingNanos() {
+        return timeCeilingNanos;
+    }
+}
@@ -0,0 +1,383 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The weights of the evaluation of {@link ChessAI}, under every rule: the value of each piece type, a bonus by
+ * the number of captures a piece has made, a piece-square table for every piece type, and the score of each square
+ * a piece can move to (mobility). Scores are in hundredths of a Pawn, see {@link #PAWN_UNIT}.
+ * <p>
+ * Weights are read from a properties file whose {@code version} must be {@link #FORMAT_VERSION}; the defaults
+ * ship as the {@code eval-weights.properties} resource, and {@code EvalTuner} writes tuned files in the same format.
+ * Keys name a term and a piece, such as {@code value.Cannon}; a key with a rule name before the piece, such as
+ * {@code value.CannonSpecialRule.Cannon}, replaces the term under that rule only.
+ * <ul>
+ *     <li>{@code value.<Piece>}: the value of the piece.</li>
+ *     <li>{@code bonus.<Piece>}: three values added for a piece that has made 0, 1, and 2 or more captures; 0 if absent.</li>
+ *     <li>{@code pst.<Piece>}: 64 values seen from White's side, starting with row 0, the back rank of Black that
+ *     White's Pawns advance towards; Black uses the table flipped vertically.</li>
+ *     <li>{@code mobility} or {@code mobility.<Rule>}: the score per square; 0 if absent.</li>
+ * </ul>
+ * Tables must be symmetric from left to right, since mirror-image positions may share evaluations
+ * in the {@link PositionCache}.
+ */
+public final class EvalWeights {
+
+    /** The version of the weights file format this class reads and writes. */
+    public static final int FORMAT_VERSION = 2;
+    /** The score of one Pawn of material. */
+    public static final int PAWN_UNIT = 100;
+    /** The number of capture counts with their own bonus; pieces with more captures get the last bonus. */
+    public static final int BONUS_STEPS = 3;
+
+    private static final String RESOURCE = "/eval-weights.properties";
+    // Names of the piece types, indexed by Zobrist type index, and of the rules, indexed by rule id
+    private static final List<String> PIECE_NAMES = Arrays.asList("Pawn", "Knight", "Bishop", "Rook", "Queen", "King", "Cannon");
+    private static final List<String> RULE_NAMES = Arrays.asList("CannonSpecialRule", "KingQueenSpecialRule", "PawnPromotionRule");
+    private static final int NO_RULE = 3; // Slot of the weights used without a rule
+    private static final int SLOTS = 4;
+
+    private final int[][] values = new int[SLOTS][Zobrist.PIECE_TYPES];             // [rule][type]
+    private final int[][][] bonuses = new int[SLOTS][Zobrist.PIECE_TYPES][];        // [rule][type][captures]
+    private final int[][][] tables = new int[SLOTS][Zobrist.PIECE_TYPES][];         // [rule][type][square]
+    private final int[] mobility = new int[SLOTS];                                  // [rule]
+
+    private EvalWeights() {
+        for (int[] slotValues : values) {
+            Arrays.fill(slotValues, Integer.MIN_VALUE); // Marks values not read yet
+        }
+    }
+
+    /**
+     * Gets the weights shipped with the application, loading them on first use.
+     *
+     * @return The default weights.
+     */
+    public static EvalWeights getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * Creates weights with the material of the default weights and no positional terms.
+     *
+     * @return Weights whose tables and mobility are all zero.
+     */
+    public static EvalWeights materialOnly() {
+        EvalWeights weights = getDefault().copy();
+        int[] zero = new int[64];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            Arrays.fill(weights.tables[slot], zero);
+            weights.mobility[slot] = 0;
+        }
+        return weights;
+    }
+
+    /**
+     * Reads weights from a properties file.
+     *
+     * @param in The contents of the file.
+     * @return The weights.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If the file has another version, an unknown key or an invalid value.
+     */
+    public static EvalWeights read(InputStream in) throws IOException {
+        Properties properties = new Properties();
+        properties.load(in);
+        return of(properties);
+    }
+
+    /**
+     * Builds weights from the keys of a weights file.
+     *
+     * @param properties The keys and values.
+     * @return The weights.
+     * @throws IllegalArgumentException If the version is not {@link #FORMAT_VERSION}, a key is unknown,
+     *                                  or a value is invalid or missing.
+     */
+    public static EvalWeights of(Properties properties) {
+        String version = properties.getProperty("version");
+        if (!String.valueOf(FORMAT_VERSION).equals(version)) {
+            throw new IllegalArgumentException("Unsupported weights version: " + version);
+        }
+        EvalWeights weights = new EvalWeights();
+        // Keys for every rule are applied first, so that keys for one rule replace them whatever their order
+        for (boolean ruleKeys : new boolean[]{false, true}) {
+            for (String key : properties.stringPropertyNames()) {
+                if (!key.equals("version")) {
+                    weights.set(key, properties.getProperty(key), ruleKeys);
+                }
+            }
+        }
+        for (int slot = 0; slot < SLOTS; slot++) {
+            for (int type = 0; type < Zobrist.PIECE_TYPES; type++) {
+                if (weights.tables[slot][type] == null) {
+                    throw new IllegalArgumentException("Missing table pst." + PIECE_NAMES.get(type));
+                }
+                if (weights.values[slot][type] == Integer.MIN_VALUE) {
+                    throw new IllegalArgumentException("Missing value." + PIECE_NAMES.get(type));
+                }
+                if (weights.bonuses[slot][type] == null) {
+                    weights.bonuses[slot][type] = new int[BONUS_STEPS];
+                }
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Applies one key of a weights file, if it is for a single rule as requested.
+     */
+    private void set(String key, String value, boolean ruleKeys) {
+        String[] parts = key.split("\\.");
+        String term = parts[0];
+        boolean hasPiece = !term.equals("mobility");
+        int ruleParts = parts.length - 1 - (hasPiece ? 1 : 0);
+        int type = hasPiece && parts.length > 1 ? PIECE_NAMES.indexOf(parts[parts.length - 1]) : 0;
+        int rule = ruleParts == 1 ? RULE_NAMES.indexOf(parts[1]) : -1;
+        if (ruleParts < 0 || ruleParts > 1 || type < 0 || (ruleParts == 1 && rule < 0)) {
+            throw new IllegalArgumentException("Unknown weights key: " + key);
+        }
+        if ((rule >= 0) != ruleKeys) {
+            return;
+        }
+        int[] parsed;
+        switch (term) {
+            case "value":
+            case "mobility":
+                parsed = parse(key, value, 1);
+                break;
+            case "bonus":
+                parsed = parse(key, value, BONUS_STEPS);
+                break;
+            case "pst":
+                parsed = parse(key, value, 64);
+                for (int square = 0; square < 64; square++) {
+                    if (parsed[square] != parsed[Symmetry.mirror(square)]) {
+                        throw new IllegalArgumentException(key + " is not symmetric from left to right");
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown weights key: " + key);
+        }
+        for (int slot = rule >= 0 ? rule : 0; slot < (rule >= 0 ? rule + 1 : SLOTS); slot++) {
+            switch (term) {
+                case "value":
+                    values[slot][type] = parsed[0];
+                    break;
+                case "mobility":
+                    mobility[slot] = parsed[0];
+                    break;
+                case "bonus":
+                    bonuses[slot][type] = parsed;
+                    break;
+                default:
+                    tables[slot][type] = parsed;
+                    break;
+            }
+        }
+    }
+
+    private static int[] parse(String key, String value, int count) {
+        String[] numbers = value.trim().split("\\s+");
+        if (numbers.length != count) {
+            throw new IllegalArgumentException(key + " should have " + count + " values, not " + numbers.length);
+        }
+        int[] parsed = new int[count];
+        for (int i = 0; i < count; i++) {
+            parsed[i] = Integer.parseInt(numbers[i]);
+        }
+        return parsed;
+    }
+
+    /**
+     * Writes the weights in the format read by {@link #read(InputStream)}. Terms are written for every rule,
+     * followed by the terms that differ under a single rule.
+     *
+     * @param out The writer.
+     * @param comment A comment written at the top of the file, such as how the weights were obtained.
+     * @throws IOException If writing fails.
+     */
+    public void write(Writer out, String comment) throws IOException {
+        out.write("# " + comment + "\n");
+        out.write("version=" + FORMAT_VERSION + "\n");
+        for (int slot : new int[]{NO_RULE, 0, 1, 2}) {
+            String rule = slot == NO_RULE ? "" : RULE_NAMES.get(slot) + ".";
+            out.write("\n");
+            if (slot == NO_RULE || mobility[slot] != mobility[NO_RULE]) {
+                out.write("mobility" + (slot == NO_RULE ? "" : "." + RULE_NAMES.get(slot)) + "=" + mobility[slot] + "\n");
+            }
+            for (int type = 0; type < Zobrist.PIECE_TYPES; type++) {
+                String piece = PIECE_NAMES.get(type);
+                if (slot == NO_RULE || values[slot][type] != values[NO_RULE][type]) {
+                    out.write("value." + rule + piece + "=" + values[slot][type] + "\n");
+                }
+                if (!Arrays.equals(bonuses[slot][type], slot == NO_RULE ? new int[BONUS_STEPS] : bonuses[NO_RULE][type])) {
+                    out.write("bonus." + rule + piece + "=" + join(bonuses[slot][type], 0, BONUS_STEPS) + "\n");
+                }
+            }
+            for (int type = 0; type < Zobrist.PIECE_TYPES; type++) {
+                if (slot == NO_RULE || !Arrays.equals(tables[slot][type], tables[NO_RULE][type])) {
+                    out.write("pst." + rule + PIECE_NAMES.get(type) + "=\\\n");
+                    for (int row = 0; row < 8; row++) {
+                        out.write("  " + join(tables[slot][type], row * 8, 8) + (row < 7 ? " \\\n" : "\n"));
+                    }
+                }
+            }
+        }
+    }
+
+    private static String join(int[] numbers, int from, int count) {
+        StringBuilder line = new StringBuilder();
+        for (int i = from; i < from + count; i++) {
+            line.append(i > from ? " " : "").append(String.format("%4d", numbers[i]));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Gets the id the weights of a rule are stored under.
+     *
+     * @param rule The rule, may be {@code null}.
+     * @return The rule id of the three rules of the game, or -1 for any other rule and for no rule.
+     */
+    public static int ruleId(GameRule rule) {
+        if (rule instanceof CannonSpecialRule) return 0;
+        if (rule instanceof KingQueenSpecialRule) return 1;
+        if (rule instanceof PawnPromotionRule) return 2;
+        return -1;
+    }
+
+    private static int slot(int ruleId) {
+        return ruleId < 0 ? NO_RULE : ruleId;
+    }
+
+    /**
+     * Gets the value of a piece under a rule: the value of its type and the bonus for its number of captures.
+     *
+     * @param ruleId The id of the rule, see {@link #ruleId(GameRule)}.
+     * @param piece The piece.
+     * @return The value of the piece, 0 for a piece of an unknown type.
+     */
+    public int getPieceValue(int ruleId, VariantChessPiece piece) {
+        int type = Zobrist.typeIndex(piece);
+        if (type < 0) {
+            return 0;
+        }
+        int slot = slot(ruleId);
+        return values[slot][type] + bonuses[slot][type][Math.min(piece.getCaptureCount(), BONUS_STEPS - 1)];
+    }
+
+    /**
+     * Gets the value of a piece type under a rule, without any capture bonus.
+     *
+     * @param ruleId The id of the rule, or -1 for a game without a rule.
+     * @param type The {@link Zobrist} type index.
+     * @return The value.
+     */
+    public int getValue(int ruleId, int type) {
+        return values[slot(ruleId)][type];
+    }
+
+    /**
+     * Gets the bonus of a piece type for a number of captures under a rule.
+     *
+     * @param ruleId The id of the rule, or -1 for a game without a rule.
+     * @param type The {@link Zobrist} type index.
+     * @param captures The number of captures, from 0 to {@link #BONUS_STEPS} - 1.
+     * @return The bonus.
+     */
+    public int getBonus(int ruleId, int type, int captures) {
+        return bonuses[slot(ruleId)][type][captures];
+    }
+
+    /**
+     * Gets the piece-square tables used under a rule, one per {@link Zobrist} type index, as seen from White's side.
+     * The same array is returned on every call, so boards can tell whether their tables changed by identity.
+     *
+     * @param ruleId The id of the rule, or -1 for a game without a rule.
+     * @return The tables, indexed by type and square; not to be modified.
+     */
+    public int[][] getTables(int ruleId) {
+        return tables[slot(ruleId)];
+    }
+
+    /**
+     * Gets the score of each square a piece attacks that does not hold a piece of its own color.
+     *
+     * @param ruleId The id of the rule, or -1 for a game without a rule.
+     * @return The mobility weight.
+     */
+    public int getMobility(int ruleId) {
+        return mobility[slot(ruleId)];
+    }
+
+    /**
+     * Creates a copy of these weights with other material and mobility weights under one rule, as found by tuning.
+     *
+     * @param ruleId The id of the rule, or -1 for a game without a rule.
+     * @param newValues The value of each piece type.
+     * @param newBonuses The capture bonuses of each piece type.
+     * @param newMobility The mobility weight.
+     * @return The new weights; the piece-square tables are shared with these weights.
+     */
+    public EvalWeights withMaterial(int ruleId, int[] newValues, int[][] newBonuses, int newMobility) {
+        if (newValues.length != Zobrist.PIECE_TYPES || newBonuses.length != Zobrist.PIECE_TYPES) {
+            throw new IllegalArgumentException("Expected weights for " + Zobrist.PIECE_TYPES + " piece types");
+        }
+        EvalWeights weights = copy();
+        int slot = slot(ruleId);
+        weights.values[slot] = newValues.clone();
+        for (int type = 0; type < Zobrist.PIECE_TYPES; type++) {
+            if (newBonuses[type].length != BONUS_STEPS) {
+                throw new IllegalArgumentException("Expected " + BONUS_STEPS + " bonuses for " + PIECE_NAMES.get(type));
+            }
+            weights.bonuses[slot][type] = newBonuses[type].clone();
+        }
+        weights.mobility[slot] = newMobility;
+        return weights;
+    }
+
+    private EvalWeights copy() {
+        EvalWeights weights = new EvalWeights();
+        for (int slot = 0; slot < SLOTS; slot++) {
+            weights.values[slot] = values[slot].clone();
+            weights.bonuses[slot] = bonuses[slot].clone();
+            weights.tables[slot] = tables[slot].clone();
+            weights.mobility[slot] = mobility[slot];
+        }
+        return weights;
+    }
+
+    /**
+     * Gets the index of a square in a table as seen from White's side.
+     *
+     * @param color The color of the piece.
+     * @param square The square index (x * 8 + y).
+     * @return The square itself for White, the square in the mirrored row for Black.
+     */
+    public static int tableSquare(Color color, int square) {
+        return color == Color.WHITE ? square : square ^ 56;
+    }
+
+    private static final class DefaultHolder {
+        private static final EvalWeights DEFAULT = loadDefault();
+
+        private static EvalWeights loadDefault() {
+            try (InputStream in = EvalWeights.class.getResourceAsStream(RESOURCE)) {
+                if (in == null) {
+                    throw new IllegalStateException("Missing resource " + RESOURCE);
+                }
+                return read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
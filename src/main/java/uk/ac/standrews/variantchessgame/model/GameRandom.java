@@ -0,0 +1,97 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The stream of random decisions of one game: the back-rank layout, the rule, the outcome of promotions
+ * and the choice between equally good AI moves. Every decision is drawn from a SplitMix64 generator (the
+ * generator of {@link java.util.SplittableRandom}) seeded once when the game starts, so a game started again
+ * with the same seed and the same player moves plays out identically, for example to rerun a recorded
+ * production game in a benchmark.
+ * <p>
+ * A stream belongs to its game and is only used by the thread handling that game, so games never contend
+ * for a shared generator. Each decision advances the generator by exactly one step and is counted, so a game
+ * restored from the journal or a saved session continues from the same point with {@link #skipTo(long)}.
+ */
+public final class GameRandom {
+
+    private static final long GAMMA = 0x9E3779B97F4A7C15L; // Step of the generator state per decision
+
+    private final long seed;
+    private long draws; // Number of decisions drawn so far
+
+    /**
+     * Constructs the stream of a game.
+     *
+     * @param seed The seed of the game, as recorded in the journal.
+     */
+    public GameRandom(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Constructs the stream of a game with a new seed.
+     *
+     * @return The stream.
+     */
+    public static GameRandom withNewSeed() {
+        return new GameRandom(ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Gets the seed the stream started from.
+     *
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the number of decisions drawn from the stream.
+     *
+     * @return The number of calls to {@link #nextInt(int)} and {@link #nextLong()}.
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * Moves the stream forward to a number of decisions, as if they had been drawn, without computing them.
+     *
+     * @param draws The number of decisions, as returned by {@link #getDraws()} when the game was saved.
+     * @throws IllegalArgumentException If more decisions than that have already been drawn.
+     */
+    public void skipTo(long draws) {
+        if (draws < this.draws) {
+            throw new IllegalArgumentException("Cannot skip back from draw " + this.draws + " to " + draws);
+        }
+        this.draws = draws;
+    }
+
+    /**
+     * Draws the next decision among a number of options.
+     * The option is taken from the high bits of one step of the generator, so it costs one step whatever the bound.
+     *
+     * @param bound The number of options, at least 1.
+     * @return An option from 0 to {@code bound - 1}.
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Invalid bound: " + bound);
+        }
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Draws 64 random bits, for example to seed a derived stream.
+     *
+     * @return The random bits.
+     */
+    public long nextLong() {
+        long z = seed + ++draws * GAMMA; // The state after this many steps
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
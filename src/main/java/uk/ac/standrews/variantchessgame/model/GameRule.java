@@ -8,12 +8,40 @@ package uk.ac.standrews.variantchessgame.model;
 public interface GameRule {
 
     /**
-     * Applies the rule to the given move.
-     * This method is called whenever a move is made to determine if any special rules need to be enforced.
+     * Registers the hooks of the rule with an engine, one for each event and kind of piece the rule reacts to.
+     * The hooks are the only way a rule is applied, by live games and the AI search alike.
      *
-     * @param move The move that is being evaluated.
-     * @param piece The piece that is being moved.
-     * @param board The current state of the chess board.
+     * @param engine The engine to register with.
      */
-    void applyRule(VariantChessMove move, VariantChessPiece piece, VariantChessBoard board);
+    void registerHooks(RuleEngine engine);
+
+    /**
+     * Returns the identifier of the rule, matching the index used by {@link GameState#selectRuleByIndex(int)}.
+     * Rules outside the built-in set return -1.
+     *
+     * @return The rule identifier.
+     */
+    default int getRuleId() {
+        return -1;
+    }
+
+    /**
+     * Returns the mutable state of the rule packed into the low bits of an int.
+     * Two positions with the same pieces but different rule state can play differently,
+     * so this value is part of every cache key. Stateless rules return 0.
+     *
+     * @return The packed rule state.
+     */
+    default int getStateFlags() {
+        return 0;
+    }
+
+    /**
+     * Restores the mutable state of the rule from a value produced by {@link #getStateFlags()}.
+     * Stateless rules ignore the call.
+     *
+     * @param flags The packed rule state.
+     */
+    default void restoreStateFlags(int flags) {
+    }
 }
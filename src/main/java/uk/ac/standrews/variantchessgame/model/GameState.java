@@ -1,6 +1,6 @@
 package uk.ac.standrews.variantchessgame.model;
 
-import java.util.Random;
+import java.util.Arrays;
 
 /**
  * Represents the current state of the chess game.
@@ -15,8 +15,12 @@ public class GameState {
     public int movesWithoutCapture;     // Counter for the number of moves made without capturing an opponent's piece.
     private Color currentTurn;           // The color of the player whose turn it is.
     private GameRule selectedRule;
+    private RuleEngine ruleEngine = new RuleEngine(null); // Hooks of the selected rule
+    // Zobrist hash (with side to move) of the position after each ply, indexed by the number of plies played
+    private long[] positionHashes = new long[64];
 
     private final VariantChessBoard board; // The chess board representing the current game state.
+    private final GameRandom random; // Random stream every random decision of the game is drawn from
 
     public int getWhiteMoveCount() {
         return whiteMoveCount;
@@ -34,12 +38,25 @@ public class GameState {
      * @param board The chess board representing the initial state of the game.
      */
     public GameState(VariantChessBoard board) {
+        this(board, GameRandom.withNewSeed());
+    }
+
+    /**
+     * Constructs a new GameState object drawing its random decisions, starting with the rule,
+     * from the random stream of the game.
+     *
+     * @param board The chess board representing the initial state of the game.
+     * @param random The random stream of the game, which may already have drawn the layout of the board.
+     */
+    public GameState(VariantChessBoard board, GameRandom random) {
         this.board = board;
+        this.random = random;
         this.currentTurn = Color.WHITE;
         this.whiteMoveCount = 0;
         this.blackMoveCount = 0;
         this.movesWithoutCapture = 0;
         selectRandomRule(); // Select a random game rule at game initialization.
+        recordPosition();
     }
 
     /**
@@ -57,7 +74,98 @@ public class GameState {
      */
     public void switchTurn() {
         currentTurn = (currentTurn == Color.WHITE) ? Color.BLACK : Color.WHITE;
-        System.out.println("Turn Switch to：" + currentTurn);
+    }
+
+    /**
+     * Restores the turn and move counters, for example when a stored position is loaded.
+     * The position on the board is recorded as the position after the restored ply.
+     *
+     * @param currentTurn The color of the player to move.
+     * @param whiteMoveCount The number of moves made by the white player.
+     * @param blackMoveCount The number of moves made by the black player.
+     * @param movesWithoutCapture The number of moves made since the last capture.
+     */
+    public void restoreCounters(Color currentTurn, int whiteMoveCount, int blackMoveCount, int movesWithoutCapture) {
+        this.currentTurn = currentTurn;
+        this.whiteMoveCount = whiteMoveCount;
+        this.blackMoveCount = blackMoveCount;
+        this.movesWithoutCapture = movesWithoutCapture;
+        recordPosition();
+    }
+
+    /**
+     * Restores the hashes of the positions that can still recur, as returned by {@link #getReversibleHashes()},
+     * after the counters of a stored position have been restored with {@link #restoreCounters}, so that repetitions
+     * of positions reached before it was stored are still detected.
+     *
+     * @param reversibleHashes The position hashes, oldest first, ending with the hash of the current position.
+     * @throws IllegalArgumentException If the hashes do not end with the current position or reach before ply 0.
+     */
+    public void restoreReversibleHashes(long[] reversibleHashes) {
+        int ply = getPlyCount();
+        int length = reversibleHashes.length;
+        if (length == 0 || length > ply + 1 || reversibleHashes[length - 1] != positionHashes[ply]) {
+            throw new IllegalArgumentException("The hashes do not lead to the current position");
+        }
+        System.arraycopy(reversibleHashes, 0, positionHashes, ply + 1 - length, length);
+    }
+
+    /**
+     * Records the hash of the position on the board as the position after the current ply.
+     * Called after every executed move; entries for later plies left over from before an undo
+     * are overwritten as the game is played again from there.
+     */
+    public void recordPosition() {
+        int ply = getPlyCount();
+        if (ply >= positionHashes.length) {
+            positionHashes = Arrays.copyOf(positionHashes, Math.max(ply + 1, positionHashes.length * 2));
+        }
+        positionHashes[ply] = Zobrist.hash(board, currentTurn);
+    }
+
+    /**
+     * Gets the number of plies played in the game.
+     *
+     * @return The number of moves made by both players.
+     */
+    public int getPlyCount() {
+        return whiteMoveCount + blackMoveCount;
+    }
+
+    /**
+     * Gets the hashes of the positions that can still recur: the current position and those
+     * reached since the last capture, oldest first. A capture changes the material for good,
+     * so no earlier position can be seen again.
+     *
+     * @return The position hashes, ending with the hash of the current position.
+     */
+    public long[] getReversibleHashes() {
+        int ply = getPlyCount();
+        int first = Math.max(0, ply - movesWithoutCapture);
+        return Arrays.copyOfRange(positionHashes, first, ply + 1);
+    }
+
+    /**
+     * Determines if the current position has occurred three times.
+     * Only positions since the last capture with the same player to move are compared,
+     * so the check costs one hash comparison per two reversible plies.
+     *
+     * @return True if the position has been repeated three times, otherwise false.
+     */
+    public boolean isThreefoldRepetition() {
+        int ply = getPlyCount();
+        if (ply >= positionHashes.length) {
+            return false; // No position recorded for this ply yet
+        }
+        long current = positionHashes[ply];
+        int first = Math.max(0, ply - movesWithoutCapture);
+        int occurrences = 1;
+        for (int i = ply - 2; i >= first; i -= 2) {
+            if (positionHashes[i] == current && ++occurrences >= 3) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -91,72 +199,30 @@ public class GameState {
     /**
      * Determines if the game has been won.
      * A win occurs if all pieces of one color have been captured.
+     * Uses the piece counts kept by the board, so the check does not scan the squares.
      *
      * @return True if the game is won by one player, otherwise false.
      */
     public boolean isWin() {
-        int whiteCount = 0;
-        int blackCount = 0;
-
-        // Count the number of pieces for each color.
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                VariantChessPiece piece = board.getPieceAt(i, j);
-                if (piece != null) {
-                    if (piece.getColor() == Color.WHITE) {
-                        whiteCount++;
-                    } else {
-                        blackCount++;
-                    }
-                }
-            }
-        }
-
         // Win condition: One color has no pieces left on the board.
-        return whiteCount == 0 || blackCount == 0;
+        return board.getPieceCount(Color.WHITE) == 0 || board.getPieceCount(Color.BLACK) == 0;
     }
 
     /**
      * Determines if the game is a draw.
      * The game is a draw if:
-     * 1. There have been 60 or more moves without a capture.
+     * 1. There have been 40 or more moves without a capture.
      * 2. Both players have exactly one piece left, and each has a King.
+     * 3. The same position has occurred three times with the same player to move.
      *
      * @return True if the game is a draw, otherwise false.
      */
     public boolean isDraw() {
-        // Draw condition: 20 or more moves without capture.
+        // Draw condition: 40 or more moves without capture.
         if (movesWithoutCapture >= 40) {
             return true;
         }
-
-        int whiteCount = 0;
-        int blackCount = 0;
-        boolean whiteHasKing = false;
-        boolean blackHasKing = false;
-
-        // Count the number of pieces for each color and check for Kings.
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                VariantChessPiece piece = board.getPieceAt(i, j);
-                if (piece != null) {
-                    if (piece.getColor() == Color.WHITE) {
-                        whiteCount++;
-                        if (piece instanceof King) {
-                            whiteHasKing = true;
-                        }
-                    } else {
-                        blackCount++;
-                        if (piece instanceof King) {
-                            blackHasKing = true;
-                        }
-                    }
-                }
-            }
-        }
-
-        // Draw condition: Each player has exactly one piece and each has a King.
-        return whiteCount == 1 && blackCount == 1 && whiteHasKing && blackHasKing;
+        return board.isLoneKings() || isThreefoldRepetition();
     }
 
     /**
@@ -168,13 +234,30 @@ public class GameState {
         return selectedRule;
     }
 
+    /**
+     * Gets the engine that dispatches the events of each move to the hooks of the selected rule.
+     *
+     * @return The rule engine, rebuilt whenever a rule is selected.
+     */
+    public RuleEngine getRuleEngine() {
+        return ruleEngine;
+    }
+
+    /**
+     * Gets the random stream of the game.
+     *
+     * @return The stream every random decision of the game is drawn from.
+     */
+    public GameRandom getRandom() {
+        return random;
+    }
+
     /**
      * Selects a random game rule from available rules.
      * This method initializes the `selectedRule` field with a randomly chosen rule.
      * The rules available are CannonSpecialRule, KingQueenSpecialRule, and PawnPromotionRule.
      */
     public void selectRandomRule() {
-        Random random = new Random();
         int ruleIndex = random.nextInt(3);
         switch (ruleIndex) {
             case 0:
@@ -184,12 +267,13 @@ public class GameState {
                 this.selectedRule = new KingQueenSpecialRule();
                 break;
             case 2:
-                this.selectedRule = new PawnPromotionRule();
+                this.selectedRule = new PawnPromotionRule(random);
                 break;
             default:
                 this.selectedRule = null;
                 break;
         }
+        ruleEngine = new RuleEngine(selectedRule);
     }
 
     /**
@@ -209,11 +293,12 @@ public class GameState {
                 this.selectedRule = new KingQueenSpecialRule();
                 break;
             case 2:
-                this.selectedRule = new PawnPromotionRule();
+                this.selectedRule = new PawnPromotionRule(random);
                 break;
             default:
                 throw new IllegalArgumentException("Invalid rule index: " + ruleIndex);
         }
+        ruleEngine = new RuleEngine(selectedRule);
     }
 
 }
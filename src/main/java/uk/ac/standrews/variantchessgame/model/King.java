@@ -28,38 +28,23 @@ public class King extends VariantChessPiece {
      */
     @Override
     public boolean isValidMove(VariantChessMove move, VariantChessBoard board) {
+        return isTarget(move, board);
+    }
 
-        int startX = move.getStartX();
-        int startY = move.getStartY();
-        int endX = move.getEndX();
-        int endY = move.getEndY();
-
-        // Ensure the target position is within the bounds of the chessboard.
-        if (endX < 0 || endX >= 8 || endY < 0 || endY >= 8) {
-            return false;
-        }
-
-        // Ensure the start and end positions are different.
-        if (startX == endX && startY == endY) {
-            return false;
-        }
-
-        // Ensure the King moves exactly one square in any direction.
-        if (Math.abs(endX - startX) > 1 || Math.abs(endY - startY) > 1) {
-            return false;
-        }
-
-        // Check if the target position is occupied by a piece of the same color.
-        VariantChessPiece targetPiece = board.getPieceAt(endX, endY);
-        if (targetPiece != null && targetPiece.getColor() == this.getColor()) {
-            return false;
-        }
-
-        // If the target position is occupied by an opponent's piece, mark the move as a capture.
-        if (targetPiece != null && targetPiece.getColor() != this.getColor()) {
-            move.setCapture(true);
-        }
+    /**
+     * Gets the neighbouring squares that do not hold a piece of the King's color.
+     *
+     * @param square The square of the piece, {@code x * 8 + y}.
+     * @param board The current state of the board.
+     * @return The squares the piece can move to, including captures.
+     */
+    @Override
+    public long getTargets(int square, VariantChessBoard board) {
+        return Attacks.king(square) & ~board.getOccupancy(getColor());
+    }
 
-        return true;
+    @Override
+    public long getAttacks(int square, VariantChessBoard board) {
+        return Attacks.king(square);
     }
 }
@@ -18,125 +18,78 @@ public class KingQueenSpecialRule implements GameRule {
     private boolean hasBlackQueenUsedSpecialCapture = false;
 
     /**
-     * Applies the special capture rule during a move.
-     * If the King or Queen has not yet used their special capture, and they are
-     * in a valid position to do so, they will capture the target piece and
-     * take a specific action depending on the piece type.
+     * Registers the capture hook of Kings and Queens.
      *
-     * @param move   The move being made.
-     * @param piece  The piece making the move (either King or Queen).
-     * @param board  The current state of the chessboard.
+     * @param engine The engine to register with.
      */
     @Override
-    public void applyRule(VariantChessMove move, VariantChessPiece piece, VariantChessBoard board) {
-        System.out.println("Applying special capture rule...");
-        System.out.println("Initial move: " + move.getStartX() + ", " + move.getStartY() + " to " + move.getEndX() + ", " + move.getEndY());
-        System.out.println("Piece: " + piece.getClass().getSimpleName() + ", Color: " + piece.getColor());
+    public void registerHooks(RuleEngine engine) {
+        engine.on(RuleEngine.ON_CAPTURE, Zobrist.KING, this::convertCapture);
+        engine.on(RuleEngine.ON_CAPTURE, Zobrist.QUEEN, this::convertCapture);
+    }
 
-        // Determine if the piece is eligible for a special capture
-        boolean canUseSpecialCapture = false;
+    /**
+     * Converts a captured piece to the color of the King or Queen that captured it, if that piece has not used
+     * its special capture yet. The converted piece stays on the end square; the King goes back to its start square
+     * and the Queen to the square before the end square in the direction of the move.
+     *
+     * @param move The capturing move.
+     * @param piece The King or Queen.
+     * @param captured The captured piece.
+     * @param board The chessboard.
+     * @return 0, since the rule state change is reported by {@link MoveExecutor} itself.
+     */
+    private int convertCapture(VariantChessMove move, VariantChessPiece piece, VariantChessPiece captured, VariantChessBoard board) {
+        if (captured == null || captured.getColor() == piece.getColor() || !canUseSpecialCapture(piece)) {
+            return 0;
+        }
 
+        int newX, newY;
         if (piece instanceof King) {
-            if (piece.getColor() == Color.WHITE && !hasWhiteKingUsedSpecialCapture) {
-                canUseSpecialCapture = true;
-            } else if (piece.getColor() == Color.BLACK && !hasBlackKingUsedSpecialCapture) {
-                canUseSpecialCapture = true;
-            }
-        } else if (piece instanceof Queen) {
-            if (piece.getColor() == Color.WHITE && !hasWhiteQueenUsedSpecialCapture) {
-                canUseSpecialCapture = true;
-            } else if (piece.getColor() == Color.BLACK && !hasBlackQueenUsedSpecialCapture) {
-                canUseSpecialCapture = true;
-            }
+            // King stays in the same position
+            newX = move.getStartX();
+            newY = move.getStartY();
+        } else {
+            // Queen moves one step back in the direction of the move
+            newX = move.getEndX() - Integer.signum(move.getEndX() - move.getStartX());
+            newY = move.getEndY() - Integer.signum(move.getEndY() - move.getStartY());
         }
 
-        if (canUseSpecialCapture) {
-            VariantChessPiece targetPiece = board.getPieceAt(move.getEndX(), move.getEndY());
-            System.out.println("Target piece before capture: " + targetPiece + ", Color: " + (targetPiece != null ? targetPiece.getColor() : "null"));
-            System.out.println("Current piece: " + piece.getClass().getSimpleName() + ", Color: " + piece.getColor());
-
-            // Check if the target piece is valid for capture (exists and is of opposite color)
-            if (targetPiece != null && targetPiece.getColor() != piece.getColor()) {
-                System.out.println("Target piece valid for capture: " + targetPiece.getClass().getSimpleName() + ", Color: " + targetPiece.getColor());
-
-                // Change the color of the captured piece to match the capturing piece
-                System.out.println("Changing target piece color from " + targetPiece.getColor() + " to " + piece.getColor());
-                targetPiece.setColor(piece.getColor());
-                System.out.println("Target piece color after change: " + targetPiece.getColor());
-
-                // If the captured piece is a Pawn, update its movement direction
-                if (targetPiece instanceof Pawn) {
-                    ((Pawn) targetPiece).updateDirection(piece.getColor());
-                }
-
-                // Calculate the new position for the King or Queen
-                int deltaX = move.getEndX() - move.getStartX();
-                int deltaY = move.getEndY() - move.getStartY();
-                int newX, newY;
-
-                if (piece instanceof King) {
-                    // King stays in the same position
-                    newX = move.getStartX();
-                    newY = move.getStartY();
-                } else { // For Queen
-                    // Queen moves one step back in the direction of the move
-                    newX = move.getEndX() - Integer.signum(deltaX);
-                    newY = move.getEndY() - Integer.signum(deltaY);
-                }
-
-                // Update the board positions
-                board.setPieceAt(newX, newY, piece); // Move the King or Queen to the new position
-                board.setPieceAt(move.getEndX(), move.getEndY(), targetPiece); // Place the captured piece in its new position
-
-                if (piece instanceof Queen) {
-                    // Clear the original position for Queen
-                    board.setPieceAt(move.getStartX(), move.getStartY(), null);
-                }
-
-                System.out.println("Updated board positions: " + piece.getClass().getSimpleName() + " to " + newX + ", " + newY);
-                System.out.println("Captured piece after update: " + targetPiece.getClass().getSimpleName() + " at " + move.getEndX() + ", " + move.getEndY());
-
-                // Print the board state for debugging
-                printBoardState(board);
-
-                // Set the appropriate special capture flag
-                if (piece instanceof King) {
-                    if (piece.getColor() == Color.WHITE) {
-                        hasWhiteKingUsedSpecialCapture = true;
-                    } else {
-                        hasBlackKingUsedSpecialCapture = true;
-                    }
-                } else if (piece instanceof Queen) {
-                    if (piece.getColor() == Color.WHITE) {
-                        hasWhiteQueenUsedSpecialCapture = true;
-                    } else {
-                        hasBlackQueenUsedSpecialCapture = true;
-                    }
-                }
+        board.setPieceAt(move.getStartX(), move.getStartY(), null);
+        board.setPieceAt(move.getEndX(), move.getEndY(), captured);
+        // A converted Pawn also turns to move in its new direction
+        board.convertPieceAt(move.getEndX(), move.getEndY(), piece.getColor());
+        board.setPieceAt(newX, newY, piece);
+
+        // Set the appropriate special capture flag
+        if (piece instanceof King) {
+            if (piece.getColor() == Color.WHITE) {
+                hasWhiteKingUsedSpecialCapture = true;
             } else {
-                System.out.println("Invalid capture attempt: Target piece is null or the same color as the capturing piece.");
+                hasBlackKingUsedSpecialCapture = true;
             }
+        } else if (piece.getColor() == Color.WHITE) {
+            hasWhiteQueenUsedSpecialCapture = true;
+        } else {
+            hasBlackQueenUsedSpecialCapture = true;
         }
+        return 0;
     }
 
     /**
-     * Prints the current state of the chessboard for debugging purposes.
+     * Checks whether a King or Queen has its special capture left.
      *
-     * @param board The current state of the chessboard.
+     * @param piece The piece.
+     * @return {@code true} if the piece is a King or Queen whose special capture is unused.
      */
-    private void printBoardState(VariantChessBoard board) {
-        System.out.println("Current board state:");
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                VariantChessPiece piece = board.getPieceAt(i, j);
-                if (piece != null) {
-                    System.out.print(piece.getClass().getSimpleName().charAt(0) + "" + piece.getColor().toString().charAt(0) + " ");
-                } else {
-                    System.out.print(". ");
-                }
-            }
-            System.out.println();
+    private boolean canUseSpecialCapture(VariantChessPiece piece) {
+        if (piece instanceof King) {
+            return piece.getColor() == Color.WHITE ? !hasWhiteKingUsedSpecialCapture : !hasBlackKingUsedSpecialCapture;
+        }
+        if (piece instanceof Queen) {
+            return piece.getColor() == Color.WHITE ? !hasWhiteQueenUsedSpecialCapture : !hasBlackQueenUsedSpecialCapture;
         }
+        return false;
     }
 
     /**
@@ -174,4 +127,41 @@ public class KingQueenSpecialRule implements GameRule {
     public boolean hasBlackQueenUsedSpecialCapture() {
         return hasBlackQueenUsedSpecialCapture;
     }
+
+    /**
+     * Returns the identifier of the King and Queen rule.
+     *
+     * @return 1, the index of this rule.
+     */
+    @Override
+    public int getRuleId() {
+        return 1;
+    }
+
+    /**
+     * Packs the four special capture flags into an int.
+     * Bit 0 is the White King, bit 1 the White Queen, bit 2 the Black King and bit 3 the Black Queen.
+     *
+     * @return The packed special capture flags.
+     */
+    @Override
+    public int getStateFlags() {
+        return (hasWhiteKingUsedSpecialCapture ? 1 : 0)
+                | (hasWhiteQueenUsedSpecialCapture ? 2 : 0)
+                | (hasBlackKingUsedSpecialCapture ? 4 : 0)
+                | (hasBlackQueenUsedSpecialCapture ? 8 : 0);
+    }
+
+    /**
+     * Restores the four special capture flags from the value produced by {@link #getStateFlags()}.
+     *
+     * @param flags The packed special capture flags.
+     */
+    @Override
+    public void restoreStateFlags(int flags) {
+        hasWhiteKingUsedSpecialCapture = (flags & 1) != 0;
+        hasWhiteQueenUsedSpecialCapture = (flags & 2) != 0;
+        hasBlackKingUsedSpecialCapture = (flags & 4) != 0;
+        hasBlackQueenUsedSpecialCapture = (flags & 8) != 0;
+    }
 }
@@ -37,36 +37,23 @@ public class Knight extends VariantChessPiece {
      */
     @Override
     public boolean isValidMove(VariantChessMove move, VariantChessBoard board) {
+        return isTarget(move, board);
+    }
 
-        // Extract start and end coordinates
-        int startX = move.getStartX();
-        int startY = move.getStartY();
-        int endX = move.getEndX();
-        int endY = move.getEndY();
-
-        // Check if the end position is within the board boundaries
-        if (endX < 0 || endX >= 8 || endY < 0 || endY >= 8) {
-            return false;
-        }
-
-        // Validate the L-shape movement of the Knight
-        boolean isLShapeMove = (Math.abs(endX - startX) == 2 && Math.abs(endY - startY) == 1) ||
-                (Math.abs(endX - startX) == 1 && Math.abs(endY - startY) == 2);
-        if (!isLShapeMove) {
-            return false;
-        }
-
-        // Check if the target position is occupied by a piece of the same color
-        VariantChessPiece targetPiece = board.getPieceAt(endX, endY);
-        if (targetPiece != null && targetPiece.getColor() == this.getColor()) {
-            return false;
-        }
-
-        // If the target position contains an opponent's piece, mark the move as a capture
-        if (targetPiece != null && targetPiece.getColor() != this.getColor()) {
-            move.setCapture(true);
-        }
+    /**
+     * Gets the squares the Knight jumps to that do not hold a piece of its own color.
+     *
+     * @param square The square of the piece, {@code x * 8 + y}.
+     * @param board The current state of the board.
+     * @return The squares the piece can move to, including captures.
+     */
+    @Override
+    public long getTargets(int square, VariantChessBoard board) {
+        return Attacks.knight(square) & ~board.getOccupancy(getColor());
+    }
 
-        return true;
+    @Override
+    public long getAttacks(int square, VariantChessBoard board) {
+        return Attacks.knight(square);
     }
 }
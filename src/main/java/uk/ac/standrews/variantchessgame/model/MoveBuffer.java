@@ -0,0 +1,151 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import java.util.Arrays;
+
+/**
+ * Preallocated lists of {@link PackedMove packed moves}, one per ply of a search.
+ * Generating the moves of a position fills the list of its ply in place, so once the lists have grown
+ * to the largest number of moves seen, searching allocates no memory. A buffer belongs to one thread.
+ */
+public final class MoveBuffer {
+
+    private static final int INITIAL_CAPACITY = 128;
+
+    private int[][] moves;   // moves[ply] holds the moves generated at that ply
+    private int[] counts;    // Number of moves currently held for each ply
+    private final VariantChessMove candidate = new VariantChessMove(0, 0, 0, 0); // Reused for validity checks
+
+    /**
+     * Constructs a buffer for searches of up to the given number of plies.
+     *
+     * @param maxPly The number of plies to preallocate; deeper plies are added on demand.
+     */
+    public MoveBuffer(int maxPly) {
+        if (maxPly <= 0) {
+            throw new IllegalArgumentException("Maximum ply must be positive: " + maxPly);
+        }
+        moves = new int[maxPly][INITIAL_CAPACITY];
+        counts = new int[maxPly];
+    }
+
+    /**
+     * Generates the moves of every piece of a color, replacing the moves held for the ply.
+     * The destinations of each piece come from {@link VariantChessPiece#getTargets}, except that the moves of
+     * all Pawns are generated together with the set-wise functions of {@link Pawn}. Captures carry the
+     * {@link PackedMove#CAPTURE} flag.
+     *
+     * @param ply The ply whose list is filled.
+     * @param board The board.
+     * @param color The color to move.
+     * @return The number of moves generated.
+     */
+    public int generate(int ply, VariantChessBoard board, Color color) {
+        ensurePly(ply);
+        counts[ply] = 0;
+        long own = board.getOccupancy(color);
+        long opponents = board.getOccupancy(color.opposite());
+        long pawns = board.getPawns(color);
+        for (long pieces = own & ~pawns; pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            VariantChessPiece piece = board.getPieceAt(from >> 3, from & 7);
+            for (long targets = piece.getTargets(from, board); targets != 0; targets &= targets - 1) {
+                int to = Long.numberOfTrailingZeros(targets);
+                int move = PackedMove.of(from, to);
+                add(ply, (opponents & (1L << to)) != 0 ? move | PackedMove.CAPTURE : move);
+            }
+        }
+
+        long firstMovePawns = 0L;
+        for (long remaining = pawns; remaining != 0; remaining &= remaining - 1) {
+            int square = Long.numberOfTrailingZeros(remaining);
+            if (((Pawn) board.getPieceAt(square >> 3, square & 7)).isFirstMove()) {
+                firstMovePawns |= remaining & -remaining;
+            }
+        }
+        long movedPawns = pawns & ~firstMovePawns;
+        int forward = color == Color.WHITE ? -8 : 8; // Change of square index for one step forward
+        addShifted(ply, Pawn.singleSteps(pawns, color, own), forward, opponents);
+        addShifted(ply, Pawn.doubleSteps(firstMovePawns, color, own, opponents), 2 * forward, opponents);
+        addShifted(ply, Pawn.leftSteps(movedPawns, own), -1, opponents);
+        addShifted(ply, Pawn.rightSteps(movedPawns, own), 1, opponents);
+        return counts[ply];
+    }
+
+    /**
+     * Adds a move to each square of a set of destinations, the start square being the same offset away for all of them.
+     */
+    private void addShifted(int ply, long destinations, int offset, long opponents) {
+        for (; destinations != 0; destinations &= destinations - 1) {
+            int to = Long.numberOfTrailingZeros(destinations);
+            int move = PackedMove.of(to - offset, to);
+            add(ply, (opponents & (1L << to)) != 0 ? move | PackedMove.CAPTURE : move);
+        }
+    }
+
+    /**
+     * Checks whether a packed move can be played by a piece of the given color, for example a move read from a cache.
+     *
+     * @param board The board.
+     * @param color The color to move.
+     * @param packed The packed move.
+     * @return {@code true} if a piece of that color stands on the start square and can make the move.
+     */
+    public boolean isLegal(VariantChessBoard board, Color color, int packed) {
+        int from = PackedMove.from(packed);
+        int to = PackedMove.to(packed);
+        VariantChessPiece piece = board.getPieceAt(from >> 3, from & 7);
+        if (piece == null || piece.getColor() != color) {
+            return false;
+        }
+        candidate.reset(from >> 3, from & 7, to >> 3, to & 7);
+        return piece.isValidMove(candidate, board);
+    }
+
+    /**
+     * Appends a move to the list of a ply.
+     *
+     * @param ply The ply.
+     * @param packed The packed move.
+     */
+    public void add(int ply, int packed) {
+        ensurePly(ply);
+        int[] list = moves[ply];
+        if (counts[ply] == list.length) {
+            list = moves[ply] = Arrays.copyOf(list, list.length * 2);
+        }
+        list[counts[ply]++] = packed;
+    }
+
+    /**
+     * Gets a move held for a ply.
+     *
+     * @param ply The ply.
+     * @param index The index of the move, below {@link #count(int)}.
+     * @return The packed move.
+     */
+    public int get(int ply, int index) {
+        return moves[ply][index];
+    }
+
+    /**
+     * Gets the number of moves held for a ply.
+     *
+     * @param ply The ply.
+     * @return The number of moves.
+     */
+    public int count(int ply) {
+        return ply < counts.length ? counts[ply] : 0;
+    }
+
+    private void ensurePly(int ply) {
+        if (ply >= moves.length) {
+            int plies = Math.max(ply + 1, moves.length * 2);
+            int oldPlies = moves.length;
+            moves = Arrays.copyOf(moves, plies);
+            counts = Arrays.copyOf(counts, plies);
+            for (int i = oldPlies; i < plies; i++) {
+                moves[i] = new int[INITIAL_CAPACITY];
+            }
+        }
+    }
+}
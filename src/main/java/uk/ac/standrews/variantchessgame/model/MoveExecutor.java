@@ -0,0 +1,88 @@
+package uk.ac.standrews.variantchessgame.model;
+
+/**
+ * Applies an already validated move to a game: moves the piece, updates the counters,
+ * fires the events of the move through the {@link RuleEngine} of the selected rule, passes the turn to the other player and records the new position for repetition detection.
+ * Live moves and replayed moves go through the same code so that replaying a recorded ply
+ * reproduces the position exactly.
+ */
+public final class MoveExecutor {
+
+    /** The move captured a piece. */
+    public static final int CAPTURE = 1;
+    /** A Cannon reached its third capture and detonated. */
+    public static final int DETONATION = 1 << 1;
+    /** The moving piece was replaced by a promoted piece. */
+    public static final int PROMOTION = 1 << 2;
+    /** The state of the selected rule changed, for example a King or Queen used its conversion capture. */
+    public static final int RULE_STATE_CHANGED = 1 << 3;
+
+    private MoveExecutor() {
+    }
+
+    /**
+     * Executes a move. The piece on the start square must be able to make the move.
+     * Captures and the outcome of random promotions are recorded on the move.
+     *
+     * @param board The board of the game.
+     * @param gameState The state of the game.
+     * @param move The move to execute.
+     * @return The effects of the move, a combination of {@link #CAPTURE}, {@link #DETONATION},
+     *         {@link #PROMOTION} and {@link #RULE_STATE_CHANGED}.
+     * @throws IllegalArgumentException If the start square is empty.
+     */
+    public static int execute(VariantChessBoard board, GameState gameState, VariantChessMove move) {
+        VariantChessPiece piece = board.getPieceAt(move.getStartX(), move.getStartY());
+        if (piece == null) {
+            throw new IllegalArgumentException("No piece to move at " + move.getStartX() + ", " + move.getStartY());
+        }
+        GameRule rule = gameState.getSelectedRule();
+        int ruleState = rule == null ? 0 : rule.getStateFlags();
+        int effects = 0;
+
+        // Save the first move status for pawns
+        if (piece instanceof Pawn) {
+            move.setWasFirstMove(((Pawn) piece).isFirstMove());
+        }
+
+        VariantChessPiece targetPiece = board.getPieceAt(move.getEndX(), move.getEndY());
+        boolean isCapture = targetPiece != null;
+
+        if (isCapture) {
+            effects |= CAPTURE;
+            move.setCapture(true); // Mark the move as a capture
+            move.setCapturedPiece(targetPiece); // Track the captured piece
+            board.setPieceAt(move.getEndX(), move.getEndY(), null);
+            gameState.resetMoveWithoutCapture();
+        } else {
+            gameState.incrementMoveWithoutCapture();
+        }
+
+        board.movePiece(move);
+        gameState.incrementMoveCount();
+
+        // The selected rule reacts to the move through the hooks it registered for the moving piece
+        RuleEngine engine = gameState.getRuleEngine();
+        effects |= engine.fire(RuleEngine.ON_MOVE, move, piece, targetPiece, board);
+        if (isCapture) {
+            effects |= engine.fire(RuleEngine.ON_CAPTURE, move, piece, targetPiece, board);
+        }
+
+        // Update the first move status for the pawn
+        if (piece instanceof Pawn) {
+            ((Pawn) piece).setFirstMove(false); // Mark the pawn's first move as done
+            if (board.getPieceAt(move.getEndX(), move.getEndY()) == piece) {
+                board.pieceChanged(move.getEndX(), move.getEndY()); // Its attacks no longer reach two squares ahead
+            }
+        }
+
+        effects |= engine.fire(RuleEngine.ON_TURN_END, move, piece, targetPiece, board);
+        if (rule != null && rule.getStateFlags() != ruleState) {
+            effects |= RULE_STATE_CHANGED;
+        }
+
+        gameState.switchTurn();
+        gameState.recordPosition();
+        return effects;
+    }
+}
@@ -1,95 +1,366 @@
 package uk.ac.standrews.variantchessgame.model;
 
-import org.springframework.stereotype.Component;
-
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Stack;
+
+/**
+ * Records the plies of a game as a primitive move log.
+ * Each ply is stored as one packed int in {@code moves} with a parallel int in {@code undoRecords}
+ * holding the {@link PieceCodec} code of the captured piece and one in {@code fullMoves} counting the
+ * full moves up to it, so a ply costs twelve bytes and keeps no references to piece objects. A cursor
+ * separates the plies that have been played from those that have been undone and can be redone; plies
+ * are grouped into full moves (player and AI). Moving the cursor decodes nothing: move objects are only
+ * built when asked for with {@link #getPlies(int, int)}.
+ * <p>
+ * Every {@code snapshotInterval} plies a {@link PositionSnapshot} is kept, so any ply can be reached
+ * by restoring the nearest earlier snapshot and replaying at most {@code snapshotInterval - 1} plies.
+ */
 public class MoveHistory {
 
-    private Stack<List<VariantChessMove>> moveStack; // Stack for storing completed moves (both player and AI)
-    private Stack<List<VariantChessMove>> redoStack; // Stack for storing moves that have been undone and can be redone
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 16;
+
+    // Plies are stored in the PackedMove format, using its free bit 14 to mark the first ply of a full move
+    private static final int FULL_MOVE_START_FLAG = 1 << 14;
+
+    private int[] moves;        // Packed plies in the order they were played
+    private int[] undoRecords;  // Code of the piece captured by each ply, or PieceCodec.EMPTY
+    private int[] fullMoves;    // Number of full moves started up to and including each ply
+    private int size;           // Number of plies recorded, including undone ones
+    private int cursor;         // Number of plies currently applied to the board
+    private int fullMoveCount;  // Number of full moves recorded, including undone ones
+    private int fullMoveCursor; // Number of full moves currently applied to the board
+
+    private final int snapshotInterval;    // Number of plies between stored snapshots
+    private PositionSnapshot[] snapshots;  // Snapshot k holds the position at ply k * snapshotInterval
+
+    /**
+     * Constructor for initializing an empty move log with the default snapshot interval.
+     */
+    public MoveHistory() {
+        this(DEFAULT_SNAPSHOT_INTERVAL);
+    }
 
     /**
-     * Gets the stack of moves.
+     * Constructor for initializing an empty move log.
+     * A smaller interval makes jumping to a ply faster at the cost of storing more snapshots.
      *
-     * @return The stack containing the history of moves.
+     * @param snapshotInterval The number of plies between stored snapshots.
      */
-    public Stack<List<VariantChessMove>> getMoveStack() {
-        return moveStack;
+    public MoveHistory(int snapshotInterval) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotInterval);
+        }
+        this.snapshotInterval = snapshotInterval;
+        this.moves = new int[INITIAL_CAPACITY];
+        this.undoRecords = new int[INITIAL_CAPACITY];
+        this.fullMoves = new int[INITIAL_CAPACITY];
+        this.snapshots = new PositionSnapshot[INITIAL_CAPACITY / snapshotInterval + 1];
     }
 
     /**
-     * Sets the stack of moves.
+     * Packs a move into the int format used by the log, see {@link PackedMove}.
      *
-     * @param moveStack The stack to set for storing the history of moves.
+     * @param move The move to pack.
+     * @return The packed move.
      */
-    public void setMoveStack(Stack<List<VariantChessMove>> moveStack) {
-        this.moveStack = moveStack;
+    public static int pack(VariantChessMove move) {
+        return PackedMove.pack(move);
     }
 
     /**
-     * Gets the stack of undone moves.
+     * Rebuilds a move from its packed form and the undo record of the ply.
      *
-     * @return The stack containing moves that can be redone.
+     * @param packed The packed move.
+     * @param undoRecord The code of the captured piece.
+     * @return A new move object carrying the same information.
      */
-    public Stack<List<VariantChessMove>> getRedoStack() {
-        return redoStack;
+    public static VariantChessMove unpack(int packed, int undoRecord) {
+        VariantChessMove move = PackedMove.toMove(packed & ~FULL_MOVE_START_FLAG);
+        move.setCapturedPiece(PieceCodec.decode(undoRecord));
+        return move;
     }
 
     /**
-     * Sets the stack of undone moves.
+     * Adds a full move (both player and AI) to the history, discarding any plies that could be redone.
      *
-     * @param redoStack The stack to set for storing moves that can be redone.
+     * @param fullMove The list of moves to add to the history.
      */
-    public void setRedoStack(Stack<List<VariantChessMove>> redoStack) {
-        this.redoStack = redoStack;
+    public void addFullMove(List<VariantChessMove> fullMove) {
+        if (fullMove.isEmpty()) {
+            return;
+        }
+        size = cursor; // A new move makes future redo invalid
+        fullMoveCount = fullMoveCursor;
+        for (int k = cursor / snapshotInterval + 1; k < snapshots.length; k++) {
+            snapshots[k] = null; // Snapshots of the discarded plies no longer describe this game
+        }
+        ensureCapacity(size + fullMove.size());
+        for (int i = 0; i < fullMove.size(); i++) {
+            VariantChessMove move = fullMove.get(i);
+            moves[size] = pack(move) | (i == 0 ? FULL_MOVE_START_FLAG : 0);
+            undoRecords[size] = PieceCodec.encode(move.getCapturedPiece());
+            fullMoves[size] = fullMoveCount + 1;
+            size++;
+        }
+        cursor = size;
+        fullMoveCount++;
+        fullMoveCursor++;
     }
 
     /**
-     * Constructor for initializing the move history stacks.
+     * Appends a ply recorded elsewhere, such as in a saved session, to the end of the log and applies it.
+     * Unlike {@link #addFullMove(List)} the ply is taken in its packed form and nothing is discarded.
+     *
+     * @param packedMove The packed move, as returned by {@link #getPackedMove(int)}.
+     * @param undoRecord The code of the piece captured by the ply.
+     * @param fullMoveStart Whether the ply starts a full move.
      */
-    public MoveHistory() {
-        this.moveStack = new Stack<>(); // Initialize the stack for moves
-        this.redoStack = new Stack<>(); // Initialize the stack for undone moves
+    public void appendPly(int packedMove, int undoRecord, boolean fullMoveStart) {
+        if (size == 0 && !fullMoveStart) {
+            throw new IllegalArgumentException("The first ply must start a full move");
+        }
+        ensureCapacity(size + 1);
+        moves[size] = packedMove | (fullMoveStart ? FULL_MOVE_START_FLAG : 0);
+        undoRecords[size] = undoRecord;
+        if (fullMoveStart) {
+            fullMoveCount++;
+        }
+        fullMoves[size] = fullMoveCount;
+        size++;
+        cursor = size;
+        fullMoveCursor = fullMoveCount;
     }
 
     /**
-     * Adds a full move (both player and AI) to the history, clearing the redo stack.
+     * Undoes the last full move. The undone plies are those from the new {@link #getCurrentPly()} up to the old one.
      *
-     * @param fullMove The list of moves to add to the history.
+     * @return {@code true} if a full move was undone, {@code false} if no moves are available to undo.
      */
-    public void addFullMove(List<VariantChessMove> fullMove) {
-        moveStack.push(fullMove); // Add the move to the stack of moves
-        redoStack.clear(); // Clear the redo stack since a new move makes future redo invalid
+    public boolean undo() {
+        if (cursor == 0) {
+            return false;
+        }
+        int start = cursor - 1;
+        while ((moves[start] & FULL_MOVE_START_FLAG) == 0) {
+            start--;
+        }
+        cursor = start;
+        fullMoveCursor--;
+        return true;
+    }
+
+    /**
+     * Redoes the last undone full move. The redone plies are those from the old {@link #getCurrentPly()} up to the new one.
+     *
+     * @return {@code true} if a full move was redone, {@code false} if no moves are available to redo.
+     */
+    public boolean redo() {
+        if (cursor == size) {
+            return false;
+        }
+        int end = cursor + 1;
+        while (end < size && (moves[end] & FULL_MOVE_START_FLAG) == 0) {
+            end++;
+        }
+        cursor = end;
+        fullMoveCursor++;
+        return true;
     }
 
     /**
-     * Undoes the last full move and stores it in the redo stack.
+     * Moves the cursor directly to the given ply without stepping through the plies in between.
      *
-     * @return The last undone full move, or null if no moves are available to undo.
+     * @param ply The number of plies that should be applied, between 0 and {@link #getTotalPlies()}.
      */
-    public List<VariantChessMove> undo() {
-        if (!moveStack.isEmpty()) {
-            List<VariantChessMove> lastFullMove = moveStack.pop(); // Remove the last move from the stack
-            redoStack.push(lastFullMove); // Add the removed move to the redo stack
-            return lastFullMove; // Return the undone move
+    public void jumpTo(int ply) {
+        if (ply < 0 || ply > size) {
+            throw new IllegalArgumentException("Ply out of range: " + ply);
         }
-        return null; // Return null if there are no moves to undo
+        cursor = ply;
+        fullMoveCursor = ply == 0 ? 0 : fullMoves[ply - 1];
+    }
+
+    /**
+     * Discards every recorded ply and snapshot, for example when a new game starts.
+     */
+    public void clear() {
+        size = 0;
+        cursor = 0;
+        fullMoveCount = 0;
+        fullMoveCursor = 0;
+        Arrays.fill(snapshots, null);
     }
 
     /**
-     * Redoes the last undone full move.
+     * Checks whether the position after the given ply should be stored as a snapshot.
      *
-     * @return The last redone full move, or null if no moves are available to redo.
+     * @param ply The number of plies played.
+     * @return {@code true} if the ply is a multiple of the snapshot interval.
      */
-    public List<VariantChessMove> redo() {
-        if (!redoStack.isEmpty()) {
-            List<VariantChessMove> fullMove = redoStack.pop(); // Remove the last move from the redo stack
-            moveStack.push(fullMove); // Add the removed move back to the stack of moves
-            return fullMove; // Return the redone move
+    public boolean isSnapshotPly(int ply) {
+        return ply % snapshotInterval == 0;
+    }
+
+    /**
+     * Stores the snapshot of the position after the given ply.
+     *
+     * @param ply The number of plies played, a multiple of the snapshot interval.
+     * @param snapshot The snapshot of the position.
+     */
+    public void recordSnapshot(int ply, PositionSnapshot snapshot) {
+        if (!isSnapshotPly(ply)) {
+            throw new IllegalArgumentException("Ply " + ply + " is not a multiple of " + snapshotInterval);
+        }
+        int index = ply / snapshotInterval;
+        if (index >= snapshots.length) {
+            snapshots = Arrays.copyOf(snapshots, Math.max(index + 1, snapshots.length * 2));
         }
-        return null; // Return null if there are no moves to redo
+        snapshots[index] = snapshot;
     }
 
+    /**
+     * Finds the latest stored snapshot at or before the given ply.
+     *
+     * @param ply The target ply.
+     * @return The ply of the nearest snapshot, or -1 if there is none.
+     */
+    public int nearestSnapshotPly(int ply) {
+        for (int k = Math.min(ply / snapshotInterval, snapshots.length - 1); k >= 0; k--) {
+            if (snapshots[k] != null) {
+                return k * snapshotInterval;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the snapshot stored for a ply.
+     *
+     * @param ply The ply of the snapshot.
+     * @return The snapshot, or {@code null} if none is stored for the ply.
+     */
+    public PositionSnapshot getSnapshot(int ply) {
+        int index = ply / snapshotInterval;
+        if (!isSnapshotPly(ply) || index >= snapshots.length) {
+            return null;
+        }
+        return snapshots[index];
+    }
+
+    /**
+     * Gets the number of plies between stored snapshots.
+     *
+     * @return The snapshot interval.
+     */
+    public int getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    /**
+     * Returns the plies in a range of the log as move objects.
+     *
+     * @param from The first ply, inclusive.
+     * @param to The last ply, exclusive.
+     * @return The decoded plies.
+     */
+    public List<VariantChessMove> getPlies(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IllegalArgumentException("Invalid ply range: " + from + " to " + to);
+        }
+        return decode(from, to);
+    }
+
+    /**
+     * Gets the packed form of a recorded ply.
+     *
+     * @param ply The index of the ply.
+     * @return The packed move.
+     */
+    public int getPackedMove(int ply) {
+        checkPly(ply);
+        return moves[ply] & ~FULL_MOVE_START_FLAG;
+    }
+
+    /**
+     * Checks whether a recorded ply is the first ply of a full move.
+     *
+     * @param ply The index of the ply.
+     * @return {@code true} if the ply starts a full move.
+     */
+    public boolean isFullMoveStart(int ply) {
+        checkPly(ply);
+        return (moves[ply] & FULL_MOVE_START_FLAG) != 0;
+    }
+
+    /**
+     * Gets the undo record of a recorded ply.
+     *
+     * @param ply The index of the ply.
+     * @return The code of the piece captured by the ply.
+     */
+    public int getUndoRecord(int ply) {
+        checkPly(ply);
+        return undoRecords[ply];
+    }
+
+    /**
+     * Gets the number of plies currently applied to the board.
+     *
+     * @return The current ply.
+     */
+    public int getCurrentPly() {
+        return cursor;
+    }
+
+    /**
+     * Gets the number of plies recorded, including those that have been undone.
+     *
+     * @return The total number of plies.
+     */
+    public int getTotalPlies() {
+        return size;
+    }
+
+    /**
+     * Gets the number of full moves that can be undone.
+     *
+     * @return The number of applied full moves.
+     */
+    public int getUndoableMoveCount() {
+        return fullMoveCursor;
+    }
+
+    /**
+     * Gets the number of full moves that can be redone.
+     *
+     * @return The number of undone full moves.
+     */
+    public int getRedoableMoveCount() {
+        return fullMoveCount - fullMoveCursor;
+    }
+
+    private List<VariantChessMove> decode(int from, int to) {
+        List<VariantChessMove> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(unpack(moves[i], undoRecords[i]));
+        }
+        return result;
+    }
+
+    private void checkPly(int ply) {
+        if (ply < 0 || ply >= size) {
+            throw new IllegalArgumentException("Ply out of range: " + ply);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > moves.length) {
+            int capacity = Math.max(required, moves.length * 2);
+            moves = Arrays.copyOf(moves, capacity);
+            undoRecords = Arrays.copyOf(undoRecords, capacity);
+            fullMoves = Arrays.copyOf(fullMoves, capacity);
+        }
+    }
 }
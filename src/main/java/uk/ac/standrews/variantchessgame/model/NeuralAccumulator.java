@@ -0,0 +1,116 @@
+package uk.ac.standrews.variantchessgame.model;
+
+/**
+ * Hidden layer of a {@link NeuralNetwork} for the pieces of one board, seen from each color, kept up to date by
+ * {@link VariantChessBoard} as pieces are placed, removed and converted. Placing or removing a piece adds or subtracts
+ * one weight column per side, so making and unmaking a move in the search costs a handful of vector additions,
+ * and evaluating costs the rule and capture inputs and the output layer.
+ */
+public final class NeuralAccumulator {
+
+    private static final NeuralKernel KERNEL = NeuralKernel.select();
+
+    private final NeuralNetwork network;
+    private final int[][] hidden;  // Hidden values from the side of White, then Black
+    private final int[][] scratch; // Hidden values with the rule and capture inputs added, used while evaluating
+
+    /**
+     * Constructs the accumulator of a board without pieces, computing with the kernel chosen by
+     * {@link NeuralKernel#select()}.
+     *
+     * @param network The network whose hidden layer is accumulated.
+     */
+    public NeuralAccumulator(NeuralNetwork network) {
+        this.network = network;
+        this.hidden = new int[2][network.getHiddenSize()];
+        this.scratch = new int[2][network.getHiddenSize()];
+        clear();
+    }
+
+    public NeuralNetwork getNetwork() {
+        return network;
+    }
+
+    public NeuralKernel getKernel() {
+        return KERNEL;
+    }
+
+    /**
+     * Resets the hidden values to those of an empty board.
+     */
+    void clear() {
+        for (int[] values : hidden) {
+            System.arraycopy(network.getHiddenBiases(), 0, values, 0, values.length);
+        }
+    }
+
+    /**
+     * Adds or removes the piece-square inputs of a piece.
+     *
+     * @param piece The piece.
+     * @param square The square of the piece.
+     * @param delta 1 if the piece is placed, -1 if it is removed.
+     */
+    void update(VariantChessPiece piece, int square, int delta) {
+        int type = Zobrist.typeIndex(piece);
+        if (type < 0) {
+            return;
+        }
+        int[] weights = network.getPieceWeights();
+        int size = network.getHiddenSize();
+        for (Color side : Color.values()) {
+            int offset = NeuralNetwork.pieceInput(side, piece.getColor(), type, square) * size;
+            if (delta > 0) {
+                KERNEL.add(hidden[side.ordinal()], weights, offset);
+            } else {
+                KERNEL.subtract(hidden[side.ordinal()], weights, offset);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the board this accumulator belongs to.
+     *
+     * @param board The board, with this accumulator set, see {@link VariantChessBoard#setNeuralNetwork}.
+     * @param color The color to score the board for.
+     * @param ruleId The rule of the game, as returned by {@link EvalWeights#ruleId}.
+     * @return The score in hundredths of a Pawn from the side of {@code color}.
+     */
+    public int evaluate(VariantChessBoard board, Color color, int ruleId) {
+        int size = network.getHiddenSize();
+        int[] extraWeights = network.getExtraWeights();
+        for (Color side : Color.values()) {
+            int[] values = scratch[side.ordinal()];
+            System.arraycopy(hidden[side.ordinal()], 0, values, 0, size);
+            if (ruleId >= 0) {
+                KERNEL.add(values, extraWeights, NeuralNetwork.ruleInput(ruleId) * size);
+            }
+        }
+        for (long occupied = board.getOccupancy(); occupied != 0; occupied &= occupied - 1) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            VariantChessPiece piece = board.getPieceAt(square >> 3, square & 7);
+            int type = Zobrist.typeIndex(piece);
+            if (piece.getCaptureCount() > 0 && type >= 0) {
+                for (Color side : Color.values()) {
+                    KERNEL.add(scratch[side.ordinal()], extraWeights,
+                            NeuralNetwork.captureInput(side, piece.getColor(), type, piece.getCaptureCount()) * size);
+                }
+            }
+        }
+        int[] outputWeights = network.getOutputWeights();
+        int output = network.getOutputBias()
+                + KERNEL.clippedDot(scratch[color.ordinal()], outputWeights, 0, NeuralNetwork.HIDDEN_SCALE)
+                + KERNEL.clippedDot(scratch[color.opposite().ordinal()], outputWeights, size, NeuralNetwork.HIDDEN_SCALE);
+        return NeuralNetwork.toScore(output);
+    }
+
+    /**
+     * Copies the hidden values seen from one side, without the rule and capture inputs.
+     *
+     * @param side The side.
+     * @return A copy of the hidden values.
+     */
+    public int[] getHidden(Color side) {
+        return hidden[side.ordinal()].clone();
+    }
+}
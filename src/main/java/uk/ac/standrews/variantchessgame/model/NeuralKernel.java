@@ -0,0 +1,66 @@
+package uk.ac.standrews.variantchessgame.model;
+
+/**
+ * Integer arithmetic on the hidden layer of a {@link NeuralNetwork}: adding and removing weight columns from an
+ * accumulator, and the dot product of the clipped accumulator with the output weights.
+ * <p>
+ * {@link #select()} returns a kernel on the incubating JDK Vector API when the application runs with
+ * {@code --add-modules jdk.incubator.vector}, and the scalar kernel otherwise. Both give the same results.
+ * Only that kernel is compiled against the module and it is loaded by name, so nothing else in the build or
+ * at run time depends on it; start the application with
+ * {@code mvn spring-boot:run -Dspring-boot.run.jvmArguments="--add-modules jdk.incubator.vector"} to use it.
+ */
+public interface NeuralKernel {
+
+    /**
+     * The kernel written with plain loops, which the JIT compiler may still vectorize on its own.
+     */
+    NeuralKernel SCALAR = new ScalarKernel();
+
+    /**
+     * Adds {@code accumulator.length} weights, starting at {@code offset}, to the accumulator.
+     *
+     * @param accumulator The values to add to.
+     * @param weights The weights.
+     * @param offset The index of the first weight to add.
+     */
+    void add(int[] accumulator, int[] weights, int offset);
+
+    /**
+     * Subtracts {@code accumulator.length} weights, starting at {@code offset}, from the accumulator.
+     *
+     * @param accumulator The values to subtract from.
+     * @param weights The weights.
+     * @param offset The index of the first weight to subtract.
+     */
+    void subtract(int[] accumulator, int[] weights, int offset);
+
+    /**
+     * Computes the dot product of the accumulator, each value clipped to {@code [0, max]}, with
+     * {@code accumulator.length} weights starting at {@code offset}.
+     *
+     * @param accumulator The values.
+     * @param weights The weights.
+     * @param offset The index of the first weight.
+     * @param max The largest value kept.
+     * @return The dot product.
+     */
+    int clippedDot(int[] accumulator, int[] weights, int offset, int max);
+
+    /**
+     * Chooses the fastest kernel available to this JVM.
+     *
+     * @return The Vector API kernel if the incubating module is resolved, the scalar kernel otherwise.
+     */
+    static NeuralKernel select() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (NeuralKernel) Class.forName(NeuralKernel.class.getPackageName() + ".VectorKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // The module is resolved but cannot be used, keep the scalar kernel
+            }
+        }
+        return SCALAR;
+    }
+}
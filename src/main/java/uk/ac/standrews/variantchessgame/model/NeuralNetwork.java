@@ -0,0 +1,232 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Quantized weights of a small efficiently updatable neural evaluation, an alternative to the hand-written
+ * evaluation of {@link EvalWeights}.
+ * <p>
+ * The network sees the board from the side of each color in turn. From one side, the inputs are:
+ * <ul>
+ *     <li>piece-square inputs: one per own or enemy piece type and square, with squares flipped vertically for Black
+ *     like {@link EvalWeights#tableSquare}; these are summed into a hidden layer by a {@link NeuralAccumulator}
+ *     as pieces are placed and removed, so a move costs a few column additions;</li>
+ *     <li>rule inputs: one per rule, set for the rule of the game;</li>
+ *     <li>capture inputs: the number of own or enemy pieces of each type that have made one, or two or more,
+ *     captures, which the rules reward.</li>
+ * </ul>
+ * The hidden values of both sides, clipped to {@code [0, 1]}, feed the single output: the score in Pawns from the
+ * side of the first. All weights are integers: inputs and hidden biases are scaled by {@link #HIDDEN_SCALE},
+ * output weights by {@link #OUTPUT_SCALE}, and the output bias by both.
+ * <p>
+ * Like the piece-square tables of {@link EvalWeights}, the piece-square weights of a network read from a file must be
+ * symmetric from left to right (see {@link Symmetry}), so that a position and its mirror image score the same and
+ * may share cached evaluations.
+ * <p>
+ * Networks are trained offline by {@code NeuralTrainer} and stored as a binary file, see {@link #write}.
+ */
+public final class NeuralNetwork {
+
+    public static final int PIECE_INPUTS = 2 * Zobrist.PIECE_TYPES * 64;
+    public static final int RULE_INPUTS = 3;
+    public static final int CAPTURE_STEPS = 2;
+    public static final int EXTRA_INPUTS = RULE_INPUTS + 2 * Zobrist.PIECE_TYPES * CAPTURE_STEPS;
+    public static final int HIDDEN_SCALE = 127;
+    public static final int OUTPUT_SCALE = 64;
+
+    private static final int MAGIC = 0x56434e4e; // "VCNN"
+    private static final short VERSION = 1;
+
+    private final int hiddenSize;
+    private final int[] pieceWeights;  // PIECE_INPUTS columns of hiddenSize weights
+    private final int[] extraWeights;  // EXTRA_INPUTS columns of hiddenSize weights
+    private final int[] hiddenBiases;
+    private final int[] outputWeights; // hiddenSize weights for the side evaluated, then hiddenSize for the other
+    private final int outputBias;
+
+    /**
+     * Constructs a network from its quantized weights. The arrays are used as they are, not copied.
+     *
+     * @param hiddenSize The number of hidden values of each side.
+     * @param pieceWeights The weights of the piece-square inputs, {@code hiddenSize} per input.
+     * @param extraWeights The weights of the rule and capture inputs, {@code hiddenSize} per input.
+     * @param hiddenBiases The {@code hiddenSize} biases of the hidden values.
+     * @param outputWeights The {@code 2 * hiddenSize} weights of the output.
+     * @param outputBias The bias of the output.
+     */
+    public NeuralNetwork(int hiddenSize, int[] pieceWeights, int[] extraWeights, int[] hiddenBiases,
+                         int[] outputWeights, int outputBias) {
+        if (hiddenSize <= 0) {
+            throw new IllegalArgumentException("Invalid hidden size: " + hiddenSize);
+        }
+        if (pieceWeights.length != PIECE_INPUTS * hiddenSize || extraWeights.length != EXTRA_INPUTS * hiddenSize
+                || hiddenBiases.length != hiddenSize || outputWeights.length != 2 * hiddenSize) {
+            throw new IllegalArgumentException("Weights do not match a hidden size of " + hiddenSize);
+        }
+        this.hiddenSize = hiddenSize;
+        this.pieceWeights = pieceWeights;
+        this.extraWeights = extraWeights;
+        this.hiddenBiases = hiddenBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    int[] getPieceWeights() {
+        return pieceWeights;
+    }
+
+    int[] getExtraWeights() {
+        return extraWeights;
+    }
+
+    int[] getHiddenBiases() {
+        return hiddenBiases;
+    }
+
+    int[] getOutputWeights() {
+        return outputWeights;
+    }
+
+    int getOutputBias() {
+        return outputBias;
+    }
+
+    /**
+     * Gets the piece-square input of a piece, as seen from one side.
+     *
+     * @param side The side the board is seen from.
+     * @param color The color of the piece.
+     * @param type The {@link Zobrist} type index of the piece.
+     * @param square The square of the piece, {@code x * 8 + y}.
+     * @return The index of the input.
+     */
+    public static int pieceInput(Color side, Color color, int type, int square) {
+        return ((color == side ? 0 : Zobrist.PIECE_TYPES) + type) * 64 + EvalWeights.tableSquare(side, square);
+    }
+
+    /**
+     * Gets the piece-square input of the same piece on the mirrored square.
+     *
+     * @param input The index of a piece-square input.
+     * @return The index of the input for the square in the same row and column {@code 7 - y}.
+     */
+    public static int mirrorInput(int input) {
+        return input ^ 7; // Columns are the low three bits of the square, which are the low bits of the input
+    }
+
+    /**
+     * Gets the rule input of a rule.
+     *
+     * @param ruleId The rule, as returned by {@link EvalWeights#ruleId}, at least 0.
+     * @return The index of the input among the rule and capture inputs.
+     */
+    public static int ruleInput(int ruleId) {
+        return ruleId;
+    }
+
+    /**
+     * Gets the capture input counting a piece, as seen from one side.
+     *
+     * @param side The side the board is seen from.
+     * @param color The color of the piece.
+     * @param type The {@link Zobrist} type index of the piece.
+     * @param captures The number of captures of the piece, at least 1.
+     * @return The index of the input among the rule and capture inputs.
+     */
+    public static int captureInput(Color side, Color color, int type, int captures) {
+        return RULE_INPUTS + ((color == side ? 0 : Zobrist.PIECE_TYPES) + type) * CAPTURE_STEPS
+                + Math.min(captures, CAPTURE_STEPS) - 1;
+    }
+
+    /**
+     * Converts the output of the network to a score.
+     *
+     * @param output The quantized output.
+     * @return The score in hundredths of a Pawn.
+     */
+    static int toScore(int output) {
+        return (int) ((long) output * EvalWeights.PAWN_UNIT / (HIDDEN_SCALE * OUTPUT_SCALE));
+    }
+
+    /**
+     * Reads a network written by {@link #write}.
+     *
+     * @param in The stream to read, left open.
+     * @return The network.
+     * @throws IOException If the stream cannot be read.
+     * @throws IllegalArgumentException If the stream is not a network file of this version, or its piece-square
+     *                                  weights are not symmetric from left to right.
+     */
+    public static NeuralNetwork read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a network file");
+        }
+        short version = data.readShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported network version: " + version);
+        }
+        int hiddenSize = data.readInt();
+        if (hiddenSize <= 0 || hiddenSize > 4096) {
+            throw new IllegalArgumentException("Invalid hidden size: " + hiddenSize);
+        }
+        int[] pieceWeights = readWeights(data, PIECE_INPUTS * hiddenSize);
+        for (int input = 0; input < PIECE_INPUTS; input++) {
+            int mirrored = mirrorInput(input);
+            for (int j = 0; j < hiddenSize; j++) {
+                if (pieceWeights[input * hiddenSize + j] != pieceWeights[mirrored * hiddenSize + j]) {
+                    throw new IllegalArgumentException("Piece-square weights are not symmetric from left to right");
+                }
+            }
+        }
+        return new NeuralNetwork(hiddenSize,
+                pieceWeights,
+                readWeights(data, EXTRA_INPUTS * hiddenSize),
+                readWeights(data, hiddenSize),
+                readWeights(data, 2 * hiddenSize),
+                data.readInt());
+    }
+
+    private static int[] readWeights(DataInputStream data, int count) throws IOException {
+        int[] weights = new int[count];
+        for (int i = 0; i < count; i++) {
+            weights[i] = data.readShort();
+        }
+        return weights;
+    }
+
+    /**
+     * Writes the network: a header with the hidden size, then the weights as 16-bit integers in the order of the
+     * constructor arguments, and the output bias as a 32-bit integer.
+     *
+     * @param out The stream to write to, flushed and left open.
+     * @throws IOException If the stream cannot be written.
+     * @throws IllegalStateException If a weight does not fit in 16 bits.
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(hiddenSize);
+        for (int[] weights : new int[][]{pieceWeights, extraWeights, hiddenBiases, outputWeights}) {
+            for (int weight : weights) {
+                if (weight != (short) weight) {
+                    throw new IllegalStateException("Weight out of range: " + weight);
+                }
+                data.writeShort(weight);
+            }
+        }
+        data.writeInt(outputBias);
+        data.flush();
+    }
+}
@@ -0,0 +1,133 @@
+package uk.ac.standrews.variantchessgame.model;
+
+/**
+ * Encodes a move in a single int, so that the search can generate and store moves without creating objects.
+ * <p>
+ * Squares are numbered {@code x * 8 + y}. The start square is in bits 0-5 and the end square in bits 6-11,
+ * followed by {@link #CAPTURE} and {@link #FIRST_MOVE}; bit 14 is left free for {@link MoveHistory}, which uses
+ * it to mark the first ply of a full move. Bits 15-16 hold the outcome of a random promotion, as returned by
+ * {@link VariantChessMove#getPromotionChoice()}.
+ * Moves are converted to and from {@link VariantChessMove} only where they leave or enter the engine.
+ */
+public final class PackedMove {
+
+    /** The move captures the piece on the end square. */
+    public static final int CAPTURE = 1 << 12;
+    /** The moving piece was a Pawn making its first move. */
+    public static final int FIRST_MOVE = 1 << 13;
+    /** Shift of the two bits holding the promotion outcome. */
+    public static final int PROMOTION_SHIFT = 15;
+    /** Value used where no move exists; no packed move is negative. */
+    public static final int NONE = -1;
+
+    private PackedMove() {
+    }
+
+    /**
+     * Packs a move between two squares, without flags.
+     *
+     * @param from The start square, {@code x * 8 + y}.
+     * @param to The end square, {@code x * 8 + y}.
+     * @return The packed move.
+     */
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    /**
+     * Packs a move given by its coordinates, without flags.
+     *
+     * @param startX The row index of the starting position.
+     * @param startY The column index of the starting position.
+     * @param endX The row index of the ending position.
+     * @param endY The column index of the ending position.
+     * @return The packed move.
+     */
+    public static int of(int startX, int startY, int endX, int endY) {
+        return of(startX * 8 + startY, endX * 8 + endY);
+    }
+
+    /**
+     * Gets the start square of a packed move.
+     *
+     * @param packed The packed move.
+     * @return The start square, {@code x * 8 + y}.
+     */
+    public static int from(int packed) {
+        return packed & 63;
+    }
+
+    /**
+     * Gets the end square of a packed move.
+     *
+     * @param packed The packed move.
+     * @return The end square, {@code x * 8 + y}.
+     */
+    public static int to(int packed) {
+        return (packed >>> 6) & 63;
+    }
+
+    /**
+     * Checks whether a packed move is a capture.
+     *
+     * @param packed The packed move.
+     * @return {@code true} if the capture flag is set.
+     */
+    public static boolean isCapture(int packed) {
+        return (packed & CAPTURE) != 0;
+    }
+
+    /**
+     * Checks whether a packed move was the first move of a Pawn.
+     *
+     * @param packed The packed move.
+     * @return {@code true} if the first-move flag is set.
+     */
+    public static boolean isFirstMove(int packed) {
+        return (packed & FIRST_MOVE) != 0;
+    }
+
+    /**
+     * Gets the recorded promotion outcome of a packed move.
+     *
+     * @param packed The packed move.
+     * @return 0 if none was recorded, otherwise 1 or 2.
+     */
+    public static int promotionChoice(int packed) {
+        return (packed >>> PROMOTION_SHIFT) & 3;
+    }
+
+    /**
+     * Packs a move object, keeping its capture and first-move flags and its promotion outcome.
+     * The captured piece itself is not part of the encoding.
+     *
+     * @param move The move to pack.
+     * @return The packed move.
+     */
+    public static int pack(VariantChessMove move) {
+        int packed = of(move.getStartX(), move.getStartY(), move.getEndX(), move.getEndY());
+        if (move.isCapture()) {
+            packed |= CAPTURE;
+        }
+        if (move.wasFirstMove()) {
+            packed |= FIRST_MOVE;
+        }
+        return packed | (move.getPromotionChoice() & 3) << PROMOTION_SHIFT;
+    }
+
+    /**
+     * Rebuilds a move object from its packed form.
+     *
+     * @param packed The packed move.
+     * @return A new move carrying the squares, flags and promotion outcome of the packed move.
+     */
+    public static VariantChessMove toMove(int packed) {
+        int from = from(packed);
+        int to = to(packed);
+        VariantChessMove move = new VariantChessMove(from / 8, from % 8, to / 8, to % 8);
+        move.setCapture(isCapture(packed));
+        move.setWasFirstMove(isFirstMove(packed));
+        move.setPromotionChoice(promotionChoice(packed));
+        return move;
+    }
+}
@@ -4,9 +4,9 @@ package uk.ac.standrews.variantchessgame.model;
  * The Pawn class represents a pawn piece in a chess game.
  */
 public class Pawn extends VariantChessPiece {
-    private int captureCount; // Number of captures made by this pawn
+    private static final long COLUMN_0 = 0x0101010101010101L; // Squares of column 0, bit x * 8
+    private static final long COLUMN_7 = COLUMN_0 << 7;
     private boolean isFirstMove; // Indicates if this is the pawn's first move
-    private int direction; // Direction of movement for this pawn (1 for black, -1 for white)
 
     /**
      * Constructs a Pawn with a specified color.
@@ -15,9 +15,16 @@ public class Pawn extends VariantChessPiece {
      */
     public Pawn(Color color) {
         super(color, "Pawn"); // Calls the superclass constructor to set the color and type to "Pawn"
-        this.captureCount = 0; // Initializes the capture count to 0
         this.isFirstMove = true; // Marks the pawn as having not moved yet
-        this.direction = (color == Color.WHITE) ? -1 : 1; // Sets the direction based on the color (white moves up, black moves down)
+    }
+
+    /**
+     * Gets the direction of movement, which follows the color of the pawn so that a converted pawn turns around.
+     *
+     * @return -1 for white pawns (moving up the board) and 1 for black pawns.
+     */
+    private int direction() {
+        return getColor() == Color.WHITE ? -1 : 1;
     }
 
     /**
@@ -33,12 +40,7 @@ public class Pawn extends VariantChessPiece {
         int startCol = move.getStartY();  // Gets the starting column
         int endRow = move.getEndX();      // Gets the ending row
         int endCol = move.getEndY();      // Gets the ending column
-
-        // Print debug information
-        System.out.println("Pawn start position:(" + startRow + "," + startCol + ")");
-        System.out.println("Pawn end position:(" + endRow + "," + endCol + ")");
-        System.out.println("Direction: " + direction);
-        System.out.println("Piece isFirstMove: " + isFirstMove);
+        int direction = direction();
 
         // Check if the destination is within the board boundaries
         if (endRow < 0 || endRow >= 8 || endCol < 0 || endCol >= 8) {
@@ -101,19 +103,87 @@ public class Pawn extends VariantChessPiece {
     }
 
     /**
-     * Gets the number of captures made by this pawn.
+     * Gets the squares this pawn can move to, following the same rules as {@link #isValidMove}.
+     * Uses the set-wise functions below on a set holding only this pawn.
+     *
+     * @param square The square of the pawn, {@code x * 8 + y}.
+     * @param board The current state of the board.
+     * @return The squares the pawn can move to, including captures.
+     */
+    @Override
+    public long getTargets(int square, VariantChessBoard board) {
+        long pawn = 1L << square;
+        long own = board.getOccupancy(getColor());
+        long targets = singleSteps(pawn, getColor(), own);
+        if (isFirstMove) {
+            return targets | doubleSteps(pawn, getColor(), own, board.getOccupancy(getColor().opposite()));
+        }
+        return targets | leftSteps(pawn, own) | rightSteps(pawn, own);
+    }
+
+    /**
+     * Moves a set of pawns one row forward, towards row 0 for white and row 7 for black.
+     * Pawns on the last row drop out of the set.
+     *
+     * @param pawns A bitboard of pawns.
+     * @param color The color of the pawns.
+     * @return The squares one row ahead of the pawns.
+     */
+    public static long forward(long pawns, Color color) {
+        return color == Color.WHITE ? pawns >>> 8 : pawns << 8;
+    }
+
+    /**
+     * Gets the squares reached by a set of pawns stepping one square forward, either to an empty square
+     * or capturing straight ahead. Every pawn can do this, on its first move or later.
      *
-     * @return The capture count.
+     * @param pawns A bitboard of pawns.
+     * @param color The color of the pawns.
+     * @param own The squares occupied by pieces of that color.
+     * @return The destinations.
      */
-    public int getCaptureCount() {
-        return captureCount;
+    public static long singleSteps(long pawns, Color color, long own) {
+        return forward(pawns, color) & ~own;
     }
 
     /**
-     * Increments the capture count of this pawn.
+     * Gets the squares reached by a set of pawns on their first move going two squares forward.
+     * Moving to an empty square needs the square in between to be empty; capturing two squares ahead does not.
+     *
+     * @param firstMovePawns A bitboard of pawns that have not moved yet.
+     * @param color The color of the pawns.
+     * @param own The squares occupied by pieces of that color.
+     * @param opponents The squares occupied by the opponent.
+     * @return The destinations.
+     */
+    public static long doubleSteps(long firstMovePawns, Color color, long own, long opponents) {
+        long ahead = forward(firstMovePawns, color);
+        long empty = ~(own | opponents);
+        return (forward(ahead & empty, color) & empty) | (forward(ahead, color) & opponents);
+    }
+
+    /**
+     * Gets the squares reached by a set of pawns that have moved before, stepping to the neighbouring column
+     * with a lower index, to an empty square or capturing.
+     *
+     * @param movedPawns A bitboard of pawns past their first move.
+     * @param own The squares occupied by pieces of their color.
+     * @return The destinations.
      */
-    public void incrementCaptureCount() {
-        captureCount++;
+    public static long leftSteps(long movedPawns, long own) {
+        return ((movedPawns & ~COLUMN_0) >>> 1) & ~own;
+    }
+
+    /**
+     * Gets the squares reached by a set of pawns that have moved before, stepping to the neighbouring column
+     * with a higher index, to an empty square or capturing.
+     *
+     * @param movedPawns A bitboard of pawns past their first move.
+     * @param own The squares occupied by pieces of their color.
+     * @return The destinations.
+     */
+    public static long rightSteps(long movedPawns, long own) {
+        return ((movedPawns & ~COLUMN_7) << 1) & ~own;
     }
 
     /**
@@ -131,16 +201,34 @@ public class Pawn extends VariantChessPiece {
      * @param isFirstMove True if this is the pawn's first move; otherwise, false.
      */
     public void setFirstMove(boolean isFirstMove) {
+        checkMutable();
         this.isFirstMove = isFirstMove;
     }
 
     /**
-     * Updates the pawn's movement direction based on its new color.
+     * Changes the color of the pawn, which also turns its direction of movement.
      *
      * @param newColor The new color of the pawn.
      */
     public void updateDirection(Color newColor) {
         setColor(newColor);
-        this.direction = (newColor == Color.WHITE) ? -1 : 1; // Updates the direction based on the new color
+    }
+
+    /**
+     * Gets the squares this pawn attacks: the square ahead, also the square two ahead on its first move,
+     * and afterwards the neighbouring squares of its row.
+     *
+     * @param square The square of the pawn, {@code x * 8 + y}.
+     * @param board The current state of the board.
+     * @return The attacked squares.
+     */
+    @Override
+    public long getAttacks(int square, VariantChessBoard board) {
+        long pawn = 1L << square;
+        long ahead = forward(pawn, getColor()); // Captures straight ahead
+        if (isFirstMove) {
+            return ahead | forward(ahead, getColor()); // A first move can also capture two squares ahead
+        }
+        return ahead | ((pawn & ~COLUMN_0) >>> 1) | ((pawn & ~COLUMN_7) << 1);
     }
 }
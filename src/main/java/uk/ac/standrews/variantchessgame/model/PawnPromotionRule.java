@@ -1,7 +1,5 @@
 package uk.ac.standrews.variantchessgame.model;
 
-import java.util.Random;
-
 /**
  * The PawnPromotionRule class implements the GameRule interface and
  * defines the rules for pawn promotion in a variant chess game.
@@ -10,52 +8,92 @@ import java.util.Random;
  */
 public class PawnPromotionRule implements GameRule {
 
+    private final GameRandom random; // Random stream of the game the promotions are drawn from
+
     /**
-     * Applies the pawn promotion rule based on the move made, the piece involved,
-     * and the current state of the chessboard. If the piece is a pawn or was
-     * promoted from a pawn, it checks the capture count and promotes the piece
-     * to a new type based on that count.
+     * Constructs the rule with a random stream of its own, for games that do not need to be replayed.
+     */
+    public PawnPromotionRule() {
+        this(GameRandom.withNewSeed());
+    }
+
+    /**
+     * Constructs the rule drawing its promotions from the random stream of a game.
      *
-     * @param move   The move that was made in the game.
-     * @param piece  The chess piece that is being evaluated for promotion.
-     * @param board  The chessboard on which the game is being played.
+     * @param random The random stream of the game.
+     */
+    public PawnPromotionRule(GameRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Registers the capture hook of Pawns and of every piece promoted from a Pawn.
+     *
+     * @param engine The engine to register with.
      */
     @Override
-    public void applyRule(VariantChessMove move, VariantChessPiece piece, VariantChessBoard board) {
-        // Check if the piece is a pawn or was promoted from a pawn
-        if (piece instanceof Pawn || piece.isPromotedFromPawn()) {
-            piece.incrementCaptureCount();  // Increment the capture count of the piece
-
-            int captureCount = piece.getCaptureCount();  // Get the current capture count of the piece
-            System.out.println("Capture count for piece: " + captureCount);
-
-            Random random = new Random();
-            VariantChessPiece newPiece = piece;  // Default the new piece to the current piece
-
-            // Determine the new piece based on capture count
-            if (captureCount == 1) {
-                if (random.nextBoolean()) {
-                    newPiece = new Knight(piece.getColor(), true);
-                } else {
-                    newPiece = new Bishop(piece.getColor(), true);
-                }
-            } else if (captureCount == 2) {
-                if (random.nextBoolean()) {
-                    newPiece = new Cannon(piece.getColor(), true);
-                } else {
-                    newPiece = new Rook(piece.getColor(), true);
-                }
-            } else if (captureCount >= 3) {
-                newPiece = new Queen(piece.getColor(), true);
-            }
-
-            // Only replace if the new piece differs from the current
-            if (newPiece != piece) {
-                newPiece.setCaptureCount(captureCount);  // Maintain capture count in the new piece
-                newPiece.setPromotedFromPawn(true);  // Mark the new piece as promoted from a pawn
-                board.setPieceAt(move.getEndX(), move.getEndY(), newPiece);  // Place the new piece on the board
-            }
+    public void registerHooks(RuleEngine engine) {
+        engine.on(RuleEngine.ON_CAPTURE, Zobrist.PAWN, false, this::onCapture);
+        for (int type = 0; type < Zobrist.PIECE_TYPES; type++) {
+            engine.on(RuleEngine.ON_CAPTURE, type, true, this::onCapture);
         }
     }
 
+    private int onCapture(VariantChessMove move, VariantChessPiece piece, VariantChessPiece captured, VariantChessBoard board) {
+        return promote(move, piece, board) ? MoveExecutor.PROMOTION : 0;
+    }
+
+    /**
+     * Counts a capture of the piece and replaces it with the piece its capture count promotes it to.
+     *
+     * @param move The capturing move, with the piece on its end square.
+     * @param piece The Pawn or piece promoted from a Pawn.
+     * @param board The chessboard.
+     * @return {@code true} if the piece was replaced.
+     */
+    private boolean promote(VariantChessMove move, VariantChessPiece piece, VariantChessBoard board) {
+        piece.incrementCaptureCount();  // Increment the capture count of the piece
+
+        int captureCount = piece.getCaptureCount();  // Get the current capture count of the piece
+
+        int newType;  // Determine the new piece based on capture count
+        if (captureCount == 1) {
+            newType = choosePromotion(move) == 1 ? Zobrist.KNIGHT : Zobrist.BISHOP;
+        } else if (captureCount == 2) {
+            newType = choosePromotion(move) == 1 ? Zobrist.CANNON : Zobrist.ROOK;
+        } else if (captureCount >= 3) {
+            newType = Zobrist.QUEEN;
+        } else {
+            return false;
+        }
+
+        // The new piece keeps the capture count and is marked as promoted from a pawn
+        board.promotePieceAt(move.getEndX(), move.getEndY(), newType);
+        return true;
+    }
+
+    /**
+     * Picks between the two promotion options for a move.
+     * A choice already recorded on the move is reused so that replayed moves promote identically;
+     * otherwise a choice is drawn from the random stream of the game and recorded on the move.
+     *
+     * @param move The move that triggered the promotion.
+     * @return 1 for the first option, 2 for the second option.
+     */
+    private int choosePromotion(VariantChessMove move) {
+        if (move.getPromotionChoice() == 0) {
+            move.setPromotionChoice(random.nextInt(2) + 1);
+        }
+        return move.getPromotionChoice();
+    }
+
+    /**
+     * Returns the identifier of the pawn promotion rule.
+     *
+     * @return 2, the index of this rule.
+     */
+    @Override
+    public int getRuleId() {
+        return 2;
+    }
 }
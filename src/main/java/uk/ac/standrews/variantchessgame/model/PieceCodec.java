@@ -0,0 +1,206 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Encodes a piece and all of its mutable state into a single int, and rebuilds pieces from such codes.
+ * Move history and snapshots store these codes instead of references to live piece objects.
+ * <p>
+ * Layout: bits 0-2 hold the type index plus one (0 means no piece), bit 3 the color,
+ * bit 4 the pawn first-move flag, bit 5 the promoted-from-pawn flag, bit 6 the immobile flag
+ * and bits 7-10 the capture count, saturated at 15.
+ * <p>
+ * Bits 0-6 describe the piece itself and fit in a byte ({@link #compact}); the capture count is the only
+ * counter and can be kept apart, in a side array with one entry per square.
+ */
+public final class PieceCodec {
+
+    public static final int EMPTY = 0;
+
+    private static final int COLOR_BIT = 1 << 3;
+    private static final int FIRST_MOVE_BIT = 1 << 4;
+    private static final int PROMOTED_BIT = 1 << 5;
+    private static final int IMMOBILE_BIT = 1 << 6;
+    private static final int CAPTURE_SHIFT = 7;
+    private static final int MAX_CAPTURES = 15;
+    private static final int COMPACT_MASK = (1 << CAPTURE_SHIFT) - 1;
+
+    // Shared read-only pieces, indexed by code and created on first use
+    private static final AtomicReferenceArray<VariantChessPiece> FLYWEIGHTS =
+            new AtomicReferenceArray<>((MAX_CAPTURES + 1) << CAPTURE_SHIFT);
+
+    private PieceCodec() {
+    }
+
+    /**
+     * Encodes a piece.
+     *
+     * @param piece The piece to encode, may be {@code null}.
+     * @return The piece code, or {@link #EMPTY} for {@code null}.
+     */
+    public static int encode(VariantChessPiece piece) {
+        int type = Zobrist.typeIndex(piece);
+        if (type < 0) {
+            return EMPTY;
+        }
+        int code = type + 1;
+        if (piece.getColor() == Color.BLACK) {
+            code |= COLOR_BIT;
+        }
+        if (piece instanceof Pawn && ((Pawn) piece).isFirstMove()) {
+            code |= FIRST_MOVE_BIT;
+        }
+        if (piece.isPromotedFromPawn()) {
+            code |= PROMOTED_BIT;
+        }
+        if (piece.isImmobile()) {
+            code |= IMMOBILE_BIT;
+        }
+        code |= Math.min(piece.getCaptureCount(), MAX_CAPTURES) << CAPTURE_SHIFT;
+        return code;
+    }
+
+    /**
+     * Builds a new piece with the state described by a code.
+     *
+     * @param code The piece code.
+     * @return A new piece, or {@code null} for {@link #EMPTY}.
+     */
+    public static VariantChessPiece decode(int code) {
+        if (code == EMPTY) {
+            return null;
+        }
+        Color color = colorOf(code);
+        boolean promoted = (code & PROMOTED_BIT) != 0;
+        VariantChessPiece piece;
+        switch (typeOf(code)) {
+            case Zobrist.PAWN:
+                Pawn pawn = new Pawn(color);
+                pawn.setFirstMove((code & FIRST_MOVE_BIT) != 0);
+                piece = pawn;
+                break;
+            case Zobrist.KNIGHT:
+                piece = new Knight(color, promoted);
+                break;
+            case Zobrist.BISHOP:
+                piece = new Bishop(color, promoted);
+                break;
+            case Zobrist.ROOK:
+                piece = new Rook(color, promoted);
+                break;
+            case Zobrist.QUEEN:
+                piece = new Queen(color, promoted);
+                break;
+            case Zobrist.KING:
+                piece = new King(color);
+                break;
+            case Zobrist.CANNON:
+                piece = new Cannon(color, promoted);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid piece code: " + code);
+        }
+        piece.setCaptureCount(captureCountOf(code));
+        piece.setPromotedFromPawn(promoted);
+        piece.setImmobile((code & IMMOBILE_BIT) != 0);
+        return piece;
+    }
+
+    /**
+     * Returns the type index encoded in a piece code.
+     *
+     * @param code A non-empty piece code.
+     * @return The type index, see {@link Zobrist#typeIndex(VariantChessPiece)}.
+     */
+    public static int typeOf(int code) {
+        return (code & 7) - 1;
+    }
+
+    /**
+     * Returns the color encoded in a piece code.
+     *
+     * @param code A non-empty piece code.
+     * @return The color of the piece.
+     */
+    public static Color colorOf(int code) {
+        return (code & COLOR_BIT) != 0 ? Color.BLACK : Color.WHITE;
+    }
+
+    /**
+     * Returns the capture count encoded in a piece code.
+     *
+     * @param code A non-empty piece code.
+     * @return The capture count, saturated at 15.
+     */
+    public static int captureCountOf(int code) {
+        return (code >>> CAPTURE_SHIFT) & MAX_CAPTURES;
+    }
+
+    /**
+     * Returns whether a piece code describes a pawn that has not moved yet.
+     *
+     * @param code A piece code.
+     * @return {@code true} if the first-move flag is set.
+     */
+    public static boolean isFirstMove(int code) {
+        return (code & FIRST_MOVE_BIT) != 0;
+    }
+
+    /**
+     * Returns whether a piece code describes a piece promoted from a pawn.
+     *
+     * @param code A piece code.
+     * @return {@code true} if the promoted-from-pawn flag is set.
+     */
+    public static boolean isPromoted(int code) {
+        return (code & PROMOTED_BIT) != 0;
+    }
+
+    /**
+     * Returns the byte form of a piece code: the type, color and flags without the capture count.
+     *
+     * @param code A piece code.
+     * @return The compact code, 0 for an empty square.
+     */
+    public static byte compact(int code) {
+        return (byte) (code & COMPACT_MASK);
+    }
+
+    /**
+     * Rebuilds a piece code from its byte form and the capture count kept beside it.
+     *
+     * @param compact The compact code.
+     * @param captureCount The capture count of the piece.
+     * @return The piece code.
+     */
+    public static int expand(byte compact, int captureCount) {
+        if (compact == EMPTY) {
+            return EMPTY;
+        }
+        return (compact & COMPACT_MASK) | Math.min(captureCount, MAX_CAPTURES) << CAPTURE_SHIFT;
+    }
+
+    /**
+     * Returns a shared, read-only piece with the state described by a code. The same instance is returned
+     * for every square holding an equal piece, so views of stored positions allocate no pieces.
+     * Any attempt to modify the piece throws {@link UnsupportedOperationException}; use {@link #decode}
+     * for a piece that will be played with.
+     *
+     * @param code The piece code.
+     * @return The shared piece, or {@code null} for {@link #EMPTY}.
+     */
+    public static VariantChessPiece flyweight(int code) {
+        if (code == EMPTY) {
+            return null;
+        }
+        VariantChessPiece piece = FLYWEIGHTS.get(code);
+        if (piece == null) {
+            piece = decode(code);
+            piece.markShared();
+            if (!FLYWEIGHTS.compareAndSet(code, null, piece)) {
+                piece = FLYWEIGHTS.get(code);
+            }
+        }
+        return piece;
+    }
+}
@@ -0,0 +1,374 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, sharded cache of position-dependent results shared by every game on the server.
+ * Entries are keyed by the Zobrist hash of the position together with the rule and its state,
+ * so games that pass through the same position under the same rule reuse each other's work.
+ * The cache holds legal-move lists per piece, static evaluations and, per search depth, the best score of an AI
+ * search together with the moves sharing it.
+ * Each shard is an access-ordered map guarded by its own lock and evicts its least recently used
+ * entries once the shard exceeds its share of the configured memory budget.
+ * <p>
+ * A cache may be created to share entries between mirror-image positions (see {@link Symmetry}). The cache itself
+ * only stores what it is given; callers check {@link #isMirrorSymmetric()} and pass canonical hashes, with squares
+ * and moves mirrored to match.
+ */
+public class PositionCache {
+
+    private static final int KIND_LEGAL_MOVES = 0;
+    private static final int KIND_EVALUATION = 1;
+    private static final int KIND_BEST_MOVE = 2;
+
+    // Approximate retained size of one map entry: the LinkedHashMap node, the key and the value holder.
+    private static final int ENTRY_OVERHEAD_BYTES = 120;
+
+    private final Shard[] shards;
+    private final int shardMask;
+    private final long maxBytes;
+    private final boolean mirrorSymmetric;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a cache with the given memory budget.
+     *
+     * @param maxMegabytes The approximate upper bound of the memory used by the cache, in megabytes.
+     * @param shardCount The number of independently locked shards, rounded up to a power of two.
+     */
+    public PositionCache(int maxMegabytes, int shardCount) {
+        this(maxMegabytes, shardCount, false);
+    }
+
+    /**
+     * Constructs a cache with the given memory budget, optionally shared between mirror-image positions.
+     *
+     * @param maxMegabytes The approximate upper bound of the memory used by the cache, in megabytes.
+     * @param shardCount The number of independently locked shards, rounded up to a power of two.
+     * @param mirrorSymmetric Whether callers key entries by canonical hashes, see {@link Symmetry}.
+     */
+    public PositionCache(int maxMegabytes, int shardCount, boolean mirrorSymmetric) {
+        if (maxMegabytes <= 0 || shardCount <= 0) {
+            throw new IllegalArgumentException("Cache size and shard count must be positive");
+        }
+        int shardsRounded = 1;
+        while (shardsRounded < shardCount) {
+            shardsRounded <<= 1;
+        }
+        this.maxBytes = (long) maxMegabytes * 1024 * 1024;
+        this.mirrorSymmetric = mirrorSymmetric;
+        this.shards = new Shard[shardsRounded];
+        this.shardMask = shardsRounded - 1;
+        for (int i = 0; i < shardsRounded; i++) {
+            shards[i] = new Shard(maxBytes / shardsRounded);
+        }
+    }
+
+    /**
+     * Checks whether entries are keyed by canonical hashes, so that a position and its mirror image share them.
+     *
+     * @return {@code true} if the cache is shared between mirror-image positions.
+     */
+    public boolean isMirrorSymmetric() {
+        return mirrorSymmetric;
+    }
+
+    /**
+     * Computes the rule part of a cache key from the rule identity and its mutable state.
+     *
+     * @param rule The rule in force, may be {@code null}.
+     * @return The rule key.
+     */
+    public static int ruleKey(GameRule rule) {
+        if (rule == null) {
+            return -1;
+        }
+        return (rule.getRuleId() << 8) | (rule.getStateFlags() & 0xFF);
+    }
+
+    /**
+     * Looks up the legal destinations of the piece on a square.
+     * Each element packs the destination square index in the low six bits and a capture flag in bit 6.
+     *
+     * @param hash The Zobrist hash of the piece placement.
+     * @param ruleKey The rule key, see {@link #ruleKey(GameRule)}.
+     * @param square The square index (x * 8 + y) of the piece.
+     * @return The packed destinations, or {@code null} if they are not cached.
+     */
+    public int[] getLegalMoves(long hash, int ruleKey, int square) {
+        Object value = get(new Key(hash, ruleKey, KIND_LEGAL_MOVES, square));
+        return (int[]) value;
+    }
+
+    /**
+     * Stores the legal destinations of the piece on a square.
+     *
+     * @param hash The Zobrist hash of the piece placement.
+     * @param ruleKey The rule key.
+     * @param square The square index of the piece.
+     * @param destinations The packed destinations.
+     */
+    public void putLegalMoves(long hash, int ruleKey, int square, int[] destinations) {
+        put(new Key(hash, ruleKey, KIND_LEGAL_MOVES, square), destinations, 16 + 4L * destinations.length);
+    }
+
+    /**
+     * Looks up the static evaluation of a position from one side's point of view.
+     *
+     * @param hash The Zobrist hash of the position.
+     * @param ruleKey The rule key.
+     * @param perspective The color the score is relative to.
+     * @return The cached evaluation, or {@code null} if it is not cached.
+     */
+    public Integer getEvaluation(long hash, int ruleKey, Color perspective) {
+        return (Integer) get(new Key(hash, ruleKey, KIND_EVALUATION, perspective.ordinal()));
+    }
+
+    /**
+     * Stores the static evaluation of a position from one side's point of view.
+     *
+     * @param hash The Zobrist hash of the position.
+     * @param ruleKey The rule key.
+     * @param perspective The color the score is relative to.
+     * @param score The evaluation.
+     */
+    public void putEvaluation(long hash, int ruleKey, Color perspective, int score) {
+        put(new Key(hash, ruleKey, KIND_EVALUATION, perspective.ordinal()), score, 16);
+    }
+
+    /**
+     * Looks up the best score found by a search of the given depth and the moves sharing it.
+     *
+     * @param hash The Zobrist hash of the position including the side to move.
+     * @param ruleKey The rule key.
+     * @param depth The search depth.
+     * @return The best moves, or {@code null} if they are not cached.
+     */
+    public BestMoves getBestMoves(long hash, int ruleKey, int depth) {
+        return (BestMoves) get(new Key(hash, ruleKey, KIND_BEST_MOVE, depth));
+    }
+
+    /**
+     * Stores the best score found by a search of the given depth and the moves sharing it.
+     *
+     * @param hash The Zobrist hash of the position including the side to move.
+     * @param ruleKey The rule key.
+     * @param depth The search depth.
+     * @param score The best score.
+     * @param packedMoves The packed moves with that score, in the order they are chosen from.
+     */
+    public void putBestMoves(long hash, int ruleKey, int depth, int score, int[] packedMoves) {
+        put(new Key(hash, ruleKey, KIND_BEST_MOVE, depth), new BestMoves(score, packedMoves), 32 + 4L * packedMoves.length);
+    }
+
+    /**
+     * Removes every entry from the cache. The hit and miss counters are kept.
+     */
+    public void clear() {
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.entries.clear();
+                shard.bytes = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns a point-in-time view of the cache metrics.
+     *
+     * @return The cache statistics.
+     */
+    public Stats getStats() {
+        long entries = 0;
+        long bytes = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                entries += shard.entries.size();
+                bytes += shard.bytes;
+            }
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries, bytes, maxBytes);
+    }
+
+    private Object get(Key key) {
+        Shard shard = shardFor(key);
+        Object value;
+        synchronized (shard) {
+            Entry entry = shard.entries.get(key);
+            value = entry == null ? null : entry.value;
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    private void put(Key key, Object value, long valueBytes) {
+        Shard shard = shardFor(key);
+        long size = ENTRY_OVERHEAD_BYTES + valueBytes;
+        synchronized (shard) {
+            Entry previous = shard.entries.put(key, new Entry(value, size));
+            if (previous != null) {
+                shard.bytes -= previous.size;
+            }
+            shard.bytes += size;
+            Iterator<Entry> eldest = shard.entries.values().iterator();
+            while (shard.bytes > shard.maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                shard.bytes -= evicted.size;
+                evictions.increment();
+            }
+        }
+    }
+
+    private Shard shardFor(Key key) {
+        long mixed = key.hash * 0x9E3779B97F4A7C15L;
+        return shards[(int) (mixed >>> 40) & shardMask];
+    }
+
+    /**
+     * A single lock-protected partition of the cache.
+     */
+    private static final class Shard {
+        private final Map<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        private Shard(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    /**
+     * A cached value together with its estimated size.
+     */
+    private static final class Entry {
+        private final Object value;
+        private final long size;
+
+        private Entry(Object value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The composite key of a cache entry.
+     */
+    private static final class Key {
+        private final long hash;
+        private final int ruleKey;
+        private final int kind;
+        private final int argument;
+
+        private Key(long hash, int ruleKey, int kind, int argument) {
+            this.hash = hash;
+            this.ruleKey = ruleKey;
+            this.kind = kind;
+            this.argument = argument;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && ruleKey == other.ruleKey && kind == other.kind && argument == other.argument;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + (ruleKey * 31 + kind) * 31 + argument;
+        }
+    }
+
+    /**
+     * The best score of a search and the moves sharing it. The choice between the moves is left to the caller,
+     * so the same entry serves every game whatever its random stream.
+     */
+    public static final class BestMoves {
+        private final int score;
+        private final int[] moves;
+
+        private BestMoves(int score, int[] moves) {
+            this.score = score;
+            this.moves = moves;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public int getMoveCount() {
+            return moves.length;
+        }
+
+        public int getMove(int index) {
+            return moves[index];
+        }
+    }
+
+    /**
+     * Snapshot of the cache metrics, serialised as JSON by the statistics endpoint.
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long entries;
+        private final long sizeBytes;
+        private final long maxBytes;
+
+        public Stats(long hits, long misses, long evictions, long entries, long sizeBytes, long maxBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.sizeBytes = sizeBytes;
+            this.maxBytes = maxBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        /**
+         * Returns the fraction of lookups that found an entry.
+         *
+         * @return The hit rate between 0 and 1, or 0 if there were no lookups.
+         */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import java.util.Arrays;
+
+/**
+ * An immutable copy of everything needed to resume a game from a given ply:
+ * the {@link PieceCodec} code of every square, the turn, the move counters and the rule with its state.
+ * <p>
+ * Snapshots never change once created, so any number of threads can read one without locking while the
+ * live board moves on. Each square is stored as a compact byte code ({@link PieceCodec#compact}) with the
+ * capture counts in separate rows, so most positions share a single all-zero capture row. The codes are held
+ * as one array per row and a snapshot taken after a move shares every unchanged row with the snapshot before it;
+ * a move usually rewrites one or two rows.
+ */
+public final class PositionSnapshot {
+
+    private static final byte[] NO_CAPTURES = new byte[8];
+
+    private final byte[][] rows;
+    private final byte[][] captureRows;
+    private final long hash;
+    private final Color currentTurn;
+    private final int whiteMoveCount;
+    private final int blackMoveCount;
+    private final int movesWithoutCapture;
+    private final int ruleId;
+    private final int ruleFlags;
+
+    private PositionSnapshot(byte[][] rows, byte[][] captureRows, Color currentTurn, int whiteMoveCount,
+                             int blackMoveCount, int movesWithoutCapture, int ruleId, int ruleFlags) {
+        this.rows = rows;
+        this.captureRows = captureRows;
+        long positionHash = Zobrist.sideKey(currentTurn);
+        for (int square = 0; square < 64; square++) {
+            positionHash ^= Zobrist.codeKey(getPieceCode(square), square);
+        }
+        this.hash = positionHash;
+        this.currentTurn = currentTurn;
+        this.whiteMoveCount = whiteMoveCount;
+        this.blackMoveCount = blackMoveCount;
+        this.movesWithoutCapture = movesWithoutCapture;
+        this.ruleId = ruleId;
+        this.ruleFlags = ruleFlags;
+    }
+
+    /**
+     * Captures the current position of a game.
+     *
+     * @param board The board of the game.
+     * @param gameState The state of the game.
+     * @return A snapshot of the position.
+     */
+    public static PositionSnapshot capture(VariantChessBoard board, GameState gameState) {
+        return capture(board, gameState, null);
+    }
+
+    /**
+     * Captures the current position of a game, sharing the rows that are unchanged since an earlier snapshot.
+     *
+     * @param board The board of the game.
+     * @param gameState The state of the game.
+     * @param previous An earlier snapshot of the same game, or {@code null}.
+     * @return A snapshot of the position.
+     */
+    public static PositionSnapshot capture(VariantChessBoard board, GameState gameState, PositionSnapshot previous) {
+        byte[][] rows = new byte[8][];
+        byte[][] captureRows = new byte[8][];
+        byte[] row = new byte[8];
+        byte[] captureRow = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                int code = PieceCodec.encode(board.getPieceAt(i, j));
+                row[j] = PieceCodec.compact(code);
+                captureRow[j] = (byte) (code == PieceCodec.EMPTY ? 0 : PieceCodec.captureCountOf(code));
+            }
+            if (previous != null && Arrays.equals(row, previous.rows[i])) {
+                rows[i] = previous.rows[i];
+            } else {
+                rows[i] = row;
+                row = new byte[8];
+            }
+            captureRows[i] = shareCaptureRow(captureRow, previous == null ? null : previous.captureRows[i]);
+            if (captureRows[i] == captureRow) {
+                captureRow = new byte[8];
+            }
+        }
+        GameRule rule = gameState.getSelectedRule();
+        return new PositionSnapshot(rows, captureRows, gameState.getCurrentTurn(), gameState.getWhiteMoveCount(),
+                gameState.getBlackMoveCount(), gameState.movesWithoutCapture,
+                rule == null ? -1 : rule.getRuleId(), rule == null ? 0 : rule.getStateFlags());
+    }
+
+    /**
+     * Creates a snapshot from its stored parts, for example when reading a saved session.
+     *
+     * @param pieceCodes The {@link PieceCodec} code of each of the 64 squares.
+     * @param currentTurn The color to move.
+     * @param whiteMoveCount The number of moves made by white.
+     * @param blackMoveCount The number of moves made by black.
+     * @param movesWithoutCapture The number of moves since the last capture.
+     * @param ruleId The id of the selected rule, or -1 if none.
+     * @param ruleFlags The state flags of the selected rule.
+     * @return The snapshot.
+     */
+    public static PositionSnapshot of(int[] pieceCodes, Color currentTurn, int whiteMoveCount, int blackMoveCount,
+                                      int movesWithoutCapture, int ruleId, int ruleFlags) {
+        if (pieceCodes.length != 64) {
+            throw new IllegalArgumentException("Expected 64 squares but got " + pieceCodes.length);
+        }
+        byte[][] rows = new byte[8][];
+        byte[][] captureRows = new byte[8][];
+        for (int i = 0; i < 8; i++) {
+            rows[i] = new byte[8];
+            byte[] captureRow = new byte[8];
+            for (int j = 0; j < 8; j++) {
+                int code = pieceCodes[i * 8 + j];
+                rows[i][j] = PieceCodec.compact(code);
+                captureRow[j] = (byte) (code == PieceCodec.EMPTY ? 0 : PieceCodec.captureCountOf(code));
+            }
+            captureRows[i] = shareCaptureRow(captureRow, null);
+        }
+        return new PositionSnapshot(rows, captureRows, currentTurn, whiteMoveCount, blackMoveCount,
+                movesWithoutCapture, ruleId, ruleFlags);
+    }
+
+    /**
+     * Returns an existing array equal to a row of capture counts if there is one, otherwise the row itself.
+     */
+    private static byte[] shareCaptureRow(byte[] captureRow, byte[] previous) {
+        if (Arrays.equals(captureRow, NO_CAPTURES)) {
+            return NO_CAPTURES;
+        }
+        if (previous != null && Arrays.equals(captureRow, previous)) {
+            return previous;
+        }
+        return captureRow;
+    }
+
+    /**
+     * Restores the snapshot into a game, replacing every piece on the board with a fresh copy.
+     *
+     * @param board The board to restore.
+     * @param gameState The game state to restore.
+     */
+    public void restoreTo(VariantChessBoard board, GameState gameState) {
+        for (int square = 0; square < 64; square++) {
+            board.setPieceAt(square / 8, square % 8, PieceCodec.decode(getPieceCode(square)));
+        }
+        gameState.restoreCounters(currentTurn, whiteMoveCount, blackMoveCount, movesWithoutCapture);
+        if (ruleId >= 0) {
+            GameRule rule = gameState.getSelectedRule();
+            if (rule == null || rule.getRuleId() != ruleId) {
+                gameState.selectRuleByIndex(ruleId);
+            }
+            gameState.getSelectedRule().restoreStateFlags(ruleFlags);
+        }
+    }
+
+    /**
+     * Gets the code of the piece on a square.
+     *
+     * @param square The square index (x * 8 + y).
+     * @return The piece code, or {@link PieceCodec#EMPTY}.
+     */
+    public int getPieceCode(int square) {
+        return PieceCodec.expand(rows[square >> 3][square & 7], captureRows[square >> 3][square & 7]);
+    }
+
+    /**
+     * Gets the piece on a square as a shared read-only instance (see {@link PieceCodec#flyweight}).
+     *
+     * @param square The square index (x * 8 + y).
+     * @return The piece, or {@code null} for an empty square.
+     */
+    public VariantChessPiece getPiece(int square) {
+        return PieceCodec.flyweight(getPieceCode(square));
+    }
+
+    /**
+     * Builds a read-only view of the board made of shared pieces, in the layout of {@link VariantChessBoard#getBoard()}.
+     *
+     * @return A new 8x8 array of shared pieces.
+     */
+    public VariantChessPiece[][] toPieces() {
+        VariantChessPiece[][] pieces = new VariantChessPiece[8][8];
+        for (int square = 0; square < 64; square++) {
+            pieces[square >> 3][square & 7] = getPiece(square);
+        }
+        return pieces;
+    }
+
+    /**
+     * Builds a scratch board holding the shared pieces of this snapshot, for analysis that must not touch the live board.
+     * Pieces may be placed and removed on it, but the shared pieces themselves must not be changed.
+     *
+     * @return A new board with the pieces of this snapshot.
+     */
+    public VariantChessBoard toBoard() {
+        VariantChessBoard board = new VariantChessBoard(null);
+        for (int square = 0; square < 64; square++) {
+            board.setPieceAt(square >> 3, square & 7, getPiece(square));
+        }
+        return board;
+    }
+
+    /**
+     * Gets the codes of all squares.
+     *
+     * @return A new array with the {@link PieceCodec} code of each square, indexed by x * 8 + y.
+     */
+    public int[] getPieceCodes() {
+        int[] codes = new int[64];
+        for (int square = 0; square < 64; square++) {
+            codes[square] = getPieceCode(square);
+        }
+        return codes;
+    }
+
+    /**
+     * Checks whether a row of this snapshot is the same array as in another snapshot, i.e. is shared with it.
+     *
+     * @param other Another snapshot.
+     * @param row The row index.
+     * @return {@code true} if both snapshots hold the same row array.
+     */
+    public boolean sharesRow(PositionSnapshot other, int row) {
+        return rows[row] == other.rows[row] && captureRows[row] == other.captureRows[row];
+    }
+
+    /**
+     * Gets the Zobrist hash of the position with the side to move, equal to
+     * {@link Zobrist#hash(VariantChessBoard, Color)} of the board it was taken from.
+     *
+     * @return The position hash.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the number of plies played to reach the position.
+     *
+     * @return The number of moves made by both players.
+     */
+    public int getPlyCount() {
+        return whiteMoveCount + blackMoveCount;
+    }
+
+    public Color getCurrentTurn() {
+        return currentTurn;
+    }
+
+    public int getWhiteMoveCount() {
+        return whiteMoveCount;
+    }
+
+    public int getBlackMoveCount() {
+        return blackMoveCount;
+    }
+
+    public int getMovesWithoutCapture() {
+        return movesWithoutCapture;
+    }
+
+    public int getRuleId() {
+        return ruleId;
+    }
+
+    public int getRuleFlags() {
+        return ruleFlags;
+    }
+}
@@ -35,49 +35,23 @@ public class Rook extends VariantChessPiece {
      */
     @Override
     public boolean isValidMove(VariantChessMove move, VariantChessBoard board) {
+        return isTarget(move, board);
+    }
 
-        int startX = move.getStartX();
-        int startY = move.getStartY();
-        int endX = move.getEndX();
-        int endY = move.getEndY();
-
-        // Ensure the end position is within the board's boundaries
-        if (endX < 0 || endX >= 8 || endY < 0 || endY >= 8) {
-            return false;
-        }
-
-        // Ensure the move is not a zero-length move
-        if (startX == endX && startY == endY) {
-            return false;
-        }
-
-        // Check if the move is either vertical or horizontal
-        if (startX != endX && startY != endY) {
-            return false;
-        }
-
-        // Determine the step direction for the move
-        int stepX = Integer.compare(endX - startX, 0);
-        int stepY = Integer.compare(endY - startY, 0);
-
-        // Check for any pieces blocking the path
-        for (int i = 1; i < Math.max(Math.abs(endX - startX), Math.abs(endY - startY)); i++) {
-            if (board.getPieceAt(startX + i * stepX, startY + i * stepY) != null) {
-                return false;
-            }
-        }
-
-        // Check if the target position contains a piece of the same color
-        VariantChessPiece targetPiece = board.getPieceAt(endX, endY);
-        if (targetPiece != null && targetPiece.getColor() == this.getColor()) {
-            return false;
-        }
-
-        // If the target position contains an opponent's piece, mark the move as a capture
-        if (targetPiece != null && targetPiece.getColor() != this.getColor()) {
-            move.setCapture(true);
-        }
+    /**
+     * Gets the squares the Rook slides to, up to and including the first opponent's piece in each direction.
+     *
+     * @param square The square of the piece, {@code x * 8 + y}.
+     * @param board The current state of the board.
+     * @return The squares the piece can move to, including captures.
+     */
+    @Override
+    public long getTargets(int square, VariantChessBoard board) {
+        return Attacks.straight(square, board.getOccupancy()) & ~board.getOccupancy(getColor());
+    }
 
-        return true;
+    @Override
+    public long getAttacks(int square, VariantChessBoard board) {
+        return Attacks.straight(square, board.getOccupancy());
     }
 }
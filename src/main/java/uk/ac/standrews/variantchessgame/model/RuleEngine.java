@@ -0,0 +1,127 @@
+package uk.ac.standrews.variantchessgame.model;
+
+/**
+ * Dispatches the events of a move to the hooks a {@link GameRule} registered for them.
+ * Hooks are kept in a table indexed by the kind of the moving piece (its {@link Zobrist} type index, and whether
+ * it was promoted from a Pawn) and the event, so finding the hooks of a move is a single array read and moves
+ * no hook is registered for cost nothing more. Live games ({@link MoveExecutor}) and the AI search fire the same
+ * events through an engine built for the selected rule.
+ * <p>
+ * Events are fired after the piece has moved: the captured piece, if any, has already left the board
+ * and is passed to the hook.
+ */
+public final class RuleEngine {
+
+    /** The piece has moved, with or without a capture. */
+    public static final int ON_MOVE = 0;
+    /** The piece has captured another piece. */
+    public static final int ON_CAPTURE = 1;
+    /** The move is complete and the turn is about to pass to the other player. */
+    public static final int ON_TURN_END = 2;
+
+    private static final int EVENTS = 3;
+    private static final int KINDS = Zobrist.PIECE_TYPES * 2; // Every type, plain and promoted from a Pawn
+
+    /**
+     * A reaction of a rule to an event.
+     */
+    @FunctionalInterface
+    public interface Hook {
+
+        /**
+         * Applies the rule to a move that has just been made.
+         *
+         * @param move The move; rules may record choices on it, such as the outcome of a promotion.
+         * @param piece The piece that moved.
+         * @param captured The piece it captured, or {@code null}.
+         * @param board The board, with the piece already on the end square.
+         * @return The effects of the rule, a combination of the {@link MoveExecutor} effect flags, or 0.
+         */
+        int apply(VariantChessMove move, VariantChessPiece piece, VariantChessPiece captured, VariantChessBoard board);
+    }
+
+    private final Hook[] hooks = new Hook[KINDS * EVENTS];
+
+    /**
+     * Builds the dispatch table of a rule by letting it register its hooks.
+     *
+     * @param rule The rule, or {@code null} for a game without special rules.
+     */
+    public RuleEngine(GameRule rule) {
+        if (rule != null) {
+            rule.registerHooks(this);
+        }
+    }
+
+    /**
+     * Registers a hook for an event of the pieces of a type, whether or not they were promoted from a Pawn.
+     *
+     * @param event The event, such as {@link #ON_CAPTURE}.
+     * @param type The piece type, such as {@link Zobrist#CANNON}.
+     * @param hook The hook.
+     */
+    public void on(int event, int type, Hook hook) {
+        on(event, type, false, hook);
+        on(event, type, true, hook);
+    }
+
+    /**
+     * Registers a hook for an event of the pieces of one kind. Hooks registered for the same kind and event
+     * run in the order they were registered.
+     *
+     * @param event The event, such as {@link #ON_CAPTURE}.
+     * @param type The piece type, such as {@link Zobrist#PAWN}.
+     * @param promotedFromPawn Whether the hook is for pieces promoted from a Pawn.
+     * @param hook The hook.
+     */
+    public void on(int event, int type, boolean promotedFromPawn, Hook hook) {
+        if (event < 0 || event >= EVENTS || type < 0 || type >= Zobrist.PIECE_TYPES) {
+            throw new IllegalArgumentException("Invalid event " + event + " or piece type " + type);
+        }
+        int index = (type + (promotedFromPawn ? Zobrist.PIECE_TYPES : 0)) * EVENTS + event;
+        Hook first = hooks[index];
+        hooks[index] = first == null ? hook
+                : (move, piece, captured, board) -> first.apply(move, piece, captured, board) | hook.apply(move, piece, captured, board);
+    }
+
+    /**
+     * Checks whether any hook would run for a move of a piece.
+     *
+     * @param piece The moving piece.
+     * @param capture Whether the move captures.
+     * @return {@code true} if a hook is registered for one of the events of the move.
+     */
+    public boolean triggers(VariantChessPiece piece, boolean capture) {
+        int kind = kindOf(piece);
+        if (kind < 0) {
+            return false;
+        }
+        int base = kind * EVENTS;
+        return hooks[base + ON_MOVE] != null || hooks[base + ON_TURN_END] != null
+                || (capture && hooks[base + ON_CAPTURE] != null);
+    }
+
+    /**
+     * Runs the hooks registered for an event of the moving piece.
+     *
+     * @param event The event.
+     * @param move The move that has just been made.
+     * @param piece The piece that moved.
+     * @param captured The piece it captured, or {@code null}.
+     * @param board The board.
+     * @return The combined effects of the hooks, 0 if none ran.
+     */
+    public int fire(int event, VariantChessMove move, VariantChessPiece piece, VariantChessPiece captured, VariantChessBoard board) {
+        int kind = kindOf(piece);
+        Hook hook = kind < 0 ? null : hooks[kind * EVENTS + event];
+        return hook == null ? 0 : hook.apply(move, piece, captured, board);
+    }
+
+    /**
+     * Gets the row of the table for a piece, or -1 for pieces of an unknown type, which trigger no hooks.
+     */
+    private static int kindOf(VariantChessPiece piece) {
+        int type = Zobrist.typeIndex(piece);
+        return type < 0 || !piece.isPromotedFromPawn() ? type : type + Zobrist.PIECE_TYPES;
+    }
+}
@@ -0,0 +1,35 @@
+package uk.ac.standrews.variantchessgame.model;
+
+/**
+ * {@link NeuralKernel} written with plain loops.
+ */
+final class ScalarKernel implements NeuralKernel {
+
+    @Override
+    public void add(int[] accumulator, int[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(int[] accumulator, int[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int clippedDot(int[] accumulator, int[] weights, int offset, int max) {
+        int sum = 0;
+        for (int i = 0; i < accumulator.length; i++) {
+            sum += Math.min(Math.max(accumulator[i], 0), max) * weights[offset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
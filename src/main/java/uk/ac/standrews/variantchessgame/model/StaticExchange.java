@@ -0,0 +1,92 @@
+package uk.ac.standrews.variantchessgame.model;
+
+/**
+ * Static exchange evaluation: the material won or lost by a capture once both sides have recaptured on its
+ * square for as long as it pays, each time with their least valuable attacker.
+ * <p>
+ * Attackers are read from the {@link AttackMap} of the board. The exchange is played out on the board with
+ * {@link VariantChessBoard#setPieceAt} and undone before returning, so pieces behind the capturers join in
+ * as the map updates. The special rules of the game (promotion, conversion, detonation) are not played out,
+ * and pieces are valued at the base values used by the AI.
+ */
+public final class StaticExchange {
+
+    private StaticExchange() {
+    }
+
+    /**
+     * Gets the base value of a piece, as used by the AI without rule bonuses.
+     *
+     * @param piece The piece, or {@code null}.
+     * @return The value, 0 for an empty square.
+     */
+    public static int value(VariantChessPiece piece) {
+        if (piece == null) return 0;
+        if (piece instanceof Pawn) return 1;
+        if (piece instanceof Knight || piece instanceof Bishop) return 3;
+        if (piece instanceof King) return 4;
+        if (piece instanceof Cannon) return 5;
+        if (piece instanceof Rook) return 6;
+        if (piece instanceof Queen) return 7;
+        return 0;
+    }
+
+    /**
+     * Evaluates the exchange started by the piece on one square capturing on another.
+     *
+     * @param board The board; it is left as it was found.
+     * @param from The square of the capturing piece, {@code x * 8 + y}.
+     * @param to The square captured on.
+     * @return The material won by the side making the capture, negative if it loses material.
+     */
+    public static int evaluate(VariantChessBoard board, int from, int to) {
+        VariantChessPiece attacker = board.getPieceAt(from >> 3, from & 7);
+        if (attacker == null) {
+            throw new IllegalArgumentException("No piece to capture with at " + from);
+        }
+        VariantChessPiece target = board.getPieceAt(to >> 3, to & 7);
+        board.setPieceAt(to >> 3, to & 7, attacker);
+        board.setPieceAt(from >> 3, from & 7, null);
+        int reply = bestReply(board, to, attacker.getColor().opposite());
+        board.setPieceAt(from >> 3, from & 7, attacker);
+        board.setPieceAt(to >> 3, to & 7, target);
+        return value(target) - Math.max(0, reply);
+    }
+
+    /**
+     * Gets the pieces of a color that the opponent can win material from by capturing them.
+     *
+     * @param board The board; it is left as it was found.
+     * @param color The color of the pieces.
+     * @return A bitboard of the squares of the pieces en prise.
+     */
+    public static long hanging(VariantChessBoard board, Color color) {
+        AttackMap attackMap = board.getAttackMap();
+        long hanging = 0L;
+        for (long targets = board.getOccupancy(color) & attackMap.getAttacks(color.opposite()); targets != 0; targets &= targets - 1) {
+            int square = Long.numberOfTrailingZeros(targets);
+            if (bestReply(board, square, color.opposite()) > 0) {
+                hanging |= targets & -targets;
+            }
+        }
+        return hanging;
+    }
+
+    /**
+     * Gets the result of capturing on a square with the least valuable attacker of a color, or 0 if it has none.
+     */
+    private static int bestReply(VariantChessBoard board, int square, Color color) {
+        long attackers = board.getAttackMap().getAttackers(color, square);
+        int cheapest = -1;
+        int cheapestValue = Integer.MAX_VALUE;
+        for (; attackers != 0; attackers &= attackers - 1) {
+            int from = Long.numberOfTrailingZeros(attackers);
+            int value = value(board.getPieceAt(from >> 3, from & 7));
+            if (value < cheapestValue) {
+                cheapest = from;
+                cheapestValue = value;
+            }
+        }
+        return cheapest < 0 ? 0 : evaluate(board, cheapest, square);
+    }
+}
@@ -0,0 +1,66 @@
+package uk.ac.standrews.variantchessgame.model;
+
+/**
+ * Left-right mirror symmetry of positions. Every piece moves the same way in both directions along a row and
+ * the back ranks are laid out the same for both colors, so a position and its mirror image (column y becomes
+ * column 7 - y) play identically: the best move of one is the mirrored best move of the other.
+ * <p>
+ * Tables keyed by position can therefore store each pair of mirror positions once, under the canonical hash,
+ * the smaller of the hash of the position and of its mirror image compared as unsigned values.
+ * Squares and moves read from or written to such a table are mirrored when the position is not canonical.
+ */
+public final class Symmetry {
+
+    private Symmetry() {
+    }
+
+    /**
+     * Mirrors a square to the other side of the board.
+     *
+     * @param square The square index (x * 8 + y).
+     * @return The index of the square in the same row and column {@code 7 - y}.
+     */
+    public static int mirror(int square) {
+        return square ^ 7;
+    }
+
+    /**
+     * Mirrors both squares of a {@link PackedMove}, keeping its flags and promotion outcome.
+     *
+     * @param packed The packed move.
+     * @return The mirrored move, or {@link PackedMove#NONE} unchanged.
+     */
+    public static int mirrorMove(int packed) {
+        if (packed == PackedMove.NONE) {
+            return packed;
+        }
+        return packed ^ (7 | 7 << 6); // The columns sit in the low three bits of both square fields
+    }
+
+    /**
+     * Computes the hash of the mirror image of the pieces on the board, as {@link Zobrist#hash(VariantChessBoard)}
+     * would compute it for the mirrored board.
+     *
+     * @param board The board.
+     * @return The Zobrist hash of the mirrored piece placement.
+     */
+    public static long mirrorHash(VariantChessBoard board) {
+        long hash = 0L;
+        for (long occupied = board.getOccupancy(); occupied != 0; occupied &= occupied - 1) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            hash ^= Zobrist.codeKey(PieceCodec.encode(board.getPieceAt(square >> 3, square & 7)), mirror(square));
+        }
+        return hash;
+    }
+
+    /**
+     * Chooses the canonical hash of a pair of mirror positions.
+     *
+     * @param hash The hash of the position.
+     * @param mirrorHash The hash of its mirror image.
+     * @return The smaller of the two, compared as unsigned values.
+     */
+    public static long canonical(long hash, long mirrorHash) {
+        return Long.compareUnsigned(mirrorHash, hash) < 0 ? mirrorHash : hash;
+    }
+}
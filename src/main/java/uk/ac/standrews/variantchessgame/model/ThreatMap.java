@@ -0,0 +1,135 @@
+package uk.ac.standrews.variantchessgame.model;
+
+/**
+ * The threats in a position, as shown by the UI: how many pieces of each color attack every square,
+ * which pieces can be won by the opponent, and the mobility of each color.
+ * Squares are given as the index {@code x * 8 + y}. The map is immutable and kept as bitboards and one byte
+ * per square and color, so it can be published with every position; the arrays shown to the UI are built
+ * when asked for.
+ */
+public final class ThreatMap {
+
+    private final long[] attacks;         // Squares attacked by each color, indexed by Color ordinal
+    private final byte[] attackerCounts;  // Attackers of each square, the 64 white counts then the 64 black ones
+    private final long[] hanging;         // Pieces of each color the opponent can win material from
+    private final int whiteMobility;
+    private final int blackMobility;
+
+    private ThreatMap(long[] attacks, byte[] attackerCounts, long[] hanging, int whiteMobility, int blackMobility) {
+        this.attacks = attacks;
+        this.attackerCounts = attackerCounts;
+        this.hanging = hanging;
+        this.whiteMobility = whiteMobility;
+        this.blackMobility = blackMobility;
+    }
+
+    /**
+     * Reads the threats of a position from the attack map of its board.
+     * A piece is hanging when {@link StaticExchange} finds that the opponent wins material by capturing it.
+     *
+     * @param board The board; it is left as it was found.
+     * @return The threats, which no longer refer to the board.
+     */
+    public static ThreatMap of(VariantChessBoard board) {
+        AttackMap attackMap = board.getAttackMap();
+        byte[] counts = new byte[128];
+        for (int square = 0; square < 64; square++) {
+            counts[square] = (byte) attackMap.getAttackerCount(Color.WHITE, square);
+            counts[64 + square] = (byte) attackMap.getAttackerCount(Color.BLACK, square);
+        }
+        return new ThreatMap(new long[]{attackMap.getAttacks(Color.WHITE), attackMap.getAttacks(Color.BLACK)}, counts,
+                new long[]{StaticExchange.hanging(board, Color.WHITE), StaticExchange.hanging(board, Color.BLACK)},
+                attackMap.getMobility(Color.WHITE), attackMap.getMobility(Color.BLACK));
+    }
+
+    /**
+     * Gets the squares attacked by at least one piece of a color.
+     *
+     * @param color The color.
+     * @return A bitboard of the attacked squares.
+     */
+    public long getAttacks(Color color) {
+        return attacks[color.ordinal()];
+    }
+
+    /**
+     * Gets the number of pieces of a color attacking a square.
+     *
+     * @param color The color of the attackers.
+     * @param square The square, {@code x * 8 + y}.
+     * @return The number of attackers.
+     */
+    public int getAttackerCount(Color color, int square) {
+        return attackerCounts[color.ordinal() * 64 + square];
+    }
+
+    /**
+     * Gets the pieces of a color that the opponent can win material from.
+     *
+     * @param color The color of the pieces.
+     * @return A bitboard of the squares of the pieces.
+     */
+    public long getHanging(Color color) {
+        return hanging[color.ordinal()];
+    }
+
+    private int[][] counts(Color color) {
+        int[][] counts = new int[8][8];
+        for (int square = 0; square < 64; square++) {
+            counts[square >> 3][square & 7] = getAttackerCount(color, square);
+        }
+        return counts;
+    }
+
+    private static int[] squares(long bitboard) {
+        int[] squares = new int[Long.bitCount(bitboard)];
+        for (int i = 0; bitboard != 0; i++, bitboard &= bitboard - 1) {
+            squares[i] = Long.numberOfTrailingZeros(bitboard);
+        }
+        return squares;
+    }
+
+    /**
+     * Gets the number of white pieces attacking each square, in the layout of {@link VariantChessBoard#getBoard()}.
+     *
+     * @return The attacker counts.
+     */
+    public int[][] getWhiteAttackers() {
+        return counts(Color.WHITE);
+    }
+
+    /**
+     * Gets the number of black pieces attacking each square, in the layout of {@link VariantChessBoard#getBoard()}.
+     *
+     * @return The attacker counts.
+     */
+    public int[][] getBlackAttackers() {
+        return counts(Color.BLACK);
+    }
+
+    /**
+     * Gets the white pieces that Black can win material from.
+     *
+     * @return The squares of the pieces.
+     */
+    public int[] getWhiteHanging() {
+        return squares(getHanging(Color.WHITE));
+    }
+
+    /**
+     * Gets the black pieces that White can win material from.
+     *
+     * @return The squares of the pieces.
+     */
+    public int[] getBlackHanging() {
+        return squares(getHanging(Color.BLACK));
+    }
+
+    public int getWhiteMobility() {
+        return whiteMobility;
+    }
+
+    public int getBlackMobility() {
+        return blackMobility;
+    }
+}
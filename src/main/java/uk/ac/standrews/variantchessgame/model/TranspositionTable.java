@@ -0,0 +1,88 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size table of search results, indexed by position hash, shared by every iteration and every line of an
+ * analysis so that each search starts from what the previous ones found. Each entry keeps the score of a position,
+ * the depth it was searched to, whether the score is exact or a bound, and the best move found.
+ * An entry is replaced by any later search of a position with the same index, unless that search was shallower.
+ * Not thread-safe: each searching thread keeps its own table and clears it before every analysis.
+ */
+public final class TranspositionTable {
+
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1; // The score is at least the stored score
+    public static final int UPPER_BOUND = 2; // The score is at most the stored score
+
+    private final long[] keys;
+    private final long[] entries; // Score in the low 32 bits, then 20 bits of move, 6 of depth, 2 of bound and a used flag
+    private final int mask;
+
+    /**
+     * Constructs an empty table.
+     *
+     * @param sizeBits The base-2 logarithm of the number of entries, between 1 and 24.
+     */
+    public TranspositionTable(int sizeBits) {
+        if (sizeBits < 1 || sizeBits > 24) {
+            throw new IllegalArgumentException("Invalid table size: 2^" + sizeBits);
+        }
+        keys = new long[1 << sizeBits];
+        entries = new long[1 << sizeBits];
+        mask = (1 << sizeBits) - 1;
+    }
+
+    /**
+     * Empties the table, so that an analysis does not read the entries of the one before.
+     */
+    public void clear() {
+        Arrays.fill(entries, 0L);
+    }
+
+    /**
+     * Stores the result of searching a position.
+     *
+     * @param key The hash of the position.
+     * @param depth The depth searched, at least 0.
+     * @param score The score found.
+     * @param bound {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}.
+     * @param move The best move found, or {@link PackedMove#NONE}.
+     */
+    public void store(long key, int depth, int score, int bound, int move) {
+        int index = (int) key & mask;
+        if (keys[index] == key && entries[index] != 0 && depthOf(entries[index]) > depth) {
+            return; // Keep the deeper result of the same position
+        }
+        keys[index] = key;
+        entries[index] = (score & 0xFFFFFFFFL) | (long) (move + 1) << 32 | (long) Math.min(depth, 63) << 52
+                | (long) bound << 58 | 1L << 60;
+    }
+
+    /**
+     * Finds the entry of a position.
+     *
+     * @param key The hash of the position.
+     * @return The entry, to read with the static accessors, or 0 if the position is not in the table.
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        return keys[index] == key ? entries[index] : 0;
+    }
+
+    public static int scoreOf(long entry) {
+        return (int) entry;
+    }
+
+    public static int moveOf(long entry) {
+        return (int) (entry >>> 32 & 0xFFFFF) - 1;
+    }
+
+    public static int depthOf(long entry) {
+        return (int) (entry >>> 52 & 0x3F);
+    }
+
+    public static int boundOf(long entry) {
+        return (int) (entry >>> 58 & 0x3);
+    }
+}
@@ -1,12 +1,18 @@
 package uk.ac.standrews.variantchessgame.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 
 /**
  * Represents the chessboard in the variant chess game.
  * This class manages the state of the board, including the placement of pieces and the execution of moves.
+ * <p>
+ * The live board holds one mutable object per piece: rules, pieces and the search change capture counts, first-move
+ * and immobile flags and colors in place, and the public model hands those objects out. Positions that are only
+ * stored, such as snapshots, history and saved sessions, use the byte codes of {@link PieceCodec} instead.
+ * Pieces created by promotions the search tries are handed back with {@link #recyclePiece} and reused by
+ * {@link #promotePieceAt}, so searching allocates no pieces.
  */
 public class VariantChessBoard {
 
@@ -14,8 +20,24 @@ public class VariantChessBoard {
     private VariantChessPiece[][] board;
     // Initial state of the board
     private VariantChessPiece[][] initialBoard;
-    // Current state of the game
-    private GameState gameState;
+    // Back rank of the current game from column 0 to 7, e.g. "RNBQKBNR"
+    private String backRank;
+    // Number of pieces and of Kings of each color on the board, indexed by Color ordinal
+    private final int[] pieceCounts = new int[2];
+    private final int[] kingCounts = new int[2];
+    // Squares occupied by each color as bitboards, bit x * 8 + y, indexed by Color ordinal
+    private final long[] occupancy = new long[2];
+    private final long[] pawns = new long[2];
+    // Squares attacked by each color, updated with the occupancy
+    private final AttackMap attackMap = new AttackMap();
+    // Piece-square tables the placement scores are summed from, see EvalWeights, or null when not tracked
+    private int[][] placementTables;
+    private final int[] placementScores = new int[2];
+    // Hidden layer of the neural evaluation, see NeuralNetwork, or null when not tracked
+    private NeuralAccumulator neuralAccumulator;
+    // Promoted pieces no longer in play, reused by promotePieceAt, indexed by Zobrist type index
+    private final VariantChessPiece[][] sparePieces = new VariantChessPiece[Zobrist.PIECE_TYPES][4];
+    private final int[] spareCounts = new int[Zobrist.PIECE_TYPES];
 
     /**
      * Constructs a new VariantChessBoard with an initialized 8x8 grid.
@@ -27,6 +49,20 @@ public class VariantChessBoard {
         initializeBoard();
     }
 
+    /**
+     * Constructs a new VariantChessBoard without drawing a random layout or seed.
+     *
+     * @param backRank The back-rank layout to set up, see {@link #getBackRank()}, or {@code null} for an empty board,
+     *                 such as a scratch board a position is restored onto.
+     */
+    public VariantChessBoard(String backRank) {
+        board = new VariantChessPiece[8][8];
+        initialBoard = new VariantChessPiece[8][8];
+        if (backRank != null) {
+            initializeBoard(backRank);
+        }
+    }
+
     /**
      * Returns the 2D array representing the board.
      *
@@ -45,21 +81,50 @@ public class VariantChessBoard {
         return initialBoard;
     }
 
+    /**
+     * Returns the back-rank layout of the current game.
+     * Both players share the same layout; each character names the piece in one column, from column 0 to 7:
+     * R (Rook), N (Knight), B (Bishop), Q (Queen) and K (King).
+     *
+     * @return The back-rank layout, for example "RNBQKBNR".
+     */
+    public String getBackRank() {
+        return backRank;
+    }
+
     /**
      * Initializes the chessboard by placing major pieces, pawns, and cannons in their starting positions.
-     * Also sets up the game state and prints the initial board configuration.
+     * The Knights, Bishops, Queen and King are shuffled randomly between the Rooks.
      */
     public void initializeBoard() {
+        initializeBoard(GameRandom.withNewSeed());
+    }
+
+    /**
+     * Initializes the chessboard with a back-rank layout drawn from the random stream of a game.
+     *
+     * @param random The random stream of the game.
+     */
+    public void initializeBoard(GameRandom random) {
+        initializeBoard(randomBackRank(random));
+    }
+
+    /**
+     * Initializes the chessboard with a given back-rank layout, for example to rebuild a recorded game.
+     *
+     * @param backRank The back-rank layout, see {@link #getBackRank()}.
+     */
+    public void initializeBoard(String backRank) {
+        if (backRank == null || !backRank.matches("R[NBQK]{6}R")) {
+            throw new IllegalArgumentException("Invalid back rank: " + backRank);
+        }
         clearBoard();
+        this.backRank = backRank;
         placeMajorPiecesSymmetrically(0, Color.BLACK, 7, Color.WHITE);
         placePawnsAndCannons(1, Color.BLACK);
         placePawnsAndCannons(6, Color.WHITE);
-        gameState = new GameState(this);
-
+        recountPieces();
         saveInitialBoardState();
-
-        System.out.println("Board initialized to initial state:");
-        printBoard();
     }
 
     private void clearBoard() {
@@ -68,6 +133,7 @@ public class VariantChessBoard {
                 board[i][j] = null;
             }
         }
+        recountPieces();
     }
 
     /**
@@ -100,8 +166,8 @@ public class VariantChessBoard {
     }
 
     /**
-     * Places major pieces (Rooks, Knights, Bishops, Queen, King) on the board symmetrically for both black and white players.
-     * The placement is randomized for Knights, Bishops, and the Queen.
+     * Places major pieces (Rooks, Knights, Bishops, Queen, King) on the board symmetrically for both black and white players,
+     * following the back-rank layout of the current game.
      *
      * @param blackRow The row index for black pieces.
      * @param blackColor The color of the black pieces.
@@ -109,28 +175,57 @@ public class VariantChessBoard {
      * @param whiteColor The color of the white pieces.
      */
     private void placeMajorPiecesSymmetrically(int blackRow, Color blackColor, int whiteRow, Color whiteColor) {
-        board[blackRow][0] = new Rook(blackColor);
-        board[blackRow][7] = new Rook(blackColor);
-        board[whiteRow][0] = new Rook(whiteColor);
-        board[whiteRow][7] = new Rook(whiteColor);
+        for (int col = 0; col < 8; col++) {
+            board[blackRow][col] = createMajorPiece(backRank.charAt(col), blackColor);
+            board[whiteRow][col] = createMajorPiece(backRank.charAt(col), whiteColor);
+        }
+    }
 
-        Random rand = new Random();
+    /**
+     * Creates a random back-rank layout with the Rooks in the corners.
+     * The placement is randomized for Knights, Bishops, the Queen and the King.
+     *
+     * @param random The random stream of the game.
+     * @return The back-rank layout.
+     */
+    private String randomBackRank(GameRandom random) {
         int[] pieces = {1, 2, 3, 4, 5, 6};
-        shuffleArray(pieces, rand);
+        shuffleArray(pieces, random);
 
-        board[blackRow][pieces[0]] = new Knight(blackColor);
-        board[blackRow][pieces[1]] = new Knight(blackColor);
-        board[blackRow][pieces[2]] = new Bishop(blackColor);
-        board[blackRow][pieces[3]] = new Bishop(blackColor);
-        board[blackRow][pieces[4]] = new Queen(blackColor);
-        board[blackRow][pieces[5]] = new King(blackColor);
+        char[] rank = new char[8];
+        rank[0] = 'R';
+        rank[7] = 'R';
+        rank[pieces[0]] = 'N';
+        rank[pieces[1]] = 'N';
+        rank[pieces[2]] = 'B';
+        rank[pieces[3]] = 'B';
+        rank[pieces[4]] = 'Q';
+        rank[pieces[5]] = 'K';
+        return new String(rank);
+    }
 
-        board[whiteRow][pieces[0]] = new Knight(whiteColor);
-        board[whiteRow][pieces[1]] = new Knight(whiteColor);
-        board[whiteRow][pieces[2]] = new Bishop(whiteColor);
-        board[whiteRow][pieces[3]] = new Bishop(whiteColor);
-        board[whiteRow][pieces[4]] = new Queen(whiteColor);
-        board[whiteRow][pieces[5]] = new King(whiteColor);
+    /**
+     * Creates the major piece named by a back-rank character.
+     *
+     * @param symbol The piece symbol (R, N, B, Q or K).
+     * @param color The color of the piece.
+     * @return The new piece.
+     */
+    private VariantChessPiece createMajorPiece(char symbol, Color color) {
+        switch (symbol) {
+            case 'R':
+                return new Rook(color);
+            case 'N':
+                return new Knight(color);
+            case 'B':
+                return new Bishop(color);
+            case 'Q':
+                return new Queen(color);
+            case 'K':
+                return new King(color);
+            default:
+                throw new IllegalArgumentException("Invalid back-rank piece: " + symbol);
+        }
     }
 
     /**
@@ -155,11 +250,11 @@ public class VariantChessBoard {
      * Shuffles an array in place using the Fisher-Yates algorithm.
      *
      * @param array The array to be shuffled.
-     * @param rand The Random object used for generating random indices.
+     * @param random The random stream used for generating random indices.
      */
-    private void shuffleArray(int[] array, Random rand) {
+    private void shuffleArray(int[] array, GameRandom random) {
         for (int i = array.length - 1; i > 0; i--) {
-            int index = rand.nextInt(i + 1);
+            int index = random.nextInt(i + 1);
             int temp = array[index];
             array[index] = array[i];
             array[i] = temp;
@@ -189,7 +284,291 @@ public class VariantChessBoard {
      */
     public void setPieceAt(int x, int y, VariantChessPiece piece) {
         if (isInBounds(x, y)) {
+            count(board[x][y], x * 8 + y, -1);
             board[x][y] = piece;
+            count(piece, x * 8 + y, 1);
+            attackMap.squareChanged(this, x * 8 + y);
+        }
+    }
+
+    /**
+     * Changes the color of the piece on a square, keeping the piece counts up to date.
+     * A converted Pawn also turns to move in the direction of its new color.
+     *
+     * @param x The x-coordinate (row index) of the board.
+     * @param y The y-coordinate (column index) of the board.
+     * @param color The new color of the piece.
+     */
+    public void convertPieceAt(int x, int y, Color color) {
+        VariantChessPiece piece = getPieceAt(x, y);
+        if (piece == null) {
+            throw new IllegalArgumentException("No piece to convert at " + x + ", " + y);
+        }
+        count(piece, x * 8 + y, -1);
+        if (piece instanceof Pawn) {
+            ((Pawn) piece).updateDirection(color);
+        } else {
+            piece.setColor(color);
+        }
+        count(piece, x * 8 + y, 1);
+        attackMap.squareChanged(this, x * 8 + y);
+    }
+
+    /**
+     * Replaces the piece on a square with a piece promoted from a Pawn, of the same color and with the same
+     * capture count. A piece handed back with {@link #recyclePiece} is reused when one of the type is available.
+     *
+     * @param x The x-coordinate (row index) of the board.
+     * @param y The y-coordinate (column index) of the board.
+     * @param type The {@link Zobrist} type index of the new piece: Knight, Bishop, Rook, Queen or Cannon.
+     * @return The new piece.
+     */
+    public VariantChessPiece promotePieceAt(int x, int y, int type) {
+        VariantChessPiece piece = getPieceAt(x, y);
+        if (piece == null) {
+            throw new IllegalArgumentException("No piece to promote at " + x + ", " + y);
+        }
+        VariantChessPiece promoted;
+        if (spareCounts[type] > 0) {
+            promoted = sparePieces[type][--spareCounts[type]];
+            sparePieces[type][spareCounts[type]] = null;
+            promoted.setColor(piece.getColor());
+            promoted.setImmobile(false);
+        } else {
+            promoted = createPromotedPiece(type, piece.getColor());
+        }
+        promoted.setCaptureCount(piece.getCaptureCount());
+        promoted.setPromotedFromPawn(true);
+        setPieceAt(x, y, promoted);
+        return promoted;
+    }
+
+    private static VariantChessPiece createPromotedPiece(int type, Color color) {
+        switch (type) {
+            case Zobrist.KNIGHT:
+                return new Knight(color, true);
+            case Zobrist.BISHOP:
+                return new Bishop(color, true);
+            case Zobrist.ROOK:
+                return new Rook(color, true);
+            case Zobrist.QUEEN:
+                return new Queen(color, true);
+            case Zobrist.CANNON:
+                return new Cannon(color, true);
+            default:
+                throw new IllegalArgumentException("Invalid promotion type: " + type);
+        }
+    }
+
+    /**
+     * Hands back a piece created by {@link #promotePieceAt} that is no longer on the board or referenced anywhere,
+     * so that a later promotion reuses it. Other pieces are ignored.
+     *
+     * @param piece The piece.
+     */
+    public void recyclePiece(VariantChessPiece piece) {
+        int type = Zobrist.typeIndex(piece);
+        if (type < 0 || type == Zobrist.PAWN || type == Zobrist.KING || !piece.isPromotedFromPawn()) {
+            return;
+        }
+        if (spareCounts[type] == sparePieces[type].length) {
+            sparePieces[type] = Arrays.copyOf(sparePieces[type], spareCounts[type] * 2);
+        }
+        sparePieces[type][spareCounts[type]++] = piece;
+    }
+
+    /**
+     * Updates the attack map after the state of the piece on a square changed in place,
+     * for example when a Pawn has made its first move.
+     *
+     * @param x The x-coordinate (row index) of the board.
+     * @param y The y-coordinate (column index) of the board.
+     */
+    public void pieceChanged(int x, int y) {
+        if (isInBounds(x, y)) {
+            attackMap.squareChanged(this, x * 8 + y);
+        }
+    }
+
+    /**
+     * Gets the squares attacked by each color and the attackers of every square,
+     * kept up to date as pieces are placed, removed and converted.
+     *
+     * @return The attack map of this board.
+     */
+    public AttackMap getAttackMap() {
+        return attackMap;
+    }
+
+    /**
+     * Gets the number of pieces of a color on the board, kept up to date as pieces are placed and removed.
+     *
+     * @param color The color.
+     * @return The number of pieces of that color.
+     */
+    public int getPieceCount(Color color) {
+        return pieceCounts[color.ordinal()];
+    }
+
+    /**
+     * Checks whether a color has a King on the board.
+     *
+     * @param color The color.
+     * @return {@code true} if at least one King of that color is on the board.
+     */
+    public boolean hasKing(Color color) {
+        return kingCounts[color.ordinal()] > 0;
+    }
+
+    /**
+     * Checks whether each color has exactly one piece left and that piece is its King.
+     *
+     * @return {@code true} if only the two Kings remain.
+     */
+    public boolean isLoneKings() {
+        return pieceCounts[0] == 1 && pieceCounts[1] == 1 && kingCounts[0] == 1 && kingCounts[1] == 1;
+    }
+
+    /**
+     * Gets the squares occupied by the pieces of a color, kept up to date as pieces are placed and removed.
+     *
+     * @param color The color.
+     * @return A bitboard with bit {@code x * 8 + y} set for every square holding a piece of that color.
+     */
+    public long getOccupancy(Color color) {
+        return occupancy[color.ordinal()];
+    }
+
+    /**
+     * Gets the squares occupied by any piece.
+     *
+     * @return A bitboard with bit {@code x * 8 + y} set for every occupied square.
+     */
+    public long getOccupancy() {
+        return occupancy[0] | occupancy[1];
+    }
+
+    /**
+     * Gets the squares holding Pawns of a color, kept up to date like {@link #getOccupancy(Color)}.
+     * A Pawn converted to the other color counts for its new color.
+     *
+     * @param color The color.
+     * @return A bitboard of the Pawns of that color.
+     */
+    public long getPawns(Color color) {
+        return pawns[color.ordinal()];
+    }
+
+    /**
+     * Sets the piece-square tables whose values are summed for the pieces of each color as they are placed,
+     * removed and converted, see {@link #getPlacementScore(Color)}. Setting the tables already in use costs nothing,
+     * so searches can set the tables of their rule every time.
+     *
+     * @param tables The tables indexed by {@link Zobrist} type index and square as seen from White's side,
+     *               as returned by {@link EvalWeights#getTables(int)}, or {@code null} to stop tracking.
+     */
+    public void setPlacementTables(int[][] tables) {
+        if (tables == placementTables) {
+            return;
+        }
+        placementTables = tables;
+        placementScores[0] = placementScores[1] = 0;
+        for (long occupied = getOccupancy(); occupied != 0; occupied &= occupied - 1) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            place(board[square >> 3][square & 7], square, 1);
+        }
+    }
+
+    /**
+     * Gets the sum of the piece-square values of the pieces of a color, kept up to date like the piece counts.
+     *
+     * @param color The color.
+     * @return The placement score of that color, 0 if no tables are set.
+     */
+    public int getPlacementScore(Color color) {
+        return placementScores[color.ordinal()];
+    }
+
+    /**
+     * Sets the neural network whose hidden layer is accumulated for the pieces on the board as they are placed,
+     * removed and converted, see {@link #getNeuralAccumulator()}. Setting the network already in use costs nothing.
+     *
+     * @param network The network, or {@code null} to stop tracking.
+     */
+    public void setNeuralNetwork(NeuralNetwork network) {
+        if (network == null) {
+            neuralAccumulator = null;
+            return;
+        }
+        if (neuralAccumulator != null && neuralAccumulator.getNetwork() == network) {
+            return;
+        }
+        neuralAccumulator = new NeuralAccumulator(network);
+        for (long occupied = getOccupancy(); occupied != 0; occupied &= occupied - 1) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            neuralAccumulator.update(board[square >> 3][square & 7], square, 1);
+        }
+    }
+
+    /**
+     * Gets the hidden layer of the neural network set for this board, kept up to date like the piece counts.
+     *
+     * @return The accumulator, or {@code null} if no network is set.
+     */
+    public NeuralAccumulator getNeuralAccumulator() {
+        return neuralAccumulator;
+    }
+
+    /**
+     * Recounts the pieces of each color, the occupied squares and the attack map by scanning the board.
+     * Only needed after writing into the array returned by {@link #getBoard()} directly,
+     * which bypasses the counters maintained by {@link #setPieceAt}.
+     */
+    public void recountPieces() {
+        pieceCounts[0] = pieceCounts[1] = 0;
+        kingCounts[0] = kingCounts[1] = 0;
+        occupancy[0] = occupancy[1] = 0L;
+        pawns[0] = pawns[1] = 0L;
+        placementScores[0] = placementScores[1] = 0;
+        if (neuralAccumulator != null) {
+            neuralAccumulator.clear();
+        }
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                count(board[i][j], i * 8 + j, 1);
+            }
+        }
+        attackMap.rebuild(this);
+    }
+
+    private void count(VariantChessPiece piece, int square, int delta) {
+        if (piece != null) {
+            int color = piece.getColor().ordinal();
+            pieceCounts[color] += delta;
+            if (piece instanceof King) {
+                kingCounts[color] += delta;
+            }
+            if (delta > 0) {
+                occupancy[color] |= 1L << square;
+            } else {
+                occupancy[color] &= ~(1L << square);
+            }
+            if (piece instanceof Pawn) {
+                pawns[color] = delta > 0 ? pawns[color] | 1L << square : pawns[color] & ~(1L << square);
+            }
+            place(piece, square, delta);
+        }
+    }
+
+    private void place(VariantChessPiece piece, int square, int delta) {
+        if (placementTables != null) {
+            int type = Zobrist.typeIndex(piece);
+            if (type >= 0) {
+                placementScores[piece.getColor().ordinal()] += delta * placementTables[type][EvalWeights.tableSquare(piece.getColor(), square)];
+            }
+        }
+        if (neuralAccumulator != null) {
+            neuralAccumulator.update(piece, square, delta);
         }
     }
 
@@ -204,10 +583,19 @@ public class VariantChessBoard {
 
         setPieceAt(move.getEndX(), move.getEndY(), piece);
         setPieceAt(move.getStartX(), move.getStartY(), null);
+    }
 
-        System.out.println("Piece moved successfully.");
-        System.out.println("Current Board State:");
-        printBoard();
+    /**
+     * Moves a piece between two squares given by their index {@code x * 8 + y}, as used by {@link PackedMove}.
+     * Any piece on the end square is replaced.
+     *
+     * @param from The start square.
+     * @param to The end square.
+     */
+    public void movePiece(int from, int to) {
+        VariantChessPiece piece = board[from >> 3][from & 7];
+        setPieceAt(to >> 3, to & 7, piece);
+        setPieceAt(from >> 3, from & 7, null);
     }
 
 
@@ -12,6 +12,7 @@ public class VariantChessMove {
     private boolean isCapture; // Indicates if the move involves capturing an opponent's piece
     private VariantChessPiece capturedPiece; // The piece captured during this move
     private boolean wasFirstMove; // Store the first move status of the piece
+    private int promotionChoice; // Outcome of a random promotion: 0 = none yet, 1 = first option, 2 = second option
 
 
     /**
@@ -32,6 +33,27 @@ public class VariantChessMove {
         this.capturedPiece = null;
         this.wasFirstMove = false;
     }
+
+    /**
+     * Reuses this move for another pair of squares, clearing the capture, first-move and promotion information.
+     * Move generation checks candidate moves through one reused object instead of creating one per candidate.
+     *
+     * @param startX The row index of the starting position.
+     * @param startY The column index of the starting position.
+     * @param endX The row index of the ending position.
+     * @param endY The column index of the ending position.
+     */
+    public void reset(int startX, int startY, int endX, int endY) {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.isCapture = false;
+        this.capturedPiece = null;
+        this.wasFirstMove = false;
+        this.promotionChoice = 0;
+    }
+
     public boolean wasFirstMove() {
         return wasFirstMove;
     }
@@ -39,6 +61,26 @@ public class VariantChessMove {
     public void setWasFirstMove(boolean wasFirstMove) {
         this.wasFirstMove = wasFirstMove;
     }
+
+    /**
+     * Gets the recorded outcome of the random choice made when this move promoted a piece.
+     * Replaying a move with a recorded choice reproduces the same promotion.
+     *
+     * @return 0 if no choice has been made, 1 for the first option (Knight or Cannon), 2 for the second (Bishop or Rook).
+     */
+    public int getPromotionChoice() {
+        return promotionChoice;
+    }
+
+    /**
+     * Records the outcome of the random choice made when this move promoted a piece.
+     *
+     * @param promotionChoice 1 for the first option, 2 for the second option, or 0 to let the rule choose.
+     */
+    public void setPromotionChoice(int promotionChoice) {
+        this.promotionChoice = promotionChoice;
+    }
+
     public VariantChessPiece getCapturedPiece() {
         return capturedPiece;
     }
@@ -10,6 +10,7 @@ public abstract class VariantChessPiece {
     private int captureCount;         // The number of captures made by this piece
     private boolean promotedFromPawn; // Indicates if the piece was promoted from a pawn
     private boolean immobile;         // Indicates if the piece is immobile
+    private boolean shared;           // Indicates a read-only flyweight, see PieceCodec#flyweight
 
     /**
      * Constructs a new VariantChessPiece with the specified color and type.
@@ -57,7 +58,7 @@ public abstract class VariantChessPiece {
      * @param color The new color of the piece.
      */
     public void setColor(Color color) {
-        System.out.println("Setting color from " + this.color + " to " + color);
+        checkMutable();
         this.color = color;
     }
 
@@ -83,6 +84,7 @@ public abstract class VariantChessPiece {
      * Increments the capture count of the piece by 1.
      */
     public void incrementCaptureCount() {
+        checkMutable();
         captureCount++;
     }
 
@@ -101,6 +103,7 @@ public abstract class VariantChessPiece {
      * @param promotedFromPawn {@code true} if the piece was promoted from a pawn, {@code false} otherwise.
      */
     public void setPromotedFromPawn(boolean promotedFromPawn) {
+        checkMutable();
         this.promotedFromPawn = promotedFromPawn;
     }
 
@@ -119,6 +122,7 @@ public abstract class VariantChessPiece {
      * @param immobile {@code true} if the piece is to be marked as immobile, {@code false} otherwise.
      */
     public void setImmobile(boolean immobile) {
+        checkMutable();
         this.immobile = immobile;
     }
 
@@ -128,9 +132,28 @@ public abstract class VariantChessPiece {
      * @param captureCount The new capture count.
      */
     public void setCaptureCount(int captureCount) {
+        checkMutable();
         this.captureCount = captureCount;
     }
 
+    /**
+     * Marks the piece as a shared read-only instance; any later change is rejected.
+     */
+    void markShared() {
+        shared = true;
+    }
+
+    /**
+     * Rejects changes to a shared read-only instance, which would be seen by every position using it.
+     *
+     * @throws UnsupportedOperationException If the piece is shared.
+     */
+    protected void checkMutable() {
+        if (shared) {
+            throw new UnsupportedOperationException("Shared " + type + " instances cannot be modified");
+        }
+    }
+
     /**
      * Determines if a move is valid for this piece.
      * This method must be implemented by subclasses to define the specific move rules for each type of piece.
@@ -140,4 +163,60 @@ public abstract class VariantChessPiece {
      * @return {@code true} if the move is valid for this piece, {@code false} otherwise.
      */
     public abstract boolean isValidMove(VariantChessMove move, VariantChessBoard board);
+
+    /**
+     * Gets every square this piece can move to from a square, as a bitboard with bit {@code x * 8 + y} set
+     * for each destination (see {@link Attacks}). Pieces override this with table lookups;
+     * the default checks every square with {@link #isValidMove}.
+     *
+     * @param square The square of the piece, {@code x * 8 + y}.
+     * @param board The current state of the board.
+     * @return The squares the piece can move to, including captures.
+     */
+    public long getTargets(int square, VariantChessBoard board) {
+        long targets = 0L;
+        for (int to = 0; to < 64; to++) {
+            if (isValidMove(new VariantChessMove(square / 8, square % 8, to / 8, to % 8), board)) {
+                targets |= 1L << to;
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Gets the squares this piece attacks from a square: the squares on which it could capture an opponent's piece,
+     * whichever color occupies them now. Squares holding pieces of its own color are included, since the piece
+     * defends them. Used by the {@link AttackMap}; the default is the same as {@link #getTargets}.
+     *
+     * @param square The square of the piece, {@code x * 8 + y}.
+     * @param board The current state of the board.
+     * @return The attacked squares.
+     */
+    public long getAttacks(int square, VariantChessBoard board) {
+        return getTargets(square, board);
+    }
+
+    /**
+     * Checks a move against the squares returned by {@link #getTargets}, marking the move as a capture
+     * when the end square is occupied.
+     *
+     * @param move The move to validate.
+     * @param board The current state of the board.
+     * @return {@code true} if the end square is one of the targets of the piece.
+     */
+    protected boolean isTarget(VariantChessMove move, VariantChessBoard board) {
+        int endX = move.getEndX();
+        int endY = move.getEndY();
+        if (endX < 0 || endX >= 8 || endY < 0 || endY >= 8) {
+            return false;
+        }
+        long end = Attacks.bit(endX, endY);
+        if ((getTargets(move.getStartX() * 8 + move.getStartY(), board) & end) == 0) {
+            return false;
+        }
+        if ((board.getOccupancy() & end) != 0) {
+            move.setCapture(true);
+        }
+        return true;
+    }
 }
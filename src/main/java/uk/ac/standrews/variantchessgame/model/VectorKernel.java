@@ -0,0 +1,60 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link NeuralKernel} on the incubating JDK Vector API, processing as many values per instruction as the CPU allows.
+ * Only loaded by {@link NeuralKernel#select()} once the {@code jdk.incubator.vector} module is known to be resolved.
+ */
+final class VectorKernel implements NeuralKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(int[] accumulator, int[] weights, int offset) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(accumulator.length); i < bound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, accumulator, i)
+                    .add(IntVector.fromArray(SPECIES, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(int[] accumulator, int[] weights, int offset) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(accumulator.length); i < bound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, accumulator, i)
+                    .sub(IntVector.fromArray(SPECIES, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int clippedDot(int[] accumulator, int[] weights, int offset, int max) {
+        IntVector sums = IntVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(accumulator.length); i < bound; i += SPECIES.length()) {
+            IntVector values = IntVector.fromArray(SPECIES, accumulator, i).max(0).min(max);
+            sums = sums.add(values.mul(IntVector.fromArray(SPECIES, weights, offset + i)));
+        }
+        int sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < accumulator.length; i++) {
+            sum += Math.min(Math.max(accumulator[i], 0), max) * weights[offset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "vector " + SPECIES.vectorBitSize() + "-bit";
+    }
+}
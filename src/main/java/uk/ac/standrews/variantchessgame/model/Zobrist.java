@@ -0,0 +1,147 @@
+package uk.ac.standrews.variantchessgame.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing for variant chess positions.
+ * Every (piece type, color, square) combination and every piece flag that affects play
+ * (a pawn's first move, the capture count and the promoted-from-pawn marker) is assigned
+ * a random 64-bit key. The hash of a position is the XOR of the keys of everything on the board.
+ * The keys are generated from a fixed seed so that hashes are stable across restarts.
+ */
+public final class Zobrist {
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+    public static final int CANNON = 6;
+    public static final int PIECE_TYPES = 7;
+
+    private static final int MAX_HASHED_CAPTURES = 3; // Capture counts above this value play identically
+
+    private static final long[][][] PIECE_KEYS = new long[PIECE_TYPES][2][64];
+    private static final long[] FIRST_MOVE_KEYS = new long[64];
+    private static final long[] PROMOTED_KEYS = new long[64];
+    private static final long[][] CAPTURE_KEYS = new long[MAX_HASHED_CAPTURES + 1][64];
+    private static final long BLACK_TO_MOVE_KEY;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E55L);
+        for (int type = 0; type < PIECE_TYPES; type++) {
+            for (int color = 0; color < 2; color++) {
+                for (int square = 0; square < 64; square++) {
+                    PIECE_KEYS[type][color][square] = random.nextLong();
+                }
+            }
+        }
+        for (int square = 0; square < 64; square++) {
+            FIRST_MOVE_KEYS[square] = random.nextLong();
+            PROMOTED_KEYS[square] = random.nextLong();
+            for (int count = 1; count <= MAX_HASHED_CAPTURES; count++) {
+                CAPTURE_KEYS[count][square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the type index of a piece, as used by the hash tables.
+     *
+     * @param piece The piece to classify.
+     * @return The type index of the piece, or -1 if the piece type is unknown.
+     */
+    public static int typeIndex(VariantChessPiece piece) {
+        if (piece instanceof Pawn) return PAWN;
+        if (piece instanceof Knight) return KNIGHT;
+        if (piece instanceof Bishop) return BISHOP;
+        if (piece instanceof Rook) return ROOK;
+        if (piece instanceof Queen) return QUEEN;
+        if (piece instanceof King) return KING;
+        if (piece instanceof Cannon) return CANNON;
+        return -1;
+    }
+
+    /**
+     * Returns the hash contribution of a single piece standing on a square.
+     *
+     * @param piece The piece on the square, may be {@code null}.
+     * @param x The row index of the square.
+     * @param y The column index of the square.
+     * @return The XOR of all keys describing the piece on that square, or 0 for an empty square.
+     */
+    public static long pieceKey(VariantChessPiece piece, int x, int y) {
+        return codeKey(PieceCodec.encode(piece), x * 8 + y);
+    }
+
+    /**
+     * Returns the hash contribution of a piece code standing on a square, so that positions stored as
+     * {@link PieceCodec} codes hash the same as the board they were taken from.
+     *
+     * @param code The piece code, may be {@link PieceCodec#EMPTY}.
+     * @param square The square index (x * 8 + y).
+     * @return The XOR of all keys describing the piece on that square, or 0 for an empty square.
+     */
+    public static long codeKey(int code, int square) {
+        if (code == PieceCodec.EMPTY) {
+            return 0L;
+        }
+        long key = PIECE_KEYS[PieceCodec.typeOf(code)][PieceCodec.colorOf(code).ordinal()][square];
+        if (PieceCodec.isFirstMove(code)) {
+            key ^= FIRST_MOVE_KEYS[square];
+        }
+        if (PieceCodec.isPromoted(code)) {
+            key ^= PROMOTED_KEYS[square];
+        }
+        int captures = Math.min(PieceCodec.captureCountOf(code), MAX_HASHED_CAPTURES);
+        if (captures > 0) {
+            key ^= CAPTURE_KEYS[captures][square];
+        }
+        return key;
+    }
+
+    /**
+     * Computes the hash of the pieces on the board, independent of the side to move.
+     *
+     * @param board The board to hash.
+     * @return The Zobrist hash of the piece placement.
+     */
+    public static long hash(VariantChessBoard board) {
+        long hash = 0L;
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                VariantChessPiece piece = board.getPieceAt(i, j);
+                if (piece != null) {
+                    hash ^= pieceKey(piece, i, j);
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Computes the hash of the position including the side to move.
+     *
+     * @param board The board to hash.
+     * @param sideToMove The color of the player to move.
+     * @return The Zobrist hash of the position.
+     */
+    public static long hash(VariantChessBoard board, Color sideToMove) {
+        return hash(board) ^ sideKey(sideToMove);
+    }
+
+    /**
+     * Returns the key toggled when the side to move changes.
+     *
+     * @param sideToMove The color of the player to move.
+     * @return The side-to-move key, which is 0 for WHITE.
+     */
+    public static long sideKey(Color sideToMove) {
+        return sideToMove == Color.BLACK ? BLACK_TO_MOVE_KEY : 0L;
+    }
+}
@@ -0,0 +1,279 @@
+package uk.ac.standrews.variantchessgame.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads games from an archive written by {@link GameArchiveWriter}.
+ * <p>
+ * Games can be read one at a time with {@link #next()}, holding a single chunk in memory, or decoded
+ * in parallel with {@link #decodeParallel}, where chunks are inflated and parsed on worker threads
+ * while the calling thread keeps reading ahead a bounded number of chunks.
+ */
+public class GameArchiveReader implements AutoCloseable {
+
+    private final DataInputStream in;
+    private final Inflater inflater = new Inflater();
+    private byte[] chunk = new byte[0];
+    private final int[] cursor = new int[1]; // Offset of the next game in the chunk
+    private int gamesLeftInChunk;
+    private boolean ended;
+
+    /**
+     * Constructor for an archive reader.
+     *
+     * @param in The stream to read from; it is closed with the reader.
+     * @throws IOException If the stream does not start with an archive header.
+     */
+    public GameArchiveReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        if (this.in.readInt() != GameArchiveWriter.MAGIC) {
+            throw new IOException("Not a game archive");
+        }
+        short version = this.in.readShort();
+        if (version != GameArchiveWriter.VERSION) {
+            throw new IOException("Unsupported archive version: " + version);
+        }
+        this.in.readShort();
+    }
+
+    /**
+     * Reads the next game.
+     *
+     * @return The game, or {@code null} at the end of the archive.
+     * @throws IOException If the archive cannot be read or is corrupt.
+     */
+    public GameRecord next() throws IOException {
+        while (gamesLeftInChunk == 0) {
+            if (ended) {
+                return null;
+            }
+            Chunk next = readChunk();
+            if (next == null) {
+                ended = true;
+                return null;
+            }
+            chunk = next.inflate(inflater);
+            cursor[0] = 0;
+            gamesLeftInChunk = next.gameCount;
+        }
+        gamesLeftInChunk--;
+        return decodeGame(chunk, cursor);
+    }
+
+    /**
+     * Decodes every remaining game of the archive on a pool of worker threads.
+     * Each chunk is folded into its own accumulator on a worker thread and the accumulators are merged
+     * on the calling thread in archive order, so the accumulator does not need to be thread-safe.
+     * At most {@code 2 * parallelism} chunks are held in memory at once.
+     *
+     * @param parallelism The number of worker threads.
+     * @param accumulatorFactory Creates an empty accumulator.
+     * @param accumulate Adds a game to an accumulator.
+     * @param merge Combines two accumulators.
+     * @param <A> The type of the accumulator.
+     * @return The accumulator of all remaining games.
+     * @throws IOException If the archive cannot be read or is corrupt.
+     */
+    public <A> A decodeParallel(int parallelism, Supplier<A> accumulatorFactory,
+                                BiConsumer<A, GameRecord> accumulate, BinaryOperator<A> merge) throws IOException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "archive-decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            return decodeParallel(workers, 2 * parallelism, accumulatorFactory, accumulate, merge);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Decodes every remaining game of the archive on the given executor, as {@link #decodeParallel(int, Supplier, BiConsumer, BinaryOperator)}.
+     * The executor is left running.
+     *
+     * @param executor The executor running one task per chunk, for example a {@code ForkJoinPool}.
+     * @param maxChunksInFlight The number of chunks read ahead before the calling thread waits for the oldest.
+     * @param accumulatorFactory Creates an empty accumulator.
+     * @param accumulate Adds a game to an accumulator.
+     * @param merge Combines two accumulators.
+     * @param <A> The type of the accumulator.
+     * @return The accumulator of all remaining games.
+     * @throws IOException If the archive cannot be read or is corrupt.
+     */
+    public <A> A decodeParallel(ExecutorService executor, int maxChunksInFlight, Supplier<A> accumulatorFactory,
+                                BiConsumer<A, GameRecord> accumulate, BinaryOperator<A> merge) throws IOException {
+        if (maxChunksInFlight <= 0) {
+            throw new IllegalArgumentException("Chunks in flight must be positive: " + maxChunksInFlight);
+        }
+        A total = accumulatorFactory.get();
+        GameRecord game;
+        while (gamesLeftInChunk > 0 && (game = next()) != null) {
+            accumulate.accept(total, game); // Finish the chunk already being read sequentially
+        }
+        Deque<Future<A>> pending = new ArrayDeque<>();
+        try {
+            Chunk next;
+            while (!ended && (next = readChunk()) != null) {
+                Chunk work = next;
+                pending.add(executor.submit(() -> work.decode(accumulatorFactory.get(), accumulate)));
+                if (pending.size() >= maxChunksInFlight) {
+                    total = merge.apply(total, await(pending.poll()));
+                }
+            }
+            ended = true;
+            while (!pending.isEmpty()) {
+                total = merge.apply(total, await(pending.poll()));
+            }
+            return total;
+        } finally {
+            for (Future<A> future : pending) {
+                future.cancel(true); // Only left over when a chunk failed
+            }
+        }
+    }
+
+    private static <A> A await(Future<A> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decoding the archive", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to decode a chunk", e.getCause());
+        }
+    }
+
+    /**
+     * Reads the next compressed chunk.
+     *
+     * @return The chunk, or {@code null} at the end marker.
+     */
+    private Chunk readChunk() throws IOException {
+        try {
+            int gameCount = in.readInt();
+            int rawLength = in.readInt();
+            int compressedLength = in.readInt();
+            if (gameCount == 0) {
+                return null;
+            }
+            if (gameCount < 0 || rawLength < 0 || compressedLength < 0) {
+                throw new IOException("Corrupt chunk header");
+            }
+            byte[] compressed = new byte[compressedLength];
+            in.readFully(compressed);
+            return new Chunk(gameCount, rawLength, compressed);
+        } catch (EOFException e) {
+            throw new IOException("Archive is truncated", e);
+        }
+    }
+
+    /**
+     * Decodes the game at the offset held in {@code cursor[0]} of an inflated chunk
+     * and advances the cursor to the following game.
+     */
+    private static GameRecord decodeGame(byte[] data, int[] cursor) throws IOException {
+        try {
+            int offset = cursor[0];
+            int layout = (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+            int ruleAndResult = data[offset + 2] & 0xFF;
+            offset += 3;
+            int plyCount = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = data[offset++] & 0xFF;
+                plyCount |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            int[] plies = new int[plyCount];
+            for (int i = 0; i < plyCount; i++) {
+                plies[i] = (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+                offset += 2;
+            }
+            GameRecord game = new GameRecord(GameRecord.layoutOf(layout), ruleAndResult & 0x0F, ruleAndResult >>> 4, plies);
+            cursor[0] = offset;
+            return game;
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt game in archive", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    /**
+     * A chunk as stored in the archive, before inflation.
+     */
+    private static final class Chunk {
+        private final int gameCount;
+        private final int rawLength;
+        private final byte[] compressed;
+
+        private Chunk(int gameCount, int rawLength, byte[] compressed) {
+            this.gameCount = gameCount;
+            this.rawLength = rawLength;
+            this.compressed = compressed;
+        }
+
+        private byte[] inflate(Inflater inflater) throws IOException {
+            byte[] raw = new byte[rawLength];
+            inflater.reset();
+            inflater.setInput(compressed);
+            try {
+                int length = 0;
+                while (length < rawLength && !inflater.finished()) {
+                    int inflated = inflater.inflate(raw, length, rawLength - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += inflated;
+                }
+                if (length != rawLength) {
+                    throw new IOException("Corrupt chunk: expected " + rawLength + " bytes but inflated " + length);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt chunk", e);
+            }
+            return raw;
+        }
+
+        private <A> A decode(A accumulator, BiConsumer<A, GameRecord> accumulate) throws IOException {
+            Inflater inflater = new Inflater();
+            try {
+                byte[] raw = inflate(inflater);
+                int[] cursor = new int[1];
+                for (int i = 0; i < gameCount; i++) {
+                    accumulate.accept(accumulator, decodeGame(raw, cursor));
+                }
+                return accumulator;
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+}
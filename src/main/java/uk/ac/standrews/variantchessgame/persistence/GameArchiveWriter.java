@@ -0,0 +1,142 @@
+package uk.ac.standrews.variantchessgame.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes games to a compact binary archive, one chunk at a time.
+ * <p>
+ * The archive starts with a magic number and version, followed by chunks and a terminating empty chunk.
+ * A chunk is a header (game count, raw length, compressed length) and a deflate-compressed block of games,
+ * so chunks can be decoded independently and in parallel by {@link GameArchiveReader}.
+ * Each game is stored as two bytes of layout, one byte of rule and result, the ply count as a varint and
+ * two bytes per ply in the {@link GameRecord} ply format. Only the chunk being filled is held in memory.
+ */
+public class GameArchiveWriter implements AutoCloseable {
+
+    static final int MAGIC = 0x56434741; // "VCGA"
+    static final short VERSION = 1;
+
+    private static final int DEFAULT_GAMES_PER_CHUNK = 1024;
+    private static final int MAX_CHUNK_BYTES = 1 << 20;
+
+    private final DataOutputStream out;
+    private final int gamesPerChunk;
+    private final ByteArrayOutputStream chunk = new ByteArrayOutputStream(1 << 16);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[1 << 16];
+    private int gamesInChunk;
+    private long gameCount;
+
+    /**
+     * Constructor for an archive writer with the default chunk size.
+     *
+     * @param out The stream to write to; it is closed with the writer.
+     * @throws IOException If the header cannot be written.
+     */
+    public GameArchiveWriter(OutputStream out) throws IOException {
+        this(out, DEFAULT_GAMES_PER_CHUNK);
+    }
+
+    /**
+     * Constructor for an archive writer.
+     * Larger chunks compress better; smaller chunks give parallel readers more units of work.
+     *
+     * @param out The stream to write to; it is closed with the writer.
+     * @param gamesPerChunk The maximum number of games in a chunk.
+     * @throws IOException If the header cannot be written.
+     */
+    public GameArchiveWriter(OutputStream out, int gamesPerChunk) throws IOException {
+        if (gamesPerChunk <= 0) {
+            throw new IllegalArgumentException("Games per chunk must be positive: " + gamesPerChunk);
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.gamesPerChunk = gamesPerChunk;
+        this.out.writeInt(MAGIC);
+        this.out.writeShort(VERSION);
+        this.out.writeShort(0);
+    }
+
+    /**
+     * Appends a game to the archive.
+     *
+     * @param game The game.
+     * @throws IOException If a full chunk cannot be written.
+     */
+    public void write(GameRecord game) throws IOException {
+        int layout = GameRecord.layoutCode(game.getBackRank());
+        chunk.write(layout);
+        chunk.write(layout >>> 8);
+        chunk.write(game.getRuleId() | game.getResult() << 4);
+        int plies = game.getPlyCount();
+        while (plies >= 0x80) {
+            chunk.write(plies & 0x7F | 0x80);
+            plies >>>= 7;
+        }
+        chunk.write(plies);
+        for (int i = 0; i < game.getPlyCount(); i++) {
+            int ply = game.getPly(i);
+            chunk.write(ply);
+            chunk.write(ply >>> 8);
+        }
+        gamesInChunk++;
+        gameCount++;
+        if (gamesInChunk == gamesPerChunk || chunk.size() >= MAX_CHUNK_BYTES) {
+            flushChunk();
+        }
+    }
+
+    /**
+     * Gets the number of games written so far.
+     *
+     * @return The game count.
+     */
+    public long getGameCount() {
+        return gameCount;
+    }
+
+    private void flushChunk() throws IOException {
+        if (gamesInChunk == 0) {
+            return;
+        }
+        byte[] raw = chunk.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        out.writeInt(gamesInChunk);
+        out.writeInt(raw.length);
+        out.writeInt(length);
+        out.write(compressed, 0, length);
+        chunk.reset();
+        gamesInChunk = 0;
+    }
+
+    /**
+     * Writes the last chunk and the end marker, and closes the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushChunk();
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+}
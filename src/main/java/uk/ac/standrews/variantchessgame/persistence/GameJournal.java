@@ -0,0 +1,555 @@
+package uk.ac.standrews.variantchessgame.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only journal of game events, written through memory-mapped segments of a single file.
+ * <p>
+ * Callers only enqueue fixed-size records; a background writer drains the queue in batches,
+ * copies each batch into the mapped file and forces it to disk once per batch (group commit),
+ * so journaling never blocks a request on I/O. On startup the journal is scanned once to rebuild
+ * the games still in play. A record whose type byte is zero marks the end of the journal.
+ * <p>
+ * Finished and abandoned games are only dropped from the file by {@link #compact()}, which the game
+ * calls when it saves its session on shutdown, so the journal replayed on the next startup only holds
+ * the games that may be resumed.
+ * <p>
+ * If the file cannot be written, the writer stops and keeps the error: from then on {@link #flush()}
+ * and {@link #close()} throw it and appending a record throws an {@link UncheckedIOException},
+ * instead of waiting for a writer that is gone.
+ * <p>
+ * Record layout (24 bytes): type (1), flags (1), reserved (2), value (4), game id (8), payload (8).
+ */
+public class GameJournal implements AutoCloseable {
+
+    static final int RECORD_SIZE = 24;
+
+    private static final byte GAME_START = 1; // value = rule id, payload = back rank in ASCII
+    private static final byte PLY = 2;        // value = ply index, payload = packed move, flags = full-move start
+    private static final byte NAVIGATE = 3;   // value = number of plies applied after undo, redo or a jump
+    private static final byte GAME_END = 4;   // value = result code
+    private static final byte GAME_SEED = 5;  // payload = seed of the random stream of the game
+    private static final byte RANDOM_DRAWS = 6; // payload = number of decisions drawn from the stream of the game
+    private static final byte GAME_ABANDONED = 7; // The game was replaced by a new game before it ended
+    private static final byte LAST_GAME_ID = 8; // Written by compaction: the game id is the highest one allocated
+    private static final byte DIFFICULTY = 9; // value = index of the difficulty preset, -1 for the fixed-depth search
+
+    private static final int SEGMENT_RECORDS = 1 << 19; // 12 MB segments
+    private static final int MAX_BATCH = 4096;
+
+    private final Path file; // The journal file, or null when opened on a channel
+    private volatile FileChannel channel; // Replaced by compaction
+    private final long segmentSize; // A whole number of records
+    private final Map<Long, RecoveredGame> recoveredGames;
+    private final BlockingQueue<Record> queue;
+    private final long commitIntervalMillis;
+    private final Thread writer;
+
+    // Guarded by writeLock: the writer holds it while writing a batch, compaction while rewriting the file
+    private final Object writeLock = new Object();
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long writePosition;
+    private final Set<Long> liveGames = new HashSet<>(); // Games started and neither finished nor abandoned
+    private long nextGameId;
+
+    private final Object progressLock = new Object();
+    private long enqueued;       // Guarded by progressLock
+    private long written;        // Guarded by progressLock
+    private long recordCount;    // Records in the file, guarded by progressLock
+    private volatile boolean closed;
+    private volatile IOException failure; // Why the writer stopped, or null while it runs
+
+    /**
+     * Opens the journal in a directory, replays it and starts the background writer.
+     *
+     * @param directory The directory holding the journal file; created if missing.
+     * @param commitIntervalMillis The longest time a record waits for other records to share its disk flush.
+     * @throws IOException If the journal cannot be opened or read.
+     */
+    public GameJournal(Path directory, long commitIntervalMillis) throws IOException {
+        this(directory.resolve("games.journal"), open(directory), SEGMENT_RECORDS, commitIntervalMillis);
+    }
+
+    /**
+     * Opens the journal on a file channel, replays it and starts the background writer.
+     * A journal opened this way cannot be compacted, since its file cannot be replaced.
+     *
+     * @param channel The journal file, open for reading and writing; closed with the journal.
+     * @param segmentRecords The number of records mapped into memory at a time.
+     * @param commitIntervalMillis The longest time a record waits for other records to share its disk flush.
+     * @throws IOException If the journal cannot be read.
+     */
+    public GameJournal(FileChannel channel, int segmentRecords, long commitIntervalMillis) throws IOException {
+        this(null, channel, segmentRecords, commitIntervalMillis);
+    }
+
+    private GameJournal(Path file, FileChannel channel, int segmentRecords, long commitIntervalMillis) throws IOException {
+        if (segmentRecords <= 0) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentRecords);
+        }
+        this.file = file;
+        this.channel = channel;
+        this.segmentSize = (long) RECORD_SIZE * segmentRecords;
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.queue = new LinkedBlockingQueue<>(1 << 16);
+        this.recoveredGames = replay();
+        this.liveGames.addAll(recoveredGames.keySet());
+        this.recordCount = writePosition / RECORD_SIZE;
+        mapSegment(writePosition - writePosition % segmentSize);
+        this.writer = new Thread(this::writeLoop, "game-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private static FileChannel open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return FileChannel.open(directory.resolve("games.journal"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Returns the games found in the journal when it was opened that had neither finished nor been abandoned,
+     * in the order the games started.
+     *
+     * @return The recovered games keyed by game id.
+     */
+    public Map<Long, RecoveredGame> getRecoveredGames() {
+        return recoveredGames;
+    }
+
+    /**
+     * Returns the most recently started game that had not finished when the journal was opened.
+     *
+     * @return The game, or {@code null} if there is none.
+     */
+    public RecoveredGame getLatestUnfinishedGame() {
+        RecoveredGame latest = null;
+        for (RecoveredGame game : recoveredGames.values()) {
+            latest = game;
+        }
+        return latest;
+    }
+
+    /**
+     * Allocates an identifier for a new game, larger than any identifier in the journal.
+     *
+     * @return The new game id.
+     */
+    public synchronized long nextGameId() {
+        return nextGameId++;
+    }
+
+    /**
+     * Records the start of a game.
+     *
+     * @param gameId The game id.
+     * @param ruleId The id of the selected rule.
+     * @param backRank The back-rank layout of the game.
+     */
+    public void gameStarted(long gameId, int ruleId, String backRank) {
+        long payload = 0L;
+        byte[] ascii = backRank.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < 8; i++) {
+            payload |= (ascii[i] & 0xFFL) << (8 * i);
+        }
+        append(new Record(GAME_START, (byte) 0, ruleId, gameId, payload));
+    }
+
+    /**
+     * Records the seed every random decision of a game was drawn from, so that the game can be played again.
+     *
+     * @param gameId The game id.
+     * @param seed The seed of the random stream of the game.
+     */
+    public void gameSeeded(long gameId, long seed) {
+        append(new Record(GAME_SEED, (byte) 0, 0, gameId, seed));
+    }
+
+    /**
+     * Records how many decisions a game has drawn from its random stream, so that a recovered game
+     * continues the stream where it stopped instead of from its seed.
+     *
+     * @param gameId The game id.
+     * @param draws The number of decisions drawn, see {@link uk.ac.standrews.variantchessgame.model.GameRandom#getDraws()}.
+     */
+    public void randomDrawn(long gameId, long draws) {
+        append(new Record(RANDOM_DRAWS, (byte) 0, 0, gameId, draws));
+    }
+
+    /**
+     * Records the difficulty the AI of a game plays at from now on.
+     *
+     * @param gameId The game id.
+     * @param difficultyIndex The index of the difficulty, see
+     *                        {@link uk.ac.standrews.variantchessgame.model.DifficultyProfile#presetIndex}.
+     */
+    public void difficultySet(long gameId, int difficultyIndex) {
+        append(new Record(DIFFICULTY, (byte) 0, difficultyIndex, gameId, 0L));
+    }
+
+    /**
+     * Records a ply of a game.
+     *
+     * @param gameId The game id.
+     * @param ply The index of the ply.
+     * @param packedMove The packed move.
+     * @param fullMoveStart Whether the ply starts a full move.
+     */
+    public void plyPlayed(long gameId, int ply, int packedMove, boolean fullMoveStart) {
+        append(new Record(PLY, (byte) (fullMoveStart ? 1 : 0), ply, gameId, packedMove));
+    }
+
+    /**
+     * Records that the board of a game now shows a different ply, after undo, redo or a jump.
+     *
+     * @param gameId The game id.
+     * @param currentPly The number of plies applied.
+     */
+    public void navigated(long gameId, int currentPly) {
+        append(new Record(NAVIGATE, (byte) 0, currentPly, gameId, 0L));
+    }
+
+    /**
+     * Records the end of a game.
+     *
+     * @param gameId The game id.
+     * @param resultCode A code describing the result.
+     */
+    public void gameEnded(long gameId, int resultCode) {
+        append(new Record(GAME_END, (byte) 0, resultCode, gameId, 0L));
+    }
+
+    /**
+     * Records that a game was replaced by a new game before it ended, so that it is never resumed.
+     *
+     * @param gameId The game id.
+     */
+    public void gameAbandoned(long gameId) {
+        append(new Record(GAME_ABANDONED, (byte) 0, 0, gameId, 0L));
+    }
+
+    /**
+     * Waits until every record enqueued so far has been written and forced to disk.
+     *
+     * @throws IOException If the writer has stopped because the file could not be written.
+     * @throws InterruptedException If the wait is interrupted.
+     */
+    public void flush() throws IOException, InterruptedException {
+        synchronized (progressLock) {
+            long target = enqueued;
+            while (written < target && !closed && failure == null) {
+                progressLock.wait();
+            }
+        }
+        if (failure != null) {
+            throw new IOException("Game journal writer failed", failure);
+        }
+    }
+
+    /**
+     * Gets the number of records in the journal file: those found when it was opened or kept by the last
+     * compaction, plus those written since.
+     * Together with {@link #flush()} this identifies how far the journal had got at a given moment.
+     *
+     * @return The number of records written.
+     */
+    public long getRecordCount() {
+        synchronized (progressLock) {
+            return recordCount;
+        }
+    }
+
+    /**
+     * Rewrites the journal file with only the records of the games still in play, dropping finished and
+     * abandoned games. Records appended before the call are compacted and later ones follow in the new file.
+     * The new file replaces the old one with an atomic move, so a crash leaves one or the other.
+     *
+     * @throws IOException If the file cannot be rewritten or the writer has stopped.
+     * @throws InterruptedException If waiting for the records appended so far is interrupted.
+     * @throws IllegalStateException If the journal was opened on a channel.
+     */
+    public void compact() throws IOException, InterruptedException {
+        if (file == null) {
+            throw new IllegalStateException("A journal opened on a channel cannot be compacted");
+        }
+        flush();
+        synchronized (writeLock) {
+            segment.force();
+            Path temporary = file.resolveSibling(file.getFileName() + ".compact");
+            long kept = 0;
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * MAX_BATCH);
+                for (long start = 0; start < writePosition; start += segmentSize) {
+                    MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                            Math.min(segmentSize, writePosition - start));
+                    for (int offset = 0; offset < records.limit(); offset += RECORD_SIZE) {
+                        if (liveGames.contains(records.getLong(offset + 8))) {
+                            drainIfFull(out, buffer);
+                            buffer.put(records.slice(offset, RECORD_SIZE));
+                            kept++;
+                        }
+                    }
+                }
+                long lastGameId;
+                synchronized (this) {
+                    lastGameId = nextGameId - 1;
+                }
+                if (lastGameId >= 0) { // Keeps later game ids above those of the dropped games
+                    drainIfFull(out, buffer);
+                    buffer.put(LAST_GAME_ID).put((byte) 0).putShort((short) 0).putInt(0).putLong(lastGameId).putLong(0L);
+                    kept++;
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            } catch (IOException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel.close();
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                writePosition = kept * RECORD_SIZE;
+                mapSegment(writePosition - writePosition % segmentSize);
+            } catch (IOException e) {
+                fail(e); // The file in use is gone
+                throw e;
+            }
+            synchronized (progressLock) {
+                recordCount = kept;
+            }
+        }
+    }
+
+    private static void drainIfFull(FileChannel out, ByteBuffer buffer) throws IOException {
+        if (buffer.hasRemaining()) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the remaining records and stops the background writer.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closed = true;
+            writer.interrupt();
+            try {
+                writer.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    private void append(Record record) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        checkWriter();
+        synchronized (progressLock) {
+            enqueued++;
+        }
+        boolean queued = false;
+        try {
+            // Only waits if the writer has fallen a full queue behind, and gives up if the writer has stopped
+            while (!(queued = queue.offer(record, 100, TimeUnit.MILLISECONDS))) {
+                checkWriter();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!queued) {
+                synchronized (progressLock) {
+                    enqueued--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Throws the error that stopped the writer, if any.
+     */
+    private void checkWriter() {
+        IOException cause = failure;
+        if (cause != null) {
+            throw new UncheckedIOException("Game journal writer failed", cause);
+        }
+    }
+
+    /**
+     * Stops the writer after the file could not be written and wakes every thread waiting for it.
+     */
+    private void fail(IOException cause) {
+        synchronized (progressLock) {
+            failure = cause;
+            progressLock.notifyAll();
+        }
+        System.err.println("Game journal writer stopped: " + cause.getMessage());
+    }
+
+    private void writeLoop() {
+        List<Record> batch = new ArrayList<>(MAX_BATCH);
+        while (!closed) {
+            try {
+                Record first = queue.poll(commitIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                synchronized (writeLock) {
+                    for (Record record : batch) {
+                        write(record);
+                    }
+                    segment.force();
+                }
+                synchronized (progressLock) {
+                    written += batch.size();
+                    recordCount += batch.size();
+                    progressLock.notifyAll();
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Interrupted by close(); the loop condition ends the thread
+            } catch (IOException e) {
+                fail(e);
+                return;
+            } catch (UncheckedIOException e) {
+                fail(e.getCause()); // Forcing a mapped segment to disk reports errors unchecked
+                return;
+            }
+        }
+    }
+
+    private void write(Record record) throws IOException {
+        if (writePosition - segmentStart >= segmentSize) {
+            segment.force();
+            mapSegment(segmentStart + segmentSize);
+        }
+        int offset = (int) (writePosition - segmentStart);
+        segment.put(offset + 1, record.flags);
+        segment.putInt(offset + 4, record.value);
+        segment.putLong(offset + 8, record.gameId);
+        segment.putLong(offset + 16, record.payload);
+        segment.put(offset, record.type); // The type byte goes last so a torn record reads as the end
+        writePosition += RECORD_SIZE;
+        if (record.type == GAME_START) {
+            liveGames.add(record.gameId);
+        } else if (record.type == GAME_END || record.type == GAME_ABANDONED) {
+            liveGames.remove(record.gameId);
+        }
+    }
+
+    private void mapSegment(long start) throws IOException {
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, start, segmentSize);
+        segmentStart = start;
+    }
+
+    /**
+     * Scans the journal from the start, rebuilding the games still in play and finding the end of the written records.
+     * A game is dropped as soon as it finishes or is abandoned, so the scan only holds the games in play at any point.
+     */
+    private Map<Long, RecoveredGame> replay() throws IOException {
+        Map<Long, RecoveredGame> games = new LinkedHashMap<>();
+        long fileSize = channel.size();
+        long position = 0;
+        scan:
+        for (long start = 0; start < fileSize; start += segmentSize) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, fileSize - start));
+            for (int offset = 0; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+                byte type = buffer.get(offset);
+                if (type == 0) {
+                    break scan;
+                }
+                long gameId = buffer.getLong(offset + 8);
+                int value = buffer.getInt(offset + 4);
+                nextGameId = Math.max(nextGameId, gameId + 1);
+                if (type == GAME_START) {
+                    games.put(gameId, new RecoveredGame(gameId, value, decodeBackRank(buffer.getLong(offset + 16))));
+                } else {
+                    RecoveredGame game = games.get(gameId);
+                    if (game != null) {
+                        if (type == PLY) {
+                            game.setPly(value, (int) buffer.getLong(offset + 16), buffer.get(offset + 1) != 0);
+                        } else if (type == NAVIGATE) {
+                            game.setCurrentPly(value);
+                        } else if (type == GAME_END || type == GAME_ABANDONED) {
+                            games.remove(gameId);
+                        } else if (type == GAME_SEED) {
+                            game.setSeed(buffer.getLong(offset + 16));
+                        } else if (type == RANDOM_DRAWS) {
+                            game.setDraws(buffer.getLong(offset + 16));
+                        } else if (type == DIFFICULTY) {
+                            game.setDifficultyIndex(value);
+                        }
+                    }
+                }
+                position += RECORD_SIZE;
+            }
+        }
+        writePosition = position;
+        return games;
+    }
+
+    private static String decodeBackRank(long payload) {
+        byte[] ascii = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            ascii[i] = (byte) (payload >>> (8 * i));
+        }
+        return new String(ascii, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A record waiting to be written.
+     */
+    private static final class Record {
+        private final byte type;
+        private final byte flags;
+        private final int value;
+        private final long gameId;
+        private final long payload;
+
+        private Record(byte type, byte flags, int value, long gameId, long payload) {
+            this.type = type;
+            this.flags = flags;
+            this.value = value;
+            this.gameId = gameId;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package uk.ac.standrews.variantchessgame.persistence;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Text notation for games of this variant, modelled on PGN.
+ * <p>
+ * A game is written as three tag lines followed by the move text and a blank line:
+ * <pre>
+ * [Layout "RNBQKBNR"]
+ * [Rule "PawnPromotionRule"]
+ * [Result "1-0"]
+ *
+ * 1. d2-d4 e7-e5 2. d4xe5=1 d8xe5 1-0
+ * </pre>
+ * Squares use files a-h for columns 0-7 and ranks 8-1 for rows 0-7, so white starts on ranks 1 and 2.
+ * A move is the start square, {@code -} or {@code x} for a capture, and the end square. A suffix
+ * {@code =1} or {@code =2} records the outcome of a random promotion: 1 for Knight or Cannon,
+ * 2 for Bishop or Rook. The move text ends with the result: {@code 1-0}, {@code 0-1}, {@code 1/2-1/2} or {@code *}.
+ */
+public final class GameNotation {
+
+    private static final List<String> RULE_NAMES = Arrays.asList("CannonSpecialRule", "KingQueenSpecialRule", "PawnPromotionRule");
+    private static final List<String> RESULTS = Arrays.asList("*", "1-0", "0-1", "1/2-1/2");
+
+    private GameNotation() {
+    }
+
+    /**
+     * Gets the name of a rule as written in the Rule tag.
+     *
+     * @param ruleId The id of the rule.
+     * @return The name of the rule.
+     */
+    public static String ruleName(int ruleId) {
+        return RULE_NAMES.get(ruleId);
+    }
+
+    /**
+     * Gets the result as written at the end of the move text.
+     *
+     * @param result One of the {@code GameRecord.RESULT_} constants.
+     * @return The result token.
+     */
+    public static String resultName(int result) {
+        return RESULTS.get(result);
+    }
+
+    /**
+     * Formats a game in the notation, ending with a blank line.
+     *
+     * @param game The game.
+     * @return The notation of the game.
+     */
+    public static String format(GameRecord game) {
+        StringBuilder text = new StringBuilder(64 + game.getPlyCount() * 8);
+        text.append("[Layout \"").append(game.getBackRank()).append("\"]\n");
+        text.append("[Rule \"").append(RULE_NAMES.get(game.getRuleId())).append("\"]\n");
+        text.append("[Result \"").append(RESULTS.get(game.getResult())).append("\"]\n\n");
+        for (int i = 0; i < game.getPlyCount(); i++) {
+            if (i % 2 == 0) {
+                text.append(i / 2 + 1).append(". ");
+            }
+            appendPly(text, game.getPly(i));
+            text.append(' ');
+        }
+        return text.append(RESULTS.get(game.getResult())).append("\n\n").toString();
+    }
+
+    /**
+     * Formats a single ply, for example {@code d4xe5=2}.
+     *
+     * @param ply The ply in the {@link GameRecord} format.
+     * @return The notation of the ply.
+     */
+    public static String formatPly(int ply) {
+        StringBuilder text = new StringBuilder(7);
+        appendPly(text, ply);
+        return text.toString();
+    }
+
+    private static void appendPly(StringBuilder text, int ply) {
+        appendSquare(text, ply & 63);
+        text.append((ply & GameRecord.CAPTURE_FLAG) != 0 ? 'x' : '-');
+        appendSquare(text, (ply >>> 6) & 63);
+        int promotion = (ply >>> GameRecord.PROMOTION_SHIFT) & 3;
+        if (promotion != 0) {
+            text.append('=').append(promotion);
+        }
+    }
+
+    /**
+     * Writes a game in the notation.
+     *
+     * @param out The writer.
+     * @param game The game.
+     * @throws IOException If writing fails.
+     */
+    public static void write(Writer out, GameRecord game) throws IOException {
+        out.write(format(game));
+    }
+
+    /**
+     * Parses a single game.
+     *
+     * @param text The notation of the game.
+     * @return The game.
+     * @throws IllegalArgumentException If the text is not valid notation.
+     */
+    public static GameRecord parse(String text) {
+        try (Parser parser = new Parser(new StringReader(text))) {
+            GameRecord game = parser.next();
+            if (game == null) {
+                throw new IllegalArgumentException("No game found");
+            }
+            return game;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Opens a streaming parser over text holding any number of games.
+     *
+     * @param in The reader; it is buffered by the parser.
+     * @return The parser.
+     */
+    public static Parser parser(Reader in) {
+        return new Parser(in);
+    }
+
+    private static void appendSquare(StringBuilder text, int square) {
+        text.append((char) ('a' + square % 8)).append((char) ('8' - square / 8));
+    }
+
+    private static int parseSquare(String token, int offset) {
+        char file = token.charAt(offset);
+        char rank = token.charAt(offset + 1);
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            throw new IllegalArgumentException("Invalid square in move: " + token);
+        }
+        return ('8' - rank) * 8 + (file - 'a');
+    }
+
+    private static int parseMove(String token) {
+        if (token.length() != 5 && !(token.length() == 7 && token.charAt(5) == '=')) {
+            throw new IllegalArgumentException("Invalid move: " + token);
+        }
+        char separator = token.charAt(2);
+        if (separator != '-' && separator != 'x') {
+            throw new IllegalArgumentException("Invalid move: " + token);
+        }
+        int ply = parseSquare(token, 0) | (parseSquare(token, 3) << 6);
+        if (separator == 'x') {
+            ply |= GameRecord.CAPTURE_FLAG;
+        }
+        if (token.length() == 7) {
+            char promotion = token.charAt(6);
+            if (promotion != '1' && promotion != '2') {
+                throw new IllegalArgumentException("Invalid promotion choice: " + token);
+            }
+            ply |= (promotion - '0') << GameRecord.PROMOTION_SHIFT;
+        }
+        return ply;
+    }
+
+    /**
+     * Reads games one at a time, holding only the game being parsed in memory.
+     */
+    public static final class Parser implements AutoCloseable {
+
+        private final BufferedReader in;
+        private int lineNumber;
+
+        private Parser(Reader in) {
+            this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        }
+
+        /**
+         * Parses the next game.
+         *
+         * @return The game, or {@code null} at the end of the input.
+         * @throws IOException If reading fails.
+         * @throws IllegalArgumentException If the text is not valid notation.
+         */
+        public GameRecord next() throws IOException {
+            String layout = null;
+            String rule = null;
+            String line;
+            int[] plies = new int[64];
+            int count = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.startsWith("[")) {
+                    int quote = line.indexOf('"');
+                    if (!line.endsWith("\"]") || quote < 0 || quote == line.length() - 2) {
+                        throw error("Invalid tag: " + line);
+                    }
+                    String name = line.substring(1, quote).trim();
+                    String value = line.substring(quote + 1, line.length() - 2);
+                    if (name.equals("Layout")) {
+                        layout = value;
+                    } else if (name.equals("Rule")) {
+                        rule = value;
+                    } // Other tags, including Result which is repeated at the end of the moves, are ignored
+                    continue;
+                }
+                for (String token : line.split("\\s+")) {
+                    int result = RESULTS.indexOf(token);
+                    if (result >= 0) {
+                        return build(layout, rule, result, Arrays.copyOf(plies, count));
+                    }
+                    if (token.endsWith(".")) {
+                        continue; // Move number
+                    }
+                    if (count == plies.length) {
+                        plies = Arrays.copyOf(plies, count * 2);
+                    }
+                    try {
+                        plies[count++] = parseMove(token);
+                    } catch (IllegalArgumentException e) {
+                        throw error(e.getMessage());
+                    }
+                }
+            }
+            if (layout != null || count > 0) {
+                throw error("Game is missing its result");
+            }
+            return null;
+        }
+
+        private GameRecord build(String layout, String rule, int result, int[] plies) {
+            int ruleId = RULE_NAMES.indexOf(rule);
+            if (ruleId < 0) {
+                throw error("Unknown rule: " + rule);
+            }
+            try {
+                return new GameRecord(layout, ruleId, result, plies);
+            } catch (IllegalArgumentException e) {
+                throw error(e.getMessage());
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Line " + lineNumber + ": " + message);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package uk.ac.standrews.variantchessgame.persistence;
+
+import uk.ac.standrews.variantchessgame.model.MoveHistory;
+import uk.ac.standrews.variantchessgame.model.VariantChessMove;
+
+import java.util.Arrays;
+
+/**
+ * A complete game as exported or archived: the back-rank layout, the rule, the plies and the result.
+ * <p>
+ * Each ply is held as a 15-bit int: start square in bits 0-5, end square in bits 6-11 (square = x * 8 + y),
+ * the capture flag in bit 12 and the recorded promotion choice in bits 13-14. This is everything needed
+ * to replay the game exactly, including the outcome of random promotions.
+ */
+public class GameRecord {
+
+    public static final int RESULT_UNKNOWN = 0;
+    public static final int RESULT_WHITE_WINS = 1;
+    public static final int RESULT_BLACK_WINS = 2;
+    public static final int RESULT_DRAW = 3;
+
+    /** The number of distinct layout codes, see {@link #layoutCode(String)}. */
+    public static final int LAYOUT_CODES = 1 << 12;
+
+    private static final String LAYOUT_PIECES = "NBQK"; // Two-bit codes of the pieces between the rooks
+
+    static final int CAPTURE_FLAG = 1 << 12;
+    static final int PROMOTION_SHIFT = 13;
+
+    private final String backRank;
+    private final int ruleId;
+    private final int result;
+    private final int[] plies;
+
+    /**
+     * Constructor for a game record.
+     *
+     * @param backRank The back-rank layout, as returned by {@code VariantChessBoard.getBackRank()}.
+     * @param ruleId The id of the rule the game was played with.
+     * @param result One of the {@code RESULT_} constants.
+     * @param plies The plies in the 15-bit format described above.
+     */
+    public GameRecord(String backRank, int ruleId, int result, int[] plies) {
+        if (backRank == null || !backRank.matches("R[NBQK]{6}R")) {
+            throw new IllegalArgumentException("Invalid back rank: " + backRank);
+        }
+        if (ruleId < 0 || ruleId > 2) {
+            throw new IllegalArgumentException("Invalid rule id: " + ruleId);
+        }
+        if (result < RESULT_UNKNOWN || result > RESULT_DRAW) {
+            throw new IllegalArgumentException("Invalid result: " + result);
+        }
+        this.backRank = backRank;
+        this.ruleId = ruleId;
+        this.result = result;
+        this.plies = plies;
+    }
+
+    /**
+     * Creates a record of the plies currently applied in a move history.
+     *
+     * @param backRank The back-rank layout of the game.
+     * @param ruleId The id of the rule of the game.
+     * @param result One of the {@code RESULT_} constants.
+     * @param history The move history of the game.
+     * @return The record.
+     */
+    public static GameRecord of(String backRank, int ruleId, int result, MoveHistory history) {
+        int[] plies = new int[history.getCurrentPly()];
+        for (int ply = 0; ply < plies.length; ply++) {
+            plies[ply] = encodePly(MoveHistory.unpack(history.getPackedMove(ply), history.getUndoRecord(ply)));
+        }
+        return new GameRecord(backRank, ruleId, result, plies);
+    }
+
+    /**
+     * Creates a record of a game recovered from the journal.
+     *
+     * @param game The recovered game.
+     * @return The record, holding every journaled ply of the game; recovered games have not finished.
+     */
+    public static GameRecord of(RecoveredGame game) {
+        int[] plies = new int[game.getPlyCount()];
+        for (int ply = 0; ply < plies.length; ply++) {
+            plies[ply] = encodePly(MoveHistory.unpack(game.getPackedMove(ply), 0));
+        }
+        return new GameRecord(game.getBackRank(), game.getRuleId(), 0, plies);
+    }
+
+    /**
+     * Encodes a back-rank layout in 12 bits: two bits per square between the rooks.
+     *
+     * @param backRank The layout, for example "RNBQKBNR".
+     * @return The layout code, below {@link #LAYOUT_CODES}.
+     */
+    public static int layoutCode(String backRank) {
+        int code = 0;
+        for (int i = 1; i <= 6; i++) {
+            code |= LAYOUT_PIECES.indexOf(backRank.charAt(i)) << (2 * (i - 1));
+        }
+        return code;
+    }
+
+    /**
+     * Decodes a layout code.
+     *
+     * @param code The layout code.
+     * @return The layout.
+     */
+    public static String layoutOf(int code) {
+        char[] backRank = new char[8];
+        backRank[0] = 'R';
+        backRank[7] = 'R';
+        for (int i = 1; i <= 6; i++) {
+            backRank[i] = LAYOUT_PIECES.charAt((code >>> (2 * (i - 1))) & 3);
+        }
+        return new String(backRank);
+    }
+
+    /**
+     * Encodes a move in the 15-bit ply format.
+     *
+     * @param move The move.
+     * @return The encoded ply.
+     */
+    public static int encodePly(VariantChessMove move) {
+        int ply = (move.getStartX() * 8 + move.getStartY()) | ((move.getEndX() * 8 + move.getEndY()) << 6);
+        if (move.isCapture()) {
+            ply |= CAPTURE_FLAG;
+        }
+        return ply | (move.getPromotionChoice() & 3) << PROMOTION_SHIFT;
+    }
+
+    /**
+     * Decodes a ply into a new move carrying its capture flag and promotion choice.
+     *
+     * @param ply The encoded ply.
+     * @return The move.
+     */
+    public static VariantChessMove decodePly(int ply) {
+        int from = ply & 63;
+        int to = (ply >>> 6) & 63;
+        VariantChessMove move = new VariantChessMove(from / 8, from % 8, to / 8, to % 8);
+        move.setCapture((ply & CAPTURE_FLAG) != 0);
+        move.setPromotionChoice((ply >>> PROMOTION_SHIFT) & 3);
+        return move;
+    }
+
+    public String getBackRank() {
+        return backRank;
+    }
+
+    public int getRuleId() {
+        return ruleId;
+    }
+
+    public int getResult() {
+        return result;
+    }
+
+    public int getPlyCount() {
+        return plies.length;
+    }
+
+    /**
+     * Gets a ply in the 15-bit format.
+     *
+     * @param index The index of the ply.
+     * @return The encoded ply.
+     */
+    public int getPly(int index) {
+        return plies[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GameRecord)) {
+            return false;
+        }
+        GameRecord other = (GameRecord) o;
+        return ruleId == other.ruleId && result == other.result && backRank.equals(other.backRank)
+                && Arrays.equals(plies, other.plies);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * backRank.hashCode() + ruleId) + result) + Arrays.hashCode(plies);
+    }
+}
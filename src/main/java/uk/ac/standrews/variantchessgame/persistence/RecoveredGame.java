@@ -0,0 +1,122 @@
+package uk.ac.standrews.variantchessgame.persistence;
+
+import java.util.Arrays;
+
+/**
+ * A game rebuilt from the journal: how it started and the packed plies that were played.
+ * The plies are in the format of {@link uk.ac.standrews.variantchessgame.model.MoveHistory#pack}.
+ */
+public class RecoveredGame {
+
+    private final long gameId;
+    private final int ruleId;
+    private final String backRank;
+    private int[] moves = new int[16];
+    private boolean[] fullMoveStarts = new boolean[16];
+    private int size;        // Number of plies recorded
+    private int currentPly;  // Number of plies applied when the journal ended
+    private boolean seeded;  // Whether the seed of the game was journaled
+    private long seed;
+    private long draws;      // Decisions drawn from the random stream when last journaled
+    private int difficultyIndex = -1; // Difficulty of the AI when last journaled, -1 for the fixed-depth search
+
+    RecoveredGame(long gameId, int ruleId, String backRank) {
+        this.gameId = gameId;
+        this.ruleId = ruleId;
+        this.backRank = backRank;
+    }
+
+    /**
+     * Records a ply, discarding any later plies as the live history does when a move follows an undo.
+     */
+    void setPly(int ply, int packedMove, boolean fullMoveStart) {
+        if (ply >= moves.length) {
+            int capacity = Math.max(ply + 1, moves.length * 2);
+            moves = Arrays.copyOf(moves, capacity);
+            fullMoveStarts = Arrays.copyOf(fullMoveStarts, capacity);
+        }
+        moves[ply] = packedMove;
+        fullMoveStarts[ply] = fullMoveStart;
+        size = ply + 1;
+        currentPly = size;
+    }
+
+    void setCurrentPly(int ply) {
+        currentPly = Math.min(ply, size);
+    }
+
+    void setSeed(long seed) {
+        this.seeded = true;
+        this.seed = seed;
+    }
+
+    void setDraws(long draws) {
+        this.draws = draws;
+    }
+
+    void setDifficultyIndex(int difficultyIndex) {
+        this.difficultyIndex = difficultyIndex;
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public int getRuleId() {
+        return ruleId;
+    }
+
+    public String getBackRank() {
+        return backRank;
+    }
+
+    /**
+     * Checks whether the seed of the random stream of the game was journaled, which journals
+     * written before seeds were recorded do not have.
+     *
+     * @return {@code true} if {@link #getSeed()} is known.
+     */
+    public boolean hasSeed() {
+        return seeded;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the number of decisions the game had drawn from its random stream when it was last journaled.
+     * Undo, redo and jumps do not rewind the stream, so this is the count after the latest full move played.
+     *
+     * @return The number of draws, or 0 if none was journaled.
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * Gets the difficulty the AI of the game was last set to.
+     *
+     * @return The index of the difficulty, see
+     *         {@link uk.ac.standrews.variantchessgame.model.DifficultyProfile#presetIndex}, or -1 if none was journaled.
+     */
+    public int getDifficultyIndex() {
+        return difficultyIndex;
+    }
+
+    public int getPlyCount() {
+        return size;
+    }
+
+    public int getPackedMove(int ply) {
+        return moves[ply];
+    }
+
+    public boolean isFullMoveStart(int ply) {
+        return fullMoveStarts[ply];
+    }
+
+    public int getCurrentPly() {
+        return currentPly;
+    }
+}
@@ -0,0 +1,80 @@
+package uk.ac.standrews.variantchessgame.persistence;
+
+import uk.ac.standrews.variantchessgame.model.MoveHistory;
+import uk.ac.standrews.variantchessgame.model.PositionSnapshot;
+
+/**
+ * A live game as written to the session file on shutdown: its layout, random seed and number of random draws,
+ * the difficulty of its AI, the position on the board
+ * (including the rule state and the capture counts of the pieces), the hashes of the positions that can still recur
+ * and its full move history.
+ */
+public class SavedSession {
+
+    private final long gameId;
+    private final String backRank;
+    private final long seed;
+    private final long draws;
+    private final int difficultyIndex;
+    private final PositionSnapshot position;
+    private final long[] reversibleHashes;
+    private final MoveHistory history;
+
+    /**
+     * Constructor for a saved session.
+     *
+     * @param gameId The id of the game in the journal.
+     * @param backRank The back-rank layout of the game.
+     * @param seed The seed of the random stream of the game.
+     * @param draws The number of decisions drawn from the random stream of the game.
+     * @param difficultyIndex The difficulty of the AI, see
+     *                        {@link uk.ac.standrews.variantchessgame.model.DifficultyProfile#presetIndex}.
+     * @param position The position currently on the board.
+     * @param reversibleHashes The hashes of the positions that can still recur, see
+     *                         {@link uk.ac.standrews.variantchessgame.model.GameState#getReversibleHashes()}.
+     * @param history The move history, including undone plies and navigation snapshots.
+     */
+    public SavedSession(long gameId, String backRank, long seed, long draws, int difficultyIndex, PositionSnapshot position,
+                        long[] reversibleHashes, MoveHistory history) {
+        this.gameId = gameId;
+        this.backRank = backRank;
+        this.seed = seed;
+        this.draws = draws;
+        this.difficultyIndex = difficultyIndex;
+        this.position = position;
+        this.reversibleHashes = reversibleHashes;
+        this.history = history;
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public String getBackRank() {
+        return backRank;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public int getDifficultyIndex() {
+        return difficultyIndex;
+    }
+
+    public PositionSnapshot getPosition() {
+        return position;
+    }
+
+    public long[] getReversibleHashes() {
+        return reversibleHashes;
+    }
+
+    public MoveHistory getHistory() {
+        return history;
+    }
+}
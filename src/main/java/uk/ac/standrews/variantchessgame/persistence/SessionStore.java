@@ -0,0 +1,269 @@
+package uk.ac.standrews.variantchessgame.persistence;
+
+import uk.ac.standrews.variantchessgame.model.Color;
+import uk.ac.standrews.variantchessgame.model.MoveHistory;
+import uk.ac.standrews.variantchessgame.model.PositionSnapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves the live games to a single binary file on shutdown and reads them back on startup.
+ * <p>
+ * Restoring a session from this file costs one pass over its compact position and history,
+ * instead of replaying every ply of the game from the journal. Opening the file only memory-maps
+ * it and reads the header and index; each session is decoded when it is first needed.
+ * <p>
+ * The file starts with a header (magic, version, journal record count, session count) followed by
+ * an index of (game id, offset) pairs and then the sessions. The journal record count tells whether
+ * the journal has moved on since the file was written, in which case the file is stale.
+ */
+public class SessionStore {
+
+    private static final int MAGIC = 0x56435353; // "VCSS"
+    private static final short VERSION = 5;
+    private static final int HEADER_SIZE = 4 + 2 + 2 + 8 + 4;
+    private static final int INDEX_ENTRY_SIZE = 8 + 4;
+    private static final int FULL_MOVE_START = 1 << 31; // Marks a ply that starts a full move
+
+    private final Path file;
+
+    /**
+     * Constructor for a session store.
+     *
+     * @param file The session file; its directory is created when the file is first saved.
+     */
+    public SessionStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Writes the sessions to the file, replacing it atomically so a crash never leaves a torn file.
+     *
+     * @param sessions The live games.
+     * @param journalRecordCount The number of records in the journal when the sessions were saved, or -1 without a journal.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(List<SavedSession> sessions, long journalRecordCount) throws IOException {
+        List<byte[]> bodies = new ArrayList<>(sessions.size());
+        for (SavedSession session : sessions) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            writeSession(new DataOutputStream(bytes), session);
+            bodies.add(bytes.toByteArray());
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temporary)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeLong(journalRecordCount);
+            out.writeInt(sessions.size());
+            int offset = HEADER_SIZE + INDEX_ENTRY_SIZE * sessions.size();
+            for (int i = 0; i < sessions.size(); i++) {
+                out.writeLong(sessions.get(i).getGameId());
+                out.writeInt(offset);
+                offset += bodies.get(i).length;
+            }
+            for (byte[] body : bodies) {
+                out.write(body);
+            }
+            out.flush();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Memory-maps the session file and reads its index.
+     *
+     * @return The opened file, or {@code null} if there is no file or it is not a session file of this version.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    public SessionFile open() throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Stays valid after closing
+        }
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            return null;
+        }
+        long journalRecordCount = buffer.getLong(8);
+        int count = buffer.getInt(16);
+        if (count < 0 || HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE > buffer.limit()) {
+            return null;
+        }
+        long[] gameIds = new long[count];
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            int entry = HEADER_SIZE + i * INDEX_ENTRY_SIZE;
+            gameIds[i] = buffer.getLong(entry);
+            offsets[i] = buffer.getInt(entry + 8);
+        }
+        return new SessionFile(buffer, journalRecordCount, gameIds, offsets);
+    }
+
+    private static void writeSession(DataOutputStream out, SavedSession session) throws IOException {
+        out.writeLong(session.getGameId());
+        out.write(session.getBackRank().getBytes(StandardCharsets.US_ASCII), 0, 8);
+        out.writeLong(session.getSeed());
+        out.writeLong(session.getDraws());
+        out.writeInt(session.getDifficultyIndex());
+        writePosition(out, session.getPosition());
+        long[] reversibleHashes = session.getReversibleHashes();
+        out.writeInt(reversibleHashes.length);
+        for (long hash : reversibleHashes) {
+            out.writeLong(hash);
+        }
+
+        MoveHistory history = session.getHistory();
+        int plies = history.getTotalPlies();
+        out.writeInt(history.getSnapshotInterval());
+        out.writeInt(plies);
+        out.writeInt(history.getCurrentPly());
+        for (int ply = 0; ply < plies; ply++) {
+            out.writeInt(history.getPackedMove(ply) | (history.isFullMoveStart(ply) ? FULL_MOVE_START : 0));
+        }
+        for (int ply = 0; ply < plies; ply++) {
+            out.writeShort(history.getUndoRecord(ply));
+        }
+        List<Integer> snapshotPlies = new ArrayList<>();
+        for (int ply = 0; ply <= plies; ply += history.getSnapshotInterval()) {
+            if (history.getSnapshot(ply) != null) {
+                snapshotPlies.add(ply);
+            }
+        }
+        out.writeInt(snapshotPlies.size());
+        for (int ply : snapshotPlies) {
+            out.writeInt(ply);
+            writePosition(out, history.getSnapshot(ply));
+        }
+    }
+
+    /**
+     * Writes a position in 78 bytes: a short per square holding the piece code (which includes
+     * the capture count and flags of the piece), then the turn, the rule and its state flags, and the counters.
+     */
+    private static void writePosition(DataOutputStream out, PositionSnapshot position) throws IOException {
+        for (int square = 0; square < 64; square++) {
+            out.writeShort(position.getPieceCode(square));
+        }
+        out.writeByte(position.getCurrentTurn() == Color.WHITE ? 0 : 1);
+        out.writeByte(position.getRuleId());
+        out.writeByte(position.getRuleFlags());
+        out.writeByte(0);
+        out.writeInt(position.getWhiteMoveCount());
+        out.writeInt(position.getBlackMoveCount());
+        out.writeInt(position.getMovesWithoutCapture());
+    }
+
+    private static PositionSnapshot readPosition(ByteBuffer in) {
+        int[] codes = new int[64];
+        for (int square = 0; square < 64; square++) {
+            codes[square] = in.getShort() & 0xFFFF;
+        }
+        Color turn = in.get() == 0 ? Color.WHITE : Color.BLACK;
+        int ruleId = in.get(); // Signed, so a missing rule reads back as -1
+        int ruleFlags = in.get() & 0xFF;
+        in.get();
+        int whiteMoveCount = in.getInt();
+        int blackMoveCount = in.getInt();
+        int movesWithoutCapture = in.getInt();
+        return PositionSnapshot.of(codes, turn, whiteMoveCount, blackMoveCount, movesWithoutCapture, ruleId, ruleFlags);
+    }
+
+    /**
+     * A memory-mapped session file whose sessions are decoded on demand.
+     */
+    public static final class SessionFile {
+
+        private final ByteBuffer buffer;
+        private final long journalRecordCount;
+        private final long[] gameIds;
+        private final int[] offsets;
+
+        private SessionFile(ByteBuffer buffer, long journalRecordCount, long[] gameIds, int[] offsets) {
+            this.buffer = buffer;
+            this.journalRecordCount = journalRecordCount;
+            this.gameIds = gameIds;
+            this.offsets = offsets;
+        }
+
+        /**
+         * Gets the number of journal records written when the file was saved.
+         *
+         * @return The record count, or -1 if the sessions were saved without a journal.
+         */
+        public long getJournalRecordCount() {
+            return journalRecordCount;
+        }
+
+        public int getSessionCount() {
+            return gameIds.length;
+        }
+
+        public long getGameId(int index) {
+            return gameIds[index];
+        }
+
+        /**
+         * Decodes a session from the mapped file.
+         *
+         * @param index The position of the session in the index.
+         * @return The session, with a rebuilt move history.
+         */
+        public SavedSession read(int index) {
+            ByteBuffer in = buffer.duplicate();
+            in.position(offsets[index]);
+            long gameId = in.getLong();
+            byte[] ascii = new byte[8];
+            in.get(ascii);
+            long seed = in.getLong();
+            long draws = in.getLong();
+            int difficultyIndex = in.getInt();
+            PositionSnapshot position = readPosition(in);
+            long[] reversibleHashes = new long[in.getInt()];
+            for (int i = 0; i < reversibleHashes.length; i++) {
+                reversibleHashes[i] = in.getLong();
+            }
+
+            MoveHistory history = new MoveHistory(in.getInt());
+            int plies = in.getInt();
+            int currentPly = in.getInt();
+            int[] moves = new int[plies];
+            for (int ply = 0; ply < plies; ply++) {
+                moves[ply] = in.getInt();
+            }
+            for (int ply = 0; ply < plies; ply++) {
+                int undoRecord = in.getShort() & 0xFFFF;
+                history.appendPly(moves[ply] & ~FULL_MOVE_START, undoRecord, (moves[ply] & FULL_MOVE_START) != 0);
+            }
+            int snapshotCount = in.getInt();
+            for (int i = 0; i < snapshotCount; i++) {
+                int ply = in.getInt();
+                history.recordSnapshot(ply, readPosition(in));
+            }
+            history.jumpTo(currentPly);
+            return new SavedSession(gameId, new String(ascii, StandardCharsets.US_ASCII), seed, draws, difficultyIndex,
+                    position, reversibleHashes, history);
+        }
+    }
+}
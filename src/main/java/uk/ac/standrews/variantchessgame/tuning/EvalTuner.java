@@ -0,0 +1,284 @@
+package uk.ac.standrews.variantchessgame.tuning;
+
+import uk.ac.standrews.variantchessgame.model.AttackMap;
+import uk.ac.standrews.variantchessgame.model.ChessAI;
+import uk.ac.standrews.variantchessgame.model.Color;
+import uk.ac.standrews.variantchessgame.model.EvalWeights;
+import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+import uk.ac.standrews.variantchessgame.model.VariantChessPiece;
+import uk.ac.standrews.variantchessgame.model.Zobrist;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Offline job that tunes the material and mobility weights of the evaluation for each rule from self-play games.
+ * <p>
+ * The AI plays games against itself on a {@link ForkJoinPool}, see {@link SelfPlay}, and the quiet positions of
+ * every game are kept with the result of the game. The weights are then
+ * fitted by minimizing the squared error between the result and the win probability predicted from the evaluation,
+ * a logistic function of the score, with gradient descent whose gradient is summed over the positions in parallel.
+ * The Pawn value stays at {@link EvalWeights#PAWN_UNIT} to anchor the scale; piece-square tables are kept as they are.
+ * <p>
+ * Usage: {@code EvalTuner <output file> [games per rule] [input weights file] [parallelism]}. The output is a weights
+ * file that the application loads at startup when {@code chess.eval.weights-file} points at it.
+ */
+public class EvalTuner {
+
+    static final int FEATURES = Zobrist.PIECE_TYPES * (1 + EvalWeights.BONUS_STEPS) + 1; // Values, bonuses, mobility
+    private static final int MOBILITY = FEATURES - 1;
+    private static final double SCALE = Math.log(10) / 400; // A score of 400 predicts a 10 to 1 win
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final int parallelism;
+
+    /**
+     * Constructor for a tuner.
+     *
+     * @param parallelism The number of worker threads.
+     */
+    public EvalTuner(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * A quiet position of a self-play game: the difference between White's and Black's count of every term
+     * of the evaluation, the score of the terms that are not tuned, and the result of the game.
+     */
+    static final class Sample {
+        final int[] features = new int[FEATURES];
+        int fixedScore;   // Piece-square values, from White's side
+        double result;    // 1 if White won, 0 if Black won, 0.5 for a draw
+    }
+
+    /**
+     * Tunes the weights of every rule, starting from the given weights.
+     *
+     * @param start The weights to start from, also used by the AI to play the games.
+     * @param gamesPerRule The number of self-play games per rule.
+     * @param iterations The number of gradient descent steps per rule.
+     * @param seed The seed the games are derived from.
+     * @return The tuned weights.
+     */
+    public EvalWeights run(EvalWeights start, int gamesPerRule, int iterations, long seed) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            EvalWeights weights = start;
+            for (int ruleId = 0; ruleId < 3; ruleId++) {
+                List<Sample> samples = selfPlay(pool, start, ruleId, gamesPerRule, seed + 1_000_000L * ruleId);
+                double before = error(pool, start, ruleId, samples);
+                weights = fit(pool, weights, ruleId, samples, iterations);
+                System.err.printf("Rule %d: %d positions, error %.5f -> %.5f%n",
+                        ruleId, samples.size(), before, error(pool, weights, ruleId, samples));
+            }
+            return weights;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays games in parallel and collects their quiet positions, in the order of the games.
+     */
+    List<Sample> selfPlay(ForkJoinPool pool, EvalWeights weights, int ruleId, int games, long seed) {
+        List<Sample> samples = new ArrayList<>();
+        for (SelfPlay.Game<Sample> game : SelfPlay.playAll(pool, new ChessAI(null, weights), weights, ruleId, games, seed,
+                (board, sideToMove) -> sample(board))) {
+            for (Sample sample : game.samples) {
+                sample.result = game.result;
+                samples.add(sample);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Counts the terms of the evaluation in a position, from White's side.
+     */
+    static Sample sample(VariantChessBoard board) {
+        Sample sample = new Sample();
+        for (long occupied = board.getOccupancy(); occupied != 0; occupied &= occupied - 1) {
+            int square = Long.numberOfTrailingZeros(occupied);
+            VariantChessPiece piece = board.getPieceAt(square >> 3, square & 7);
+            int type = Zobrist.typeIndex(piece);
+            if (type < 0) {
+                continue;
+            }
+            int sign = piece.getColor() == Color.WHITE ? 1 : -1;
+            int captures = Math.min(piece.getCaptureCount(), EvalWeights.BONUS_STEPS - 1);
+            sample.features[type] += sign;
+            sample.features[Zobrist.PIECE_TYPES + type * EvalWeights.BONUS_STEPS + captures] += sign;
+        }
+        AttackMap attacks = board.getAttackMap();
+        sample.features[MOBILITY] = attacks.getMobility(Color.WHITE) - attacks.getMobility(Color.BLACK);
+        sample.fixedScore = board.getPlacementScore(Color.WHITE) - board.getPlacementScore(Color.BLACK);
+        return sample;
+    }
+
+    /**
+     * Lays out the weights of a rule in the order of the features.
+     */
+    static double[] parameters(EvalWeights weights, int ruleId) {
+        double[] parameters = new double[FEATURES];
+        for (int type = 0; type < Zobrist.PIECE_TYPES; type++) {
+            parameters[type] = weights.getValue(ruleId, type);
+            for (int captures = 0; captures < EvalWeights.BONUS_STEPS; captures++) {
+                parameters[Zobrist.PIECE_TYPES + type * EvalWeights.BONUS_STEPS + captures] = weights.getBonus(ruleId, type, captures);
+            }
+        }
+        parameters[MOBILITY] = weights.getMobility(ruleId);
+        return parameters;
+    }
+
+    /**
+     * Rounds fitted parameters back into weights for a rule.
+     */
+    static EvalWeights toWeights(EvalWeights base, int ruleId, double[] parameters) {
+        int[] values = new int[Zobrist.PIECE_TYPES];
+        int[][] bonuses = new int[Zobrist.PIECE_TYPES][EvalWeights.BONUS_STEPS];
+        for (int type = 0; type < Zobrist.PIECE_TYPES; type++) {
+            values[type] = (int) Math.round(parameters[type]);
+            for (int captures = 0; captures < EvalWeights.BONUS_STEPS; captures++) {
+                bonuses[type][captures] = (int) Math.round(parameters[Zobrist.PIECE_TYPES + type * EvalWeights.BONUS_STEPS + captures]);
+            }
+        }
+        return base.withMaterial(ruleId, values, bonuses, (int) Math.round(parameters[MOBILITY]));
+    }
+
+    /**
+     * Fits the weights of a rule to the samples by gradient descent, with the Adam update so that weights
+     * of terms that are rarely seen move as quickly as the others.
+     */
+    EvalWeights fit(ForkJoinPool pool, EvalWeights weights, int ruleId, List<Sample> samples, int iterations) {
+        if (samples.isEmpty()) {
+            return weights;
+        }
+        double[] parameters = parameters(weights, ruleId);
+        double[] mean = new double[FEATURES];
+        double[] variance = new double[FEATURES];
+        double rate = 2.0; // Largest step, in hundredths of a Pawn
+        for (int step = 1; step <= iterations; step++) {
+            double[] gradient = gradient(pool, parameters, samples);
+            for (int i = 0; i < FEATURES; i++) {
+                if (i == Zobrist.PAWN) {
+                    continue; // Anchors the scale
+                }
+                mean[i] = 0.9 * mean[i] + 0.1 * gradient[i];
+                variance[i] = 0.999 * variance[i] + 0.001 * gradient[i] * gradient[i];
+                double correctedMean = mean[i] / (1 - Math.pow(0.9, step));
+                double correctedVariance = variance[i] / (1 - Math.pow(0.999, step));
+                parameters[i] -= rate * correctedMean / (Math.sqrt(correctedVariance) + 1e-12);
+            }
+        }
+        return toWeights(weights, ruleId, parameters);
+    }
+
+    /**
+     * Computes the gradient of the mean squared error, summing chunks of the samples on the pool.
+     */
+    private double[] gradient(ForkJoinPool pool, double[] parameters, List<Sample> samples) {
+        double[] gradient = new double[FEATURES];
+        for (double[] partial : mapChunks(pool, samples, (from, to) -> {
+            double[] sum = new double[FEATURES];
+            for (int s = from; s < to; s++) {
+                Sample sample = samples.get(s);
+                double predicted = predict(parameters, sample);
+                double factor = -2 * (sample.result - predicted) * predicted * (1 - predicted) * SCALE;
+                for (int i = 0; i < FEATURES; i++) {
+                    if (sample.features[i] != 0) {
+                        sum[i] += factor * sample.features[i];
+                    }
+                }
+            }
+            return sum;
+        })) {
+            for (int i = 0; i < FEATURES; i++) {
+                gradient[i] += partial[i] / samples.size();
+            }
+        }
+        return gradient;
+    }
+
+    /**
+     * Computes the mean squared error between the results and the predictions of the weights of a rule.
+     */
+    double error(ForkJoinPool pool, EvalWeights weights, int ruleId, List<Sample> samples) {
+        if (samples.isEmpty()) {
+            return 0;
+        }
+        double[] parameters = parameters(weights, ruleId);
+        double total = 0;
+        for (double[] partial : mapChunks(pool, samples, (from, to) -> {
+            double sum = 0;
+            for (int s = from; s < to; s++) {
+                double difference = samples.get(s).result - predict(parameters, samples.get(s));
+                sum += difference * difference;
+            }
+            return new double[]{sum};
+        })) {
+            total += partial[0];
+        }
+        return total / samples.size();
+    }
+
+    private static double predict(double[] parameters, Sample sample) {
+        double score = sample.fixedScore;
+        for (int i = 0; i < FEATURES; i++) {
+            score += parameters[i] * sample.features[i];
+        }
+        return 1 / (1 + Math.exp(-SCALE * score));
+    }
+
+    private interface ChunkTask {
+        double[] apply(int from, int to);
+    }
+
+    private List<double[]> mapChunks(ForkJoinPool pool, List<Sample> samples, ChunkTask task) {
+        int chunks = Math.min(samples.size(), parallelism * CHUNKS_PER_THREAD);
+        List<Callable<double[]>> tasks = new ArrayList<>(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int from = (int) ((long) samples.size() * chunk / chunks);
+            int to = (int) ((long) samples.size() * (chunk + 1) / chunks);
+            tasks.add(() -> task.apply(from, to));
+        }
+        List<double[]> results = new ArrayList<>(chunks);
+        for (Future<double[]> result : pool.invokeAll(tasks)) {
+            results.add(SelfPlay.join(result));
+        }
+        return results;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: EvalTuner <output file> [games per rule] [input weights file] [parallelism]");
+            System.exit(2);
+        }
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        EvalWeights start = EvalWeights.getDefault();
+        if (args.length > 2) {
+            try (InputStream in = Files.newInputStream(Paths.get(args[2]))) {
+                start = EvalWeights.read(in);
+            }
+        }
+
+        long begin = System.nanoTime();
+        EvalWeights tuned = new EvalTuner(parallelism).run(start, games, 2000, 1L);
+        System.err.printf("Tuned in %.1f s on %d threads%n", (System.nanoTime() - begin) / 1e9, parallelism);
+        try (Writer writer = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            tuned.write(writer, "Tuned by EvalTuner from " + games + " self-play games per rule");
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package uk.ac.standrews.variantchessgame.tuning;
+
+import uk.ac.standrews.variantchessgame.model.ChessAI;
+import uk.ac.standrews.variantchessgame.model.Color;
+import uk.ac.standrews.variantchessgame.model.EvalWeights;
+import uk.ac.standrews.variantchessgame.model.NeuralNetwork;
+import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+import uk.ac.standrews.variantchessgame.model.VariantChessPiece;
+import uk.ac.standrews.variantchessgame.model.Zobrist;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Offline job that trains a {@link NeuralNetwork} on the CPU from self-play games of the hand-written evaluation.
+ * <p>
+ * Quiet positions of games played under every rule, see {@link SelfPlay}, are labelled with the result of their game
+ * from the side to move. The network is trained in floating point to predict that result through a logistic function
+ * of its score, with mini-batch Adam on the squared error, then quantized to the integer weights the engine uses.
+ * The weights of each piece-square input are tied to those of its mirror image, so the network is symmetric from
+ * left to right as the engine requires.
+ * Games are played in parallel; training itself runs on one thread, as the network is small.
+ * <p>
+ * Usage: {@code NeuralTrainer <output file> [games per rule] [hidden size] [epochs] [parallelism]}. The application
+ * evaluates with the network when {@code chess.eval.network-file} points at the output.
+ */
+public class NeuralTrainer {
+
+    private static final double SCALE = Math.log(10) / 400; // A score of 400 predicts a 10 to 1 win, as in EvalTuner
+    private static final int BATCH_SIZE = 256;
+    private static final double RATE = 0.001;
+    private static final double MAX_INPUT_WEIGHT = 32767.0 / NeuralNetwork.HIDDEN_SCALE / 2; // Stays within 16 bits
+    private static final double MAX_OUTPUT_WEIGHT = 32767.0 / NeuralNetwork.OUTPUT_SCALE / 2;
+
+    private final int hiddenSize;
+    private final int parallelism;
+
+    /**
+     * Constructor for a trainer.
+     *
+     * @param hiddenSize The number of hidden values of each side of the network.
+     * @param parallelism The number of threads playing games.
+     */
+    public NeuralTrainer(int hiddenSize, int parallelism) {
+        if (hiddenSize <= 0) {
+            throw new IllegalArgumentException("Hidden size must be positive: " + hiddenSize);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.hiddenSize = hiddenSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * A quiet position seen from the side to move: the active piece-square inputs of each side, the active rule and
+     * capture inputs of each side (an input counted twice appears twice), and the result for the side to move.
+     */
+    static final class Sample {
+        final int[][] pieces = new int[2][];
+        final int[][] extras = new int[2][];
+        Color sideToMove;
+        double result;
+    }
+
+    /**
+     * Plays the games and trains a network on them.
+     *
+     * @param weights The weights of the hand-written evaluation the games are played with.
+     * @param gamesPerRule The number of self-play games per rule.
+     * @param epochs The number of passes over the positions.
+     * @param seed The seed of the games and of the initial weights.
+     * @return The trained network.
+     */
+    public NeuralNetwork run(EvalWeights weights, int gamesPerRule, int epochs, long seed) {
+        List<Sample> samples = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            ChessAI chessAI = new ChessAI(null, weights);
+            for (int ruleId = 0; ruleId < NeuralNetwork.RULE_INPUTS; ruleId++) {
+                int rule = ruleId;
+                for (SelfPlay.Game<Sample> game : SelfPlay.playAll(pool, chessAI, weights, ruleId, gamesPerRule,
+                        seed + 1_000_000L * ruleId, (board, sideToMove) -> sample(board, sideToMove, rule))) {
+                    for (Sample sample : game.samples) {
+                        sample.result = sample.sideToMove == Color.WHITE ? game.result : 1 - game.result;
+                        samples.add(sample);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Model model = new Model(hiddenSize, new SplittableRandom(seed));
+        double before = model.error(samples);
+        model.train(samples, epochs, new SplittableRandom(seed + 1));
+        System.err.printf("%d positions, error %.5f -> %.5f%n", samples.size(), before, model.error(samples));
+        return model.quantize();
+    }
+
+    /**
+     * Lists the active inputs of a position from the side of each color. Piece-square inputs in the right half of
+     * the board are listed as their mirror image, which shares their weights.
+     */
+    static Sample sample(VariantChessBoard board, Color sideToMove, int ruleId) {
+        Sample sample = new Sample();
+        sample.sideToMove = sideToMove;
+        for (Color side : Color.values()) {
+            int[] pieces = new int[Long.bitCount(board.getOccupancy())];
+            int[] extras = new int[pieces.length + 1];
+            int pieceCount = 0;
+            int extraCount = 0;
+            extras[extraCount++] = NeuralNetwork.ruleInput(ruleId);
+            for (long occupied = board.getOccupancy(); occupied != 0; occupied &= occupied - 1) {
+                int square = Long.numberOfTrailingZeros(occupied);
+                VariantChessPiece piece = board.getPieceAt(square >> 3, square & 7);
+                int type = Zobrist.typeIndex(piece);
+                if (type < 0) {
+                    continue;
+                }
+                int input = NeuralNetwork.pieceInput(side, piece.getColor(), type, square);
+                pieces[pieceCount++] = Math.min(input, NeuralNetwork.mirrorInput(input));
+                if (piece.getCaptureCount() > 0) {
+                    extras[extraCount++] = NeuralNetwork.captureInput(side, piece.getColor(), type, piece.getCaptureCount());
+                }
+            }
+            sample.pieces[side.ordinal()] = Arrays.copyOf(pieces, pieceCount);
+            sample.extras[side.ordinal()] = Arrays.copyOf(extras, extraCount);
+        }
+        return sample;
+    }
+
+    /**
+     * The network in floating point, with the Adam moments of every weight.
+     */
+    static final class Model {
+        private final int size;
+        private final double[][] parameters; // Piece weights, extra weights, hidden biases, output weights, output bias
+        private final double[][] gradients;
+        private final double[][] means;
+        private final double[][] variances;
+        private int steps;
+
+        Model(int size, SplittableRandom random) {
+            this.size = size;
+            int[] lengths = {NeuralNetwork.PIECE_INPUTS * size, NeuralNetwork.EXTRA_INPUTS * size, size, 2 * size, 1};
+            parameters = new double[lengths.length][];
+            gradients = new double[lengths.length][];
+            means = new double[lengths.length][];
+            variances = new double[lengths.length][];
+            for (int i = 0; i < lengths.length; i++) {
+                parameters[i] = new double[lengths[i]];
+                gradients[i] = new double[lengths[i]];
+                means[i] = new double[lengths[i]];
+                variances[i] = new double[lengths[i]];
+            }
+            for (double[] weights : new double[][]{parameters[0], parameters[1]}) {
+                for (int i = 0; i < weights.length; i++) {
+                    weights[i] = (random.nextDouble() - 0.5) * 0.2;
+                }
+            }
+            Arrays.fill(parameters[2], 0.5); // Hidden values start in the middle of the clipped range
+            for (int i = 0; i < 2 * size; i++) {
+                parameters[3][i] = (random.nextDouble() - 0.5) * 0.2;
+            }
+        }
+
+        /**
+         * Computes the hidden values of one side, before clipping.
+         */
+        private void hidden(Sample sample, Color side, double[] values) {
+            System.arraycopy(parameters[2], 0, values, 0, size);
+            for (int input : sample.pieces[side.ordinal()]) {
+                for (int j = 0; j < size; j++) {
+                    values[j] += parameters[0][input * size + j];
+                }
+            }
+            for (int input : sample.extras[side.ordinal()]) {
+                for (int j = 0; j < size; j++) {
+                    values[j] += parameters[1][input * size + j];
+                }
+            }
+        }
+
+        /**
+         * Computes the output in Pawns from the side to move, given the hidden values of that side and the other.
+         */
+        private double output(double[] own, double[] other) {
+            double output = parameters[4][0];
+            for (int j = 0; j < size; j++) {
+                output += clip(own[j]) * parameters[3][j] + clip(other[j]) * parameters[3][size + j];
+            }
+            return output;
+        }
+
+        private static double clip(double value) {
+            return Math.min(Math.max(value, 0), 1);
+        }
+
+        private static double predict(double output) {
+            return 1 / (1 + Math.exp(-SCALE * EvalWeights.PAWN_UNIT * output));
+        }
+
+        double error(List<Sample> samples) {
+            double[] own = new double[size];
+            double[] other = new double[size];
+            double sum = 0;
+            for (Sample sample : samples) {
+                hidden(sample, sample.sideToMove, own);
+                hidden(sample, sample.sideToMove.opposite(), other);
+                double difference = sample.result - predict(output(own, other));
+                sum += difference * difference;
+            }
+            return samples.isEmpty() ? 0 : sum / samples.size();
+        }
+
+        void train(List<Sample> samples, int epochs, SplittableRandom random) {
+            int[] order = new int[samples.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            double[] own = new double[size];
+            double[] other = new double[size];
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                for (int i = order.length - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                }
+                for (int start = 0; start < order.length; start += BATCH_SIZE) {
+                    int end = Math.min(order.length, start + BATCH_SIZE);
+                    for (int i = start; i < end; i++) {
+                        backward(samples.get(order[i]), own, other, 1.0 / (end - start));
+                    }
+                    step();
+                }
+            }
+        }
+
+        /**
+         * Adds the gradient of the squared error of one sample, times a weight, to the gradients.
+         */
+        private void backward(Sample sample, double[] own, double[] other, double weight) {
+            hidden(sample, sample.sideToMove, own);
+            hidden(sample, sample.sideToMove.opposite(), other);
+            double predicted = predict(output(own, other));
+            double outputGradient = weight * -2 * (sample.result - predicted) * predicted * (1 - predicted)
+                    * SCALE * EvalWeights.PAWN_UNIT;
+            gradients[4][0] += outputGradient;
+            Color[] sides = {sample.sideToMove, sample.sideToMove.opposite()};
+            double[][] values = {own, other};
+            for (int s = 0; s < 2; s++) {
+                double[] hidden = values[s];
+                for (int j = 0; j < size; j++) {
+                    gradients[3][s * size + j] += outputGradient * clip(hidden[j]);
+                    // The clipped hidden value only passes a gradient back inside its range
+                    hidden[j] = hidden[j] > 0 && hidden[j] < 1 ? outputGradient * parameters[3][s * size + j] : 0;
+                    gradients[2][j] += hidden[j];
+                }
+                for (int input : sample.pieces[sides[s].ordinal()]) {
+                    for (int j = 0; j < size; j++) {
+                        gradients[0][input * size + j] += hidden[j];
+                    }
+                }
+                for (int input : sample.extras[sides[s].ordinal()]) {
+                    for (int j = 0; j < size; j++) {
+                        gradients[1][input * size + j] += hidden[j];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Applies the Adam update to every weight and clears the gradients.
+         */
+        private void step() {
+            steps++;
+            double meanCorrection = 1 - Math.pow(0.9, steps);
+            double varianceCorrection = 1 - Math.pow(0.999, steps);
+            for (int group = 0; group < parameters.length; group++) {
+                double limit = group == 3 ? MAX_OUTPUT_WEIGHT : MAX_INPUT_WEIGHT;
+                double[] weights = parameters[group];
+                double[] gradient = gradients[group];
+                for (int i = 0; i < weights.length; i++) {
+                    double g = gradient[i];
+                    means[group][i] = 0.9 * means[group][i] + 0.1 * g;
+                    variances[group][i] = 0.999 * variances[group][i] + 0.001 * g * g;
+                    if (means[group][i] != 0) {
+                        double update = RATE * (means[group][i] / meanCorrection)
+                                / (Math.sqrt(variances[group][i] / varianceCorrection) + 1e-8);
+                        weights[i] = Math.max(-limit, Math.min(limit, weights[i] - update));
+                    }
+                    gradient[i] = 0;
+                }
+            }
+        }
+
+        /**
+         * Rounds the weights to the integers of the engine, copying the tied piece-square weights to the right half.
+         */
+        NeuralNetwork quantize() {
+            int[] pieceWeights = round(parameters[0], NeuralNetwork.HIDDEN_SCALE);
+            for (int input = 0; input < NeuralNetwork.PIECE_INPUTS; input++) {
+                int tied = NeuralNetwork.mirrorInput(input);
+                if (tied < input) {
+                    System.arraycopy(pieceWeights, tied * size, pieceWeights, input * size, size);
+                }
+            }
+            return new NeuralNetwork(size,
+                    pieceWeights,
+                    round(parameters[1], NeuralNetwork.HIDDEN_SCALE),
+                    round(parameters[2], NeuralNetwork.HIDDEN_SCALE),
+                    round(parameters[3], NeuralNetwork.OUTPUT_SCALE),
+                    (int) Math.round(parameters[4][0] * NeuralNetwork.HIDDEN_SCALE * NeuralNetwork.OUTPUT_SCALE));
+        }
+
+        private static int[] round(double[] weights, int scale) {
+            int[] rounded = new int[weights.length];
+            for (int i = 0; i < weights.length; i++) {
+                rounded[i] = (int) Math.round(weights[i] * scale);
+            }
+            return rounded;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: NeuralTrainer <output file> [games per rule] [hidden size] [epochs] [parallelism]");
+            System.exit(2);
+        }
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int hiddenSize = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int epochs = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        int parallelism = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        long begin = System.nanoTime();
+        NeuralNetwork network = new NeuralTrainer(hiddenSize, parallelism).run(EvalWeights.getDefault(), games, epochs, 1L);
+        System.err.printf("Trained in %.1f s%n", (System.nanoTime() - begin) / 1e9);
+        try (OutputStream out = Files.newOutputStream(Paths.get(args[0]))) {
+            network.write(out);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package uk.ac.standrews.variantchessgame.tuning;
+
+import uk.ac.standrews.variantchessgame.model.ChessAI;
+import uk.ac.standrews.variantchessgame.model.Color;
+import uk.ac.standrews.variantchessgame.model.EvalWeights;
+import uk.ac.standrews.variantchessgame.model.GameRandom;
+import uk.ac.standrews.variantchessgame.model.GameState;
+import uk.ac.standrews.variantchessgame.model.MoveBuffer;
+import uk.ac.standrews.variantchessgame.model.MoveExecutor;
+import uk.ac.standrews.variantchessgame.model.PackedMove;
+import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Self-play games of the AI, the training data of the offline tuners. Each game is seeded from its index, so the
+ * games of a run are the same whatever the number of threads. The quiet positions of every game, where the side
+ * to move cannot capture so the evaluation is not in the middle of an exchange, are passed to a sampler.
+ */
+final class SelfPlay {
+
+    private static final int OPENING_PLIES = 4;   // Random plies that start each game, so that games differ
+    private static final int MAX_PLIES = 160;     // Games still running are scored as draws
+
+    private SelfPlay() {
+    }
+
+    /**
+     * Turns a quiet position into a training sample.
+     */
+    interface Sampler<T> {
+        T sample(VariantChessBoard board, Color sideToMove);
+    }
+
+    /**
+     * The samples of one game and its result.
+     */
+    static final class Game<T> {
+        final List<T> samples;
+        final double result; // 1 if White won, 0 if Black won, 0.5 for a draw
+
+        Game(List<T> samples, double result) {
+            this.samples = samples;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Plays games in parallel under one rule and returns them in order.
+     */
+    static <T> List<Game<T>> playAll(ForkJoinPool pool, ChessAI chessAI, EvalWeights weights, int ruleId, int games,
+                                     long seed, Sampler<T> sampler) {
+        List<Callable<Game<T>>> tasks = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            long gameSeed = seed + game;
+            tasks.add(() -> play(chessAI, weights, ruleId, new GameRandom(gameSeed), sampler));
+        }
+        List<Game<T>> results = new ArrayList<>();
+        for (Future<Game<T>> result : pool.invokeAll(tasks)) {
+            results.add(join(result));
+        }
+        return results;
+    }
+
+    /**
+     * Plays one game, sampling its quiet positions with the piece-square tables of the rule set on the board.
+     */
+    static <T> Game<T> play(ChessAI chessAI, EvalWeights weights, int ruleId, GameRandom random, Sampler<T> sampler) {
+        VariantChessBoard board = new VariantChessBoard(null);
+        board.initializeBoard(random);
+        GameState gameState = new GameState(board, random);
+        gameState.selectRuleByIndex(ruleId);
+        board.setPlacementTables(weights.getTables(ruleId));
+        MoveBuffer moves = new MoveBuffer(1);
+        List<T> samples = new ArrayList<>();
+        double result = 0.5;
+
+        for (int ply = 0; ply < MAX_PLIES; ply++) {
+            Color side = gameState.getCurrentTurn();
+            int count = moves.generate(0, board, side);
+            if (count == 0) {
+                break; // No legal move, scored as a draw like a stalemate
+            }
+            int move;
+            if (ply < OPENING_PLIES) {
+                move = moves.get(0, random.nextInt(count));
+            } else {
+                if (isQuiet(moves, count)) {
+                    samples.add(sampler.sample(board, side));
+                }
+                move = chessAI.calculateBestPackedMove(board, side, gameState.getSelectedRule(),
+                        gameState.getReversibleHashes(), random);
+            }
+            MoveExecutor.execute(board, gameState, PackedMove.toMove(move));
+            board.setPlacementTables(weights.getTables(ruleId)); // The search may have used other tables
+
+            if (gameState.isWin()) {
+                result = board.getPieceCount(Color.BLACK) == 0 ? 1 : 0;
+                break;
+            }
+            if (gameState.isDraw()) {
+                break;
+            }
+        }
+        return new Game<>(samples, result);
+    }
+
+    private static boolean isQuiet(MoveBuffer moves, int count) {
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.isCapture(moves.get(0, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tuning was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A tuning task failed", e.getCause());
+        }
+    }
+}
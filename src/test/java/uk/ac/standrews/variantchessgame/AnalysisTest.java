@@ -0,0 +1,139 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import uk.ac.standrews.variantchessgame.controller.GameController;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisTest {
+
+    private static VariantChessBoard startingBoard() {
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard("RNBQKBNR");
+        return board;
+    }
+
+    private static long[] history(VariantChessBoard board, Color color) {
+        return new long[]{Zobrist.hash(board, color)};
+    }
+
+    /**
+     * Tests that asking for fewer lines gives the same best lines, with the same scores, as scoring every move.
+     */
+    @Test
+    void testLinesMatchFullAnalysis() {
+        VariantChessBoard board = startingBoard();
+        GameRule rule = new CannonSpecialRule();
+        int moveCount = new MoveBuffer(1).generate(0, board, Color.WHITE);
+
+        Analysis all = new ChessAI().analyze(board, Color.WHITE, rule, history(board, Color.WHITE), moveCount, 3);
+        Analysis top = new ChessAI().analyze(board, Color.WHITE, rule, history(board, Color.WHITE), 3, 3);
+
+        assertEquals(moveCount, all.getLines().size(), "Every move should be scored.");
+        assertEquals(3, top.getLines().size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(all.getLines().get(i).getScore(), top.getLines().get(i).getScore(), "Line " + i);
+        }
+        for (int i = 1; i < all.getLines().size(); i++) {
+            assertTrue(all.getLines().get(i - 1).getScore() >= all.getLines().get(i).getScore(), "Lines should be best first.");
+        }
+        assertTrue(top.getNodes() < all.getNodes(), "Lines outside the best should mostly be cut off.");
+    }
+
+    /**
+     * Tests that sharing the iterations and the table makes several lines far cheaper than separate searches.
+     */
+    @Test
+    void testLinesShareTheSearch() {
+        VariantChessBoard board = startingBoard();
+        GameRule rule = new PawnPromotionRule(new GameRandom(1));
+
+        long single = new ChessAI().analyze(board, Color.WHITE, rule, history(board, Color.WHITE), 1, 3).getNodes();
+        long three = new ChessAI().analyze(board, Color.WHITE, rule, history(board, Color.WHITE), 3, 3).getNodes();
+
+        assertTrue(three < 3 * single, "Three lines took " + three + " nodes, one line " + single);
+    }
+
+    /**
+     * Tests that each line starts with its move, alternates sides with legal moves and is no longer than the depth.
+     */
+    @Test
+    void testPrincipalVariations() {
+        VariantChessBoard board = startingBoard();
+        long before = Zobrist.hash(board, Color.WHITE);
+
+        Analysis analysis = new ChessAI().analyze(board, Color.WHITE, new KingQueenSpecialRule(),
+                history(board, Color.WHITE), 2, 4);
+
+        assertEquals(before, Zobrist.hash(board, Color.WHITE), "The board should be restored.");
+        assertEquals(4, analysis.getDepth());
+        for (Analysis.Line line : analysis.getLines()) {
+            List<VariantChessMove> variation = line.getPrincipalVariation();
+            assertFalse(variation.isEmpty());
+            assertTrue(variation.size() <= 4);
+            assertEquals(PackedMove.pack(line.getMove()), PackedMove.pack(variation.get(0)));
+            assertEquals(4, line.getDepth());
+            VariantChessBoard replay = startingBoard();
+            Color side = Color.WHITE;
+            for (VariantChessMove move : variation) {
+                assertTrue(new MoveBuffer(1).isLegal(replay, side, PackedMove.pack(move)), "Each move should be legal.");
+                replay.movePiece(move);
+                side = side.opposite();
+            }
+        }
+    }
+
+    /**
+     * Tests that a free capture of the Queen is found as the best line with a winning score.
+     */
+    @Test
+    void testFindsFreeCapture() {
+        VariantChessBoard board = new VariantChessBoard();
+        for (int square = 0; square < 64; square++) {
+            board.setPieceAt(square >> 3, square & 7, null);
+        }
+        board.setPieceAt(7, 0, new Rook(Color.WHITE));
+        board.setPieceAt(7, 7, new King(Color.WHITE));
+        board.setPieceAt(0, 0, new Queen(Color.BLACK));
+        board.setPieceAt(0, 7, new King(Color.BLACK));
+
+        Analysis analysis = new ChessAI().analyze(board, Color.WHITE, null, history(board, Color.WHITE), 2, 2);
+
+        Analysis.Line best = analysis.getLines().get(0);
+        assertEquals(PackedMove.of(7, 0, 0, 0), PackedMove.pack(best.getMove()) & ~PackedMove.CAPTURE);
+        assertTrue(best.getScore() > 500, "Winning the Queen should score well: " + best.getScore());
+        assertTrue(analysis.getLines().get(1).getScore() < best.getScore());
+    }
+
+    @Test
+    void testInvalidArguments() {
+        VariantChessBoard board = startingBoard();
+        ChessAI chessAI = new ChessAI();
+        assertThrows(IllegalArgumentException.class,
+                () -> chessAI.analyze(board, Color.WHITE, null, history(board, Color.WHITE), 0, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> chessAI.analyze(board, Color.WHITE, null, history(board, Color.WHITE), 1, ChessAI.MAX_ANALYSIS_DEPTH + 1));
+    }
+
+    /**
+     * Tests that the endpoint analyses the published position without changing the live board.
+     */
+    @Test
+    void testControllerAnalysis() {
+        VariantChessBoard board = new VariantChessBoard();
+        GameController controller = new GameControllerBuilder(board).build();
+        long before = controller.getPositionHash();
+
+        Analysis analysis = controller.analyzePosition(2, 2);
+
+        assertEquals(Color.WHITE, analysis.getSideToMove());
+        assertEquals(2, analysis.getLines().size());
+        assertEquals(before, Zobrist.hash(board, Color.WHITE), "The live board should not change.");
+        assertThrows(ResponseStatusException.class, () -> controller.analyzePosition(0, 2));
+        assertThrows(ResponseStatusException.class, () -> controller.analyzePosition(2, 99));
+    }
+}
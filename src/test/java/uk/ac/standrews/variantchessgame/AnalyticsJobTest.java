@@ -0,0 +1,101 @@
+package uk.ac.standrews.variantchessgame;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.analytics.AnalyticsJob;
+import uk.ac.standrews.variantchessgame.analytics.GameStatistics;
+import uk.ac.standrews.variantchessgame.model.VariantChessMove;
+import uk.ac.standrews.variantchessgame.persistence.GameArchiveWriter;
+import uk.ac.standrews.variantchessgame.persistence.GameRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsJobTest {
+
+    private static int ply(int startX, int startY, int endX, int endY) {
+        return GameRecord.encodePly(new VariantChessMove(startX, startY, endX, endY));
+    }
+
+    // A white Cannon captures three black pawns and detonates on the third capture
+    private static final int[] DETONATION_GAME = {
+            ply(6, 1, 1, 0), ply(1, 2, 2, 2), ply(1, 0, 1, 3), ply(2, 2, 3, 2), ply(1, 3, 1, 4)};
+    private static final int[] OPENING = {ply(6, 3, 4, 3), ply(1, 4, 3, 4)};
+    // Starts on an empty square
+    private static final int[] INVALID = {ply(4, 4, 3, 4)};
+
+    private static byte[] writeArchive(int copies) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GameArchiveWriter writer = new GameArchiveWriter(bytes, 16)) {
+            for (int i = 0; i < copies; i++) {
+                writer.write(new GameRecord("RNBQKBNR", 0, GameRecord.RESULT_WHITE_WINS, DETONATION_GAME));
+                writer.write(new GameRecord("RKQNNBBR", 2, GameRecord.RESULT_DRAW, OPENING));
+                writer.write(new GameRecord("RNBQKBNR", 1, GameRecord.RESULT_BLACK_WINS, OPENING));
+                writer.write(new GameRecord("RNBQKBNR", 2, GameRecord.RESULT_UNKNOWN, INVALID));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Tests that every game is replayed once and counted under its rule and layout.
+     */
+    @Test
+    void testCountsPerRuleAndLayout() throws IOException {
+        GameStatistics statistics = new AnalyticsJob(4).run(new ByteArrayInputStream(writeArchive(100)));
+
+        assertEquals(300, statistics.getGameCount(), "Every valid game should be counted.");
+        assertEquals(100, statistics.getInvalidGames(), "Games that cannot be replayed should be counted separately.");
+        assertEquals(100, statistics.getWhiteWins(0), "White wins should be counted per rule.");
+        assertEquals(100, statistics.getBlackWins(1), "Black wins should be counted per rule.");
+        assertEquals(100, statistics.getDraws(2), "Draws should be counted per rule.");
+        assertEquals(100, statistics.getDetonations(0), "Each Cannon detonation should be counted.");
+        assertEquals(0, statistics.getDetonations(2), "No detonation happens under other rules.");
+        assertEquals(200, statistics.getLayoutGameCount("RNBQKBNR"), "Games should be counted per layout.");
+        assertEquals(100, statistics.getLayoutGameCount("RKQNNBBR"), "Games should be counted per layout.");
+    }
+
+    /**
+     * Tests that merging partial counters gives the same result as counting everything at once.
+     */
+    @Test
+    void testMerge() throws IOException {
+        GameStatistics whole = new AnalyticsJob(1).run(new ByteArrayInputStream(writeArchive(10)));
+        GameStatistics first = new AnalyticsJob(2).run(new ByteArrayInputStream(writeArchive(4)));
+        GameStatistics second = new AnalyticsJob(2).run(new ByteArrayInputStream(writeArchive(6)));
+
+        assertEquals(whole.toCsv(), first.merge(second).toCsv(), "Merged counters should equal the counters of the whole archive.");
+    }
+
+    /**
+     * Tests the CSV and JSON reports.
+     */
+    @Test
+    void testReports() throws IOException {
+        GameStatistics statistics = new AnalyticsJob(2).run(new ByteArrayInputStream(writeArchive(2)));
+
+        String[] rows = statistics.toCsv().split("\n");
+        assertTrue(rows[0].startsWith("dimension,key,games,white_wins,black_wins,draws,"), "The CSV should start with a header.");
+        assertEquals(1 + 3 + 2, rows.length, "There should be one row per rule and per layout played.");
+        assertTrue(rows[1].startsWith("rule,CannonSpecialRule,2,2,0,0,1.0000,0.0000,0.0000,10,2,2,"),
+                "The Cannon rule row should hold its results, plies and detonations.");
+
+        JsonNode json = new ObjectMapper().readTree(statistics.toJson());
+        assertEquals(6, json.get("games").asLong(), "The JSON should hold the game count.");
+        assertEquals(2, json.get("invalidGames").asLong(), "The JSON should hold the invalid game count.");
+        assertEquals("KingQueenSpecialRule", json.get("rules").get(1).get("rule").asText(), "Rules should be listed by id.");
+        assertEquals(2, json.get("layouts").size(), "Only layouts that were played should be listed.");
+    }
+
+    /**
+     * Tests that a job without workers is rejected.
+     */
+    @Test
+    void testInvalidParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> new AnalyticsJob(0));
+    }
+}
@@ -0,0 +1,142 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttackMapTest {
+
+    private VariantChessBoard board;
+
+    @BeforeEach
+    void setUp() {
+        board = new VariantChessBoard();
+    }
+
+    private void clearBoard() {
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                board.setPieceAt(x, y, null);
+            }
+        }
+    }
+
+    /**
+     * Checks the attack map of the board against the attacks of every piece computed from scratch.
+     */
+    private void assertMatchesScratch(String message) {
+        AttackMap attackMap = board.getAttackMap();
+        for (Color color : Color.values()) {
+            int[] counts = new int[64];
+            long attacked = 0L;
+            for (int from = 0; from < 64; from++) {
+                VariantChessPiece piece = board.getPieceAt(from / 8, from % 8);
+                if (piece != null && piece.getColor() == color) {
+                    long attacks = piece.getAttacks(from, board);
+                    assertEquals(attacks, attackMap.getAttacksFrom(from), message + ": attacks from " + from);
+                    attacked |= attacks;
+                    for (int to = 0; to < 64; to++) {
+                        if ((attacks & (1L << to)) != 0) {
+                            counts[to]++;
+                        }
+                    }
+                }
+            }
+            assertEquals(attacked, attackMap.getAttacks(color), message + ": squares attacked by " + color);
+            for (int square = 0; square < 64; square++) {
+                assertEquals(counts[square], attackMap.getAttackerCount(color, square),
+                        message + ": attackers of " + square + " by " + color);
+                assertEquals(counts[square], Long.bitCount(attackMap.getAttackers(color, square)),
+                        message + ": attacker set of " + square + " by " + color);
+            }
+        }
+    }
+
+    /**
+     * Tests that the map stays equal to one computed from scratch through random moves, takebacks, removals and conversions.
+     */
+    @Test
+    void testIncrementalUpdatesMatchScratch() {
+        SplittableRandom random = new SplittableRandom(42);
+        MoveBuffer buffer = new MoveBuffer(1);
+        assertMatchesScratch("Starting position");
+        Color toMove = Color.WHITE;
+        for (int step = 0; step < 400; step++) {
+            int count = buffer.generate(0, board, toMove);
+            if (count == 0 || board.getPieceCount(Color.WHITE) < 4 || board.getPieceCount(Color.BLACK) < 4) {
+                board.initializeBoard();
+                toMove = Color.WHITE;
+                continue;
+            }
+            int move = buffer.get(0, random.nextInt(count));
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            VariantChessPiece captured = board.getPieceAt(to / 8, to % 8);
+            board.movePiece(from, to);
+            assertMatchesScratch("After move " + step);
+
+            int roll = random.nextInt(4);
+            if (roll == 0) {
+                board.movePiece(to, from); // Take the move back
+                board.setPieceAt(to / 8, to % 8, captured);
+                assertMatchesScratch("After takeback " + step);
+            } else if (roll == 1) {
+                VariantChessPiece moved = board.getPieceAt(to / 8, to % 8);
+                if (moved instanceof Pawn) {
+                    ((Pawn) moved).setFirstMove(false);
+                    board.pieceChanged(to / 8, to % 8);
+                } else {
+                    board.convertPieceAt(to / 8, to % 8, toMove.opposite());
+                }
+                assertMatchesScratch("After changing the piece of move " + step);
+            }
+            toMove = toMove.opposite();
+        }
+    }
+
+    /**
+     * Tests that a Cannon attacks only beyond exactly one screen and that placing pieces on its line updates its attacks.
+     */
+    @Test
+    void testCannonScreenAttacks() {
+        clearBoard();
+        board.setPieceAt(4, 0, new Cannon(Color.WHITE));
+        AttackMap attackMap = board.getAttackMap();
+        assertEquals(0, attackMap.getAttackerCount(Color.WHITE, 4 * 8 + 6), "Without a screen the Cannon attacks nothing.");
+
+        board.setPieceAt(4, 2, new Pawn(Color.WHITE)); // Screen
+        assertEquals(1, attackMap.getAttackerCount(Color.WHITE, 4 * 8 + 6), "The Cannon attacks beyond its screen.");
+        assertEquals(0, attackMap.getAttackerCount(Color.WHITE, 4 * 8 + 1), "Not in front of the screen.");
+
+        board.setPieceAt(4, 4, new Knight(Color.BLACK)); // The first piece beyond the screen ends the attack
+        assertEquals(1, attackMap.getAttackerCount(Color.WHITE, 4 * 8 + 4), "The Knight is attacked.");
+        assertEquals(0, attackMap.getAttackerCount(Color.WHITE, 4 * 8 + 6), "Nothing beyond the Knight is attacked.");
+        assertMatchesScratch("Cannon position");
+
+        board.setPieceAt(4, 2, null); // Removing the screen leaves the Knight as the screen
+        assertEquals(0, attackMap.getAttackerCount(Color.WHITE, 4 * 8 + 4), "The Knight is now the screen.");
+        assertEquals(1, attackMap.getAttackerCount(Color.WHITE, 4 * 8 + 6), "The Cannon attacks beyond the Knight.");
+    }
+
+    /**
+     * Tests mobility and undefended pieces on a small position.
+     */
+    @Test
+    void testMobilityAndUndefendedPieces() {
+        clearBoard();
+        board.setPieceAt(0, 0, new Rook(Color.WHITE));
+        board.setPieceAt(0, 1, new Knight(Color.WHITE));
+        board.setPieceAt(3, 0, new Knight(Color.BLACK));
+        AttackMap attackMap = board.getAttackMap();
+
+        // The Rook sees three squares down to the black Knight and is blocked to the right by its own Knight
+        assertEquals(3 + 3, attackMap.getMobility(Color.WHITE), "Rook (3) and Knight (3) squares, own pieces excluded.");
+        assertEquals(Attacks.bit(3, 0), attackMap.getUndefended(Color.BLACK), "The black Knight is attacked and undefended.");
+        assertEquals(0L, attackMap.getUndefended(Color.WHITE), "The Knights do not reach each other.");
+        assertEquals(Attacks.bit(0, 0), attackMap.getAttackers(Color.WHITE, 3 * 8), "Only the Rook attacks the black Knight.");
+    }
+}
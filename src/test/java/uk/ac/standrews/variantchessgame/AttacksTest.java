@@ -0,0 +1,108 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.Attacks;
+import uk.ac.standrews.variantchessgame.model.Cannon;
+import uk.ac.standrews.variantchessgame.model.Color;
+import uk.ac.standrews.variantchessgame.model.Pawn;
+import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+import uk.ac.standrews.variantchessgame.model.VariantChessMove;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttacksTest {
+
+    private static final int[][] STRAIGHT = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] DIAGONAL = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    /**
+     * Walks the rays from a square through an occupancy, as the pieces did before the tables existed.
+     */
+    private static long walk(int square, int[][] directions, long occupancy, boolean hops) {
+        long result = 0L;
+        for (int[] direction : directions) {
+            int x = square / 8 + direction[0];
+            int y = square % 8 + direction[1];
+            int piecesPassed = 0;
+            while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                boolean occupied = (occupancy & Attacks.bit(x, y)) != 0;
+                if (hops ? piecesPassed == 1 && occupied : piecesPassed == 0) {
+                    result |= Attacks.bit(x, y);
+                }
+                if (occupied && ++piecesPassed == 2) {
+                    break;
+                }
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests the sliding tables against ray walks for many random occupancies, so that every magic number is checked.
+     */
+    @Test
+    void testSlidingTablesMatchRayWalks() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int square = 0; square < 64; square++) {
+            for (int i = 0; i < 2000; i++) {
+                long occupancy = random.nextLong() & random.nextLong(); // About a quarter of the squares occupied
+                if (i % 2 == 0) {
+                    occupancy |= random.nextLong();
+                }
+                assertEquals(walk(square, STRAIGHT, occupancy, false), Attacks.straight(square, occupancy), "Straight slides from " + square);
+                assertEquals(walk(square, DIAGONAL, occupancy, false), Attacks.diagonal(square, occupancy), "Diagonal slides from " + square);
+                assertEquals(walk(square, STRAIGHT, occupancy, true), Attacks.cannonCaptures(square, occupancy), "Cannon hops from " + square);
+                assertEquals(walk(square, STRAIGHT, occupancy, false) & ~occupancy, Attacks.cannonQuiet(square, occupancy),
+                        "Cannon slides from " + square);
+            }
+        }
+    }
+
+    /**
+     * Tests the fixed jump tables on a corner and a central square.
+     */
+    @Test
+    void testJumpTables() {
+        assertEquals(Attacks.bit(1, 2) | Attacks.bit(2, 1), Attacks.knight(0), "A Knight in the corner has two moves.");
+        assertEquals(8, Long.bitCount(Attacks.knight(4 * 8 + 4)), "A central Knight has eight moves.");
+        assertEquals(Attacks.bit(0, 1) | Attacks.bit(1, 0) | Attacks.bit(1, 1), Attacks.king(0), "A King in the corner has three moves.");
+        assertEquals(Attacks.bit(2, 2), Attacks.bishop(0), "A Bishop in the corner has one jump.");
+        assertEquals(4, Long.bitCount(Attacks.bishop(4 * 8 + 4)), "A central Bishop has four jumps.");
+    }
+
+    /**
+     * Tests that a Cannon captures only an opponent's piece behind exactly one screen.
+     */
+    @Test
+    void testCannonTargets() {
+        VariantChessBoard board = new VariantChessBoard();
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                board.setPieceAt(x, y, null);
+            }
+        }
+        Cannon cannon = new Cannon(Color.WHITE);
+        board.setPieceAt(4, 0, cannon);
+        board.setPieceAt(4, 2, new Pawn(Color.WHITE));  // Screen
+        board.setPieceAt(4, 5, new Pawn(Color.BLACK));  // Target behind the screen
+        board.setPieceAt(4, 7, new Pawn(Color.BLACK));  // Behind a second piece
+        board.setPieceAt(1, 0, new Pawn(Color.WHITE));  // Screen
+        board.setPieceAt(0, 0, new Pawn(Color.WHITE));  // Own piece behind the screen
+
+        long targets = cannon.getTargets(4 * 8, board);
+        long expected = Attacks.bit(4, 1) | Attacks.bit(4, 5)      // Slide, capture to the right
+                | Attacks.bit(5, 0) | Attacks.bit(6, 0) | Attacks.bit(7, 0)  // Slides down
+                | Attacks.bit(3, 0) | Attacks.bit(2, 0);            // Slides up to the screen
+        assertEquals(expected, targets, "Cannon targets should follow the single-screen rule.");
+
+        VariantChessMove capture = new VariantChessMove(4, 0, 4, 5);
+        assertTrue(cannon.isValidMove(capture, board), "The Cannon should capture behind one screen.");
+        assertTrue(capture.isCapture(), "The move should be marked as a capture.");
+        assertFalse(cannon.isValidMove(new VariantChessMove(4, 0, 4, 7), board), "Two screens block the capture.");
+        assertFalse(cannon.isValidMove(new VariantChessMove(4, 0, 0, 0), board), "The Cannon cannot capture its own piece.");
+    }
+}
@@ -27,7 +27,7 @@ class BishopTest {
         whiteBishop = new Bishop(Color.WHITE);
         blackBishop = new Bishop(Color.BLACK);
         // Manually set the position of the white Bishop to avoid conflicts with the initialized board
-        board.getBoard()[2][2] = whiteBishop;
+        board.setPieceAt(2, 2, whiteBishop);
     }
     /**
      * Test the validity of a Bishop's田字形 move with a piece in the middle.
@@ -36,7 +36,7 @@ class BishopTest {
     @Test
     void testValidFieldMoveWithPieceInMiddle() {
         // Set up a 田字形 move with a piece in the middle
-        board.getBoard()[3][3] = new Pawn(Color.WHITE);
+        board.setPieceAt(3, 3, new Pawn(Color.WHITE));
         VariantChessMove move = new VariantChessMove(2, 2, 4, 4);
         assertTrue(whiteBishop.isValidMove(move, board), "Bishop should be able to perform a 田字形 move with a piece in the middle of the path.");
         board.movePiece(move);
@@ -51,8 +51,8 @@ class BishopTest {
     @Test
     void testInvalidCaptureOwnPieceWithFieldMove() {
         // Place a friendly piece at the destination
-        board.getBoard()[4][4] = new Pawn(Color.WHITE);
-        board.getBoard()[3][3] = new Pawn(Color.WHITE); // Allow田字形 move
+        board.setPieceAt(4, 4, new Pawn(Color.WHITE));
+        board.setPieceAt(3, 3, new Pawn(Color.WHITE)); // Allow田字形 move
         VariantChessMove move = new VariantChessMove(2, 2, 4, 4);
         assertFalse(whiteBishop.isValidMove(move, board), "Bishop should not be able to capture its own piece with a田字形 move.");
     }
@@ -64,8 +64,8 @@ class BishopTest {
     @Test
     void testCaptureEnemyPieceWithFieldMove() {
         // Place an enemy piece at the destination
-        board.getBoard()[4][4] = new Pawn(Color.BLACK);
-        board.getBoard()[3][3] = new Pawn(Color.WHITE); // Allow田字形 move
+        board.setPieceAt(4, 4, new Pawn(Color.BLACK));
+        board.setPieceAt(3, 3, new Pawn(Color.WHITE)); // Allow田字形 move
         VariantChessMove move = new VariantChessMove(2, 2, 4, 4);
         assertTrue(whiteBishop.isValidMove(move, board), "Bishop should be able to capture an enemy piece with a田字形 move.");
         assertTrue(move.isCapture(), "Move should be marked as a capture.");
@@ -80,7 +80,7 @@ class BishopTest {
     @Test
     void testBishopColorAfterMultipleFieldMoves() {
         // Perform a田字形 move
-        board.getBoard()[3][3] = new Pawn(Color.WHITE);
+        board.setPieceAt(3, 3, new Pawn(Color.WHITE));
         VariantChessMove move = new VariantChessMove(2, 2, 4, 4);
         assertTrue(whiteBishop.isValidMove(move, board), "Bishop should be able to perform a 田字形 move.");
         board.movePiece(move);
@@ -98,7 +98,7 @@ class BishopTest {
     @Test
     void testValidFieldMove() {
         // Place a piece in the middle to allow 田字形 move
-        board.getBoard()[3][3] = new Pawn(Color.WHITE);
+        board.setPieceAt(3, 3, new Pawn(Color.WHITE));
         VariantChessMove move = new VariantChessMove(2, 2, 4, 4);
         assertTrue(whiteBishop.isValidMove(move, board), "Bishop should be able to perform a 田字形 move to an empty position.");
         board.movePiece(move);
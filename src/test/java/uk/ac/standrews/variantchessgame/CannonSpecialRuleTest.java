@@ -21,14 +21,14 @@ class CannonSpecialRuleTest {
     /**
      * Initializes the test environment before each test is run.
      * Creates a new CannonSpecialRule instance, mocks a VariantChessBoard,
-     * and sets up a Cannon with a capture count of 3.
+     * and sets up a Cannon with two captures, so that the capture under test is its third.
      */
     @BeforeEach
     void setUp() {
         cannonSpecialRule = new CannonSpecialRule();
         mockBoard = mock(VariantChessBoard.class);
         cannon = new Cannon(Color.WHITE);
-        cannon.setCaptureCount(3);  // Set capture count to 3 to trigger detonation
+        cannon.setCaptureCount(2);  // The next capture is the third, which triggers detonation
 
         // Configure the mock board to return true for valid positions within the bounds of the chessboard
         when(mockBoard.isInBounds(anyInt(), anyInt())).thenAnswer(invocation -> {
@@ -47,7 +47,7 @@ class CannonSpecialRuleTest {
         setupBoardWithPieces(Color.BLACK, cannon);
 
         VariantChessMove move = new VariantChessMove(3, 3, 3, 3);
-        cannonSpecialRule.applyRule(move, cannon, mockBoard);
+        capture(move, cannon);
 
         // Verify that enemy pieces around the Cannon are removed
         verify(mockBoard, times(1)).setPieceAt(2, 3, null);
@@ -68,7 +68,7 @@ class CannonSpecialRuleTest {
         setupBoardWithMixedPieces(Color.WHITE, cannon);
 
         VariantChessMove move = new VariantChessMove(3, 3, 3, 3);
-        cannonSpecialRule.applyRule(move, cannon, mockBoard);
+        capture(move, cannon);
 
         // Verify that only enemy pieces around the Cannon are removed
         verify(mockBoard, times(1)).setPieceAt(2, 3, null);
@@ -93,7 +93,7 @@ class CannonSpecialRuleTest {
         setupBoardAtEdge(Color.BLACK, cannon);
 
         VariantChessMove move = new VariantChessMove(0, 7, 0, 7);
-        cannonSpecialRule.applyRule(move, cannon, mockBoard);
+        capture(move, cannon);
 
         // Verify that only enemy pieces within the board bounds are removed
         verify(mockBoard, times(1)).setPieceAt(0, 6, null);
@@ -109,10 +109,10 @@ class CannonSpecialRuleTest {
      */
     @Test
     void testNoDetonationBeforeThreeCaptures() {
-        cannon.setCaptureCount(2);  // Set capture count to 2, which should not trigger detonation
+        cannon.setCaptureCount(1);  // The next capture is the second, which should not trigger detonation
 
         VariantChessMove move = new VariantChessMove(3, 3, 3, 3);
-        cannonSpecialRule.applyRule(move, cannon, mockBoard);
+        capture(move, cannon);
 
         // Verify that no pieces are removed
         verify(mockBoard, never()).setPieceAt(anyInt(), anyInt(), any());
@@ -127,7 +127,7 @@ class CannonSpecialRuleTest {
         setupBoardWithEmptySquares(cannon);
 
         VariantChessMove move = new VariantChessMove(3, 3, 3, 3);
-        cannonSpecialRule.applyRule(move, cannon, mockBoard);
+        capture(move, cannon);
 
         // Verify that no pieces are removed except the Cannon itself
         verify(mockBoard, never()).setPieceAt(2, 3, null);
@@ -148,7 +148,7 @@ class CannonSpecialRuleTest {
         setupBoardWithOneEnemyPiece(Color.BLACK, cannon);
 
         VariantChessMove move = new VariantChessMove(3, 3, 3, 3);
-        cannonSpecialRule.applyRule(move, cannon, mockBoard);
+        capture(move, cannon);
 
         // Verify that only the single enemy piece is removed
         verify(mockBoard, times(1)).setPieceAt(3, 4, null);
@@ -165,14 +165,14 @@ class CannonSpecialRuleTest {
     void testDetonateWithMultipleCannonDetonations() {
         // Setup a second Cannon to test multiple detonation scenarios
         Cannon anotherCannon = new Cannon(Color.WHITE);
-        anotherCannon.setCaptureCount(3);
+        anotherCannon.setCaptureCount(2);
         setupBoardWithMultipleCannons(Color.BLACK, cannon, anotherCannon);
 
         VariantChessMove move1 = new VariantChessMove(3, 3, 3, 3);
         VariantChessMove move2 = new VariantChessMove(5, 5, 5, 5);
 
-        cannonSpecialRule.applyRule(move1, cannon, mockBoard);
-        cannonSpecialRule.applyRule(move2, anotherCannon, mockBoard);
+        capture(move1, cannon);
+        capture(move2, anotherCannon);
 
         // Verify that enemy pieces around both Cannons are removed
         verify(mockBoard, times(1)).setPieceAt(2, 3, null);
@@ -198,7 +198,7 @@ class CannonSpecialRuleTest {
         setupBoardWithBlockedCannon(Color.WHITE, cannon);
 
         VariantChessMove move = new VariantChessMove(3, 3, 3, 3);
-        cannonSpecialRule.applyRule(move, cannon, mockBoard);
+        capture(move, cannon);
 
         // Verify that only enemy pieces are removed
         verify(mockBoard, times(1)).setPieceAt(2, 3, null);
@@ -216,6 +216,13 @@ class CannonSpecialRuleTest {
 
     // Helper methods for setting up various board configurations for testing
 
+    /**
+     * Fires the capture event of a move of the Cannon through the rule, as a game would after the move.
+     */
+    private void capture(VariantChessMove move, Cannon cannon) {
+        new RuleEngine(cannonSpecialRule).fire(RuleEngine.ON_CAPTURE, move, cannon, new Pawn(Color.BLACK), mockBoard);
+    }
+
     /**
      * Sets up the mock board with enemy pieces around the Cannon.
      */
@@ -36,7 +36,7 @@ class CannonTest {
     @Test
     void testValidMove() {
         // Place the white Cannon at (2, 2)
-        board.getBoard()[2][2] = whiteCannon;
+        board.setPieceAt(2, 2, whiteCannon);
 
         // Move in a straight line to an empty position (2, 5)
         VariantChessMove move = new VariantChessMove(2, 2, 2, 5);
@@ -56,8 +56,8 @@ class CannonTest {
     @Test
     void testMoveBlockedByPiece() {
         // Place the white Cannon at (2, 2) and a white Pawn at (2, 4)
-        board.getBoard()[2][2] = whiteCannon;
-        board.getBoard()[2][4] = new Pawn(Color.WHITE);
+        board.setPieceAt(2, 2, whiteCannon);
+        board.setPieceAt(2, 4, new Pawn(Color.WHITE));
 
         // Attempt to move to (2, 5)
         VariantChessMove move = new VariantChessMove(2, 2, 2, 5);
@@ -72,9 +72,9 @@ class CannonTest {
     @Test
     void testCaptureMove() {
         // Place the white Cannon at (2, 2), a black Pawn at (2, 4), and another black Pawn at (2, 6)
-        board.getBoard()[2][2] = whiteCannon;
-        board.getBoard()[2][4] = new Pawn(Color.BLACK);
-        board.getBoard()[2][6] = new Pawn(Color.BLACK);
+        board.setPieceAt(2, 2, whiteCannon);
+        board.setPieceAt(2, 4, new Pawn(Color.BLACK));
+        board.setPieceAt(2, 6, new Pawn(Color.BLACK));
 
         // Attempt to capture the black Pawn
         VariantChessMove move = new VariantChessMove(2, 2, 2, 6);
@@ -90,7 +90,7 @@ class CannonTest {
     @Test
     void testInvalidMove() {
         // Place the white Cannon at (2, 2)
-        board.getBoard()[2][2] = whiteCannon;
+        board.setPieceAt(2, 2, whiteCannon);
 
         // Attempt to move non-linearly
         VariantChessMove move = new VariantChessMove(2, 2, 3, 3);
@@ -110,8 +110,8 @@ class CannonTest {
     @Test
     void testCaptureWithoutJump() {
         // Place the white Cannon at (2, 2) and a black Pawn at (2, 5)
-        board.getBoard()[2][2] = whiteCannon;
-        board.getBoard()[2][5] = new Pawn(Color.BLACK);
+        board.setPieceAt(2, 2, whiteCannon);
+        board.setPieceAt(2, 5, new Pawn(Color.BLACK));
 
         // Attempt to capture the black Pawn directly
         VariantChessMove move = new VariantChessMove(2, 2, 2, 5);
@@ -126,9 +126,9 @@ class CannonTest {
     @Test
     void testMoveAfterCapture() {
         // Place the white Cannon at (2, 2), a black Pawn at (2, 4), and another black Pawn at (2, 6)
-        board.getBoard()[2][2] = whiteCannon;
-        board.getBoard()[2][4] = new Pawn(Color.BLACK);
-        board.getBoard()[2][6] = new Pawn(Color.BLACK);
+        board.setPieceAt(2, 2, whiteCannon);
+        board.setPieceAt(2, 4, new Pawn(Color.BLACK));
+        board.setPieceAt(2, 6, new Pawn(Color.BLACK));
 
         // Capture the black Pawn
         VariantChessMove captureMove = new VariantChessMove(2, 2, 2, 6);
@@ -150,9 +150,9 @@ class CannonTest {
     @Test
     void testCaptureOwnPiece() {
         // Place the white Cannon at (2, 2), and white Pawns at (2, 4) and (2, 6)
-        board.getBoard()[2][2] = whiteCannon;
-        board.getBoard()[2][4] = new Pawn(Color.WHITE);
-        board.getBoard()[2][6] = new Pawn(Color.WHITE);
+        board.setPieceAt(2, 2, whiteCannon);
+        board.setPieceAt(2, 4, new Pawn(Color.WHITE));
+        board.setPieceAt(2, 6, new Pawn(Color.WHITE));
 
         // Attempt to capture its own Pawn
         VariantChessMove move = new VariantChessMove(2, 2, 2, 6);
@@ -167,7 +167,7 @@ class CannonTest {
     @Test
     void testCannonColorAfterMove() {
         // Place the white Cannon at (2, 2)
-        board.getBoard()[2][2] = whiteCannon;
+        board.setPieceAt(2, 2, whiteCannon);
 
         // Move the white Cannon to (2, 5)
         VariantChessMove move = new VariantChessMove(2, 2, 2, 5);
@@ -192,9 +192,9 @@ class CannonTest {
     @Test
     void testCaptureEnemyPiece() {
         // Place the white Cannon at (2, 2), a white Pawn at (2, 4), and a black Pawn at (2, 6)
-        board.getBoard()[2][2] = whiteCannon;
-        board.getBoard()[2][4] = new Pawn(Color.WHITE);
-        board.getBoard()[2][6] = new Pawn(Color.BLACK);
+        board.setPieceAt(2, 2, whiteCannon);
+        board.setPieceAt(2, 4, new Pawn(Color.WHITE));
+        board.setPieceAt(2, 6, new Pawn(Color.BLACK));
 
         // Attempt to capture the black Pawn
         VariantChessMove move = new VariantChessMove(2, 2, 2, 6);
@@ -33,21 +33,21 @@ class ChessAITest {
     @Test
     void testEvaluatePieceValue() {
         // Testing the value of different pieces
-        assertEquals(1, callEvaluatePieceValue(new Pawn(Color.WHITE), mock(GameRule.class))); // Pawn value
-        assertEquals(3, callEvaluatePieceValue(new Knight(Color.WHITE), mock(GameRule.class))); // Knight value
-        assertEquals(3, callEvaluatePieceValue(new Bishop(Color.WHITE), mock(GameRule.class))); // Bishop value
-        assertEquals(6, callEvaluatePieceValue(new Rook(Color.WHITE), mock(GameRule.class))); // Rook value
-        assertEquals(7, callEvaluatePieceValue(new Queen(Color.WHITE), mock(GameRule.class))); // Queen value
-        assertEquals(4, callEvaluatePieceValue(new King(Color.WHITE), mock(GameRule.class))); // King value
+        assertEquals(100, callEvaluatePieceValue(new Pawn(Color.WHITE), mock(GameRule.class))); // Pawn value
+        assertEquals(300, callEvaluatePieceValue(new Knight(Color.WHITE), mock(GameRule.class))); // Knight value
+        assertEquals(300, callEvaluatePieceValue(new Bishop(Color.WHITE), mock(GameRule.class))); // Bishop value
+        assertEquals(600, callEvaluatePieceValue(new Rook(Color.WHITE), mock(GameRule.class))); // Rook value
+        assertEquals(700, callEvaluatePieceValue(new Queen(Color.WHITE), mock(GameRule.class))); // Queen value
+        assertEquals(400, callEvaluatePieceValue(new King(Color.WHITE), mock(GameRule.class))); // King value
 
         // Test Cannon value without special rule
         Cannon cannon = new Cannon(Color.WHITE);
-        assertEquals(5, callEvaluatePieceValue(cannon, mock(GameRule.class))); // Cannon base value
+        assertEquals(500, callEvaluatePieceValue(cannon, mock(GameRule.class))); // Cannon base value
 
         // Test Cannon value with special rule
         cannon.incrementCaptureCount(); // Increase capture count
         cannon.incrementCaptureCount(); // Increase capture count
-        assertEquals(8, callEvaluatePieceValue(cannon, cannonSpecialRule)); // Base + bonus for capture count
+        assertEquals(800, callEvaluatePieceValue(cannon, cannonSpecialRule)); // Base + bonus for capture count
     }
 
     /**
@@ -59,15 +59,15 @@ class ChessAITest {
         Pawn pawn = new Pawn(Color.WHITE);
 
         // No captures
-        assertEquals(2, callEvaluatePieceValue(pawn, pawnPromotionRule)); // 1 base + 1 bonus
+        assertEquals(200, callEvaluatePieceValue(pawn, pawnPromotionRule)); // 100 base + 100 bonus
 
         // One capture
         pawn.incrementCaptureCount();
-        assertEquals(4, callEvaluatePieceValue(pawn, pawnPromotionRule)); // 1 base + 3 bonus
+        assertEquals(400, callEvaluatePieceValue(pawn, pawnPromotionRule)); // 100 base + 300 bonus
 
         // Two captures
         pawn.incrementCaptureCount();
-        assertEquals(5, callEvaluatePieceValue(pawn, pawnPromotionRule)); // 1 base + 4 bonus
+        assertEquals(500, callEvaluatePieceValue(pawn, pawnPromotionRule)); // 100 base + 400 bonus
     }
 
     /**
@@ -88,6 +88,55 @@ class ChessAITest {
                 (bestMoveWhite.getEndX() == 0 && bestMoveWhite.getEndY() == 1));
     }
 
+    /**
+     * Tests that a move repeating an earlier position of the game is scored as a draw.
+     * Black is behind on material, so it should prefer returning to a position already seen.
+     */
+    @Test
+    void testRepetitionScoredAsDraw() {
+        clearBoard();
+        board.setPieceAt(7, 7, new King(Color.WHITE));
+        board.setPieceAt(0, 1, new King(Color.BLACK));
+        board.setPieceAt(7, 3, new Rook(Color.WHITE));
+        long whiteToMove = Zobrist.hash(board, Color.WHITE); // The position Black can return to
+        board.movePiece(new VariantChessMove(7, 3, 7, 2));
+        long blackToMove = Zobrist.hash(board, Color.BLACK);
+        board.movePiece(new VariantChessMove(0, 1, 0, 0));
+        long whiteToMoveAgain = Zobrist.hash(board, Color.WHITE);
+        board.movePiece(new VariantChessMove(7, 2, 7, 3));
+        long current = Zobrist.hash(board, Color.BLACK);
+
+        VariantChessMove move = chessAI.calculateBestMove(board, Color.BLACK, pawnPromotionRule,
+                new long[]{whiteToMove, blackToMove, whiteToMoveAgain, current});
+
+        assertNotNull(move, "Black should have a move.");
+        assertEquals(0, move.getEndX(), "Black should return its King to the repeated square.");
+        assertEquals(1, move.getEndY(), "Black should return its King to the repeated square.");
+    }
+
+    /**
+     * Tests that the packed result names the same move as the move object returned at the API boundary.
+     */
+    @Test
+    void testPackedMoveIsPlayable() {
+        long[] history = {Zobrist.hash(board, Color.WHITE)};
+        int move = chessAI.calculateBestPackedMove(board, Color.WHITE, pawnPromotionRule, history);
+        VariantChessMove converted = PackedMove.toMove(move);
+        VariantChessPiece piece = board.getPieceAt(converted.getStartX(), converted.getStartY());
+
+        assertNotNull(piece, "The move should start on an occupied square.");
+        assertEquals(Color.WHITE, piece.getColor(), "The move should be made by a white piece.");
+        assertTrue(piece.isValidMove(converted, board), "The move should be valid.");
+    }
+
+    private void clearBoard() {
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                board.setPieceAt(x, y, null);
+            }
+        }
+    }
+
     /**
      * Calls the private evaluatePieceValue method of ChessAI using reflection.
      *
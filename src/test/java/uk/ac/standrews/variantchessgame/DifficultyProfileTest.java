@@ -0,0 +1,107 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import uk.ac.standrews.variantchessgame.controller.GameController;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DifficultyProfileTest {
+
+    /**
+     * Tests that presets are found by name in any case and by index, and that invalid profiles are rejected.
+     */
+    @Test
+    void testPresets() {
+        assertSame(DifficultyProfile.BEGINNER, DifficultyProfile.byName("beginner"));
+        assertSame(DifficultyProfile.EXPERT, DifficultyProfile.byName("EXPERT"));
+        assertThrows(IllegalArgumentException.class, () -> DifficultyProfile.byName("GRANDMASTER"));
+        assertThrows(IllegalArgumentException.class, () -> new DifficultyProfile("NONE", 0, 1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DifficultyProfile("DEEP", 1, ChessAI.MAX_ANALYSIS_DEPTH + 1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DifficultyProfile("NOISY", 1, 1, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DifficultyProfile("INSTANT", 1, 1, 0, 0));
+        assertSame(DifficultyProfile.CLUB, DifficultyProfile.byIndex(DifficultyProfile.presetIndex(DifficultyProfile.CLUB)));
+        assertEquals(-1, DifficultyProfile.presetIndex(null));
+        assertNull(DifficultyProfile.byIndex(-1));
+        assertThrows(IllegalArgumentException.class, () -> DifficultyProfile.byIndex(4));
+        assertThrows(IllegalArgumentException.class, () -> DifficultyProfile.presetIndex(new DifficultyProfile("CUSTOM", 1, 1, 0, 1)));
+    }
+
+    /**
+     * Tests that every preset plays a legal move without visiting more positions than its budget.
+     */
+    @Test
+    void testPresetsStayWithinNodeBudget() {
+        ChessAI chessAI = new ChessAI();
+        VariantChessBoard board = new VariantChessBoard();
+        PawnPromotionRule rule = new PawnPromotionRule();
+        long[] history = {Zobrist.hash(board, Color.WHITE)};
+        for (DifficultyProfile profile : new DifficultyProfile[]{DifficultyProfile.BEGINNER, DifficultyProfile.CASUAL,
+                DifficultyProfile.CLUB, DifficultyProfile.EXPERT}) {
+            VariantChessMove move = chessAI.calculateBestMove(board, Color.WHITE, rule, history, new GameRandom(1), profile);
+
+            assertNotNull(move, profile.getName() + " should find a move.");
+            VariantChessPiece piece = board.getPieceAt(move.getStartX(), move.getStartY());
+            assertEquals(Color.WHITE, piece.getColor());
+            assertTrue(piece.isValidMove(move, board), profile.getName() + " should play a legal move.");
+            assertTrue(chessAI.getLastSearchNodes() <= profile.getNodeBudget(),
+                    profile.getName() + " visited " + chessAI.getLastSearchNodes() + " nodes.");
+        }
+    }
+
+    /**
+     * Tests that a search with a practically unlimited budget still stops at its time ceiling.
+     */
+    @Test
+    void testTimeCeiling() {
+        ChessAI chessAI = new ChessAI();
+        VariantChessBoard board = new VariantChessBoard();
+        long[] history = {Zobrist.hash(board, Color.WHITE)};
+        DifficultyProfile profile = new DifficultyProfile("DEEP", Long.MAX_VALUE, ChessAI.MAX_ANALYSIS_DEPTH, 0, 20);
+
+        long start = System.nanoTime();
+        int move = chessAI.calculateBestPackedMove(board, Color.WHITE, new CannonSpecialRule(), history,
+                new GameRandom(1), profile);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertNotEquals(PackedMove.NONE, move, "White should have a move.");
+        assertTrue(elapsedMillis < 500, "The search took " + elapsedMillis + " ms.");
+    }
+
+    /**
+     * Tests that the same random stream gives the same move, noise included.
+     */
+    @Test
+    void testSameSeedSameMove() {
+        ChessAI chessAI = new ChessAI();
+        VariantChessBoard board = new VariantChessBoard();
+        PawnPromotionRule rule = new PawnPromotionRule();
+        long[] history = {Zobrist.hash(board, Color.WHITE)};
+
+        int first = chessAI.calculateBestPackedMove(board, Color.WHITE, rule, history, new GameRandom(7), DifficultyProfile.CASUAL);
+        int second = chessAI.calculateBestPackedMove(board, Color.WHITE, rule, history, new GameRandom(7), DifficultyProfile.CASUAL);
+        assertEquals(first, second);
+    }
+
+    /**
+     * Tests choosing the difficulty of a game through the controller.
+     */
+    @Test
+    void testControllerDifficulty() {
+        GameController controller = new GameControllerBuilder(new VariantChessBoard()).snapshotInterval(1).build();
+        assertEquals("CLASSIC", controller.getDifficulty());
+
+        controller.setDifficulty("beginner");
+        assertEquals("BEGINNER", controller.getDifficulty());
+        String result = controller.movePiece(new VariantChessMove(6, 0, 4, 0));
+        assertEquals("VALID_MOVE;CURRENT_TURN=WHITE", result, "The AI should reply at the chosen difficulty.");
+
+        controller.setDifficulty("CLASSIC");
+        assertEquals("CLASSIC", controller.getDifficulty());
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> controller.setDifficulty("GRANDMASTER"));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode(), "An unknown difficulty should be a bad request.");
+        assertEquals("CLASSIC", controller.getDifficulty(), "An unknown difficulty should leave the difficulty unchanged.");
+    }
+}
@@ -0,0 +1,59 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.*;
+import uk.ac.standrews.variantchessgame.tuning.EvalTuner;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvalTunerTest {
+
+    /**
+     * Tests that a short tuning run produces a weights file the engine reads back, with the Pawn value kept
+     * as the unit and every rule tuned on its own.
+     */
+    @Test
+    void testTunedWeightsReadBack() throws Exception {
+        EvalWeights start = EvalWeights.getDefault();
+        EvalWeights tuned = new EvalTuner(2).run(start, 1, 50, 7L);
+
+        StringWriter out = new StringWriter();
+        tuned.write(out, "Test run");
+        EvalWeights read = EvalWeights.read(new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.ISO_8859_1)));
+
+        for (int rule = -1; rule < 3; rule++) {
+            assertEquals(EvalWeights.PAWN_UNIT, read.getValue(rule, Zobrist.PAWN), "The Pawn anchors the scale.");
+            assertEquals(tuned.getMobility(rule), read.getMobility(rule));
+            for (int type = 0; type < Zobrist.PIECE_TYPES; type++) {
+                assertEquals(tuned.getValue(rule, type), read.getValue(rule, type));
+                assertArrayEquals(start.getTables(rule)[type], read.getTables(rule)[type], "Tables are not tuned.");
+            }
+        }
+        assertEquals(start.getMobility(-1), read.getMobility(-1), "Weights used without a rule are not tuned.");
+    }
+
+    /**
+     * Tests that self-play from the same seed gives the same tuned weights.
+     */
+    @Test
+    void testRunIsReproducible() {
+        EvalWeights first = new EvalTuner(2).run(EvalWeights.getDefault(), 1, 20, 3L);
+        EvalWeights second = new EvalTuner(1).run(EvalWeights.getDefault(), 1, 20, 3L);
+
+        for (int rule = 0; rule < 3; rule++) {
+            assertEquals(first.getMobility(rule), second.getMobility(rule));
+            for (int type = 0; type < Zobrist.PIECE_TYPES; type++) {
+                assertEquals(first.getValue(rule, type), second.getValue(rule, type));
+            }
+        }
+    }
+
+    @Test
+    void testInvalidParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> new EvalTuner(0));
+    }
+}
@@ -0,0 +1,146 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvalWeightsTest {
+
+    private static Properties flatWeights() {
+        Properties properties = new Properties();
+        properties.setProperty("version", String.valueOf(EvalWeights.FORMAT_VERSION));
+        properties.setProperty("mobility", "3");
+        String zeros = "0 ".repeat(64);
+        for (String piece : new String[]{"Pawn", "Knight", "Bishop", "Rook", "Queen", "King", "Cannon"}) {
+            properties.setProperty("pst." + piece, zeros);
+            properties.setProperty("value." + piece, "100");
+        }
+        return properties;
+    }
+
+    /**
+     * Tests that the shipped weights load, with rule-specific tables replacing the common ones.
+     */
+    @Test
+    void testDefaultWeights() {
+        EvalWeights weights = EvalWeights.getDefault();
+
+        assertTrue(weights.getMobility(-1) > 0, "Mobility should count.");
+        assertEquals(500, weights.getPieceValue(-1, new Cannon(Color.WHITE)), "A Cannon is worth five Pawns.");
+        assertEquals(600, weights.getPieceValue(0, new Cannon(Color.WHITE)), "Cannons get a bonus under their rule.");
+        int[][] cannonRule = weights.getTables(0);
+        int[][] noRule = weights.getTables(-1);
+        assertNotSame(cannonRule[Zobrist.CANNON], noRule[Zobrist.CANNON], "The Cannon rule has its own Cannon table.");
+        assertSame(cannonRule[Zobrist.KNIGHT], noRule[Zobrist.KNIGHT], "Other tables are shared.");
+        int[] pawns = weights.getTables(2)[Zobrist.PAWN];
+        assertTrue(pawns[EvalWeights.tableSquare(Color.WHITE, 2 * 8 + 3)] > pawns[EvalWeights.tableSquare(Color.WHITE, 5 * 8 + 3)],
+                "Advanced Pawns should be worth more under the promotion rule.");
+        assertEquals(pawns[EvalWeights.tableSquare(Color.WHITE, 2 * 8 + 3)], pawns[EvalWeights.tableSquare(Color.BLACK, 5 * 8 + 3)],
+                "Black should use the table flipped vertically.");
+    }
+
+    /**
+     * Tests that searches with the material-only and the shipped weights play legal moves through the
+     * opening of a self-play game under every rule.
+     */
+    @Test
+    void testSearchPlaysLegalMovesWithEachWeights() {
+        MoveBuffer legal = new MoveBuffer(1);
+        for (EvalWeights weights : new EvalWeights[]{EvalWeights.materialOnly(), EvalWeights.getDefault()}) {
+            ChessAI chessAI = new ChessAI(null, weights);
+            for (GameRule rule : new GameRule[]{new CannonSpecialRule(), new KingQueenSpecialRule(), new PawnPromotionRule()}) {
+                VariantChessBoard board = new VariantChessBoard();
+                board.initializeBoard("RNBQKBNR");
+                GameRandom random = new GameRandom(1);
+                Color turn = Color.WHITE;
+                for (int ply = 0; ply < 6; ply++) {
+                    int move = chessAI.calculateBestPackedMove(board, turn, rule, new long[]{Zobrist.hash(board, turn)}, random);
+                    assertTrue(legal.isLegal(board, turn, move), "The search should play a legal move.");
+                    assertTrue(chessAI.getLastSearchNodes() > 0, "The search should visit nodes.");
+                    board.movePiece(PackedMove.from(move), PackedMove.to(move));
+                    turn = turn.opposite();
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that a rule-specific table is used only under its rule.
+     */
+    @Test
+    void testRuleOverride() {
+        Properties properties = flatWeights();
+        properties.setProperty("pst.KingQueenSpecialRule.King", "1 ".repeat(64));
+        properties.setProperty("mobility.PawnPromotionRule", "5");
+
+        EvalWeights weights = EvalWeights.of(properties);
+
+        assertEquals(3, weights.getMobility(-1));
+        assertEquals(5, weights.getMobility(2));
+        assertEquals(1, weights.getTables(1)[Zobrist.KING][27]);
+        assertEquals(0, weights.getTables(0)[Zobrist.KING][27]);
+        assertEquals(0, weights.getTables(-1)[Zobrist.KING][27]);
+    }
+
+    /**
+     * Tests that files of another version, unknown keys and invalid tables are rejected.
+     */
+    @Test
+    void testInvalidWeights() {
+        Properties otherVersion = flatWeights();
+        otherVersion.setProperty("version", String.valueOf(EvalWeights.FORMAT_VERSION + 1));
+        assertThrows(IllegalArgumentException.class, () -> EvalWeights.of(otherVersion));
+
+        Properties unknown = flatWeights();
+        unknown.setProperty("pst.Dragon", "0 ".repeat(64));
+        assertThrows(IllegalArgumentException.class, () -> EvalWeights.of(unknown));
+
+        Properties shortTable = flatWeights();
+        shortTable.setProperty("pst.Rook", "0 ".repeat(63));
+        assertThrows(IllegalArgumentException.class, () -> EvalWeights.of(shortTable));
+
+        Properties asymmetric = flatWeights();
+        asymmetric.setProperty("pst.Queen", "1 " + "0 ".repeat(63));
+        assertThrows(IllegalArgumentException.class, () -> EvalWeights.of(asymmetric));
+
+        Properties missing = flatWeights();
+        missing.remove("pst.Cannon");
+        assertThrows(IllegalArgumentException.class, () -> EvalWeights.of(missing));
+
+        Properties missingValue = flatWeights();
+        missingValue.remove("value.Rook");
+        assertThrows(IllegalArgumentException.class, () -> EvalWeights.of(missingValue));
+    }
+
+    /**
+     * Tests that written weights read back the same, including material changed under one rule.
+     */
+    @Test
+    void testWriteAndReadBack() throws Exception {
+        int[] values = {100, 320, 310, 580, 720, 390, 520};
+        int[][] bonuses = {{0, 0, 0}, {0, 0, 0}, {0, 0, 0}, {0, 0, 0}, {0, 0, 0}, {0, 0, 0}, {80, 190, 260}};
+        EvalWeights weights = EvalWeights.getDefault().withMaterial(0, values, bonuses, 4);
+
+        StringWriter out = new StringWriter();
+        weights.write(out, "Test weights");
+        EvalWeights read = EvalWeights.read(new ByteArrayInputStream(out.toString().getBytes()));
+
+        for (int rule = -1; rule < 3; rule++) {
+            assertEquals(weights.getMobility(rule), read.getMobility(rule));
+            for (int type = 0; type < Zobrist.PIECE_TYPES; type++) {
+                assertEquals(weights.getValue(rule, type), read.getValue(rule, type));
+                for (int captures = 0; captures < EvalWeights.BONUS_STEPS; captures++) {
+                    assertEquals(weights.getBonus(rule, type, captures), read.getBonus(rule, type, captures));
+                }
+                assertArrayEquals(weights.getTables(rule)[type], read.getTables(rule)[type]);
+            }
+        }
+        assertEquals(520, read.getValue(0, Zobrist.CANNON), "The tuned value should be kept under its rule.");
+        assertEquals(500, read.getValue(1, Zobrist.CANNON), "Other rules keep their values.");
+    }
+}
@@ -0,0 +1,111 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Speed benchmark of the evaluation: nodes searched per second with material only, with the
+ * piece-square tables and mobility of the default weights and with a neural network, over the opening of
+ * self-play games, and evaluations per second of the neural kernels.
+ * The timings say nothing in a shared test run, so the benchmark runs only with
+ * {@code -Dchess.benchmark.evaluation=true}; the evaluations themselves are checked by
+ * {@link EvalWeightsTest} and {@link NeuralNetworkTest}.
+ */
+class EvaluationBenchmarkTest {
+
+    private static final int GAMES = 3;
+    private static final int PLIES = 12;
+
+    @BeforeEach
+    void requireBenchmarkProperty() {
+        Assumptions.assumeTrue(Boolean.getBoolean("chess.benchmark.evaluation"),
+                "Set -Dchess.benchmark.evaluation=true to run the evaluation benchmark");
+    }
+
+    private static double nodesPerSecond(String name, EvalWeights weights, GameRule rule) {
+        return nodesPerSecond(name, new ChessAI(null, weights), rule);
+    }
+
+    private static double nodesPerSecond(String name, ChessAI chessAI, GameRule rule) {
+        long nodes = 0;
+        long elapsed = 0;
+        for (int game = 0; game < GAMES; game++) {
+            VariantChessBoard board = new VariantChessBoard();
+            board.initializeBoard("RNBQKBNR");
+            GameRandom random = new GameRandom(game);
+            Color turn = Color.WHITE;
+            for (int ply = 0; ply < PLIES; ply++) {
+                long start = System.nanoTime();
+                int move = chessAI.calculateBestPackedMove(board, turn, rule, new long[]{Zobrist.hash(board, turn)}, random);
+                elapsed += System.nanoTime() - start;
+                nodes += chessAI.getLastSearchNodes();
+                if (move == PackedMove.NONE) {
+                    break;
+                }
+                board.movePiece(PackedMove.from(move), PackedMove.to(move));
+                turn = turn.opposite();
+            }
+        }
+        double nps = nodes / (elapsed / 1e9);
+        System.out.printf("%s evaluation: %d nodes at %.0f nodes/s%n", name, nodes, nps);
+        assertTrue(nodes > 0, "The searches should visit nodes.");
+        return nps;
+    }
+
+    @Test
+    void benchmarkPositionalEvaluation() {
+        for (GameRule rule : new GameRule[]{new CannonSpecialRule(), new KingQueenSpecialRule(), new PawnPromotionRule()}) {
+            nodesPerSecond("Warm-up", EvalWeights.getDefault(), rule);
+            double material = nodesPerSecond(rule.getClass().getSimpleName() + " material", EvalWeights.materialOnly(), rule);
+            double positional = nodesPerSecond(rule.getClass().getSimpleName() + " positional", EvalWeights.getDefault(), rule);
+            System.out.printf("%s: positional terms run at %.0f%% of the material-only speed%n",
+                    rule.getClass().getSimpleName(), 100 * positional / material);
+        }
+    }
+
+    @Test
+    void benchmarkNeuralEvaluation() {
+        NeuralNetwork network = NeuralNetworkTest.randomNetwork(64, 1);
+        ChessAI neural = new ChessAI(null, EvalWeights.getDefault(), network);
+        for (GameRule rule : new GameRule[]{new CannonSpecialRule(), new KingQueenSpecialRule(), new PawnPromotionRule()}) {
+            nodesPerSecond("Warm-up", neural, rule);
+            double positional = nodesPerSecond(rule.getClass().getSimpleName() + " positional", EvalWeights.getDefault(), rule);
+            double nnue = nodesPerSecond(rule.getClass().getSimpleName() + " neural", neural, rule);
+            System.out.printf("%s: the neural evaluation runs at %.0f%% of the positional speed%n",
+                    rule.getClass().getSimpleName(), 100 * nnue / positional);
+        }
+
+        // A make, evaluate and unmake cycle as the search runs it: four column updates and two dot products per side
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard("RNBQKBNR");
+        board.setNeuralNetwork(network);
+        int[] hidden = board.getNeuralAccumulator().getHidden(Color.WHITE);
+        SplittableRandom random = new SplittableRandom(1);
+        int[] weights = random.ints(NeuralNetwork.PIECE_INPUTS * network.getHiddenSize(), -40, 41).toArray();
+        int[] output = random.ints(2 * network.getHiddenSize(), -64, 65).toArray();
+        for (NeuralKernel kernel : new NeuralKernel[]{NeuralKernel.SCALAR, NeuralKernel.select(),
+                NeuralKernel.SCALAR, NeuralKernel.select()}) {
+            int iterations = 2_000_000;
+            int sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                int column = (i * 97 % NeuralNetwork.PIECE_INPUTS) * network.getHiddenSize();
+                for (int side = 0; side < 2; side++) {
+                    kernel.add(hidden, weights, column);
+                    kernel.subtract(hidden, weights, column);
+                    sink += kernel.clippedDot(hidden, output, 0, NeuralNetwork.HIDDEN_SCALE);
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Kernel %s: %.0f evaluations/s (%d)%n", kernel, iterations / seconds, sink);
+        }
+        System.out.printf("Kernel of the accumulators: %s%n", board.getNeuralAccumulator().getKernel());
+        assertTrue(board.getNeuralAccumulator().evaluate(board, Color.WHITE, 0) != Integer.MIN_VALUE);
+    }
+}
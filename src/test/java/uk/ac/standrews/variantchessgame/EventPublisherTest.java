@@ -0,0 +1,158 @@
+package uk.ac.standrews.variantchessgame;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import uk.ac.standrews.variantchessgame.controller.GameController;
+import uk.ac.standrews.variantchessgame.events.EventOutbox;
+import uk.ac.standrews.variantchessgame.events.EventPublisher;
+import uk.ac.standrews.variantchessgame.events.GameEvent;
+import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+import uk.ac.standrews.variantchessgame.model.VariantChessMove;
+import uk.ac.standrews.variantchessgame.persistence.GameRecord;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+class EventPublisherTest {
+
+    private static final String TOPIC = "game-events";
+
+    /**
+     * Tests that game start and move events reach an embedded broker in order, keyed by game id.
+     */
+    @Test
+    void testPublishToEmbeddedBroker() throws Exception {
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 1, TOPIC);
+        broker.afterPropertiesSet();
+        EventOutbox outbox = new EventOutbox(1024);
+        EventPublisher publisher = new EventPublisher(outbox, new KafkaProducer<>(
+                EventPublisher.producerConfig(broker.getBrokersAsString(), 5, 16384, "lz4")), TOPIC);
+        try {
+            GameController controller = new GameControllerBuilder(new VariantChessBoard()).eventOutbox(outbox).build();
+            controller.setGameRule("PawnPromotionRule");
+            controller.movePiece(new VariantChessMove(6, 3, 4, 3)); // Player ply and AI reply
+
+            Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("event-test", "false", broker);
+            List<ConsumerRecord<String, String>> records = new ArrayList<>();
+            try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps, new StringDeserializer(), new StringDeserializer())) {
+                consumer.subscribe(Collections.singletonList(TOPIC));
+                long deadline = System.currentTimeMillis() + 30000;
+                while (records.size() < 4 && System.currentTimeMillis() < deadline) {
+                    consumer.poll(Duration.ofMillis(200)).forEach(records::add);
+                }
+            }
+
+            assertEquals(4, records.size(), "Two game starts and two plies should be published.");
+            assertEquals(4, publisher.getPublishedCount(), "Every event should be acknowledged.");
+            assertTrue(records.get(1).value().contains("\"type\":\"" + GameEvent.GAME_START + "\""), "The rule change should start a game.");
+            assertTrue(records.get(1).value().contains("\"rule\":\"PawnPromotionRule\""), "The start event should name the rule.");
+            assertTrue(records.get(2).value().contains("\"move\":\"d2-d4\""), "The player move should be published in notation.");
+            assertTrue(records.get(3).value().contains("\"ply\":1"), "The AI reply should follow.");
+            for (int i = 1; i < 4; i++) {
+                assertEquals(records.get(1).key(), records.get(i).key(), "Events of a game should share its key.");
+                assertNotNull(records.get(i).headers().lastHeader(EventPublisher.EVENT_ID_HEADER), "Events should carry an event id.");
+            }
+        } finally {
+            publisher.close();
+            broker.destroy();
+        }
+    }
+
+    /**
+     * Tests that the events of a game stay in order after transient failures: an event the producer refuses is sent
+     * again before any later event, and an event that fails after the producer's own retries is not sent again
+     * behind the later ones.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOrderKeptAfterTransientFailures() throws Exception {
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 1, TOPIC);
+        broker.afterPropertiesSet();
+        KafkaProducer<String, String> producer = spy(new KafkaProducer<String, String>(
+                EventPublisher.producerConfig(broker.getBrokersAsString(), 5, 16384, "lz4")));
+        AtomicInteger sends = new AtomicInteger();
+        doAnswer(invocation -> {
+            int send = sends.getAndIncrement();
+            if (send == 3) {
+                throw new TimeoutException("Metadata not available"); // Refused: the fourth event is kept
+            }
+            if (send == 6) {
+                Callback callback = invocation.getArgument(1); // The sixth event outlasts the producer's retries
+                callback.onCompletion(null, new TimeoutException("Delivery timed out"));
+                return CompletableFuture.failedFuture(new TimeoutException("Delivery timed out"));
+            }
+            return invocation.callRealMethod();
+        }).when(producer).send(any(ProducerRecord.class), any(Callback.class));
+
+        EventOutbox outbox = new EventOutbox(1024);
+        int ply = GameRecord.encodePly(new VariantChessMove(6, 3, 4, 3));
+        for (int sequence = 0; sequence < 10; sequence++) {
+            outbox.offer(GameEvent.movePlayed(1, sequence, sequence, ply));
+        }
+        EventPublisher publisher = new EventPublisher(outbox, producer, TOPIC);
+        try {
+            Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("order-test", "false", broker);
+            List<Long> sequences = new ArrayList<>();
+            ObjectMapper objectMapper = new ObjectMapper();
+            try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps, new StringDeserializer(), new StringDeserializer())) {
+                consumer.subscribe(Collections.singletonList(TOPIC));
+                long deadline = System.currentTimeMillis() + 30000;
+                while (sequences.size() < 9 && System.currentTimeMillis() < deadline) {
+                    for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                        sequences.add(objectMapper.readTree(record.value()).get("sequence").asLong());
+                    }
+                }
+                consumer.poll(Duration.ofMillis(1000)).forEach(record -> sequences.add(-1L)); // Nothing should follow
+            }
+
+            assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 6L, 7L, 8L, 9L), sequences, "The events of a game should stay in order.");
+            assertEquals(9, publisher.getPublishedCount(), "Every other event should be acknowledged.");
+            assertEquals(1, publisher.getDiscardedCount(), "The event that outlasted the retries should be discarded.");
+        } finally {
+            publisher.close();
+            broker.destroy();
+        }
+    }
+
+    /**
+     * Tests that requests are not slowed down when no broker is reachable, and that a full outbox drops events.
+     */
+    @Test
+    void testUnavailableBroker() {
+        EventOutbox outbox = new EventOutbox(2);
+        EventPublisher publisher = new EventPublisher(outbox, new KafkaProducer<>(
+                EventPublisher.producerConfig("localhost:1", 5, 16384, "lz4")), TOPIC);
+        try {
+            GameController controller = new GameControllerBuilder(new VariantChessBoard()).eventOutbox(outbox).build();
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                controller.restartGame(null);
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(elapsedMillis < 1000, "Restarts should not wait for the broker, took " + elapsedMillis + " ms.");
+            assertTrue(outbox.getDroppedCount() > 0, "Events beyond the outbox capacity should be dropped.");
+            assertEquals(0, publisher.getPublishedCount(), "Nothing can be published without a broker.");
+        } finally {
+            publisher.close();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.persistence.GameArchiveReader;
+import uk.ac.standrews.variantchessgame.persistence.GameArchiveWriter;
+import uk.ac.standrews.variantchessgame.persistence.GameRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameArchiveTest {
+
+    private static final String[] LAYOUTS = {"RNBQKBNR", "RKQNNBBR", "RBBNNQKR"};
+
+    private static GameRecord randomGame(SplittableRandom random) {
+        int[] plies = new int[random.nextInt(200)];
+        for (int i = 0; i < plies.length; i++) {
+            plies[i] = random.nextInt(1 << 15);
+        }
+        return new GameRecord(LAYOUTS[random.nextInt(LAYOUTS.length)], random.nextInt(3), random.nextInt(4), plies);
+    }
+
+    private static byte[] writeArchive(int games, int gamesPerChunk) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SplittableRandom random = new SplittableRandom(7);
+        try (GameArchiveWriter writer = new GameArchiveWriter(bytes, gamesPerChunk)) {
+            for (int i = 0; i < games; i++) {
+                writer.write(randomGame(random));
+            }
+            assertEquals(games, writer.getGameCount(), "Every game should be counted.");
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Tests that games read back one at a time equal the games written.
+     */
+    @Test
+    void testSequentialRoundTrip() throws IOException {
+        byte[] archive = writeArchive(500, 64);
+        SplittableRandom random = new SplittableRandom(7);
+        try (GameArchiveReader reader = new GameArchiveReader(new ByteArrayInputStream(archive))) {
+            for (int i = 0; i < 500; i++) {
+                assertEquals(randomGame(random), reader.next(), "Game " + i + " should be read back unchanged.");
+            }
+            assertNull(reader.next(), "The end of the archive should be reported.");
+        }
+    }
+
+    /**
+     * Tests that parallel decoding visits every game once, after some games were read sequentially.
+     */
+    @Test
+    void testParallelDecoding() throws IOException {
+        byte[] archive = writeArchive(1000, 50);
+        long expectedPlies = 0;
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 1000; i++) {
+            expectedPlies += randomGame(random).getPlyCount();
+        }
+
+        try (GameArchiveReader reader = new GameArchiveReader(new ByteArrayInputStream(archive))) {
+            long firstPlies = reader.next().getPlyCount();
+            long[] totals = reader.decodeParallel(4, () -> new long[2],
+                    (counts, game) -> {
+                        counts[0]++;
+                        counts[1] += game.getPlyCount();
+                    },
+                    (a, b) -> new long[]{a[0] + b[0], a[1] + b[1]});
+            assertEquals(999, totals[0], "Every remaining game should be decoded once.");
+            assertEquals(expectedPlies, firstPlies + totals[1], "Every ply should be decoded.");
+            assertNull(reader.next(), "The archive should be fully consumed.");
+        }
+    }
+
+    /**
+     * Tests that a truncated or foreign archive is reported as an error.
+     */
+    @Test
+    void testCorruptArchive() throws IOException {
+        byte[] archive = writeArchive(100, 10);
+        byte[] truncated = Arrays.copyOf(archive, archive.length / 2);
+        assertThrows(IOException.class, () -> {
+            try (GameArchiveReader reader = new GameArchiveReader(new ByteArrayInputStream(truncated))) {
+                while (reader.next() != null) {
+                    // Read until the truncation is found
+                }
+            }
+        });
+        assertThrows(IOException.class, () -> new GameArchiveReader(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})));
+    }
+}
@@ -0,0 +1,77 @@
+package uk.ac.standrews.variantchessgame;
+
+import uk.ac.standrews.variantchessgame.controller.GameController;
+import uk.ac.standrews.variantchessgame.events.EventOutbox;
+import uk.ac.standrews.variantchessgame.index.BulkIndexer;
+import uk.ac.standrews.variantchessgame.model.EvalWeights;
+import uk.ac.standrews.variantchessgame.model.NeuralNetwork;
+import uk.ac.standrews.variantchessgame.model.PositionCache;
+import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+import uk.ac.standrews.variantchessgame.persistence.GameJournal;
+import uk.ac.standrews.variantchessgame.persistence.SessionStore;
+
+/**
+ * Builds a {@link GameController} for tests. Collaborators that are not set are left out, as they are
+ * when their beans are disabled, and the game uses a small private position cache.
+ */
+final class GameControllerBuilder {
+
+    private final VariantChessBoard board;
+    private PositionCache positionCache = new PositionCache(1, 1);
+    private int snapshotInterval = 4;
+    private GameJournal journal;
+    private SessionStore sessionStore;
+    private EventOutbox eventOutbox;
+    private BulkIndexer indexer;
+    private EvalWeights weights;
+    private NeuralNetwork network;
+
+    GameControllerBuilder(VariantChessBoard board) {
+        this.board = board;
+    }
+
+    GameControllerBuilder positionCache(PositionCache positionCache) {
+        this.positionCache = positionCache;
+        return this;
+    }
+
+    GameControllerBuilder snapshotInterval(int snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+        return this;
+    }
+
+    GameControllerBuilder journal(GameJournal journal) {
+        this.journal = journal;
+        return this;
+    }
+
+    GameControllerBuilder sessionStore(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+        return this;
+    }
+
+    GameControllerBuilder eventOutbox(EventOutbox eventOutbox) {
+        this.eventOutbox = eventOutbox;
+        return this;
+    }
+
+    GameControllerBuilder indexer(BulkIndexer indexer) {
+        this.indexer = indexer;
+        return this;
+    }
+
+    GameControllerBuilder weights(EvalWeights weights) {
+        this.weights = weights;
+        return this;
+    }
+
+    GameControllerBuilder network(NeuralNetwork network) {
+        this.network = network;
+        return this;
+    }
+
+    GameController build() {
+        return new GameController(board, positionCache, snapshotInterval, journal, sessionStore, eventOutbox,
+                indexer, weights, network);
+    }
+}
@@ -15,7 +15,7 @@ import java.util.List;
 
 import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasSize;
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -34,9 +34,11 @@ class GameControllerTest {
         // Mock the VariantChessBoard and MoveHistory
         board = Mockito.mock(VariantChessBoard.class);
         moveHistory = Mockito.mock(MoveHistory.class);
+        // The controller publishes the threats of every position from the attack map of the board
+        when(board.getAttackMap()).thenReturn(new VariantChessBoard(null).getAttackMap());
 
         // Initialize the GameController with the mocked board and moveHistory
-        gameController = new GameController(board);
+        gameController = new GameControllerBuilder(board).build();
 
         // Set up MockMvc with the GameController
         mockMvc = MockMvcBuilders.standaloneSetup(gameController).build();
@@ -93,7 +95,41 @@ class GameControllerTest {
         mockMvc.perform(post("/api/game/setRule/CannonSpecialRule"))
                 .andExpect(status().isOk());
 
-        verify(board, times(1)).initializeBoard();
+        // Once when the controller started its first game, once for the new rule
+        verify(board, times(2)).initializeBoard(any(GameRandom.class));
         assertEquals("CannonSpecialRule", gameController.getCurrentRule());
     }
+
+    /**
+     * Tests jumping between plies of a recorded game on a real board.
+     * Verifies that restoring from snapshots and replaying reproduces the recorded positions.
+     */
+    @Test
+    void testJumpToPly() {
+        VariantChessBoard realBoard = new VariantChessBoard();
+        GameController controller = new GameControllerBuilder(realBoard).snapshotInterval(1).build();
+        controller.setGameRule("CannonSpecialRule");
+        long initialHash = Zobrist.hash(realBoard);
+
+        // White pawn advances two squares, then the AI replies.
+        String result = controller.movePiece(new VariantChessMove(6, 0, 4, 0));
+        assertEquals("VALID_MOVE;CURRENT_TURN=WHITE", result);
+        long afterFullMoveHash = Zobrist.hash(realBoard);
+
+        assertEquals("JUMP_SUCCESS;CURRENT_TURN=WHITE", controller.jumpToPly(0));
+        assertEquals(initialHash, Zobrist.hash(realBoard), "Ply 0 should restore the initial position.");
+
+        assertEquals("JUMP_SUCCESS;CURRENT_TURN=BLACK", controller.jumpToPly(1));
+        assertNull(realBoard.getPieceAt(6, 0), "The pawn should have left its start square at ply 1.");
+        assertTrue(realBoard.getPieceAt(4, 0) instanceof Pawn, "The pawn should stand on its target square at ply 1.");
+
+        assertEquals("JUMP_SUCCESS;CURRENT_TURN=WHITE", controller.jumpToPly(2));
+        assertEquals(afterFullMoveHash, Zobrist.hash(realBoard), "Ply 2 should reproduce the position after the AI reply.");
+
+        assertEquals("JUMP_FAIL", controller.jumpToPly(3), "Jumping past the recorded plies should fail.");
+        assertEquals("UNDO_SUCCESS", controller.undoLastMove());
+        assertEquals(initialHash, Zobrist.hash(realBoard), "Undo should restore the initial position.");
+        assertEquals("REDO_SUCCESS", controller.redoLastMove());
+        assertEquals(afterFullMoveHash, Zobrist.hash(realBoard), "Redo should reproduce the position after the AI reply.");
+    }
 }
@@ -0,0 +1,314 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.standrews.variantchessgame.controller.GameController;
+import uk.ac.standrews.variantchessgame.model.*;
+import uk.ac.standrews.variantchessgame.persistence.GameJournal;
+import uk.ac.standrews.variantchessgame.persistence.RecoveredGame;
+import uk.ac.standrews.variantchessgame.persistence.SessionStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameJournalTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Tests that records written before closing are recovered when the journal is reopened.
+     * Verifies game starts, seeds, plies and navigation, and that finished and abandoned games are not recovered.
+     */
+    @Test
+    void testRecoverAfterReopen() throws Exception {
+        long firstId;
+        long secondId;
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            firstId = journal.nextGameId();
+            journal.gameStarted(firstId, 2, "RNBQKBNR");
+            journal.gameSeeded(firstId, -12345L);
+            journal.randomDrawn(firstId, 9);
+            journal.plyPlayed(firstId, 0, 1234, true);
+            journal.plyPlayed(firstId, 1, 5678, false);
+
+            long finishedId = journal.nextGameId();
+            journal.gameStarted(finishedId, 1, "RNBQKBNR");
+            journal.gameEnded(finishedId, 1);
+            long abandonedId = journal.nextGameId();
+            journal.gameStarted(abandonedId, 1, "RNBQKBNR");
+            journal.gameAbandoned(abandonedId);
+
+            secondId = journal.nextGameId();
+            journal.gameStarted(secondId, 0, "RKQNNBBR");
+            journal.plyPlayed(secondId, 0, 42, true);
+            journal.plyPlayed(secondId, 1, 43, false);
+            journal.navigated(secondId, 0);
+            journal.plyPlayed(secondId, 0, 44, true); // A new move after undo replaces the old plies
+            journal.flush();
+        }
+
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            RecoveredGame first = journal.getRecoveredGames().get(firstId);
+            assertEquals(2, first.getRuleId(), "Rule should be recovered.");
+            assertEquals("RNBQKBNR", first.getBackRank(), "Back rank should be recovered.");
+            assertTrue(first.hasSeed(), "The seed should be recovered.");
+            assertEquals(-12345L, first.getSeed(), "The seed should be recovered.");
+            assertEquals(9, first.getDraws(), "The number of random draws should be recovered.");
+            assertEquals(2, first.getPlyCount(), "Both plies should be recovered.");
+            assertEquals(5678, first.getPackedMove(1), "Packed moves should be recovered.");
+            assertEquals(2, journal.getRecoveredGames().size(), "Only the games still in play should be recovered.");
+
+            RecoveredGame second = journal.getRecoveredGames().get(secondId);
+            assertFalse(second.hasSeed(), "A game without a seed record has no seed.");
+            assertEquals(0, second.getDraws(), "A game without a draw record has no draws.");
+            assertEquals(1, second.getPlyCount(), "Plies after the undo point should be discarded.");
+            assertEquals(44, second.getPackedMove(0), "The replacement ply should be recovered.");
+            assertSame(second, journal.getLatestUnfinishedGame(), "The second game should be resumed.");
+            assertTrue(journal.nextGameId() > secondId, "New ids should not reuse journaled ids.");
+        }
+    }
+
+    /**
+     * Tests that compaction drops the records of finished and abandoned games, keeps the games in play
+     * and the records appended after it, and never lets a later game reuse a dropped id.
+     */
+    @Test
+    void testCompact() throws Exception {
+        long liveId;
+        long lastId;
+        long compactedCount;
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            for (int i = 0; i < 3; i++) {
+                long id = journal.nextGameId();
+                journal.gameStarted(id, 0, "RNBQKBNR");
+                journal.plyPlayed(id, 0, 100 + i, true);
+                if (i == 0) {
+                    journal.gameEnded(id, 3);
+                } else if (i == 1) {
+                    journal.gameAbandoned(id);
+                }
+            }
+            liveId = journal.nextGameId() - 1;
+            journal.flush();
+            long before = journal.getRecordCount();
+
+            journal.compact();
+            compactedCount = journal.getRecordCount();
+            assertEquals(3, compactedCount, "The live game and the last id should be all that is left.");
+            assertTrue(compactedCount < before, "Compaction should shrink the journal.");
+
+            lastId = journal.nextGameId();
+            journal.gameStarted(lastId, 1, "RKQNNBBR");
+            journal.plyPlayed(liveId, 1, 200, false);
+            journal.flush();
+            assertEquals(compactedCount + 2, journal.getRecordCount(), "Records should be appended after compaction.");
+        }
+
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            assertEquals(2, journal.getRecoveredGames().size(), "Only the games in play should be recovered.");
+            RecoveredGame live = journal.getRecoveredGames().get(liveId);
+            assertEquals(2, live.getPlyCount(), "Plies from before and after compaction should be recovered.");
+            assertEquals(102, live.getPackedMove(0));
+            assertEquals(200, live.getPackedMove(1));
+            assertEquals(lastId, journal.getLatestUnfinishedGame().getGameId());
+            assertEquals(compactedCount + 2, journal.getRecordCount());
+            assertTrue(journal.nextGameId() > lastId, "New ids should not reuse dropped ids.");
+        }
+    }
+
+    /**
+     * Tests that a game replaced by a new game is journaled as abandoned, and that saving the session
+     * compacts the journal down to the game in play.
+     */
+    @Test
+    void testControllerCompactsOnSave() throws Exception {
+        SessionStore store = new SessionStore(directory.resolve("sessions.bin"));
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            GameController controller = new GameControllerBuilder(new VariantChessBoard()).journal(journal).sessionStore(store).build();
+            controller.restartGame(null);
+            controller.restartGame(null);
+            playFirstLegalMove(controller);
+            controller.saveSession();
+            assertEquals(1, countGameStarts(directory), "Only the game in play should be left in the journal.");
+        }
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            assertEquals(1, journal.getRecoveredGames().size(), "Replaced games should not be recovered.");
+        }
+    }
+
+    /**
+     * Counts the game start records in the journal file.
+     */
+    private static int countGameStarts(Path directory) throws IOException {
+        byte[] bytes = Files.readAllBytes(directory.resolve("games.journal"));
+        int starts = 0;
+        for (int offset = 0; offset + 24 <= bytes.length && bytes[offset] != 0; offset += 24) {
+            if (bytes[offset] == 1) {
+                starts++;
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Tests that a journal whose file can no longer be written reports the error instead of waiting forever.
+     * Closing the channel underneath the journal makes mapping its next segment fail.
+     */
+    @Test
+    void testWriterFailure() throws Exception {
+        FileChannel channel = FileChannel.open(directory.resolve("games.journal"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        GameJournal journal = new GameJournal(channel, 2, 1);
+        long gameId = journal.nextGameId();
+        journal.gameStarted(gameId, 0, "RNBQKBNR");
+        journal.flush();
+
+        channel.close();
+        journal.plyPlayed(gameId, 0, 1, true);
+        journal.plyPlayed(gameId, 1, 2, false); // Needs a new segment
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(IOException.class, journal::flush, "Flush should report the failure.");
+            assertThrows(UncheckedIOException.class, () -> journal.plyPlayed(gameId, 2, 3, true),
+                    "Appending should report the failure.");
+            assertThrows(IOException.class, journal::close, "Close should report the failure.");
+        });
+    }
+
+    /**
+     * Tests that a controller rebuilds its game from the journal after a restart.
+     * Verifies that the recovered board matches the board before the restart.
+     */
+    @Test
+    void testControllerRecoversGame() throws Exception {
+        long hashBeforeRestart;
+        String backRank;
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            VariantChessBoard board = new VariantChessBoard();
+            GameController controller = new GameControllerBuilder(board).journal(journal).build();
+            controller.setGameRule("PawnPromotionRule");
+            assertTrue(controller.movePiece(new VariantChessMove(6, 3, 4, 3)).startsWith("VALID_MOVE"));
+            hashBeforeRestart = Zobrist.hash(board);
+            backRank = board.getBackRank();
+            journal.flush();
+        }
+
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            VariantChessBoard board = new VariantChessBoard();
+            GameController controller = new GameControllerBuilder(board).journal(journal).build();
+            assertEquals(backRank, board.getBackRank(), "The recovered game should keep its layout.");
+            assertEquals(hashBeforeRestart, Zobrist.hash(board), "The recovered board should match the board before the restart.");
+            assertEquals("PawnPromotionRule", controller.getCurrentRule(), "The recovered game should keep its rule.");
+            assertEquals("WHITE", controller.getCurrentTurn(), "White should be to move after the recovered full move.");
+        }
+    }
+
+    /**
+     * Tests that the difficulty of the AI is journaled, carries over to a new game and is recovered after a restart.
+     */
+    @Test
+    void testDifficultyRecovered() throws Exception {
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            GameController controller = new GameControllerBuilder(new VariantChessBoard()).journal(journal).build();
+            controller.setDifficulty("CASUAL");
+            controller.restartGame(5L);
+            journal.flush();
+        }
+
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            GameController controller = new GameControllerBuilder(new VariantChessBoard()).journal(journal).build();
+            assertEquals("CASUAL", controller.getDifficulty(), "The difficulty should be recovered in the new game.");
+            controller.setDifficulty("CLASSIC");
+            journal.flush();
+        }
+
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            GameController controller = new GameControllerBuilder(new VariantChessBoard()).journal(journal).build();
+            assertEquals("CLASSIC", controller.getDifficulty(), "The last difficulty set should be recovered.");
+        }
+    }
+
+    /**
+     * Tests that moves made through the endpoints of each piece type are journaled and recovered.
+     */
+    @Test
+    void testPieceEndpointsAreJournaled() throws Exception {
+        long hashBeforeRestart;
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            VariantChessBoard board = new VariantChessBoard();
+            GameController controller = new GameControllerBuilder(board).journal(journal).build();
+            controller.restartGame(3L);
+            assertEquals("VALID_MOVE", controller.movePawn(new VariantChessMove(6, 3, 4, 3)));
+            assertEquals("BLACK", controller.getCurrentTurn(), "The AI should not reply to a piece endpoint.");
+            assertEquals("VALID_MOVE", controller.movePawn(new VariantChessMove(1, 4, 3, 4)));
+            hashBeforeRestart = Zobrist.hash(board);
+            journal.flush();
+        }
+
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            VariantChessBoard board = new VariantChessBoard();
+            GameController controller = new GameControllerBuilder(board).journal(journal).build();
+            assertEquals(hashBeforeRestart, Zobrist.hash(board), "Both plies should be recovered.");
+            assertEquals("UNDO_SUCCESS", controller.undoLastMove(), "The plies should be in the history.");
+        }
+    }
+
+    /**
+     * Tests that a game recovered from the journal continues its random stream where it stopped,
+     * so it plays on exactly like the same game played without a restart.
+     */
+    @Test
+    void testRecoveredGameContinuesLikeUninterrupted() throws Exception {
+        GameController uninterrupted = new GameControllerBuilder(new VariantChessBoard()).build();
+        uninterrupted.restartGame(10L);
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            GameController controller = new GameControllerBuilder(new VariantChessBoard()).journal(journal).build();
+            controller.restartGame(10L);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(playFirstLegalMove(uninterrupted), playFirstLegalMove(controller));
+            }
+            journal.flush();
+        }
+
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            GameController recovered = new GameControllerBuilder(new VariantChessBoard()).journal(journal).build();
+            for (int i = 0; i < 6; i++) {
+                assertEquals(playFirstLegalMove(uninterrupted), playFirstLegalMove(recovered), "Move " + i + " after recovery.");
+            }
+            assertEquals(uninterrupted.exportGame(), recovered.exportGame(), "The recovered game should play on identically.");
+        }
+    }
+
+    /**
+     * Plays the first legal move of White, in square order, and lets the AI reply.
+     *
+     * @param controller The controller of the game, with White to move.
+     * @return The result of the move.
+     */
+    static String playFirstLegalMove(GameController controller) {
+        VariantChessPiece[][] pieces = controller.getBoard();
+        for (int square = 0; square < 64; square++) {
+            VariantChessPiece piece = pieces[square / 8][square % 8];
+            if (piece != null && piece.getColor() == Color.WHITE) {
+                GameController.ValidMovesRequest request = new GameController.ValidMovesRequest();
+                request.setStartX(square / 8);
+                request.setStartY(square % 8);
+                request.setColor(Color.WHITE);
+                List<VariantChessMove> moves = controller.getValidMoves(request);
+                if (!moves.isEmpty()) {
+                    VariantChessMove move = moves.get(0);
+                    return controller.movePiece(new VariantChessMove(move.getStartX(), move.getStartY(), move.getEndX(), move.getEndY()));
+                }
+            }
+        }
+        return "NO_MOVE";
+    }
+}
@@ -0,0 +1,75 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.controller.GameController;
+import uk.ac.standrews.variantchessgame.model.*;
+import uk.ac.standrews.variantchessgame.persistence.GameNotation;
+import uk.ac.standrews.variantchessgame.persistence.GameRecord;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameNotationTest {
+
+    private static int ply(int startX, int startY, int endX, int endY, boolean capture, int promotion) {
+        VariantChessMove move = new VariantChessMove(startX, startY, endX, endY);
+        move.setCapture(capture);
+        move.setPromotionChoice(promotion);
+        return GameRecord.encodePly(move);
+    }
+
+    /**
+     * Tests the notation of a game and that parsing it gives back the same game.
+     */
+    @Test
+    void testFormatAndParse() {
+        GameRecord game = new GameRecord("RQKNBNBR", 2, GameRecord.RESULT_WHITE_WINS, new int[]{
+                ply(6, 3, 4, 3, false, 0), ply(1, 4, 3, 4, false, 0), ply(4, 3, 3, 4, true, 2)});
+
+        String text = GameNotation.format(game);
+        assertEquals("[Layout \"RQKNBNBR\"]\n[Rule \"PawnPromotionRule\"]\n[Result \"1-0\"]\n\n"
+                + "1. d2-d4 e7-e5 2. d4xe5=2 1-0\n\n", text, "The notation should match the documented format.");
+        assertEquals(game, GameNotation.parse(text), "Parsing the notation should give back the game.");
+    }
+
+    /**
+     * Tests that the streaming parser reads several games and rejects invalid text.
+     */
+    @Test
+    void testParserStreamsGames() throws Exception {
+        GameRecord first = new GameRecord("RNBQKBNR", 0, GameRecord.RESULT_UNKNOWN, new int[]{ply(6, 0, 5, 0, false, 0)});
+        GameRecord second = new GameRecord("RKQNNBBR", 1, GameRecord.RESULT_DRAW, new int[0]);
+        String text = GameNotation.format(first) + GameNotation.format(second);
+
+        try (GameNotation.Parser parser = GameNotation.parser(new StringReader(text))) {
+            assertEquals(first, parser.next(), "The first game should be read.");
+            assertEquals(second, parser.next(), "The second game should be read.");
+            assertNull(parser.next(), "The end of the input should be reported.");
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> GameNotation.parse("[Layout \"RNBQKBNR\"]\n[Rule \"PawnPromotionRule\"]\n1. d2-d9 *"));
+        assertThrows(IllegalArgumentException.class, () -> GameNotation.parse("[Layout \"RNBQKBNR\"]\n[Rule \"NoSuchRule\"]\n*"));
+        assertThrows(IllegalArgumentException.class, () -> GameNotation.parse("[Layout \"RNBQKBNR\"]\n[Rule \"PawnPromotionRule\"]\n1. d2-d4"));
+    }
+
+    /**
+     * Tests that a game exported from one controller is reproduced exactly when imported into another.
+     */
+    @Test
+    void testExportAndImport() {
+        VariantChessBoard board = new VariantChessBoard();
+        GameController controller = new GameControllerBuilder(board).build();
+        controller.setGameRule("CannonSpecialRule");
+        controller.movePiece(new VariantChessMove(6, 3, 4, 3));
+        controller.movePiece(new VariantChessMove(6, 4, 4, 4));
+        String notation = controller.exportGame();
+
+        VariantChessBoard importedBoard = new VariantChessBoard();
+        GameController imported = new GameControllerBuilder(importedBoard).build();
+        assertTrue(imported.importGame(notation).startsWith("IMPORT_SUCCESS"), "The exported game should import.");
+        assertEquals(Zobrist.hash(board), Zobrist.hash(importedBoard), "The imported game should reach the same position.");
+        assertEquals(notation, imported.exportGame(), "Exporting the imported game should give the same notation.");
+        assertEquals("IMPORT_FAIL", imported.importGame("not a game"), "Invalid notation should be rejected.");
+    }
+}
@@ -0,0 +1,118 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRandomTest {
+
+    /**
+     * Plays the opening of a game from a seed: the layout, the rule and the AI reply to a fixed first move.
+     *
+     * @return The back rank, the rule id and the packed AI move, joined.
+     */
+    private static String playFromSeed(long seed) {
+        GameRandom random = new GameRandom(seed);
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard(random);
+        GameState gameState = new GameState(board, random);
+        MoveExecutor.execute(board, gameState, new VariantChessMove(6, 3, 4, 3));
+        int reply = new ChessAI().calculateBestPackedMove(board, Color.BLACK, gameState.getSelectedRule(),
+                gameState.getReversibleHashes(), random);
+        return board.getBackRank() + "/" + gameState.getSelectedRule().getRuleId() + "/" + reply + "/" + random.getDraws();
+    }
+
+    /**
+     * Tests that a game started again from its seed gets the same layout, rule and AI moves.
+     */
+    @Test
+    void testSameSeedReplaysGame() {
+        for (long seed = 0; seed < 20; seed++) {
+            assertEquals(playFromSeed(seed), playFromSeed(seed), "Seed " + seed + " should replay identically.");
+        }
+    }
+
+    /**
+     * Plays a game from a seed in which the AI makes every move, searching with a position cache.
+     *
+     * @return The packed moves played and the number of draws from the stream, joined.
+     */
+    private static String selfPlayFromSeed(long seed, PositionCache cache, int plies) {
+        GameRandom random = new GameRandom(seed);
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard(random);
+        GameState gameState = new GameState(board, random);
+        ChessAI chessAI = new ChessAI(cache);
+        StringBuilder game = new StringBuilder();
+        for (int ply = 0; ply < plies && !gameState.isWin() && !gameState.isDraw(); ply++) {
+            int move = chessAI.calculateBestPackedMove(board, gameState.getCurrentTurn(), gameState.getSelectedRule(),
+                    gameState.getReversibleHashes(), random);
+            MoveExecutor.execute(board, gameState, PackedMove.toMove(move));
+            game.append(move).append(' ');
+        }
+        return game.append('/').append(random.getDraws()).toString();
+    }
+
+    /**
+     * Tests that a game started again from its seed plays the same moves against a cache warmed by earlier games,
+     * itself included.
+     */
+    @Test
+    void testSameSeedReplaysAgainstWarmCache() {
+        PositionCache cache = new PositionCache(4, 1);
+        String uncached = selfPlayFromSeed(5, null, 12);
+        selfPlayFromSeed(6, cache, 12);
+        assertEquals(uncached, selfPlayFromSeed(5, cache, 12), "The first game with the cache should replay the seed.");
+        assertEquals(uncached, selfPlayFromSeed(5, cache, 12), "A replay against its own cached moves should match.");
+    }
+
+    /**
+     * Tests that different seeds lead to different games.
+     */
+    @Test
+    void testSeedsVaryLayouts() {
+        String first = playFromSeed(1);
+        boolean varied = false;
+        for (long seed = 2; seed < 20 && !varied; seed++) {
+            varied = !playFromSeed(seed).equals(first);
+        }
+        assertTrue(varied, "Different seeds should not all give the same game.");
+    }
+
+    /**
+     * Tests that a promotion outcome is drawn from the game stream and recorded on the move.
+     */
+    @Test
+    void testPromotionDrawsFromGameStream() {
+        VariantChessBoard board = new VariantChessBoard();
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                board.setPieceAt(x, y, null);
+            }
+        }
+        Pawn pawn = new Pawn(Color.WHITE);
+        board.setPieceAt(4, 4, pawn);
+        board.setPieceAt(3, 4, new Knight(Color.BLACK));
+        board.setPieceAt(0, 0, new King(Color.BLACK));
+        GameRandom random = new GameRandom(7);
+        GameState gameState = new GameState(board, random);
+        gameState.selectRuleByIndex(2);
+        long drawsBefore = random.getDraws();
+        VariantChessMove move = new VariantChessMove(4, 4, 3, 4);
+
+        MoveExecutor.execute(board, gameState, move);
+
+        assertEquals(drawsBefore + 1, random.getDraws(), "The promotion should draw once from the game stream.");
+        assertNotEquals(0, move.getPromotionChoice(), "The outcome should be recorded on the move.");
+        assertTrue(board.getPieceAt(3, 4).isPromotedFromPawn(), "The Pawn should be promoted.");
+    }
+
+    /**
+     * Tests that invalid bounds are rejected.
+     */
+    @Test
+    void testInvalidBound() {
+        assertThrows(IllegalArgumentException.class, () -> new GameRandom(1).nextInt(0));
+    }
+}
@@ -20,6 +20,26 @@ class GameStateTest {
         gameState = new GameState(board);
     }
 
+    /**
+     * Creates a real board holding only the given pieces, placed through the board so that its piece counts are kept.
+     *
+     * @param squaresAndPieces Repeated row, column and piece.
+     * @return The board.
+     */
+    private static VariantChessBoard boardWith(Object... squaresAndPieces) {
+        VariantChessBoard realBoard = new VariantChessBoard();
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                realBoard.setPieceAt(x, y, null);
+            }
+        }
+        for (int i = 0; i < squaresAndPieces.length; i += 3) {
+            realBoard.setPieceAt((Integer) squaresAndPieces[i], (Integer) squaresAndPieces[i + 1],
+                    (VariantChessPiece) squaresAndPieces[i + 2]);
+        }
+        return realBoard;
+    }
+
     /**
      * Tests the initial turn setup.
      * Verifies that the game starts with WHITE's turn.
@@ -97,23 +117,17 @@ class GameStateTest {
      */
     @Test
     void testWinCondition() {
-        // Mock board to simulate all black pieces captured
+        // Board with all black pieces captured
         when(board.getPieceAt(anyInt(), anyInt())).thenReturn(null);
 
         // Place a white King to represent all other pieces being captured
-        when(board.getPieceAt(anyInt(), anyInt())).thenAnswer(invocation -> {
-            int x = invocation.getArgument(0);
-            int y = invocation.getArgument(1);
-            return (x == 0 && y == 0) ? new King(Color.WHITE) : null;
-        });
+        gameState = new GameState(boardWith(
+                0, 0, new King(Color.WHITE)));
         assertTrue(gameState.isWin(), "Game should be won if all black pieces are captured.");
 
         // Simulate all white pieces captured
-        when(board.getPieceAt(anyInt(), anyInt())).thenAnswer(invocation -> {
-            int x = invocation.getArgument(0);
-            int y = invocation.getArgument(1);
-            return (x == 0 && y == 0) ? new King(Color.BLACK) : null;
-        });
+        gameState = new GameState(boardWith(
+                0, 0, new King(Color.BLACK)));
         assertTrue(gameState.isWin(), "Game should be won if all white pieces are captured.");
     }
 
@@ -136,14 +150,10 @@ class GameStateTest {
      */
     @Test
     void testDrawConditionByKings() {
-        // Mock board to have only one King of each color
-        when(board.getPieceAt(anyInt(), anyInt())).thenAnswer(invocation -> {
-            int x = invocation.getArgument(0);
-            int y = invocation.getArgument(1);
-            if (x == 0 && y == 0) return new King(Color.WHITE);
-            if (x == 7 && y == 7) return new King(Color.BLACK);
-            return null;
-        });
+        // Board with only one King of each color
+        gameState = new GameState(boardWith(
+                0, 0, new King(Color.WHITE),
+                7, 7, new King(Color.BLACK)));
 
         assertTrue(gameState.isDraw(), "Game should be a draw if each player has only one King.");
     }
@@ -195,12 +205,9 @@ class GameStateTest {
      */
     @Test
     void testWinConditionWithMixedPieces() {
-        // Mock board with a mix of pieces, but all black pieces will be removed
-        when(board.getPieceAt(anyInt(), anyInt())).thenAnswer(invocation -> {
-            int x = invocation.getArgument(0);
-            int y = invocation.getArgument(1);
-            return (x == 0 && y == 0) ? new King(Color.WHITE) : null;
-        });
+        // Board with a mix of pieces, but all black pieces will be removed
+        gameState = new GameState(boardWith(
+                0, 0, new King(Color.WHITE)));
 
         assertTrue(gameState.isWin(), "Game should be won if all black pieces are captured with mixed pieces.");
     }
@@ -211,16 +218,12 @@ class GameStateTest {
      */
     @Test
     void testNonDrawWithNonKingPieces() {
-        // Mock board to have more than just Kings on both sides
-        when(board.getPieceAt(anyInt(), anyInt())).thenAnswer(invocation -> {
-            int x = invocation.getArgument(0);
-            int y = invocation.getArgument(1);
-            if (x == 0 && y == 0) return new King(Color.WHITE);
-            if (x == 7 && y == 7) return new King(Color.BLACK);
-            if (x == 0 && y == 1) return new Pawn(Color.WHITE);
-            if (x == 7 && y == 6) return new Pawn(Color.BLACK);
-            return null;
-        });
+        // Board with more than just Kings on both sides
+        gameState = new GameState(boardWith(
+                0, 0, new King(Color.WHITE),
+                7, 7, new King(Color.BLACK),
+                0, 1, new Pawn(Color.WHITE),
+                7, 6, new Pawn(Color.BLACK)));
 
         assertFalse(gameState.isDraw(), "Game should not be a draw if both sides have more than just Kings.");
     }
@@ -231,15 +234,11 @@ class GameStateTest {
      */
     @Test
     void testNonWinWhenPiecesPresent() {
-        // Mock board with pieces present on both sides
-        when(board.getPieceAt(anyInt(), anyInt())).thenAnswer(invocation -> {
-            int x = invocation.getArgument(0);
-            int y = invocation.getArgument(1);
-            if (x == 0 && y == 0) return new King(Color.WHITE);
-            if (x == 7 && y == 7) return new King(Color.BLACK);
-            if (x == 0 && y == 1) return new Rook(Color.WHITE);
-            return null;
-        });
+        // Board with pieces present on both sides
+        gameState = new GameState(boardWith(
+                0, 0, new King(Color.WHITE),
+                7, 7, new King(Color.BLACK),
+                0, 1, new Rook(Color.WHITE)));
 
         assertFalse(gameState.isWin(), "Game should not be won if both sides have pieces.");
     }
@@ -265,4 +264,118 @@ class GameStateTest {
         gameState.switchTurn();
         assertEquals(Color.BLACK, gameState.getCurrentTurn(), "Turn should switch to BLACK again.");
     }
+
+    /**
+     * Tests that the piece counts follow captures, detonations, conversions and promotions.
+     * Verifies after each change that the counts equal a full scan of the board.
+     */
+    @Test
+    void testPieceCountsFollowBoardChanges() {
+        VariantChessBoard realBoard = boardWith(
+                7, 4, new King(Color.WHITE),
+                0, 4, new King(Color.BLACK),
+                6, 1, new Cannon(Color.WHITE),
+                2, 1, new Pawn(Color.BLACK),
+                2, 2, new Pawn(Color.BLACK),
+                3, 3, new Queen(Color.WHITE),
+                3, 4, new Rook(Color.BLACK));
+        GameState state = new GameState(realBoard);
+        state.selectRuleByIndex(0);
+        assertCountsMatchScan(realBoard);
+        assertEquals(3, realBoard.getPieceCount(Color.WHITE), "White should start with three pieces.");
+
+        // Capture
+        MoveExecutor.execute(realBoard, state, new VariantChessMove(3, 3, 3, 4));
+        assertCountsMatchScan(realBoard);
+        assertEquals(3, realBoard.getPieceCount(Color.BLACK), "The captured Rook should no longer be counted.");
+
+        // Detonation removes the Cannon and the pieces around it
+        Cannon cannon = (Cannon) realBoard.getPieceAt(6, 1);
+        cannon.incrementCaptureCount();
+        cannon.incrementCaptureCount();
+        realBoard.setPieceAt(6, 1, null);
+        realBoard.setPieceAt(1, 1, cannon);
+        MoveExecutor.execute(realBoard, state, new VariantChessMove(1, 1, 2, 1));
+        assertCountsMatchScan(realBoard);
+        assertFalse(state.isWin(), "Both sides still have their Kings.");
+
+        // Conversion keeps the total but moves a piece between colors
+        realBoard.convertPieceAt(3, 4, Color.BLACK);
+        assertCountsMatchScan(realBoard);
+
+        // Promotion replaces a piece in place
+        realBoard.setPieceAt(4, 0, new Pawn(Color.WHITE));
+        realBoard.setPieceAt(4, 0, new Queen(Color.WHITE, true));
+        assertCountsMatchScan(realBoard);
+    }
+
+    /**
+     * Tests that a draw is found once only the two Kings remain, and a win once a color has nothing left.
+     */
+    @Test
+    void testTerminalStatesFromCounts() {
+        VariantChessBoard realBoard = boardWith(
+                7, 4, new King(Color.WHITE),
+                0, 4, new King(Color.BLACK),
+                1, 0, new Pawn(Color.BLACK));
+        GameState state = new GameState(realBoard);
+        assertFalse(state.isDraw(), "A third piece prevents the draw.");
+
+        realBoard.setPieceAt(1, 0, null);
+        assertTrue(state.isDraw(), "Only the Kings remain.");
+
+        realBoard.setPieceAt(0, 4, null);
+        assertTrue(state.isWin(), "Black has no pieces left.");
+    }
+
+    /**
+     * Tests that a position reached for the third time with the same player to move is a draw,
+     * and that a capture clears the repetition history.
+     */
+    @Test
+    void testThreefoldRepetition() {
+        VariantChessBoard realBoard = boardWith(
+                7, 4, new King(Color.WHITE),
+                0, 4, new King(Color.BLACK),
+                7, 6, new Knight(Color.WHITE),
+                0, 6, new Knight(Color.BLACK),
+                4, 3, new Pawn(Color.BLACK));
+        GameState state = new GameState(realBoard);
+        state.selectRuleByIndex(2);
+
+        for (int round = 1; round <= 2; round++) {
+            MoveExecutor.execute(realBoard, state, new VariantChessMove(7, 6, 5, 5));
+            MoveExecutor.execute(realBoard, state, new VariantChessMove(0, 6, 2, 5));
+            MoveExecutor.execute(realBoard, state, new VariantChessMove(5, 5, 7, 6));
+            MoveExecutor.execute(realBoard, state, new VariantChessMove(2, 5, 0, 6));
+            assertEquals(round == 2, state.isThreefoldRepetition(), "The start position has now occurred " + (round + 1) + " times.");
+        }
+        assertTrue(state.isDraw(), "A threefold repetition should be a draw.");
+        assertEquals(9, state.getReversibleHashes().length, "Every position since the start can recur.");
+
+        // The capture makes every earlier position unreachable
+        MoveExecutor.execute(realBoard, state, new VariantChessMove(7, 6, 5, 5));
+        MoveExecutor.execute(realBoard, state, new VariantChessMove(0, 6, 2, 5));
+        MoveExecutor.execute(realBoard, state, new VariantChessMove(5, 5, 4, 3));
+        assertFalse(state.isThreefoldRepetition(), "No position has repeated since the capture.");
+        assertEquals(1, state.getReversibleHashes().length, "Only the current position can recur after a capture.");
+    }
+
+    private static void assertCountsMatchScan(VariantChessBoard realBoard) {
+        int[] counts = new int[2];
+        boolean[] kings = new boolean[2];
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                VariantChessPiece piece = realBoard.getPieceAt(x, y);
+                if (piece != null) {
+                    counts[piece.getColor().ordinal()]++;
+                    kings[piece.getColor().ordinal()] |= piece instanceof King;
+                }
+            }
+        }
+        assertEquals(counts[0], realBoard.getPieceCount(Color.WHITE), "White count should match the board.");
+        assertEquals(counts[1], realBoard.getPieceCount(Color.BLACK), "Black count should match the board.");
+        assertEquals(kings[0], realBoard.hasKing(Color.WHITE), "White King presence should match the board.");
+        assertEquals(kings[1], realBoard.hasKing(Color.BLACK), "Black King presence should match the board.");
+    }
 }
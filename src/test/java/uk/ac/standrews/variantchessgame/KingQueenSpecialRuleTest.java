@@ -39,7 +39,7 @@ class KingQueenSpecialRuleTest {
         board.setPieceAt(5, 5, blackPawn);
 
         VariantChessMove move = new VariantChessMove(4, 4, 5, 5);
-        rule.applyRule(move, whiteKing, board);
+        capture(move, whiteKing);
 
         assertEquals(Color.WHITE, board.getPieceAt(5, 5).getColor(), "Captured piece should be white");
         assertEquals(whiteKing, board.getPieceAt(4, 4), "King should stay in the original position");
@@ -60,7 +60,7 @@ class KingQueenSpecialRuleTest {
         board.setPieceAt(5, 5, whitePawn);
 
         VariantChessMove move = new VariantChessMove(4, 4, 5, 5);
-        rule.applyRule(move, blackKing, board);
+        capture(move, blackKing);
 
         assertEquals(Color.BLACK, board.getPieceAt(5, 5).getColor(), "Captured piece should be black");
         assertEquals(blackKing, board.getPieceAt(4, 4), "King should stay in the original position");
@@ -87,7 +87,7 @@ class KingQueenSpecialRuleTest {
             board.setPieceAt(4, 4, whiteKing);
             board.setPieceAt(dir[0], dir[1], blackPawn);
             VariantChessMove move = new VariantChessMove(4, 4, dir[0], dir[1]);
-            rule.applyRule(move, whiteKing, board);
+            capture(move, whiteKing);
 
             assertEquals(Color.WHITE, board.getPieceAt(dir[0], dir[1]).getColor(), "Captured piece should be white");
             assertEquals(whiteKing, board.getPieceAt(4, 4), "King should stay in the original position");
@@ -102,7 +102,7 @@ class KingQueenSpecialRuleTest {
         board.setPieceAt(3, 3, blackPawn);
 
         VariantChessMove move = new VariantChessMove(2, 2, 3, 3);
-        rule.applyRule(move, whiteKing, board);
+        capture(move, whiteKing);
 
         assertEquals(Color.WHITE, board.getPieceAt(3, 3).getColor(), "Captured piece should be white");
         assertEquals(whiteKing, board.getPieceAt(2, 2), "King should stay in the original position");
@@ -116,7 +116,7 @@ class KingQueenSpecialRuleTest {
         board.setPieceAt(0, 7, blackPawn);
 
         VariantChessMove move = new VariantChessMove(2, 2, 0, 7);
-        rule.applyRule(move, whiteQueen, board);
+        capture(move, whiteQueen);
 
         assertEquals(Color.WHITE, board.getPieceAt(0, 7).getColor(), "Captured piece should be white");
         assertEquals(whiteQueen, board.getPieceAt(1, 6), "Queen should move to the previous position");
@@ -135,7 +135,7 @@ class KingQueenSpecialRuleTest {
             board.setPieceAt(4, 4, whiteQueen);
             board.setPieceAt(dir[0], dir[1], blackPawn);
             VariantChessMove move = new VariantChessMove(4, 4, dir[0], dir[1]);
-            rule.applyRule(move, whiteQueen, board);
+            capture(move, whiteQueen);
 
             assertEquals(Color.WHITE, board.getPieceAt(dir[0], dir[1]).getColor(), "Captured piece should be white");
             int expectedX = dir[0] == 4 ? 4 : (dir[0] < 4 ? dir[0] + 1 : dir[0] - 1);
@@ -154,7 +154,7 @@ class KingQueenSpecialRuleTest {
             board.setPieceAt(4, 4, whiteQueen);
             board.setPieceAt(dir[0], dir[1], blackPawn);
             VariantChessMove move = new VariantChessMove(4, 4, dir[0], dir[1]);
-            rule.applyRule(move, whiteQueen, board);
+            capture(move, whiteQueen);
 
             assertEquals(Color.WHITE, board.getPieceAt(dir[0], dir[1]).getColor(), "Captured piece should be white");
             int expectedX = (dir[0] < 4) ? dir[0] + 1 : dir[0] - 1;
@@ -171,7 +171,7 @@ class KingQueenSpecialRuleTest {
         board.setPieceAt(5, 5, blackPawn);
 
         VariantChessMove move = new VariantChessMove(3, 3, 5, 5);
-        rule.applyRule(move, whiteQueen, board);
+        capture(move, whiteQueen);
 
         assertEquals(Color.WHITE, board.getPieceAt(5, 5).getColor(), "Captured piece should be white");
         assertEquals(whiteQueen, board.getPieceAt(4, 4), "Queen should move to the previous position");
@@ -192,7 +192,7 @@ class KingQueenSpecialRuleTest {
         board.setPieceAt(5, 5, whitePawn);
 
         VariantChessMove move = new VariantChessMove(3, 3, 5, 5);
-        rule.applyRule(move, blackQueen, board);
+        capture(move, blackQueen);
 
         assertEquals(Color.BLACK, board.getPieceAt(5, 5).getColor(), "Captured piece should be black");
         assertEquals(blackQueen, board.getPieceAt(4, 4), "Queen should move to the previous position");
@@ -213,7 +213,7 @@ class KingQueenSpecialRuleTest {
         board.setPieceAt(5, 5, blackPawn);
 
         VariantChessMove move = new VariantChessMove(2, 2, 5, 5);
-        rule.applyRule(move, whiteQueen, board);
+        capture(move, whiteQueen);
 
         int expectedX = 5 - 1;
         int expectedY = 5 - 1;
@@ -228,7 +228,7 @@ class KingQueenSpecialRuleTest {
         board.setPieceAt(6, 6, blackPawn);
 
         VariantChessMove whiteMove = new VariantChessMove(4, 4, 6, 6);
-        rule.applyRule(whiteMove, whiteQueen, board);
+        capture(whiteMove, whiteQueen);
 
         int expectedX = 6 - 1;
         int expectedY = 6 - 1;
@@ -240,7 +240,7 @@ class KingQueenSpecialRuleTest {
         board.setPieceAt(6, 6, whitePawn);
 
         VariantChessMove blackMove = new VariantChessMove(4, 4, 6, 6);
-        rule.applyRule(blackMove, blackQueen, board);
+        capture(blackMove, blackQueen);
 
         expectedX = 6 - 1;
         expectedY = 6 - 1;
@@ -254,15 +254,24 @@ class KingQueenSpecialRuleTest {
         board.setPieceAt(4, 4, whiteKing);
         board.setPieceAt(5, 5, blackPawn);
         VariantChessMove kingMove = new VariantChessMove(4, 4, 5, 5);
-        rule.applyRule(kingMove, whiteKing, board);
+        capture(kingMove, whiteKing);
 
         assertEquals(Color.WHITE, board.getPieceAt(5, 5).getColor(), "Captured piece should change to White after White King captures it");
 
         board.setPieceAt(4, 4, blackKing);
         board.setPieceAt(5, 5, whitePawn);
         kingMove = new VariantChessMove(4, 4, 5, 5);
-        rule.applyRule(kingMove, blackKing, board);
+        capture(kingMove, blackKing);
 
         assertEquals(Color.BLACK, board.getPieceAt(5, 5).getColor(), "Captured piece should change to Black after Black King captures it");
     }
+
+    /**
+     * Makes a capturing move on the board and fires its capture event through the rule, as a game would.
+     */
+    private void capture(VariantChessMove move, VariantChessPiece piece) {
+        VariantChessPiece captured = board.getPieceAt(move.getEndX(), move.getEndY());
+        board.movePiece(move);
+        new RuleEngine(rule).fire(RuleEngine.ON_CAPTURE, move, piece, captured, board);
+    }
 }
@@ -30,7 +30,7 @@ class KingTest {
         whiteKing = new King(Color.WHITE);
         blackKing = new King(Color.BLACK);
         // Place the white King at position (4, 4) on the board
-        board.getBoard()[4][4] = whiteKing;
+        board.setPieceAt(4, 4, whiteKing);
     }
 
     /**
@@ -83,7 +83,7 @@ class KingTest {
     @Test
     void testCaptureMove() {
         // Place a black Pawn at (4, 5)
-        board.getBoard()[4][5] = new Pawn(Color.BLACK);
+        board.setPieceAt(4, 5, new Pawn(Color.BLACK));
 
         // Attempt to capture the black Pawn
         VariantChessMove move = new VariantChessMove(4, 4, 4, 5);
@@ -101,7 +101,7 @@ class KingTest {
     @Test
     void testInvalidCaptureOwnPiece() {
         // Place a white Pawn at (4, 5)
-        board.getBoard()[4][5] = new Pawn(Color.WHITE);
+        board.setPieceAt(4, 5, new Pawn(Color.WHITE));
 
         // Attempt to capture the white Pawn
         VariantChessMove move = new VariantChessMove(4, 4, 4, 5);
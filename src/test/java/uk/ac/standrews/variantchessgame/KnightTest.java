@@ -30,7 +30,7 @@ class KnightTest {
         whiteKnight = new Knight(Color.WHITE);
         blackKnight = new Knight(Color.BLACK);
         // Place the white Knight at position (4, 4) on the board
-        board.getBoard()[4][4] = whiteKnight;
+        board.setPieceAt(4, 4, whiteKnight);
     }
 
     /**
@@ -43,7 +43,7 @@ class KnightTest {
     @Test
     void testValidMove() {
         // Ensure the target position is empty for valid 'L' shape move (6, 5)
-        board.getBoard()[6][5] = null;
+        board.setPieceAt(6, 5, null);
         VariantChessMove move = new VariantChessMove(4, 4, 6, 5);
         assertTrue(whiteKnight.isValidMove(move, board), "Knight should be able to move in an 'L' shape.");
         board.movePiece(move);
@@ -51,7 +51,7 @@ class KnightTest {
         assertNull(board.getPieceAt(4, 4), "Original position should be empty after move.");
 
         // Ensure the target position is empty for valid 'L' shape move (4, 6)
-        board.getBoard()[4][6] = null;
+        board.setPieceAt(4, 6, null);
         move = new VariantChessMove(6, 5, 4, 6);
         assertTrue(whiteKnight.isValidMove(move, board), "Knight should be able to move in an 'L' shape.");
         board.movePiece(move);
@@ -66,7 +66,7 @@ class KnightTest {
     @Test
     void testKnightColorAfterMove() {
         // Ensure the target position is empty for valid 'L' shape move (6, 5)
-        board.getBoard()[6][5] = null;
+        board.setPieceAt(6, 5, null);
         VariantChessMove move = new VariantChessMove(4, 4, 6, 5);
         assertTrue(whiteKnight.isValidMove(move, board), "Knight should be able to move in an 'L' shape.");
         board.movePiece(move);
@@ -109,7 +109,7 @@ class KnightTest {
     @Test
     void testCaptureMove() {
         // Place a black Pawn at (6, 5)
-        board.getBoard()[6][5] = new Pawn(Color.BLACK);
+        board.setPieceAt(6, 5, new Pawn(Color.BLACK));
 
         // Attempt to capture the black Pawn
         VariantChessMove move = new VariantChessMove(4, 4, 6, 5);
@@ -127,7 +127,7 @@ class KnightTest {
     @Test
     void testInvalidCaptureOwnPiece() {
         // Place a white Pawn at (6, 5)
-        board.getBoard()[6][5] = new Pawn(Color.WHITE);
+        board.setPieceAt(6, 5, new Pawn(Color.WHITE));
 
         // Attempt to capture the white Pawn
         VariantChessMove move = new VariantChessMove(4, 4, 6, 5);
@@ -5,9 +5,14 @@ import org.junit.jupiter.api.Test;
 import uk.ac.standrews.variantchessgame.model.MoveHistory;
 import uk.ac.standrews.variantchessgame.model.VariantChessMove;
 
+import uk.ac.standrews.variantchessgame.model.Color;
+import uk.ac.standrews.variantchessgame.model.GameState;
+import uk.ac.standrews.variantchessgame.model.Pawn;
+import uk.ac.standrews.variantchessgame.model.PositionSnapshot;
+import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -31,58 +36,62 @@ class MoveHistoryTest {
 
     /**
      * Test the initial state of the MoveHistory.
-     * Verifies that both moveStack and redoStack are empty when a new MoveHistory is created.
+     * Verifies that there is nothing to undo or redo when a new MoveHistory is created.
      */
     @Test
     void testInitialState() {
-        assertTrue(moveHistory.getMoveStack().isEmpty(), "moveStack should be empty initially");
-        assertTrue(moveHistory.getRedoStack().isEmpty(), "redoStack should be empty initially");
+        assertEquals(0, moveHistory.getUndoableMoveCount(), "Nothing should be undoable initially");
+        assertEquals(0, moveHistory.getRedoableMoveCount(), "Nothing should be redoable initially");
+        assertEquals(0, moveHistory.getTotalPlies(), "No plies should be recorded initially");
     }
 
     /**
-     * Test the getter and setter methods for moveStack.
-     * Verifies that moveStack can be set and retrieved correctly.
+     * Test that a move survives packing.
+     * Verifies that coordinates, flags and the captured piece state are restored from the packed log.
      */
     @Test
-    void testGetSetMoveStack() {
-        Stack<List<VariantChessMove>> newMoveStack = new Stack<>();
-        newMoveStack.push(move1);
-        moveHistory.setMoveStack(newMoveStack);
-        assertEquals(newMoveStack, moveHistory.getMoveStack(), "getMoveStack should return the set moveStack");
-    }
-
-    /**
-     * Test the getter and setter methods for redoStack.
-     * Verifies that redoStack can be set and retrieved correctly.
-     */
-    @Test
-    void testGetSetRedoStack() {
-        Stack<List<VariantChessMove>> newRedoStack = new Stack<>();
-        newRedoStack.push(move1);
-        moveHistory.setRedoStack(newRedoStack);
-        assertEquals(newRedoStack, moveHistory.getRedoStack(), "getRedoStack should return the set redoStack");
+    void testPackedMoveRoundTrip() {
+        VariantChessMove move = new VariantChessMove(6, 3, 4, 3);
+        move.setCapture(true);
+        move.setWasFirstMove(true);
+        Pawn captured = new Pawn(Color.BLACK);
+        captured.setFirstMove(false);
+        captured.incrementCaptureCount();
+        move.setCapturedPiece(captured);
+
+        moveHistory.addFullMove(List.of(move));
+        assertTrue(moveHistory.undo(), "The move should be undone");
+        VariantChessMove restored = moveHistory.getPlies(0, 1).get(0);
+
+        assertSameMove(move, restored);
+        assertTrue(restored.isCapture(), "Capture flag should be restored");
+        assertTrue(restored.wasFirstMove(), "First-move flag should be restored");
+        assertTrue(restored.getCapturedPiece() instanceof Pawn, "Captured piece type should be restored");
+        assertEquals(Color.BLACK, restored.getCapturedPiece().getColor(), "Captured piece color should be restored");
+        assertEquals(1, restored.getCapturedPiece().getCaptureCount(), "Captured piece capture count should be restored");
+        assertFalse(((Pawn) restored.getCapturedPiece()).isFirstMove(), "Captured pawn first-move flag should be restored");
     }
 
     /**
      * Test adding full moves to the MoveHistory.
-     * Adds moves to the moveStack and verifies that the redoStack is cleared.
+     * Adds moves to the log and verifies that nothing is left to redo.
      */
     @Test
     void testAddFullMove() {
-        // Add the first move and check the state of stacks.
+        // Add the first move and check the state of the log.
         moveHistory.addFullMove(move1);
-        assertFalse(moveHistory.getMoveStack().isEmpty(), "moveStack should contain the added move");
-        assertTrue(moveHistory.getRedoStack().isEmpty(), "redoStack should be empty after adding a new move");
+        assertEquals(1, moveHistory.getUndoableMoveCount(), "The added move should be undoable");
+        assertEquals(0, moveHistory.getRedoableMoveCount(), "Nothing should be redoable after adding a new move");
 
-        // Add a second move and verify the state of stacks.
+        // Add a second move and verify the state of the log.
         moveHistory.addFullMove(move2);
-        assertEquals(2, moveHistory.getMoveStack().size(), "moveStack should contain two moves");
-        assertTrue(moveHistory.getRedoStack().isEmpty(), "redoStack should be empty after adding another move");
+        assertEquals(2, moveHistory.getUndoableMoveCount(), "Two moves should be undoable");
+        assertEquals(0, moveHistory.getRedoableMoveCount(), "Nothing should be redoable after adding another move");
     }
 
     /**
      * Test the undo functionality of the MoveHistory.
-     * Verifies that the most recent move is removed from moveStack and added to redoStack.
+     * Verifies that the most recent move is undone and becomes redoable.
      */
     @Test
     void testUndo() {
@@ -90,22 +99,22 @@ class MoveHistoryTest {
         moveHistory.addFullMove(move1);
         moveHistory.addFullMove(move2);
 
-        // Undo the last move and check the returned move and stack sizes.
-        List<VariantChessMove> undoneMove = moveHistory.undo();
-        assertEquals(move2, undoneMove, "Undo should return the last added move");
-        assertEquals(1, moveHistory.getMoveStack().size(), "moveStack should have one move left");
-        assertEquals(1, moveHistory.getRedoStack().size(), "redoStack should contain one move");
-
-        // Undo the remaining move and verify the state of stacks.
-        undoneMove = moveHistory.undo();
-        assertEquals(move1, undoneMove, "Undo should return the first added move");
-        assertTrue(moveHistory.getMoveStack().isEmpty(), "moveStack should be empty after undoing all moves");
-        assertEquals(2, moveHistory.getRedoStack().size(), "redoStack should contain two moves");
+        // Undo the last move and check the undone plies and stack sizes.
+        assertTrue(moveHistory.undo(), "The second move should be undone");
+        assertSameFullMove(move2, moveHistory.getPlies(moveHistory.getCurrentPly(), 2));
+        assertEquals(1, moveHistory.getUndoableMoveCount(), "One move should be left to undo");
+        assertEquals(1, moveHistory.getRedoableMoveCount(), "One move should be redoable");
+
+        // Undo the remaining move and verify the state of the log.
+        assertTrue(moveHistory.undo(), "The first move should be undone");
+        assertSameFullMove(move1, moveHistory.getPlies(moveHistory.getCurrentPly(), 1));
+        assertEquals(0, moveHistory.getUndoableMoveCount(), "Nothing should be undoable after undoing all moves");
+        assertEquals(2, moveHistory.getRedoableMoveCount(), "Two moves should be redoable");
     }
 
     /**
      * Test the redo functionality of the MoveHistory.
-     * Verifies that the most recent undone move is restored to moveStack and removed from redoStack.
+     * Verifies that the most recent undone move is applied again and is no longer redoable.
      */
     @Test
     void testRedo() {
@@ -115,36 +124,108 @@ class MoveHistoryTest {
         moveHistory.undo(); // Undo move2
         moveHistory.undo(); // Undo move1
 
-        // Redo the last undone move and check the returned move and stack sizes.
-        List<VariantChessMove> redoneMove = moveHistory.redo();
-        assertEquals(move1, redoneMove, "Redo should return the first undone move");
-        assertEquals(1, moveHistory.getMoveStack().size(), "moveStack should have one move after redo");
-        assertEquals(1, moveHistory.getRedoStack().size(), "redoStack should contain one move after redo");
-
-        // Redo the remaining move and verify the state of stacks.
-        redoneMove = moveHistory.redo();
-        assertEquals(move2, redoneMove, "Redo should return the second undone move");
-        assertEquals(2, moveHistory.getMoveStack().size(), "moveStack should contain two moves after redo");
-        assertTrue(moveHistory.getRedoStack().isEmpty(), "redoStack should be empty after redoing all moves");
+        // Redo the last undone move and check the redone plies and stack sizes.
+        assertTrue(moveHistory.redo(), "The first move should be redone");
+        assertSameFullMove(move1, moveHistory.getPlies(0, moveHistory.getCurrentPly()));
+        assertEquals(1, moveHistory.getUndoableMoveCount(), "One move should be undoable after redo");
+        assertEquals(1, moveHistory.getRedoableMoveCount(), "One move should be redoable after redo");
+
+        // Redo the remaining move and verify the state of the log.
+        assertTrue(moveHistory.redo(), "The second move should be redone");
+        assertSameFullMove(move2, moveHistory.getPlies(1, moveHistory.getCurrentPly()));
+        assertEquals(2, moveHistory.getUndoableMoveCount(), "Two moves should be undoable after redo");
+        assertEquals(0, moveHistory.getRedoableMoveCount(), "Nothing should be redoable after redoing all moves");
     }
 
     /**
-     * Test the undo functionality when the moveStack is empty.
-     * Verifies that undoing on an empty moveStack returns null.
+     * Test the undo functionality when the history is empty.
+     * Verifies that undoing with nothing to undo reports it and leaves the cursor alone.
      */
     @Test
     void testUndoEmptyStack() {
-        List<VariantChessMove> undoneMove = moveHistory.undo();
-        assertNull(undoneMove, "Undo on empty moveStack should return null");
+        assertFalse(moveHistory.undo(), "Undo on empty history should return false");
+        assertEquals(0, moveHistory.getCurrentPly(), "Cursor should stay at ply 0");
     }
 
     /**
-     * Test the redo functionality when the redoStack is empty.
-     * Verifies that redoing on an empty redoStack returns null.
+     * Test the redo functionality when nothing has been undone.
+     * Verifies that redoing with nothing to redo reports it and leaves the cursor alone.
      */
     @Test
     void testRedoEmptyStack() {
-        List<VariantChessMove> redoneMove = moveHistory.redo();
-        assertNull(redoneMove, "Redo on empty redoStack should return null");
+        moveHistory.addFullMove(move1);
+        assertFalse(moveHistory.redo(), "Redo with nothing undone should return false");
+        assertEquals(1, moveHistory.getCurrentPly(), "Cursor should stay at the end of the log");
+    }
+
+    /**
+     * Test jumping directly to a ply.
+     * Verifies that the cursor moves without stepping and that full-move counts follow it.
+     */
+    @Test
+    void testJumpToPly() {
+        List<VariantChessMove> fullMove = new ArrayList<>();
+        fullMove.add(new VariantChessMove(6, 0, 5, 0));
+        fullMove.add(new VariantChessMove(1, 0, 2, 0));
+        moveHistory.addFullMove(fullMove);
+        moveHistory.addFullMove(move2);
+
+        moveHistory.jumpTo(1);
+        assertEquals(1, moveHistory.getCurrentPly(), "Cursor should be at the requested ply");
+        assertEquals(1, moveHistory.getUndoableMoveCount(), "The partly applied full move should be undoable");
+
+        moveHistory.jumpTo(3);
+        assertEquals(2, moveHistory.getUndoableMoveCount(), "Both full moves should be undoable at the end");
+        moveHistory.jumpTo(2);
+        assertEquals(1, moveHistory.getUndoableMoveCount(), "Only the first full move should be undoable at its end");
+
+        moveHistory.jumpTo(0);
+        assertEquals(0, moveHistory.getUndoableMoveCount(), "Nothing should be undoable at ply 0");
+        assertEquals(2, moveHistory.getRedoableMoveCount(), "Both full moves should be redoable at ply 0");
+        assertEquals(3, moveHistory.getTotalPlies(), "Jumping should not discard recorded plies");
+        assertThrows(IllegalArgumentException.class, () -> moveHistory.jumpTo(4), "Jumping past the log should fail");
+    }
+
+    /**
+     * Test the periodic snapshot storage.
+     * Verifies that the nearest snapshot is found and that snapshots of discarded plies are dropped.
+     */
+    @Test
+    void testSnapshots() {
+        MoveHistory history = new MoveHistory(2);
+        VariantChessBoard board = new VariantChessBoard();
+        GameState state = new GameState(board);
+        PositionSnapshot initial = PositionSnapshot.capture(board, state);
+        history.recordSnapshot(0, initial);
+        history.addFullMove(List.of(new VariantChessMove(6, 0, 5, 0), new VariantChessMove(1, 0, 2, 0)));
+        history.recordSnapshot(2, PositionSnapshot.capture(board, state));
+        history.addFullMove(List.of(new VariantChessMove(5, 0, 4, 0)));
+
+        assertTrue(history.isSnapshotPly(2), "Ply 2 should be a snapshot ply");
+        assertFalse(history.isSnapshotPly(3), "Ply 3 should not be a snapshot ply");
+        assertEquals(2, history.nearestSnapshotPly(3), "Ply 3 should replay from the snapshot at ply 2");
+        assertSame(initial, history.getSnapshot(history.nearestSnapshotPly(1)), "Ply 1 should replay from the initial snapshot");
+
+        // Undo back to ply 0 and play a different move: the snapshot of ply 2 no longer belongs to the game.
+        history.undo();
+        history.undo();
+        history.addFullMove(List.of(new VariantChessMove(6, 1, 5, 1)));
+        assertNull(history.getSnapshot(2), "Snapshots of discarded plies should be dropped");
+        assertEquals(0, history.nearestSnapshotPly(2), "Only the initial snapshot should remain");
+        assertThrows(IllegalArgumentException.class, () -> history.recordSnapshot(1, initial), "Snapshots must be on interval plies");
+    }
+
+    private void assertSameFullMove(List<VariantChessMove> expected, List<VariantChessMove> actual) {
+        assertEquals(expected.size(), actual.size(), "Full move should have the same number of plies");
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameMove(expected.get(i), actual.get(i));
+        }
+    }
+
+    private void assertSameMove(VariantChessMove expected, VariantChessMove actual) {
+        assertEquals(expected.getStartX(), actual.getStartX(), "Start row should match");
+        assertEquals(expected.getStartY(), actual.getStartY(), "Start column should match");
+        assertEquals(expected.getEndX(), actual.getEndX(), "End row should match");
+        assertEquals(expected.getEndY(), actual.getEndY(), "End column should match");
     }
 }
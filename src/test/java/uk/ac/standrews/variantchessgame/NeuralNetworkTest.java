@@ -0,0 +1,146 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NeuralNetworkTest {
+
+    static NeuralNetwork randomNetwork(int hiddenSize, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] pieceWeights = random.ints(NeuralNetwork.PIECE_INPUTS * hiddenSize, -40, 41).toArray();
+        for (int input = 0; input < NeuralNetwork.PIECE_INPUTS; input++) {
+            int mirrored = NeuralNetwork.mirrorInput(input);
+            System.arraycopy(pieceWeights, Math.min(input, mirrored) * hiddenSize, pieceWeights, input * hiddenSize, hiddenSize);
+        }
+        return new NeuralNetwork(hiddenSize,
+                pieceWeights,
+                random.ints(NeuralNetwork.EXTRA_INPUTS * hiddenSize, -40, 41).toArray(),
+                random.ints(hiddenSize, 0, NeuralNetwork.HIDDEN_SCALE).toArray(),
+                random.ints(2 * hiddenSize, -64, 65).toArray(),
+                random.nextInt(-1000, 1000));
+    }
+
+    /**
+     * Tests that the hidden layer kept up to date through moves, captures and conversions matches the one
+     * accumulated from scratch.
+     */
+    @Test
+    void testIncrementalMatchesRefresh() {
+        NeuralNetwork network = randomNetwork(20, 1);
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard("RNBQKBNR");
+        board.setNeuralNetwork(network);
+
+        board.movePiece(6 * 8 + 4, 4 * 8 + 4);
+        board.movePiece(7 * 8 + 1, 1 * 8 + 1); // Captures a Black Pawn
+        board.convertPieceAt(0, 0, Color.WHITE);
+        board.setPieceAt(3, 3, new Cannon(Color.BLACK));
+
+        VariantChessBoard fresh = new VariantChessBoard();
+        for (int square = 0; square < 64; square++) {
+            fresh.setPieceAt(square >> 3, square & 7, board.getPieceAt(square >> 3, square & 7));
+        }
+        fresh.setNeuralNetwork(network);
+        for (Color side : Color.values()) {
+            assertArrayEquals(fresh.getNeuralAccumulator().getHidden(side), board.getNeuralAccumulator().getHidden(side));
+        }
+        assertEquals(fresh.getNeuralAccumulator().evaluate(fresh, Color.WHITE, 1),
+                board.getNeuralAccumulator().evaluate(board, Color.WHITE, 1));
+
+        board.recountPieces();
+        assertArrayEquals(fresh.getNeuralAccumulator().getHidden(Color.BLACK), board.getNeuralAccumulator().getHidden(Color.BLACK),
+                "Recounting should rebuild the hidden layer.");
+    }
+
+    /**
+     * Tests that the kernel chosen for this JVM computes the same as the scalar kernel.
+     */
+    @Test
+    void testKernelsAgree() {
+        NeuralKernel kernel = NeuralKernel.select();
+        SplittableRandom random = new SplittableRandom(2);
+        for (int size : new int[]{1, 7, 16, 37, 64}) {
+            int[] weights = random.ints(size * 3, -200, 200).toArray();
+            int[] scalar = random.ints(size, -300, 300).toArray();
+            int[] selected = scalar.clone();
+            NeuralKernel.SCALAR.add(scalar, weights, size);
+            kernel.add(selected, weights, size);
+            NeuralKernel.SCALAR.subtract(scalar, weights, 2 * size);
+            kernel.subtract(selected, weights, 2 * size);
+            assertArrayEquals(scalar, selected, "Kernel " + kernel);
+            assertEquals(NeuralKernel.SCALAR.clippedDot(scalar, weights, 0, 127), kernel.clippedDot(selected, weights, 0, 127));
+        }
+    }
+
+    /**
+     * Tests that the rule and capture inputs change the score.
+     */
+    @Test
+    void testExtraInputsCount() {
+        NeuralNetwork network = randomNetwork(16, 4);
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard("RNBQKBNR");
+        board.setNeuralNetwork(network);
+        NeuralAccumulator accumulator = board.getNeuralAccumulator();
+
+        int noRule = accumulator.evaluate(board, Color.WHITE, -1);
+        int[] ruleScores = {accumulator.evaluate(board, Color.WHITE, 0), accumulator.evaluate(board, Color.WHITE, 1),
+                accumulator.evaluate(board, Color.WHITE, 2)};
+        assertFalse(noRule == ruleScores[0] && noRule == ruleScores[1] && noRule == ruleScores[2], "Rule inputs should count.");
+
+        board.getPieceAt(6, 3).setCaptureCount(1);
+        assertNotEquals(noRule, accumulator.evaluate(board, Color.WHITE, -1), "Capture inputs should count.");
+    }
+
+    /**
+     * Tests that a written network reads back the same, and that other files and asymmetric networks are rejected.
+     */
+    @Test
+    void testWriteAndReadBack() throws Exception {
+        NeuralNetwork network = randomNetwork(8, 5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        network.write(out);
+        NeuralNetwork read = NeuralNetwork.read(new ByteArrayInputStream(out.toByteArray()));
+
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard("RNBQKBNR");
+        board.setNeuralNetwork(network);
+        int expected = board.getNeuralAccumulator().evaluate(board, Color.WHITE, 0);
+        board.setNeuralNetwork(read);
+        assertEquals(expected, board.getNeuralAccumulator().evaluate(board, Color.WHITE, 0));
+
+        byte[] corrupt = out.toByteArray();
+        corrupt[0] ^= 1;
+        assertThrows(IllegalArgumentException.class, () -> NeuralNetwork.read(new ByteArrayInputStream(corrupt)));
+        assertThrows(IllegalArgumentException.class, () -> new NeuralNetwork(8, new int[1], new int[0], new int[8], new int[16], 0));
+
+        byte[] asymmetric = out.toByteArray();
+        asymmetric[10 + 1] ^= 1; // The low byte of the first weight of the input on the first square
+        assertThrows(IllegalArgumentException.class, () -> NeuralNetwork.read(new ByteArrayInputStream(asymmetric)));
+    }
+
+    /**
+     * Tests that the AI searches with a network and finds a legal move.
+     */
+    @Test
+    void testAIUsesNetwork() {
+        ChessAI chessAI = new ChessAI(null, EvalWeights.getDefault(), randomNetwork(16, 6));
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard("RNBQKBNR");
+
+        int move = chessAI.calculateBestPackedMove(board, Color.WHITE, new CannonSpecialRule(),
+                new long[]{Zobrist.hash(board, Color.WHITE)}, new GameRandom(1));
+
+        assertNotEquals(PackedMove.NONE, move);
+        assertTrue(new MoveBuffer(1).isLegal(board, Color.WHITE, move));
+        assertNotNull(board.getNeuralAccumulator(), "The board should accumulate the network of the AI.");
+        new ChessAI().calculateBestPackedMove(board, Color.WHITE, null, new long[]{Zobrist.hash(board, Color.WHITE)});
+        assertNull(board.getNeuralAccumulator(), "An AI without a network should stop the accumulation.");
+    }
+}
@@ -0,0 +1,49 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.*;
+import uk.ac.standrews.variantchessgame.tuning.NeuralTrainer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NeuralTrainerTest {
+
+    /**
+     * Tests that a short training run produces a network file the engine reads back and searches with,
+     * and that the network scores a position and its mirror image the same.
+     */
+    @Test
+    void testTrainedNetworkReadsBack() throws Exception {
+        NeuralNetwork network = new NeuralTrainer(8, 2).run(EvalWeights.getDefault(), 1, 2, 11L);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        network.write(out);
+        NeuralNetwork read = NeuralNetwork.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(8, read.getHiddenSize());
+
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard("RNBQKBNR");
+        int move = new ChessAI(null, EvalWeights.getDefault(), read).calculateBestPackedMove(board, Color.WHITE,
+                new PawnPromotionRule(), new long[]{Zobrist.hash(board, Color.WHITE)}, new GameRandom(1));
+        assertNotEquals(PackedMove.NONE, move);
+
+        board.movePiece(6 * 8 + 1, 4 * 8 + 1);
+        VariantChessBoard mirrored = new VariantChessBoard();
+        for (int square = 0; square < 64; square++) {
+            mirrored.setPieceAt(square >> 3, square & 7, board.getPieceAt(square >> 3, 7 - (square & 7)));
+        }
+        board.setNeuralNetwork(read);
+        mirrored.setNeuralNetwork(read);
+        assertEquals(board.getNeuralAccumulator().evaluate(board, Color.WHITE, 2),
+                mirrored.getNeuralAccumulator().evaluate(mirrored, Color.WHITE, 2));
+    }
+
+    @Test
+    void testInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new NeuralTrainer(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new NeuralTrainer(8, 0));
+    }
+}
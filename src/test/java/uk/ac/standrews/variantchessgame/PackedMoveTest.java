@@ -0,0 +1,79 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.Color;
+import uk.ac.standrews.variantchessgame.model.MoveBuffer;
+import uk.ac.standrews.variantchessgame.model.MoveHistory;
+import uk.ac.standrews.variantchessgame.model.PackedMove;
+import uk.ac.standrews.variantchessgame.model.Rook;
+import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+import uk.ac.standrews.variantchessgame.model.VariantChessMove;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedMoveTest {
+
+    /**
+     * Tests that a move converted to its packed form and back keeps its squares, flags and promotion outcome.
+     */
+    @Test
+    void testRoundTrip() {
+        VariantChessMove move = new VariantChessMove(6, 3, 4, 3);
+        move.setWasFirstMove(true);
+        move.setCapture(true);
+        move.setPromotionChoice(2);
+
+        int packed = PackedMove.pack(move);
+        assertEquals(6 * 8 + 3, PackedMove.from(packed), "The start square should be packed.");
+        assertEquals(4 * 8 + 3, PackedMove.to(packed), "The end square should be packed.");
+        assertTrue(PackedMove.isCapture(packed), "The capture flag should be packed.");
+        assertTrue(PackedMove.isFirstMove(packed), "The first-move flag should be packed.");
+        assertEquals(2, PackedMove.promotionChoice(packed), "The promotion outcome should be packed.");
+
+        VariantChessMove unpacked = PackedMove.toMove(packed);
+        assertEquals(6, unpacked.getStartX());
+        assertEquals(3, unpacked.getStartY());
+        assertEquals(4, unpacked.getEndX());
+        assertEquals(3, unpacked.getEndY());
+        assertTrue(unpacked.isCapture());
+        assertTrue(unpacked.wasFirstMove());
+        assertEquals(2, unpacked.getPromotionChoice());
+        assertEquals(packed, MoveHistory.pack(move), "The move log should use the same encoding.");
+    }
+
+    /**
+     * Tests that generating moves fills the list of a ply in place and flags captures.
+     */
+    @Test
+    void testMoveBufferGeneration() {
+        VariantChessBoard board = new VariantChessBoard();
+        MoveBuffer buffer = new MoveBuffer(2);
+        int count = buffer.generate(0, board, Color.WHITE);
+        assertTrue(count > 0, "White should have moves in the starting position.");
+        for (int i = 0; i < count; i++) {
+            assertTrue(buffer.isLegal(board, Color.WHITE, buffer.get(0, i)), "Every generated move should be legal.");
+            int to = PackedMove.to(buffer.get(0, i));
+            assertEquals(board.getPieceAt(to / 8, to % 8) != null, PackedMove.isCapture(buffer.get(0, i)),
+                    "Exactly the moves onto occupied squares should be flagged as captures.");
+        }
+
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                board.setPieceAt(x, y, null);
+            }
+        }
+        board.setPieceAt(4, 0, new Rook(Color.WHITE));
+        board.setPieceAt(4, 5, new Rook(Color.BLACK));
+        assertEquals(12, buffer.generate(0, board, Color.WHITE), "The list of the ply should be replaced.");
+        int captures = 0;
+        for (int i = 0; i < 12; i++) {
+            if (PackedMove.isCapture(buffer.get(0, i))) {
+                captures++;
+                assertEquals(4 * 8 + 5, PackedMove.to(buffer.get(0, i)), "Only the black Rook can be captured.");
+            }
+        }
+        assertEquals(1, captures, "The capture should be flagged.");
+        assertEquals(0, buffer.count(5), "Plies never generated should be empty.");
+        assertFalse(buffer.isLegal(board, Color.BLACK, PackedMove.of(4, 0, 3, 0)), "A move of the wrong color is not legal.");
+    }
+}
@@ -27,7 +27,7 @@ class PawnPromotionRuleTest {
         whitePawn = new Pawn(Color.WHITE);
         rule = new PawnPromotionRule();
         // Place the white Pawn at position (6, 0) to test promotion from the sixth row
-        board.getBoard()[6][0] = whitePawn;
+        board.setPieceAt(6, 0, whitePawn);
     }
 
     /**
@@ -40,8 +40,7 @@ class PawnPromotionRuleTest {
         // Place a black Rook at (5, 0) for the first capture
         board.setPieceAt(5, 0, new Rook(Color.BLACK));
         VariantChessMove move = new VariantChessMove(6, 0, 5, 0);
-        board.movePiece(move);
-        rule.applyRule(move, board.getPieceAt(5, 0), board);
+        capture(move);
 
         VariantChessPiece newPiece = board.getPieceAt(5, 0);
         assertTrue(newPiece instanceof Knight || newPiece instanceof Bishop,
@@ -68,14 +67,12 @@ class PawnPromotionRuleTest {
         // Place a black Rook at (5, 0) for the first capture
         board.setPieceAt(5, 0, new Rook(Color.BLACK));
         VariantChessMove move = new VariantChessMove(6, 0, 5, 0);
-        board.movePiece(move);
-        rule.applyRule(move, board.getPieceAt(5, 0), board);
+        capture(move);
 
         // Place another black Rook at (4, 0) for the second capture
         board.setPieceAt(4, 0, new Rook(Color.BLACK));
         move = new VariantChessMove(5, 0, 4, 0);
-        board.movePiece(move);
-        rule.applyRule(move, board.getPieceAt(4, 0), board);
+        capture(move);
 
         VariantChessPiece newPiece = board.getPieceAt(4, 0);
         assertTrue(newPiece instanceof Cannon || newPiece instanceof Rook,
@@ -100,22 +97,19 @@ class PawnPromotionRuleTest {
     @Test
     void testPawnPromotionThirdCapture() {
         // Place a black Rook at (5, 0) for the first capture
-        board.getBoard()[5][0] = new Rook(Color.BLACK);
+        board.setPieceAt(5, 0, new Rook(Color.BLACK));
         VariantChessMove move = new VariantChessMove(6, 0, 5, 0);
-        board.movePiece(move);
-        rule.applyRule(move, board.getPieceAt(5, 0), board);
+        capture(move);
 
         // Place another black Rook at (4, 0) for the second capture
-        board.getBoard()[4][0] = new Rook(Color.BLACK);
+        board.setPieceAt(4, 0, new Rook(Color.BLACK));
         move = new VariantChessMove(5, 0, 4, 0);
-        board.movePiece(move);
-        rule.applyRule(move, board.getPieceAt(4, 0), board);
+        capture(move);
 
         // Place a third black Rook at (3, 0) for the third capture
-        board.getBoard()[3][0] = new Rook(Color.BLACK);
+        board.setPieceAt(3, 0, new Rook(Color.BLACK));
         move = new VariantChessMove(4, 0, 3, 0);
-        board.movePiece(move);
-        rule.applyRule(move, board.getPieceAt(3, 0), board);
+        capture(move);
 
         VariantChessPiece newPiece = board.getPieceAt(3, 0);
         assertTrue(newPiece instanceof Queen, "Pawn should be promoted to Queen after the third capture.");
@@ -134,28 +128,24 @@ class PawnPromotionRuleTest {
     @Test
     void testPawnNoPromotionAfterFourthCapture() {
         // Place a black Rook at (5, 0) for the first capture
-        board.getBoard()[5][0] = new Rook(Color.BLACK);
+        board.setPieceAt(5, 0, new Rook(Color.BLACK));
         VariantChessMove move = new VariantChessMove(6, 0, 5, 0);
-        board.movePiece(move);
-        rule.applyRule(move, board.getPieceAt(5, 0), board);
+        capture(move);
 
         // Place another black Rook at (4, 0) for the second capture
-        board.getBoard()[4][0] = new Rook(Color.BLACK);
+        board.setPieceAt(4, 0, new Rook(Color.BLACK));
         move = new VariantChessMove(5, 0, 4, 0);
-        board.movePiece(move);
-        rule.applyRule(move, board.getPieceAt(4, 0), board);
+        capture(move);
 
         // Place a third black Rook at (3, 0) for the third capture
-        board.getBoard()[3][0] = new Rook(Color.BLACK);
+        board.setPieceAt(3, 0, new Rook(Color.BLACK));
         move = new VariantChessMove(4, 0, 3, 0);
-        board.movePiece(move);
-        rule.applyRule(move, board.getPieceAt(3, 0), board);
+        capture(move);
 
         // Place a fourth black Rook at (2, 0) for the fourth capture
-        board.getBoard()[2][0] = new Rook(Color.BLACK);
+        board.setPieceAt(2, 0, new Rook(Color.BLACK));
         move = new VariantChessMove(3, 0, 2, 0);
-        board.movePiece(move);
-        rule.applyRule(move, board.getPieceAt(2, 0), board);
+        capture(move);
 
         VariantChessPiece newPiece = board.getPieceAt(2, 0);
         assertTrue(newPiece instanceof Queen, "Pawn should remain a Queen after the fourth capture.");
@@ -169,10 +159,9 @@ class PawnPromotionRuleTest {
     @Test
     void testPawnMovesAfterPromotion() {
         // Place a black Rook at (5, 0) for the first capture
-        board.getBoard()[5][0] = new Rook(Color.BLACK);
+        board.setPieceAt(5, 0, new Rook(Color.BLACK));
         VariantChessMove move = new VariantChessMove(6, 0, 5, 0);
-        board.movePiece(move);
-        rule.applyRule(move, board.getPieceAt(5, 0), board);
+        capture(move);
 
         VariantChessPiece promotedPiece = board.getPieceAt(5, 0);
         assertNotNull(promotedPiece, "Promoted piece should be present.");
@@ -195,4 +184,13 @@ class PawnPromotionRuleTest {
         }
         assertTrue(promotedPiece.isValidMove(moveToTest, board), "Promoted piece should be able to move according to its new rules.");
     }
+
+    /**
+     * Makes a capturing move on the board and fires its capture event through the rule, as a game would.
+     */
+    private void capture(VariantChessMove move) {
+        VariantChessPiece captured = board.getPieceAt(move.getEndX(), move.getEndY());
+        board.movePiece(move);
+        new RuleEngine(rule).fire(RuleEngine.ON_CAPTURE, move, board.getPieceAt(move.getEndX(), move.getEndY()), captured, board);
+    }
 }
@@ -4,6 +4,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import uk.ac.standrews.variantchessgame.model.*;
 
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class PawnTest {
@@ -21,8 +25,8 @@ class PawnTest {
         board = new VariantChessBoard();
         whitePawn = new Pawn(Color.WHITE);
         blackPawn = new Pawn(Color.BLACK);
-        board.getBoard()[6][0] = whitePawn;  // White pawn starts from row 6
-        board.getBoard()[1][0] = blackPawn;  // Black pawn starts from row 1
+        board.setPieceAt(6, 0, whitePawn);  // White pawn starts from row 6
+        board.setPieceAt(1, 0, blackPawn);  // Black pawn starts from row 1
 
     }
 
@@ -52,25 +56,25 @@ class PawnTest {
     @Test
     void testCaptureMove() {
         // Place a black rook directly in front of the white pawn
-        board.getBoard()[5][0] = new Rook(Color.BLACK);
+        board.setPieceAt(5, 0, new Rook(Color.BLACK));
         VariantChessMove move = new VariantChessMove(6, 0, 5, 0);
         assertTrue(whitePawn.isValidMove(move, board), "White pawn should be able to capture forward after first move.");
         board.movePiece(move);
 
         // Place another black rook directly in front of the white pawn
-        board.getBoard()[4][0] = new Rook(Color.BLACK);
+        board.setPieceAt(4, 0, new Rook(Color.BLACK));
         move = new VariantChessMove(5, 0, 4, 0);
         assertTrue(whitePawn.isValidMove(move, board), "White pawn should be able to capture forward one square after first move.");
         board.movePiece(move);
 
         // Place a white rook directly in front of the black pawn
-        board.getBoard()[2][0] = new Rook(Color.WHITE);
+        board.setPieceAt(2, 0, new Rook(Color.WHITE));
         move = new VariantChessMove(1, 0, 2, 0);
         assertTrue(blackPawn.isValidMove(move, board), "Black pawn should be able to capture forward after first move.");
         board.movePiece(move);
 
         // Place another white rook directly in front of the black pawn
-        board.getBoard()[3][0] = new Rook(Color.WHITE);
+        board.setPieceAt(3, 0, new Rook(Color.WHITE));
         move = new VariantChessMove(2, 0, 3, 0);
         assertTrue(blackPawn.isValidMove(move, board), "Black pawn should be able to capture forward one square after first move.");
         board.movePiece(move);
@@ -108,7 +112,7 @@ class PawnTest {
         whitePawn.setFirstMove(false);  // Mark the first move as completed
 
         // Place a black rook to the right of the white pawn
-        board.getBoard()[4][1] = new Rook(Color.BLACK);
+        board.setPieceAt(4, 1, new Rook(Color.BLACK));
 
         // Attempt to capture the black rook
         VariantChessMove captureMove = new VariantChessMove(4, 0, 4, 1);
@@ -134,27 +138,27 @@ class PawnTest {
         whitePawn.setFirstMove(false);
 
         // Place a black rook directly in front of the white pawn
-        board.getBoard()[4][0] = new Rook(Color.BLACK);
+        board.setPieceAt(4, 0, new Rook(Color.BLACK));
         VariantChessMove moveCaptureForward = new VariantChessMove(5, 0, 4, 0);
         assertTrue(whitePawn.isValidMove(moveCaptureForward, board), "White pawn should be able to capture forward.");
         board.movePiece(moveCaptureForward);
 
         // Reset white pawn position for sideways capture testing
-        board.getBoard()[5][0] = whitePawn;
-        board.getBoard()[4][0] = null;
+        board.setPieceAt(5, 0, whitePawn);
+        board.setPieceAt(4, 0, null);
 
         // Place a black rook to the right of the white pawn
-        board.getBoard()[5][1] = new Rook(Color.BLACK);
+        board.setPieceAt(5, 1, new Rook(Color.BLACK));
         VariantChessMove moveCaptureRight = new VariantChessMove(5, 0, 5, 1);
         assertTrue(whitePawn.isValidMove(moveCaptureRight, board), "White pawn should be able to capture right.");
         board.movePiece(moveCaptureRight);
 
         // Reset white pawn position for left capture testing
-        board.getBoard()[5][0] = whitePawn;
-        board.getBoard()[5][1] = null;
+        board.setPieceAt(5, 0, whitePawn);
+        board.setPieceAt(5, 1, null);
 
         // Place a black rook to the left of the white pawn
-        board.getBoard()[5][1] = new Rook(Color.BLACK);
+        board.setPieceAt(5, 1, new Rook(Color.BLACK));
         VariantChessMove moveCaptureLeft = new VariantChessMove(5, 0, 5, 1);
         assertTrue(whitePawn.isValidMove(moveCaptureLeft, board), "White pawn should be able to capture left.");
         board.movePiece(moveCaptureLeft);
@@ -166,27 +170,27 @@ class PawnTest {
         blackPawn.setFirstMove(false);
 
         // Place a white rook directly in front of the black pawn
-        board.getBoard()[3][0] = new Rook(Color.WHITE);
+        board.setPieceAt(3, 0, new Rook(Color.WHITE));
         moveCaptureForward = new VariantChessMove(2, 0, 3, 0);
         assertTrue(blackPawn.isValidMove(moveCaptureForward, board), "Black pawn should be able to capture forward.");
         board.movePiece(moveCaptureForward);
 
         // Reset black pawn position for sideways capture testing
-        board.getBoard()[2][0] = blackPawn;
-        board.getBoard()[3][0] = null;
+        board.setPieceAt(2, 0, blackPawn);
+        board.setPieceAt(3, 0, null);
 
         // Place a white rook to the right of the black pawn
-        board.getBoard()[2][1] = new Rook(Color.WHITE);
+        board.setPieceAt(2, 1, new Rook(Color.WHITE));
         moveCaptureRight = new VariantChessMove(2, 0, 2, 1);
         assertTrue(blackPawn.isValidMove(moveCaptureRight, board), "Black pawn should be able to capture right.");
         board.movePiece(moveCaptureRight);
 
         // Reset black pawn position for left capture testing
-        board.getBoard()[2][0] = blackPawn;
-        board.getBoard()[2][1] = null;
+        board.setPieceAt(2, 0, blackPawn);
+        board.setPieceAt(2, 1, null);
 
         // Place a white rook to the left of the black pawn
-        board.getBoard()[2][1] = new Rook(Color.WHITE);
+        board.setPieceAt(2, 1, new Rook(Color.WHITE));
         moveCaptureLeft = new VariantChessMove(2, 0, 2, 1);
         assertTrue(blackPawn.isValidMove(moveCaptureLeft, board), "Black pawn should be able to capture left.");
         board.movePiece(moveCaptureLeft);
@@ -267,7 +271,7 @@ class PawnTest {
     @Test
     void testMoveForwardBlockedByPiece() {
         // Place a white rook directly in front of the white pawn
-        board.getBoard()[5][0] = new Rook(Color.WHITE);
+        board.setPieceAt(5, 0, new Rook(Color.WHITE));
 
         // Attempt to move the white pawn two squares forward
         VariantChessMove move = new VariantChessMove(6, 0, 4, 0);
@@ -310,7 +314,7 @@ class PawnTest {
     @Test
     void testBlockedMoveStopsBeforeObstacle() {
         // Place a white rook directly in front of the white pawn
-        board.getBoard()[5][0] = new Rook(Color.WHITE);
+        board.setPieceAt(5, 0, new Rook(Color.WHITE));
 
         // Attempt to move the white pawn two squares forward
         VariantChessMove move = new VariantChessMove(6, 0, 4, 0);
@@ -346,16 +350,16 @@ class PawnTest {
         // Clear the board
         for (int row = 0; row < 8; row++) {
             for (int col = 0; col < 8; col++) {
-                board.getBoard()[row][col] = null;
+                board.setPieceAt(row, col, null);
             }
         }
 
         // Place the black pawn at position (1, 3)
-        board.getBoard()[1][3] = blackPawn;
+        board.setPieceAt(1, 3, blackPawn);
 
         // Place white pieces directly to the left and right of the black pawn
-        board.getBoard()[1][2] = new Rook(Color.WHITE); // White piece to the left
-        board.getBoard()[1][4] = new Rook(Color.WHITE); // White piece to the right
+        board.setPieceAt(1, 2, new Rook(Color.WHITE)); // White piece to the left
+        board.setPieceAt(1, 4, new Rook(Color.WHITE)); // White piece to the right
 
         // Attempt to capture the piece to the right
         VariantChessMove captureRight = new VariantChessMove(1, 3, 1, 4);
@@ -398,14 +402,14 @@ class PawnTest {
         // Clear the board before setting up the test scenario
         for (int row = 0; row < 8; row++) {
             for (int col = 0; col < 8; col++) {
-                board.getBoard()[row][col] = null;
+                board.setPieceAt(row, col, null);
             }
         }
         // Place the white pawn at its starting position (6, 0)
-        board.getBoard()[6][0] = whitePawn;
+        board.setPieceAt(6, 0, whitePawn);
 
         // Place the black pawn at its starting position (1, 0)
-        board.getBoard()[1][0] = blackPawn;
+        board.setPieceAt(1, 0, blackPawn);
 
         // Perform the first move for the white pawn (moving it one square forward)
         VariantChessMove whiteMove = new VariantChessMove(6, 0, 5, 0);
@@ -429,6 +433,83 @@ class PawnTest {
         assertNull(board.getPieceAt(1, -1), "The position (1, -1) should be empty as the pawn should not have moved to the left.");
     }
 
+    /**
+     * Tests that a pawn keeps its capture count in the field shared with every other piece,
+     * so setting the count and promoting a pawn keep the same value.
+     */
+    @Test
+    void testCaptureCountIsNotShadowed() {
+        whitePawn.setCaptureCount(2);
+        assertEquals(2, whitePawn.getCaptureCount(), "The capture count set on the pawn should be read back.");
+        whitePawn.incrementCaptureCount();
+        assertEquals(3, whitePawn.getCaptureCount(), "Incrementing should add to the same count.");
+        assertEquals(3, PieceCodec.decode(PieceCodec.encode(whitePawn)).getCaptureCount(), "The count should survive encoding.");
+    }
 
-}
+    /**
+     * Tests that a converted pawn moves in the direction of its new color.
+     */
+    @Test
+    void testConvertedPawnTurnsAround() {
+        board.setPieceAt(4, 3, whitePawn);
+        whitePawn.setFirstMove(false);
+        whitePawn.setColor(Color.BLACK);
+        assertTrue(whitePawn.isValidMove(new VariantChessMove(4, 3, 5, 3), board), "A black pawn should move down the board.");
+        assertFalse(whitePawn.isValidMove(new VariantChessMove(4, 3, 3, 3), board), "It should no longer move up the board.");
+    }
 
+    /**
+     * Tests that generating the moves of all pawns at once gives exactly the moves accepted by isValidMove,
+     * over random positions with pawns of both colors before and after their first move and converted pawns.
+     */
+    @Test
+    void testSetWiseGenerationMatchesValidMoves() {
+        SplittableRandom random = new SplittableRandom(5);
+        MoveBuffer buffer = new MoveBuffer(1);
+        for (int position = 0; position < 200; position++) {
+            for (int x = 0; x < 8; x++) {
+                for (int y = 0; y < 8; y++) {
+                    int roll = random.nextInt(8);
+                    VariantChessPiece piece = null;
+                    if (roll < 2) {
+                        Pawn pawn = new Pawn(roll == 0 ? Color.WHITE : Color.BLACK);
+                        pawn.setFirstMove(random.nextBoolean());
+                        piece = pawn;
+                    } else if (roll == 2) {
+                        piece = new Knight(random.nextBoolean() ? Color.WHITE : Color.BLACK);
+                    }
+                    board.setPieceAt(x, y, piece);
+                }
+            }
+            int convertX = random.nextInt(8);
+            int convertY = random.nextInt(8);
+            if (board.getPieceAt(convertX, convertY) != null) {
+                board.convertPieceAt(convertX, convertY, Color.BLACK); // As KingQueenSpecialRule converts captured pieces
+            }
+
+            for (Color color : Color.values()) {
+                Set<Integer> expected = new HashSet<>();
+                for (int from = 0; from < 64; from++) {
+                    VariantChessPiece piece = board.getPieceAt(from / 8, from % 8);
+                    if (piece instanceof Pawn && piece.getColor() == color) {
+                        for (int to = 0; to < 64; to++) {
+                            if (piece.isValidMove(new VariantChessMove(from / 8, from % 8, to / 8, to % 8), board)) {
+                                expected.add(PackedMove.of(from, to));
+                            }
+                        }
+                    }
+                }
+                Set<Integer> generated = new HashSet<>();
+                int count = buffer.generate(0, board, color);
+                for (int i = 0; i < count; i++) {
+                    int move = buffer.get(0, i);
+                    int from = PackedMove.from(move);
+                    if (board.getPieceAt(from / 8, from % 8) instanceof Pawn) {
+                        assertTrue(generated.add(move & ~PackedMove.CAPTURE), "Each move should be generated once.");
+                    }
+                }
+                assertEquals(expected, generated, "Pawn moves of " + color + " in position " + position);
+            }
+        }
+    }
+}
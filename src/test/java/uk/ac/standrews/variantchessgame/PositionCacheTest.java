@@ -0,0 +1,145 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.controller.GameController;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionCacheTest {
+
+    private PositionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        // A single-megabyte cache split into two shards.
+        cache = new PositionCache(1, 2);
+    }
+
+    /**
+     * Tests storing and reading back each kind of entry.
+     * Verifies that entries are separated by kind, rule key and argument.
+     */
+    @Test
+    void testPutAndGet() {
+        cache.putLegalMoves(42L, 0, 10, new int[]{18, 26 | 64});
+        cache.putEvaluation(42L, 0, Color.WHITE, 7);
+        cache.putBestMoves(42L, 0, 2, 15, new int[]{123, 456});
+
+        assertArrayEquals(new int[]{18, 26 | 64}, cache.getLegalMoves(42L, 0, 10), "Legal moves should be returned unchanged.");
+        assertEquals(7, cache.getEvaluation(42L, 0, Color.WHITE), "Evaluation should be returned unchanged.");
+        PositionCache.BestMoves best = cache.getBestMoves(42L, 0, 2);
+        assertEquals(15, best.getScore(), "The best score should be returned unchanged.");
+        assertEquals(2, best.getMoveCount(), "Every tied move should be returned.");
+        assertEquals(456, best.getMove(1), "Best moves should be returned unchanged and in order.");
+
+        assertNull(cache.getEvaluation(42L, 0, Color.BLACK), "Evaluation from the other perspective should be a miss.");
+        assertNull(cache.getBestMoves(42L, 1 << 8, 2), "A different rule should be a miss.");
+        assertNull(cache.getLegalMoves(42L, 0, 11), "A different square should be a miss.");
+    }
+
+    /**
+     * Tests the hit and miss metrics.
+     * Verifies that lookups are counted and the hit rate is derived from them.
+     */
+    @Test
+    void testHitRate() {
+        cache.putEvaluation(1L, 0, Color.WHITE, 3);
+        cache.getEvaluation(1L, 0, Color.WHITE);
+        cache.getEvaluation(1L, 0, Color.WHITE);
+        cache.getEvaluation(2L, 0, Color.WHITE);
+
+        PositionCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.getHits(), "Two lookups should hit.");
+        assertEquals(1, stats.getMisses(), "One lookup should miss.");
+        assertEquals(2.0 / 3.0, stats.getHitRate(), 1e-9, "Hit rate should be hits over lookups.");
+        assertEquals(1, stats.getEntries(), "One entry should be stored.");
+    }
+
+    /**
+     * Tests that the cache stays within its memory budget.
+     * Verifies that least recently used entries are evicted once the budget is exceeded.
+     */
+    @Test
+    void testEvictionKeepsCacheWithinBudget() {
+        for (long hash = 0; hash < 50_000; hash++) {
+            cache.putEvaluation(hash, 0, Color.WHITE, (int) hash);
+        }
+
+        PositionCache.Stats stats = cache.getStats();
+        assertTrue(stats.getSizeBytes() <= stats.getMaxBytes(), "Cache should not exceed its memory budget.");
+        assertTrue(stats.getEvictions() > 0, "Old entries should have been evicted.");
+        assertNull(cache.getEvaluation(0L, 0, Color.WHITE), "The oldest entry should have been evicted.");
+        assertEquals(49_999, cache.getEvaluation(49_999L, 0, Color.WHITE), "The newest entry should be kept.");
+    }
+
+    /**
+     * Tests the rule key.
+     * Verifies that the King and Queen rule state changes the key.
+     */
+    @Test
+    void testRuleKeyIncludesRuleState() {
+        KingQueenSpecialRule rule = new KingQueenSpecialRule();
+        int before = PositionCache.ruleKey(rule);
+        VariantChessBoard board = new VariantChessBoard();
+        King king = new King(Color.WHITE);
+        Pawn pawn = new Pawn(Color.BLACK);
+        board.setPieceAt(4, 4, king);
+        board.setPieceAt(5, 5, pawn);
+        VariantChessMove move = new VariantChessMove(4, 4, 5, 5);
+        board.movePiece(move);
+        new RuleEngine(rule).fire(RuleEngine.ON_CAPTURE, move, king, pawn, board);
+
+        assertNotEquals(before, PositionCache.ruleKey(rule), "Using a special capture should change the rule key.");
+        assertNotEquals(PositionCache.ruleKey(new CannonSpecialRule()), PositionCache.ruleKey(new PawnPromotionRule()),
+                "Different rules should have different keys.");
+    }
+
+    /**
+     * Tests that a mirror-symmetric cache serves a position from the entries of its mirror image.
+     * Verifies that searching the mirrored position adds no entries and, with the same random stream, returns the
+     * mirrored best move.
+     */
+    @Test
+    void testMirrorSymmetricCacheSharesMirrorPositions() {
+        PositionCache mirrorCache = new PositionCache(16, 2, true);
+        ChessAI ai = new ChessAI(mirrorCache);
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard("RNBQKBNR");
+        VariantChessBoard mirrored = new VariantChessBoard();
+        mirrored.initializeBoard("RNBKQBNR");
+
+        int move = ai.calculateBestPackedMove(board, Color.WHITE, null, new long[]{Zobrist.hash(board, Color.WHITE)},
+                new GameRandom(3));
+        long entries = mirrorCache.getStats().getEntries();
+        long misses = mirrorCache.getStats().getMisses();
+
+        int mirroredMove = ai.calculateBestPackedMove(mirrored, Color.WHITE, null, new long[]{Zobrist.hash(mirrored, Color.WHITE)},
+                new GameRandom(3));
+        assertEquals(Symmetry.mirrorMove(move), mirroredMove,
+                "The mirrored position should get the mirrored best move.");
+        assertEquals(entries, mirrorCache.getStats().getEntries(), "The mirrored search should add no entries.");
+        assertEquals(misses, mirrorCache.getStats().getMisses(), "The mirrored search should not miss.");
+    }
+
+    /**
+     * Tests that a live game, whose AI draws from the game stream, reads the best moves it cached earlier.
+     * Verifies that replaying a move after undoing it answers the AI search from the cache without any search.
+     */
+    @Test
+    void testSeededGameHitsBestMoveCache() {
+        PositionCache shared = new PositionCache(4, 1);
+        GameController controller = new GameControllerBuilder(new VariantChessBoard()).positionCache(shared).build();
+        controller.restartGame(11L);
+        VariantChessMove move = new VariantChessMove(6, 3, 4, 3);
+        assertEquals("VALID_MOVE;CURRENT_TURN=WHITE", controller.movePiece(move));
+        assertEquals("UNDO_SUCCESS", controller.undoLastMove());
+        PositionCache.Stats before = shared.getStats();
+
+        assertEquals("VALID_MOVE;CURRENT_TURN=WHITE", controller.movePiece(move));
+        PositionCache.Stats after = shared.getStats();
+        assertEquals(before.getHits() + 1, after.getHits(), "The AI reply should be read from the cache.");
+        assertEquals(before.getMisses(), after.getMisses(), "The AI should not search again.");
+    }
+}
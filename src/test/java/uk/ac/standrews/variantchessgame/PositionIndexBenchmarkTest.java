@@ -0,0 +1,87 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.client.ClientConfiguration;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchClients;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchTemplate;
+import uk.ac.standrews.variantchessgame.index.*;
+import uk.ac.standrews.variantchessgame.persistence.GameRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput benchmark for the position index implementations.
+ * The in-process index runs with the other tests; the Elasticsearch index runs only when
+ * {@code -Dchess.benchmark.elasticsearch=http://host:9200} points at a cluster.
+ */
+class PositionIndexBenchmarkTest {
+
+    private static final int GAMES = 20_000;
+    private static final int POSITIONS_PER_GAME = 80;
+    private static final int BATCH_SIZE = 500;
+    private static final String[] LAYOUTS = {"RNBQKBNR", "RKQNNBBR", "RBBNNQKR", "RQKBBNNR"};
+
+    /**
+     * Builds games with random positions drawn from a pool, so that positions are shared between games.
+     */
+    private static List<IndexedGame> syntheticGames(int games) {
+        SplittableRandom random = new SplittableRandom(33);
+        long[] pool = new long[games * 4];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = random.nextLong();
+        }
+        List<IndexedGame> result = new ArrayList<>(games);
+        for (int id = 0; id < games; id++) {
+            long[] positions = new long[POSITIONS_PER_GAME];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = pool[random.nextInt(pool.length)];
+            }
+            Arrays.sort(positions);
+            GameRecord record = new GameRecord(LAYOUTS[id % LAYOUTS.length], id % 3, GameRecord.RESULT_DRAW, new int[0]);
+            result.add(new IndexedGame(id, record, positions));
+        }
+        return result;
+    }
+
+    private static void run(String name, GamePositionIndex index, int games) {
+        List<IndexedGame> input = syntheticGames(games);
+        long start = System.nanoTime();
+        for (int i = 0; i < input.size(); i += BATCH_SIZE) {
+            index.indexAll(input.subList(i, Math.min(input.size(), i + BATCH_SIZE)));
+        }
+        index.refresh();
+        double indexSeconds = (System.nanoTime() - start) / 1e9;
+
+        int queries = 2_000;
+        long found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            found += index.findByPosition(input.get(i % input.size()).getPositionHashes()[0], 100).length;
+        }
+        double querySeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%s: indexed %d games (%d positions) at %.0f games/s, %.0f position queries/s%n",
+                name, games, (long) games * POSITIONS_PER_GAME, games / indexSeconds, queries / querySeconds);
+        assertEquals(games, index.count(), "Every game should be indexed.");
+        assertTrue(found >= queries, "Every queried position belongs to at least one game.");
+    }
+
+    @Test
+    void benchmarkInMemoryIndex() {
+        run("in-memory", new InMemoryPositionIndex(), GAMES);
+    }
+
+    @Test
+    void benchmarkElasticsearchIndex() {
+        String uri = System.getProperty("chess.benchmark.elasticsearch");
+        Assumptions.assumeTrue(uri != null, "Set -Dchess.benchmark.elasticsearch to run against a cluster");
+        ClientConfiguration configuration = ClientConfiguration.create(uri.replaceFirst("^https?://", ""));
+        run("elasticsearch", new ElasticsearchPositionIndex(new ElasticsearchTemplate(ElasticsearchClients.createImperative(configuration))), GAMES);
+    }
+}
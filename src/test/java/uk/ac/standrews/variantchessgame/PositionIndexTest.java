@@ -0,0 +1,131 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.Query;
+import uk.ac.standrews.variantchessgame.index.*;
+import uk.ac.standrews.variantchessgame.model.*;
+import uk.ac.standrews.variantchessgame.persistence.GameRecord;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PositionIndexTest {
+
+    private static final int D2_D4 = GameRecord.encodePly(new VariantChessMove(6, 3, 4, 3));
+    private static final int E7_E5 = GameRecord.encodePly(new VariantChessMove(1, 4, 3, 4));
+
+    /**
+     * Computes the hash of the position reached after d2-d4 from the standard-looking layout.
+     */
+    private static long hashAfterD4(String layout) {
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard(layout);
+        GameState gameState = new GameState(board);
+        MoveExecutor.execute(board, gameState, GameRecord.decodePly(D2_D4));
+        return Zobrist.hash(board, gameState.getCurrentTurn());
+    }
+
+    /**
+     * Tests position, rule and layout queries on the in-process index, fed through the bulk indexer.
+     */
+    @Test
+    void testInMemoryQueries() throws Exception {
+        InMemoryPositionIndex index = new InMemoryPositionIndex();
+        try (BulkIndexer indexer = new BulkIndexer(index, 2, 4)) {
+            indexer.submit(1, new GameRecord("RNBQKBNR", 2, GameRecord.RESULT_WHITE_WINS, new int[]{D2_D4, E7_E5}));
+            indexer.submit(2, new GameRecord("RNBQKBNR", 0, GameRecord.RESULT_DRAW, new int[]{D2_D4}));
+            indexer.submit(3, new GameRecord("RKQNNBBR", 2, GameRecord.RESULT_BLACK_WINS, new int[]{E7_E5}));
+            indexer.submit(1, new GameRecord("RNBQKBNR", 2, GameRecord.RESULT_WHITE_WINS, new int[]{D2_D4, E7_E5}));
+            indexer.flush();
+            assertEquals(4, indexer.getIndexedCount(), "Every submitted game should be processed.");
+        }
+
+        assertEquals(3, index.count(), "A game indexed twice should be counted once.");
+        assertArrayEquals(new long[]{1, 2}, index.findByPosition(hashAfterD4("RNBQKBNR"), 10), "Both games that played d2-d4 should be found.");
+        assertArrayEquals(new long[]{1}, index.findByPosition(hashAfterD4("RNBQKBNR"), 1), "The limit should be applied.");
+        assertArrayEquals(new long[0], index.findByPosition(hashAfterD4("RKQNNBBR"), 10), "No game reached d2-d4 from the other layout.");
+        assertArrayEquals(new long[]{1, 3}, index.findByRule(2, 10), "Games should be found by rule.");
+        assertArrayEquals(new long[]{3}, index.findByLayout("RKQNNBBR", 10), "Games should be found by layout.");
+    }
+
+    /**
+     * Tests that offering a game to a full queue drops and counts it instead of waiting for the index.
+     */
+    @Test
+    void testOfferDropsWhenFull() throws Exception {
+        CountDownLatch indexing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        GamePositionIndex index = mock(GamePositionIndex.class);
+        doAnswer(invocation -> {
+            indexing.countDown();
+            release.await();
+            return null;
+        }).when(index).indexAll(anyList());
+        GameRecord game = new GameRecord("RNBQKBNR", 0, GameRecord.RESULT_DRAW, new int[]{D2_D4});
+        try (BulkIndexer indexer = new BulkIndexer(index, 1, 1)) {
+            assertTrue(indexer.offer(1, game));
+            assertTrue(indexing.await(5, TimeUnit.SECONDS), "The first game should reach the index.");
+            assertTrue(indexer.offer(2, game), "The second game should wait in the queue.");
+            assertFalse(indexer.offer(3, game), "The third game should be dropped.");
+            assertEquals(1, indexer.getDroppedCount());
+
+            release.countDown();
+            indexer.flush();
+            assertEquals(2, indexer.getIndexedCount(), "The queued games should still be indexed.");
+        }
+    }
+
+    /**
+     * Tests that the Elasticsearch index sends one bulk request per batch and maps query results to game ids.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testElasticsearchBulkAndQuery() {
+        ElasticsearchOperations operations = mock(ElasticsearchOperations.class);
+        IndexOperations indexOps = mock(IndexOperations.class);
+        when(operations.indexOps(GameDocument.class)).thenReturn(indexOps);
+        when(indexOps.exists()).thenReturn(false);
+
+        ElasticsearchPositionIndex index = new ElasticsearchPositionIndex(operations);
+        GameRecord game = new GameRecord("RNBQKBNR", 1, GameRecord.RESULT_DRAW, new int[]{D2_D4});
+        index.indexAll(Arrays.asList(IndexedGame.of(5, game), IndexedGame.of(6, game)));
+
+        verify(indexOps).createWithMapping();
+        verify(operations).bulkIndex((List<IndexQuery>) argThat(queries -> ((List<IndexQuery>) queries).size() == 2), eq(GameDocument.class));
+
+        GameDocument document = new GameDocument();
+        document.setId("6");
+        SearchHit<GameDocument> hit = mock(SearchHit.class);
+        when(hit.getContent()).thenReturn(document);
+        SearchHits<GameDocument> hits = mock(SearchHits.class);
+        when(hits.getSearchHits()).thenReturn(Collections.singletonList(hit));
+        when(operations.search(any(Query.class), eq(GameDocument.class))).thenReturn(hits);
+
+        assertArrayEquals(new long[]{6}, index.findByLayout("RNBQKBNR", 10), "Hits should be returned as game ids.");
+        verify(operations).search((Query) argThat(query -> query instanceof CriteriaQuery
+                && ((CriteriaQuery) query).getCriteria().getField().getName().equals("layout")), eq(GameDocument.class));
+    }
+
+    /**
+     * Tests that replaying a game records each distinct position once, including the start.
+     */
+    @Test
+    void testIndexedGamePositions() {
+        IndexedGame game = IndexedGame.of(9, new GameRecord("RNBQKBNR", 2, GameRecord.RESULT_UNKNOWN, new int[]{D2_D4, E7_E5}));
+        assertEquals(3, game.getPositionHashes().length, "The start and both plies should give three positions.");
+        assertTrue(Arrays.binarySearch(game.getPositionHashes(), hashAfterD4("RNBQKBNR")) >= 0, "The position after d2-d4 should be recorded.");
+    }
+}
@@ -0,0 +1,152 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.controller.GameController;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionSnapshotTest {
+
+    /**
+     * Tests that a snapshot taken after a move shares the untouched rows and still describes the new position.
+     */
+    @Test
+    void testStructuralSharing() {
+        VariantChessBoard board = new VariantChessBoard();
+        GameState gameState = new GameState(board);
+        gameState.selectRuleByIndex(2);
+        PositionSnapshot before = PositionSnapshot.capture(board, gameState);
+
+        MoveExecutor.execute(board, gameState, new VariantChessMove(6, 3, 4, 3));
+        PositionSnapshot after = PositionSnapshot.capture(board, gameState, before);
+
+        for (int row = 0; row < 8; row++) {
+            assertEquals(row != 4 && row != 6, after.sharesRow(before, row), "Only rows 4 and 6 changed in row " + row + ".");
+        }
+        assertEquals(PieceCodec.EMPTY, after.getPieceCode(6 * 8 + 3), "The pawn should have left its square.");
+        assertNotEquals(PieceCodec.EMPTY, before.getPieceCode(6 * 8 + 3), "The earlier snapshot should not change.");
+        assertEquals(Zobrist.hash(board, gameState.getCurrentTurn()), after.getHash(), "The snapshot hash should match the board.");
+        assertEquals(1, after.getPlyCount(), "One ply has been played.");
+    }
+
+    /**
+     * Tests that snapshots rebuilt from stored codes equal the captured ones.
+     */
+    @Test
+    void testOfMatchesCapture() {
+        VariantChessBoard board = new VariantChessBoard();
+        GameState gameState = new GameState(board);
+        PositionSnapshot captured = PositionSnapshot.capture(board, gameState);
+        PositionSnapshot rebuilt = PositionSnapshot.of(captured.getPieceCodes(), captured.getCurrentTurn(),
+                captured.getWhiteMoveCount(), captured.getBlackMoveCount(), captured.getMovesWithoutCapture(),
+                captured.getRuleId(), captured.getRuleFlags());
+
+        assertArrayEquals(captured.getPieceCodes(), rebuilt.getPieceCodes(), "The codes should be kept.");
+        assertEquals(captured.getHash(), rebuilt.getHash(), "Both snapshots should hash the same.");
+    }
+
+    /**
+     * Tests that views of a snapshot use shared read-only pieces.
+     */
+    @Test
+    void testFlyweightPieces() {
+        VariantChessBoard board = new VariantChessBoard();
+        PositionSnapshot snapshot = PositionSnapshot.capture(board, new GameState(board));
+        VariantChessPiece[][] pieces = snapshot.toPieces();
+
+        assertSame(pieces[6][0], pieces[6][2], "Equal pieces should be the same shared instance.");
+        assertNotSame(pieces[6][0], pieces[1][0], "Pieces of different colors should differ.");
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                assertEquals(PieceCodec.encode(board.getPieceAt(x, y)), PieceCodec.encode(pieces[x][y]),
+                        "The view should match the board at " + x + ", " + y + ".");
+            }
+        }
+        assertThrows(UnsupportedOperationException.class, () -> pieces[6][0].incrementCaptureCount());
+        assertThrows(UnsupportedOperationException.class, () -> ((Pawn) pieces[6][0]).setFirstMove(false));
+        assertThrows(UnsupportedOperationException.class, () -> pieces[7][0].setColor(Color.BLACK));
+    }
+
+    /**
+     * Tests that capture counts are kept beside the compact codes.
+     */
+    @Test
+    void testCaptureCountsKept() {
+        VariantChessBoard board = new VariantChessBoard();
+        board.getPieceAt(6, 1).setCaptureCount(2);
+        PositionSnapshot snapshot = PositionSnapshot.capture(board, new GameState(board));
+
+        assertEquals(2, PieceCodec.captureCountOf(snapshot.getPieceCode(6 * 8 + 1)), "The Cannon should keep its captures.");
+        assertEquals(2, snapshot.getPiece(6 * 8 + 1).getCaptureCount(), "The shared piece should carry the count.");
+        assertEquals(0, snapshot.getPiece(6 * 8 + 0).getCaptureCount(), "Other pieces should have no captures.");
+        assertEquals(Zobrist.hash(board, Color.WHITE), snapshot.getHash(), "The hash should include the capture count.");
+    }
+
+    /**
+     * Tests that a reader thread only ever sees positions the game actually went through,
+     * never the board in the middle of a move or of the AI search.
+     */
+    @Test
+    void testReadersSeeCompletePositions() throws InterruptedException {
+        VariantChessBoard board = new VariantChessBoard();
+        GameController controller = new GameControllerBuilder(board).build();
+        controller.setGameRule("PawnPromotionRule");
+        Set<Long> played = new HashSet<>();
+        played.add(controller.getPositionHash());
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        AtomicBoolean playing = new AtomicBoolean(true);
+
+        Thread reader = new Thread(() -> {
+            while (playing.get()) {
+                seen.add(controller.getPublishedPosition().getHash());
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 10; i++) {
+            controller.movePiece(new VariantChessMove(6, 0, 5, 0));
+            played.add(controller.getPositionHash());
+            controller.undoLastMove();
+        }
+        playing.set(false);
+        reader.join();
+
+        controller.jumpToPly(1); // The position after White's ply, before the AI replied
+        played.add(controller.getPositionHash());
+        assertEquals(Zobrist.hash(board, Color.BLACK), controller.getPositionHash(), "The published position should be current.");
+        seen.removeAll(played);
+        assertTrue(seen.isEmpty(), "Readers should only see positions reached in the game.");
+    }
+
+    /**
+     * Tests that the threats are published with the position and match the attack map of the board.
+     */
+    @Test
+    void testThreatsPublishedWithPosition() {
+        VariantChessBoard board = new VariantChessBoard();
+        GameController controller = new GameControllerBuilder(board).build();
+        ThreatMap initial = controller.getThreats();
+        assertSame(initial, controller.getThreats(), "The threats should be served as published.");
+
+        controller.movePiece(new VariantChessMove(6, 3, 4, 3));
+        controller.jumpToPly(1); // The position after White's ply, before the AI replied
+        ThreatMap threats = controller.getThreats();
+        assertNotSame(initial, threats, "New threats should be published with the new position.");
+        AttackMap attackMap = board.getAttackMap();
+        for (Color color : Color.values()) {
+            assertEquals(attackMap.getAttacks(color), threats.getAttacks(color), "The attacked squares should match.");
+            assertEquals(StaticExchange.hanging(board, color), threats.getHanging(color), "The hanging pieces should match.");
+            for (int square = 0; square < 64; square++) {
+                assertEquals(attackMap.getAttackerCount(color, square), threats.getAttackerCount(color, square),
+                        "The attackers of square " + square + " should match.");
+            }
+        }
+        assertEquals(attackMap.getAttackerCount(Color.WHITE, 3 * 8 + 2), threats.getWhiteAttackers()[3][2],
+                "The counts shown to the UI should match the map.");
+    }
+}
@@ -26,7 +26,7 @@ class QueenTest {
         whiteQueen = new Queen(Color.WHITE);
         blackQueen = new Queen(Color.BLACK);
         // Place the white queen at a specific position to avoid conflicts with other pieces
-        board.getBoard()[4][4] = whiteQueen;
+        board.setPieceAt(4, 4, whiteQueen);
     }
 
     /**
@@ -38,7 +38,7 @@ class QueenTest {
     @Test
     void testValidMove() {
         // Test straight-line move
-        board.getBoard()[4][7] = null; // Ensure destination is empty
+        board.setPieceAt(4, 7, null); // Ensure destination is empty
         VariantChessMove move = new VariantChessMove(4, 4, 4, 7);
         assertTrue(whiteQueen.isValidMove(move, board), "Queen should be able to move in a straight line.");
         board.movePiece(move);
@@ -46,7 +46,7 @@ class QueenTest {
         assertNull(board.getPieceAt(4, 4), "Original position should be empty after move.");
 
         // Test diagonal move
-        board.getBoard()[6][5] = null; // Ensure destination is empty
+        board.setPieceAt(6, 5, null); // Ensure destination is empty
         move = new VariantChessMove(4, 7, 6, 5);
         assertTrue(whiteQueen.isValidMove(move, board), "Queen should be able to move diagonally.");
         board.movePiece(move);
@@ -83,7 +83,7 @@ class QueenTest {
      */
     @Test
     void testCaptureMove() {
-        board.getBoard()[4][7] = new Pawn(Color.BLACK); // Place a black pawn for capture
+        board.setPieceAt(4, 7, new Pawn(Color.BLACK)); // Place a black pawn for capture
 
         VariantChessMove move = new VariantChessMove(4, 4, 4, 7);
         assertTrue(whiteQueen.isValidMove(move, board), "Queen should be able to capture an enemy piece by moving in a straight line.");
@@ -100,7 +100,7 @@ class QueenTest {
      */
     @Test
     void testInvalidCaptureOwnPiece() {
-        board.getBoard()[4][7] = new Pawn(Color.WHITE); // Place a white pawn (same color) for capture
+        board.setPieceAt(4, 7, new Pawn(Color.WHITE)); // Place a white pawn (same color) for capture
 
         VariantChessMove move = new VariantChessMove(4, 4, 4, 7);
         assertFalse(whiteQueen.isValidMove(move, board), "Queen should not be able to capture its own piece.");
@@ -113,7 +113,7 @@ class QueenTest {
      */
     @Test
     void testQueenColorAfterMove() {
-        board.getBoard()[4][7] = null; // Ensure destination is empty
+        board.setPieceAt(4, 7, null); // Ensure destination is empty
         VariantChessMove move = new VariantChessMove(4, 4, 4, 7);
         assertTrue(whiteQueen.isValidMove(move, board), "Queen should be able to move in a straight line.");
         board.movePiece(move);
@@ -22,8 +22,8 @@ class RookTest {
         whiteRook = new Rook(Color.WHITE);
         blackRook = new Rook(Color.BLACK);
         // Set initial positions for the rooks
-        board.getBoard()[4][4] = whiteRook;
-        board.getBoard()[7][7] = blackRook;
+        board.setPieceAt(4, 4, whiteRook);
+        board.setPieceAt(7, 7, blackRook);
     }
 
     /**
@@ -33,7 +33,7 @@ class RookTest {
     @Test
     void testValidMove() {
         // Move rook to an empty position (4, 7)
-        board.getBoard()[4][7] = null; // Ensure the target position is empty
+        board.setPieceAt(4, 7, null); // Ensure the target position is empty
         VariantChessMove move = new VariantChessMove(4, 4, 4, 7);
         assertTrue(whiteRook.isValidMove(move, board), "Rook should be able to move in a straight line.");
         board.movePiece(move);
@@ -79,7 +79,7 @@ class RookTest {
     @Test
     void testCaptureMove() {
         // Place a black pawn at (4, 7)
-        board.getBoard()[4][7] = new Pawn(Color.BLACK);
+        board.setPieceAt(4, 7, new Pawn(Color.BLACK));
 
         // Attempt to capture the black pawn
         VariantChessMove move = new VariantChessMove(4, 4, 4, 7);
@@ -97,7 +97,7 @@ class RookTest {
     @Test
     void testInvalidCaptureOwnPiece() {
         // Place a white pawn at (4, 7)
-        board.getBoard()[4][7] = new Pawn(Color.WHITE);
+        board.setPieceAt(4, 7, new Pawn(Color.WHITE));
 
         // Attempt to capture the white pawn
         VariantChessMove move = new VariantChessMove(4, 4, 4, 7);
@@ -111,7 +111,7 @@ class RookTest {
     @Test
     void testRookColorAfterMove() {
         // Move the white rook to (4, 7)
-        board.getBoard()[4][7] = null; // Ensure the target position is empty
+        board.setPieceAt(4, 7, null); // Ensure the target position is empty
         VariantChessMove move = new VariantChessMove(4, 4, 4, 7);
         assertTrue(whiteRook.isValidMove(move, board), "Rook should be able to move in a straight line.");
         board.movePiece(move);
@@ -132,7 +132,7 @@ class RookTest {
     @Test
     void testMoveBlockedByPiece() {
         // Place a white pawn at (4, 5)
-        board.getBoard()[4][5] = new Pawn(Color.WHITE);
+        board.setPieceAt(4, 5, new Pawn(Color.WHITE));
 
         // Attempt to move past the blocking piece to (4, 7)
         VariantChessMove move = new VariantChessMove(4, 4, 4, 7);
@@ -146,7 +146,7 @@ class RookTest {
     @Test
     void testMoveAfterCapture() {
         // Place a black pawn at (4, 7)
-        board.getBoard()[4][7] = new Pawn(Color.BLACK);
+        board.setPieceAt(4, 7, new Pawn(Color.BLACK));
 
         // Capture the black pawn
         VariantChessMove captureMove = new VariantChessMove(4, 4, 4, 7);
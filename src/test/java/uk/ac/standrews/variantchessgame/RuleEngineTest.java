@@ -0,0 +1,131 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleEngineTest {
+
+    private VariantChessBoard board;
+
+    /**
+     * Sets up an empty board.
+     */
+    @BeforeEach
+    void setUp() {
+        board = new VariantChessBoard();
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                board.setPieceAt(x, y, null);
+            }
+        }
+    }
+
+    /**
+     * Tests that hooks run only for the kind of piece and the event they were registered for, in registration order.
+     */
+    @Test
+    void testDispatchByKindAndEvent() {
+        List<String> calls = new ArrayList<>();
+        RuleEngine engine = new RuleEngine(rules -> {
+            rules.on(RuleEngine.ON_CAPTURE, Zobrist.KNIGHT, false, (m, p, c, b) -> {
+                calls.add("first");
+                return MoveExecutor.PROMOTION;
+            });
+            rules.on(RuleEngine.ON_CAPTURE, Zobrist.KNIGHT, false, (m, p, c, b) -> {
+                calls.add("second");
+                return MoveExecutor.DETONATION;
+            });
+        });
+        VariantChessMove move = new VariantChessMove(0, 0, 2, 1);
+        Knight knight = new Knight(Color.WHITE);
+        Pawn pawn = new Pawn(Color.BLACK);
+
+        assertTrue(engine.triggers(knight, true), "A Knight capture has hooks.");
+        assertFalse(engine.triggers(knight, false), "A quiet Knight move has none.");
+        assertFalse(engine.triggers(new Knight(Color.WHITE, true), true), "Promoted Knights were not registered.");
+        assertFalse(engine.triggers(pawn, true), "Pawns were not registered.");
+
+        assertEquals(0, engine.fire(RuleEngine.ON_MOVE, move, knight, pawn, board), "No hook for the move event.");
+        assertEquals(MoveExecutor.PROMOTION | MoveExecutor.DETONATION, engine.fire(RuleEngine.ON_CAPTURE, move, knight, pawn, board),
+                "The effects of both hooks should be combined.");
+        assertEquals(List.of("first", "second"), calls, "Hooks should run in registration order.");
+        assertThrows(IllegalArgumentException.class, () -> engine.on(3, Zobrist.KNIGHT, (m, p, c, b) -> 0));
+    }
+
+    /**
+     * Tests that a King's special capture converts the captured piece in a live game.
+     */
+    @Test
+    void testKingConversionInLiveGame() {
+        King king = new King(Color.WHITE);
+        Pawn pawn = new Pawn(Color.BLACK);
+        board.setPieceAt(4, 4, king);
+        board.setPieceAt(3, 4, pawn);
+        board.setPieceAt(0, 0, new King(Color.BLACK));
+        GameState gameState = new GameState(board);
+        gameState.selectRuleByIndex(1);
+
+        int effects = MoveExecutor.execute(board, gameState, new VariantChessMove(4, 4, 3, 4));
+
+        assertEquals(king, board.getPieceAt(4, 4), "The King should stay on its start square.");
+        assertEquals(pawn, board.getPieceAt(3, 4), "The captured Pawn should stay on the board.");
+        assertEquals(Color.WHITE, pawn.getColor(), "The captured Pawn should be converted.");
+        assertEquals(2, board.getPieceCount(Color.WHITE), "The board counts should include the converted Pawn.");
+        assertTrue(((KingQueenSpecialRule) gameState.getSelectedRule()).hasWhiteKingUsedSpecialCapture());
+        assertNotEquals(0, effects & MoveExecutor.RULE_STATE_CHANGED, "The rule state change should be reported.");
+    }
+
+    /**
+     * Tests that a Cannon detonates through its rule hook on the third capture.
+     */
+    @Test
+    void testCannonDetonationInLiveGame() {
+        Cannon cannon = new Cannon(Color.WHITE);
+        cannon.setCaptureCount(2);
+        board.setPieceAt(4, 0, cannon);
+        board.setPieceAt(4, 2, new Pawn(Color.WHITE)); // Screen
+        board.setPieceAt(4, 5, new Knight(Color.BLACK));
+        board.setPieceAt(3, 5, new Knight(Color.BLACK)); // Next to the landing square
+        board.setPieceAt(0, 0, new King(Color.BLACK));
+        GameState gameState = new GameState(board);
+        gameState.selectRuleByIndex(0);
+
+        int effects = MoveExecutor.execute(board, gameState, new VariantChessMove(4, 0, 4, 5));
+
+        assertNotEquals(0, effects & MoveExecutor.DETONATION, "The detonation should be reported.");
+        assertNull(board.getPieceAt(4, 5), "The Cannon should be gone.");
+        assertNull(board.getPieceAt(3, 5), "The neighbouring enemy should be removed.");
+        assertNotNull(board.getPieceAt(0, 0), "Pieces further away stay.");
+    }
+
+    /**
+     * Tests that the search runs the rule hooks and undoes them, leaving the board, the pieces and the rule unchanged.
+     */
+    @Test
+    void testSearchUndoesRuleHooks() {
+        board.setPieceAt(4, 4, new King(Color.WHITE));
+        board.setPieceAt(3, 3, new Pawn(Color.BLACK));
+        board.setPieceAt(3, 5, new Knight(Color.BLACK));
+        board.setPieceAt(2, 3, new Queen(Color.BLACK));
+        board.setPieceAt(7, 3, new Queen(Color.WHITE));
+        board.setPieceAt(0, 0, new King(Color.BLACK));
+        KingQueenSpecialRule rule = new KingQueenSpecialRule();
+        long hash = Zobrist.hash(board);
+        long attacked = board.getAttackMap().getAttacks(Color.WHITE);
+
+        int move = new ChessAI().calculateBestPackedMove(board, Color.WHITE, rule, new long[]{Zobrist.hash(board, Color.WHITE)});
+
+        assertNotEquals(PackedMove.NONE, move, "White should have a move.");
+        assertEquals(hash, Zobrist.hash(board), "The search should leave the board as it was.");
+        assertEquals(attacked, board.getAttackMap().getAttacks(Color.WHITE), "The attack map should be restored.");
+        assertEquals(Color.BLACK, board.getPieceAt(3, 3).getColor(), "Converted pieces should get their color back.");
+        assertEquals(4, board.getPieceCount(Color.BLACK), "The piece counts should be restored.");
+        assertEquals(0, rule.getStateFlags(), "The rule state should be restored.");
+    }
+}
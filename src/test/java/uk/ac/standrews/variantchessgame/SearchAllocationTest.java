@@ -0,0 +1,213 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.Analysis;
+import uk.ac.standrews.variantchessgame.model.ChessAI;
+import uk.ac.standrews.variantchessgame.model.Color;
+import uk.ac.standrews.variantchessgame.model.DifficultyProfile;
+import uk.ac.standrews.variantchessgame.model.GameRandom;
+import uk.ac.standrews.variantchessgame.model.GameState;
+import uk.ac.standrews.variantchessgame.model.MoveExecutor;
+import uk.ac.standrews.variantchessgame.model.PackedMove;
+import uk.ac.standrews.variantchessgame.model.PawnPromotionRule;
+import uk.ac.standrews.variantchessgame.model.PieceCodec;
+import uk.ac.standrews.variantchessgame.model.PositionSnapshot;
+import uk.ac.standrews.variantchessgame.model.VariantChessBoard;
+import uk.ac.standrews.variantchessgame.model.VariantChessMove;
+import uk.ac.standrews.variantchessgame.model.VariantChessPiece;
+import uk.ac.standrews.variantchessgame.model.Zobrist;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the memory allocated by the search. Runs in its own JVM, see the surefire executions in the pom,
+ * because inline mocks created by other tests instrument the model classes.
+ */
+class SearchAllocationTest {
+
+    /**
+     * Tests that once warmed up, searching for a move allocates no memory.
+     */
+    @Test
+    void testSearchDoesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocation counters are not available.");
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported(), "Allocation counters are not available.");
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        ChessAI chessAI = new ChessAI();
+        VariantChessBoard board = new VariantChessBoard();
+        PawnPromotionRule rule = new PawnPromotionRule();
+        long[] history = {Zobrist.hash(board, Color.WHITE)};
+        for (int i = 0; i < 20; i++) {
+            chessAI.calculateBestPackedMove(board, Color.WHITE, rule, history); // Grow the buffers of this thread
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        int move = PackedMove.NONE;
+        for (int i = 0; i < 20; i++) {
+            move = chessAI.calculateBestPackedMove(board, Color.WHITE, rule, history);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertNotEquals(PackedMove.NONE, move, "White should have a move.");
+        assertTrue(allocated < 1024, "Twenty searches allocated " + allocated + " bytes.");
+    }
+
+    /**
+     * Tests that once warmed up, searching within a difficulty profile allocates no memory.
+     */
+    @Test
+    void testProfileSearchDoesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocation counters are not available.");
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported(), "Allocation counters are not available.");
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        ChessAI chessAI = new ChessAI();
+        VariantChessBoard board = new VariantChessBoard();
+        PawnPromotionRule rule = new PawnPromotionRule();
+        GameRandom random = new GameRandom(3);
+        long[] history = {Zobrist.hash(board, Color.WHITE)};
+        for (int i = 0; i < 20; i++) {
+            chessAI.calculateBestPackedMove(board, Color.WHITE, rule, history, random, DifficultyProfile.CASUAL);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        int move = PackedMove.NONE;
+        for (int i = 0; i < 20; i++) {
+            move = chessAI.calculateBestPackedMove(board, Color.WHITE, rule, history, random, DifficultyProfile.CASUAL);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertNotEquals(PackedMove.NONE, move, "White should have a move.");
+        assertTrue(allocated < 1024, "Twenty searches allocated " + allocated + " bytes.");
+    }
+
+    /**
+     * Tests that once warmed up, an analysis allocates only the lines it returns, not its transposition table
+     * or root buffers.
+     */
+    @Test
+    void testAnalysisReusesTable() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocation counters are not available.");
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported(), "Allocation counters are not available.");
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        ChessAI chessAI = new ChessAI();
+        VariantChessBoard board = new VariantChessBoard();
+        PawnPromotionRule rule = new PawnPromotionRule();
+        long[] history = {Zobrist.hash(board, Color.WHITE)};
+        for (int i = 0; i < 20; i++) {
+            chessAI.analyze(board, Color.WHITE, rule, history, 3, 3); // Grow the buffers of this thread
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        Analysis analysis = null;
+        for (int i = 0; i < 20; i++) {
+            analysis = chessAI.analyze(board, Color.WHITE, rule, history, 3, 3);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(3, analysis.getLines().size(), "Three lines should be found.");
+        assertTrue(allocated < 20 * 2048, "Twenty analyses allocated " + allocated + " bytes.");
+    }
+
+    /**
+     * Tests that once warmed up, a search trying many promotions allocates no memory: the pieces promoted to
+     * are reused once the search takes the promotion back.
+     */
+    @Test
+    void testPromotionSearchDoesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocation counters are not available.");
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported(), "Allocation counters are not available.");
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        ChessAI chessAI = new ChessAI();
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard("RNBQKBNR");
+        board.movePiece(6 * 8 + 3, 2 * 8 + 3); // A White Pawn facing the Black Pawns, which can capture it and be captured
+        board.movePiece(6 * 8 + 5, 2 * 8 + 5);
+        PawnPromotionRule rule = new PawnPromotionRule();
+        long[] history = {Zobrist.hash(board, Color.WHITE)};
+        for (int i = 0; i < 20; i++) {
+            chessAI.calculateBestPackedMove(board, Color.WHITE, rule, history);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        int move = PackedMove.NONE;
+        for (int i = 0; i < 20; i++) {
+            move = chessAI.calculateBestPackedMove(board, Color.WHITE, rule, history);
+        }
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertNotEquals(PackedMove.NONE, move, "White should have a move.");
+        assertTrue(allocated < 1024, "Twenty searches allocated " + allocated + " bytes.");
+    }
+
+    /**
+     * Tests the memory a stored position takes: a snapshot of the board, one after a move that shares the unchanged
+     * rows of the first, and a view of a snapshot made of shared pieces.
+     */
+    @Test
+    void testSnapshotsAreCompact() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean, "Allocation counters are not available.");
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported(), "Allocation counters are not available.");
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard("RNBQKBNR");
+        GameState gameState = new GameState(board);
+        PositionSnapshot.capture(board, gameState).toPieces(); // Load the classes and the shared pieces
+        long threadId = Thread.currentThread().getId();
+
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        PositionSnapshot first = PositionSnapshot.capture(board, gameState);
+        long full = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        MoveExecutor.execute(board, gameState, new VariantChessMove(6, 3, 4, 3));
+        before = allocations.getThreadAllocatedBytes(threadId);
+        PositionSnapshot second = PositionSnapshot.capture(board, gameState, first);
+        long incremental = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        second.toPieces(); // Creates the shared instance of the Pawn that has moved
+        // The least of a few views: now and then the JVM itself allocates on this thread while one is built
+        VariantChessPiece[][] view = null;
+        long viewed = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            before = allocations.getThreadAllocatedBytes(threadId);
+            view = second.toPieces();
+            viewed = Math.min(viewed, allocations.getThreadAllocatedBytes(threadId) - before);
+        }
+
+        before = allocations.getThreadAllocatedBytes(threadId);
+        VariantChessPiece[][] copy = new VariantChessPiece[8][8];
+        for (int square = 0; square < 64; square++) {
+            copy[square >> 3][square & 7] = PieceCodec.decode(first.getPieceCode(square));
+        }
+        long objects = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(full < 512, "A snapshot took " + full + " bytes.");
+        assertTrue(incremental < full, "A snapshot after a move took " + incremental + " bytes.");
+        assertTrue(3 * full < objects, "A snapshot took " + full + " bytes, a copy of the pieces " + objects + " bytes.");
+        assertTrue(viewed < 640, "A view allocated " + viewed + " bytes.");
+        assertSame(PieceCodec.flyweight(second.getPieceCode(4 * 8 + 3)), view[4][3], "A view should use shared pieces.");
+        assertNotNull(copy[7][4]);
+    }
+}
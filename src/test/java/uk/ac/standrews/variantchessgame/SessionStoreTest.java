@@ -0,0 +1,162 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.standrews.variantchessgame.controller.GameController;
+import uk.ac.standrews.variantchessgame.model.*;
+import uk.ac.standrews.variantchessgame.persistence.GameJournal;
+import uk.ac.standrews.variantchessgame.persistence.SavedSession;
+import uk.ac.standrews.variantchessgame.persistence.SessionStore;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Tests that a saved session is read back with its rule state, capture counts and history.
+     */
+    @Test
+    void testSaveAndReadSession() throws Exception {
+        int[] codes = new int[64];
+        Cannon cannon = new Cannon(Color.WHITE);
+        cannon.incrementCaptureCount();
+        cannon.incrementCaptureCount();
+        codes[4 * 8 + 3] = PieceCodec.encode(cannon);
+        codes[0] = PieceCodec.encode(new King(Color.BLACK));
+        PositionSnapshot position = PositionSnapshot.of(codes, Color.BLACK, 3, 2, 1, 1, 0b0101);
+
+        MoveHistory history = new MoveHistory(2);
+        history.recordSnapshot(0, position);
+        history.appendPly(MoveHistory.pack(new VariantChessMove(6, 3, 4, 3)), PieceCodec.EMPTY, true);
+        history.appendPly(MoveHistory.pack(new VariantChessMove(1, 3, 3, 3)), PieceCodec.EMPTY, false);
+        history.recordSnapshot(2, position);
+        history.appendPly(MoveHistory.pack(new VariantChessMove(7, 1, 5, 2)), PieceCodec.EMPTY, true);
+        history.jumpTo(2);
+
+        SessionStore store = new SessionStore(directory.resolve("sessions.bin"));
+        store.save(Collections.singletonList(new SavedSession(7, "RNBQKBNR", 99L, 13L, 2, position,
+                new long[]{5L, 6L, 7L}, history)), 42);
+
+        SessionStore.SessionFile file = store.open();
+        assertEquals(42, file.getJournalRecordCount(), "The journal record count should be kept.");
+        assertEquals(1, file.getSessionCount(), "One session should be saved.");
+        assertEquals(7, file.getGameId(0), "The game id should be indexed.");
+
+        SavedSession session = file.read(0);
+        assertEquals("RNBQKBNR", session.getBackRank(), "The layout should be kept.");
+        assertEquals(99L, session.getSeed(), "The random seed should be kept.");
+        assertEquals(13L, session.getDraws(), "The number of random draws should be kept.");
+        assertEquals(2, session.getDifficultyIndex(), "The difficulty should be kept.");
+        assertEquals(1, session.getPosition().getRuleId(), "The rule should be kept.");
+        assertEquals(0b0101, session.getPosition().getRuleFlags(), "The used-capture flags of the rule should be kept.");
+        assertEquals(2, PieceCodec.captureCountOf(session.getPosition().getPieceCode(4 * 8 + 3)), "Capture counts should be kept.");
+        assertEquals(Color.BLACK, session.getPosition().getCurrentTurn(), "The turn should be kept.");
+        assertArrayEquals(new long[]{5L, 6L, 7L}, session.getReversibleHashes(), "The repetition window should be kept.");
+
+        MoveHistory restored = session.getHistory();
+        assertEquals(3, restored.getTotalPlies(), "Undone plies should be kept.");
+        assertEquals(2, restored.getCurrentPly(), "The current ply should be kept.");
+        assertEquals(1, restored.getRedoableMoveCount(), "The undone full move should be redoable.");
+        assertEquals(history.getPackedMove(1), restored.getPackedMove(1), "Packed plies should be kept.");
+        assertFalse(restored.isFullMoveStart(1), "Full-move boundaries should be kept.");
+        assertNotNull(restored.getSnapshot(2), "Navigation snapshots should be kept.");
+    }
+
+    /**
+     * Tests that a controller resumes the saved session after a restart instead of replaying the journal,
+     * and that the session is ignored once the journal has moved on.
+     */
+    @Test
+    void testControllerResumesSavedSession() throws Exception {
+        SessionStore store = new SessionStore(directory.resolve("sessions.bin"));
+        long hashBeforeShutdown;
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            VariantChessBoard board = new VariantChessBoard();
+            GameController controller = new GameControllerBuilder(board).journal(journal).sessionStore(store).build();
+            controller.setGameRule("KingQueenSpecialRule");
+            controller.setDifficulty("BEGINNER");
+            assertTrue(controller.movePiece(new VariantChessMove(6, 3, 4, 3)).startsWith("VALID_MOVE"));
+            hashBeforeShutdown = Zobrist.hash(board);
+            controller.saveSession();
+        }
+
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            VariantChessBoard board = new VariantChessBoard();
+            GameController controller = new GameControllerBuilder(board).journal(journal).sessionStore(store).build();
+            assertEquals("KingQueenSpecialRule", controller.getCurrentRule(), "The saved rule should be restored.");
+            assertEquals("BEGINNER", controller.getDifficulty(), "The saved difficulty should be restored.");
+            assertEquals(hashBeforeShutdown, Zobrist.hash(board), "The saved position should be restored.");
+            assertEquals("UNDO_SUCCESS", controller.undoLastMove(), "The saved history should allow undo.");
+            journal.flush();
+        }
+
+        try (GameJournal journal = new GameJournal(directory, 1)) {
+            VariantChessBoard board = new VariantChessBoard();
+            GameController controller = new GameControllerBuilder(board).journal(journal).sessionStore(store).build();
+            controller.getCurrentTurn();
+            assertNotEquals(hashBeforeShutdown, Zobrist.hash(board), "A stale session should give way to the journal.");
+            assertEquals("REDO_SUCCESS", controller.redoLastMove(), "The journaled undo should be recovered.");
+            assertEquals(hashBeforeShutdown, Zobrist.hash(board), "Redo should bring back the saved position.");
+        }
+    }
+
+    /**
+     * Tests that a game resumed from the saved session continues its random stream where it stopped,
+     * so it plays on exactly like the same game played without a restart.
+     */
+    @Test
+    void testResumedSessionContinuesLikeUninterrupted() throws Exception {
+        SessionStore store = new SessionStore(directory.resolve("sessions.bin"));
+        GameController uninterrupted = new GameControllerBuilder(new VariantChessBoard()).build();
+        uninterrupted.restartGame(18L);
+        GameController controller = new GameControllerBuilder(new VariantChessBoard()).sessionStore(store).build();
+        controller.restartGame(18L);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(GameJournalTest.playFirstLegalMove(uninterrupted), GameJournalTest.playFirstLegalMove(controller));
+        }
+        controller.saveSession();
+
+        GameController resumed = new GameControllerBuilder(new VariantChessBoard()).sessionStore(store).build();
+        for (int i = 0; i < 6; i++) {
+            assertEquals(GameJournalTest.playFirstLegalMove(uninterrupted), GameJournalTest.playFirstLegalMove(resumed),
+                    "Move " + i + " after resuming.");
+        }
+        assertEquals(uninterrupted.exportGame(), resumed.exportGame(), "The resumed game should play on identically.");
+    }
+
+    /**
+     * Tests that a position repeated before a restart still counts towards a threefold repetition after it.
+     */
+    @Test
+    void testRepetitionSpansRestart() throws Exception {
+        SessionStore store = new SessionStore(directory.resolve("sessions.bin"));
+        VariantChessBoard board = new VariantChessBoard();
+        GameController controller = new GameControllerBuilder(board).sessionStore(store).build();
+        controller.restartGame(18L);
+        int y = 0;
+        while (!(board.getPieceAt(7, y) instanceof Knight)) {
+            y++;
+        }
+        int targetY = y == 0 ? 1 : y - 1;
+        VariantChessMove whiteOut = new VariantChessMove(7, y, 5, targetY);
+        VariantChessMove[] shuffle = {new VariantChessMove(0, y, 2, targetY), new VariantChessMove(5, targetY, 7, y),
+                new VariantChessMove(2, targetY, 0, y), whiteOut};
+
+        assertEquals("VALID_MOVE", controller.moveKnight(whiteOut));
+        for (VariantChessMove move : shuffle) {
+            assertEquals("VALID_MOVE", controller.moveKnight(move), "Every position has been seen at most twice.");
+        }
+        controller.saveSession();
+
+        GameController resumed = new GameControllerBuilder(new VariantChessBoard()).sessionStore(store).build();
+        assertEquals("VALID_MOVE", resumed.moveKnight(shuffle[0]));
+        assertEquals("VALID_MOVE", resumed.moveKnight(shuffle[1]));
+        assertEquals("STALEMATE", resumed.moveKnight(shuffle[2]), "The third repetition should draw across the restart.");
+    }
+}
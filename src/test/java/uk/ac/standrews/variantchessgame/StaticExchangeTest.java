@@ -0,0 +1,86 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticExchangeTest {
+
+    private VariantChessBoard board;
+
+    /**
+     * Sets up an empty board.
+     */
+    @BeforeEach
+    void setUp() {
+        board = new VariantChessBoard();
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                board.setPieceAt(x, y, null);
+            }
+        }
+    }
+
+    /**
+     * Tests that capturing an undefended piece wins it, and that the board is left unchanged.
+     */
+    @Test
+    void testUndefendedCapture() {
+        board.setPieceAt(7, 0, new Rook(Color.WHITE));
+        board.setPieceAt(3, 0, new Knight(Color.BLACK));
+        long hash = Zobrist.hash(board);
+        long attacked = board.getAttackMap().getAttacks(Color.WHITE);
+
+        assertEquals(3, StaticExchange.evaluate(board, 7 * 8, 3 * 8), "The Rook wins the Knight.");
+        assertEquals(hash, Zobrist.hash(board), "The board should be restored.");
+        assertEquals(attacked, board.getAttackMap().getAttacks(Color.WHITE), "The attack map should be restored.");
+        assertEquals(Attacks.bit(3, 0), StaticExchange.hanging(board, Color.BLACK), "The Knight is hanging.");
+        assertEquals(0L, StaticExchange.hanging(board, Color.WHITE), "The Rook is not attacked.");
+    }
+
+    /**
+     * Tests that capturing a defended piece with a more valuable piece loses material.
+     */
+    @Test
+    void testDefendedCaptureLosesMaterial() {
+        board.setPieceAt(7, 0, new Rook(Color.WHITE));
+        board.setPieceAt(3, 0, new Knight(Color.BLACK));
+        board.setPieceAt(2, 0, new Pawn(Color.BLACK)); // Black Pawns attack the square ahead, towards row 7
+
+        assertEquals(3 - 6, StaticExchange.evaluate(board, 7 * 8, 3 * 8), "The Pawn recaptures the Rook.");
+        assertEquals(0L, StaticExchange.hanging(board, Color.BLACK), "The defended Knight is not hanging.");
+    }
+
+    /**
+     * Tests that a piece behind the capturer joins the exchange once the capturer has left its line.
+     */
+    @Test
+    void testPieceBehindJoinsExchange() {
+        board.setPieceAt(7, 0, new Rook(Color.WHITE));
+        board.setPieceAt(6, 0, new Rook(Color.WHITE));
+        board.setPieceAt(3, 0, new Knight(Color.BLACK));
+        board.setPieceAt(0, 0, new Rook(Color.BLACK));
+
+        // Rook takes Knight (+3), Rook takes Rook (-6), Rook takes Rook (+6): Black stops after the first recapture would lose
+        assertEquals(3, StaticExchange.evaluate(board, 6 * 8, 3 * 8), "Black should not recapture into the second Rook.");
+        assertThrows(IllegalArgumentException.class, () -> StaticExchange.evaluate(board, 5 * 8, 3 * 8));
+    }
+
+    /**
+     * Tests the threat summary built for the UI.
+     */
+    @Test
+    void testThreatMap() {
+        board.setPieceAt(7, 0, new Rook(Color.WHITE));
+        board.setPieceAt(3, 0, new Knight(Color.BLACK));
+
+        ThreatMap threats = ThreatMap.of(board);
+        assertEquals(1, threats.getWhiteAttackers()[3][0], "The Rook attacks the Knight.");
+        assertEquals(0, threats.getBlackAttackers()[7][0], "Nothing attacks the Rook.");
+        assertArrayEquals(new int[] {3 * 8}, threats.getBlackHanging(), "The Knight is hanging.");
+        assertEquals(0, threats.getWhiteHanging().length, "No white piece is hanging.");
+        assertEquals(board.getAttackMap().getMobility(Color.WHITE), threats.getWhiteMobility());
+    }
+}
@@ -0,0 +1,46 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymmetryTest {
+
+    /**
+     * Tests that the mirror hash of a position equals the hash of the mirrored board,
+     * so that a position and its mirror image share a canonical hash.
+     */
+    @Test
+    void testMirrorHashMatchesMirroredBoard() {
+        VariantChessBoard board = new VariantChessBoard();
+        board.initializeBoard("RNBQKBNR");
+        board.movePiece(6 * 8 + 2, 4 * 8 + 2); // Break the symmetry of the pawn rows
+        VariantChessBoard mirrored = new VariantChessBoard();
+        mirrored.initializeBoard("RNBKQBNR");
+        mirrored.movePiece(6 * 8 + 5, 4 * 8 + 5);
+
+        assertEquals(Zobrist.hash(mirrored), Symmetry.mirrorHash(board), "The mirror hash should be the hash of the mirror image.");
+        assertEquals(Zobrist.hash(board), Symmetry.mirrorHash(mirrored), "Mirroring twice should give the position back.");
+        assertNotEquals(Zobrist.hash(board), Zobrist.hash(mirrored), "The two positions differ.");
+        assertEquals(Symmetry.canonical(Zobrist.hash(board), Symmetry.mirrorHash(board)),
+                Symmetry.canonical(Zobrist.hash(mirrored), Symmetry.mirrorHash(mirrored)),
+                "Mirror images should share the canonical hash.");
+    }
+
+    /**
+     * Tests that mirroring a packed move mirrors both squares and keeps its flags.
+     */
+    @Test
+    void testMirrorMove() {
+        int move = PackedMove.of(6, 2, 4, 3) | PackedMove.CAPTURE | PackedMove.FIRST_MOVE;
+        int mirrored = Symmetry.mirrorMove(move);
+        assertEquals(6 * 8 + 5, PackedMove.from(mirrored), "The start square should be mirrored.");
+        assertEquals(4 * 8 + 4, PackedMove.to(mirrored), "The end square should be mirrored.");
+        assertTrue(PackedMove.isCapture(mirrored), "The capture flag should be kept.");
+        assertTrue(PackedMove.isFirstMove(mirrored), "The first-move flag should be kept.");
+        assertEquals(move, Symmetry.mirrorMove(mirrored), "Mirroring twice should give the move back.");
+        assertEquals(PackedMove.NONE, Symmetry.mirrorMove(PackedMove.NONE), "No move stays no move.");
+        assertEquals(7, Symmetry.mirror(0), "Column 0 mirrors to column 7.");
+    }
+}
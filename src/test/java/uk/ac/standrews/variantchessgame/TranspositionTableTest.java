@@ -0,0 +1,62 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.PackedMove;
+import uk.ac.standrews.variantchessgame.model.TranspositionTable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    /**
+     * Tests that every field of an entry reads back, including negative scores, flagged moves and no move.
+     */
+    @Test
+    void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(4);
+        int move = PackedMove.of(6, 4, 4, 4) | PackedMove.CAPTURE | 2 << PackedMove.PROMOTION_SHIFT;
+        table.store(0x1234L, 5, -100_007, TranspositionTable.LOWER_BOUND, move);
+        table.store(0x5675L, 0, 42, TranspositionTable.EXACT, PackedMove.NONE);
+
+        long entry = table.probe(0x1234L);
+        assertEquals(-100_007, TranspositionTable.scoreOf(entry));
+        assertEquals(move, TranspositionTable.moveOf(entry));
+        assertEquals(5, TranspositionTable.depthOf(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.boundOf(entry));
+
+        long empty = table.probe(0x5675L);
+        assertNotEquals(0, empty, "An entry at depth 0 without a move should still be found.");
+        assertEquals(PackedMove.NONE, TranspositionTable.moveOf(empty));
+        assertEquals(TranspositionTable.EXACT, TranspositionTable.boundOf(empty));
+    }
+
+    /**
+     * Tests that a shallower result does not replace a deeper one of the same position, but replaces other positions.
+     */
+    @Test
+    void testReplacement() {
+        TranspositionTable table = new TranspositionTable(4);
+        table.store(0x10L, 4, 7, TranspositionTable.EXACT, PackedMove.of(1, 2));
+        table.store(0x10L, 2, 9, TranspositionTable.EXACT, PackedMove.of(3, 4));
+        assertEquals(7, TranspositionTable.scoreOf(table.probe(0x10L)));
+
+        table.store(0x20L, 1, 3, TranspositionTable.UPPER_BOUND, PackedMove.NONE); // Same index, other position
+        assertEquals(0, table.probe(0x10L));
+        assertEquals(3, TranspositionTable.scoreOf(table.probe(0x20L)));
+        assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    /**
+     * Tests that a cleared table finds none of its earlier entries but stores new ones as usual.
+     */
+    @Test
+    void testClear() {
+        TranspositionTable table = new TranspositionTable(4);
+        table.store(0x10L, 4, 7, TranspositionTable.EXACT, PackedMove.of(1, 2));
+        table.clear();
+        assertEquals(0, table.probe(0x10L), "A cleared table should be empty.");
+
+        table.store(0x10L, 1, 5, TranspositionTable.EXACT, PackedMove.NONE);
+        assertEquals(5, TranspositionTable.scoreOf(table.probe(0x10L)), "A shallower result should be stored after clearing.");
+    }
+}
@@ -107,6 +107,20 @@ class VariantChessBoardTest {
         assertEquals(knight, board.getPieceAt(4, 4), "The knight should be placed at the specified position.");
     }
 
+    @Test
+    void testLayoutAndEmptyConstructors() {
+        // A given layout is set up as is, and a null layout leaves the board empty.
+        VariantChessBoard layout = new VariantChessBoard("RKQNNBBR");
+        assertEquals("RKQNNBBR", layout.getBackRank(), "The given layout should be used.");
+        assertTrue(layout.getPieceAt(7, 1) instanceof King, "The White King should be on its layout column.");
+        assertEquals(16, layout.getPieceCount(Color.WHITE), "Each side should start with 16 pieces.");
+
+        VariantChessBoard empty = new VariantChessBoard(null);
+        assertNull(empty.getBackRank(), "An empty board has no layout.");
+        assertEquals(0, empty.getPieceCount(Color.WHITE) + empty.getPieceCount(Color.BLACK), "An empty board has no pieces.");
+        assertThrows(IllegalArgumentException.class, () -> new VariantChessBoard("RNBQKBN"), "Invalid layouts should be rejected.");
+    }
+
     @Test
     void testIsInBounds() {
         // Test the functionality of checking whether a position is within the board's boundaries.
@@ -117,4 +131,53 @@ class VariantChessBoardTest {
         assertFalse(board.isInBounds(-1, -1), "Position (-1, -1) should be out of bounds.");
     }
 
+    @Test
+    void testPlacementScoreFollowsMoves() {
+        // Test that the piece-square sums kept by the board match a fresh sum after moves, captures and conversions.
+        int[][] tables = EvalWeights.getDefault().getTables(2);
+        board.setPlacementTables(tables);
+        board.movePiece(new VariantChessMove(6, 3, 4, 3));
+        board.movePiece(new VariantChessMove(1, 4, 3, 4));
+        board.movePiece(new VariantChessMove(4, 3, 3, 4)); // Capture
+        board.convertPieceAt(1, 0, Color.WHITE);
+
+        int[] expected = new int[2];
+        for (int square = 0; square < 64; square++) {
+            VariantChessPiece piece = board.getPieceAt(square >> 3, square & 7);
+            if (piece != null) {
+                expected[piece.getColor().ordinal()] += tables[Zobrist.typeIndex(piece)][EvalWeights.tableSquare(piece.getColor(), square)];
+            }
+        }
+        assertEquals(expected[0], board.getPlacementScore(Color.WHITE), "White's placement score should be up to date.");
+        assertEquals(expected[1], board.getPlacementScore(Color.BLACK), "Black's placement score should be up to date.");
+
+        board.setPlacementTables(null);
+        board.recountPieces();
+        assertEquals(0, board.getPlacementScore(Color.WHITE), "Without tables nothing is summed.");
+    }
+
+    @Test
+    void testPromotionReusesRecycledPieces() {
+        // Test that a promoted piece handed back to the board is reused, with the state of the new promotion.
+        board.setPieceAt(4, 4, new Pawn(Color.WHITE));
+        board.getPieceAt(4, 4).setCaptureCount(3);
+        VariantChessPiece queen = board.promotePieceAt(4, 4, Zobrist.QUEEN);
+        assertTrue(queen instanceof Queen);
+        assertTrue(queen.isPromotedFromPawn(), "The new piece should be marked as promoted.");
+        assertEquals(3, queen.getCaptureCount(), "The capture count should be kept.");
+        assertSame(queen, board.getPieceAt(4, 4));
+
+        board.setPieceAt(4, 4, null);
+        board.recyclePiece(queen);
+        board.recyclePiece(new Queen(Color.BLACK)); // Not promoted, so ignored
+        Pawn pawn = new Pawn(Color.BLACK);
+        pawn.setCaptureCount(4);
+        board.setPieceAt(3, 3, pawn);
+        assertSame(queen, board.promotePieceAt(3, 3, Zobrist.QUEEN), "The recycled Queen should be reused.");
+        assertEquals(Color.BLACK, queen.getColor());
+        assertEquals(4, queen.getCaptureCount());
+        assertEquals(1, Long.bitCount(board.getOccupancy(Color.BLACK) & (1L << 27)), "The board counts should follow the promotion.");
+        assertNotSame(queen, board.promotePieceAt(3, 3, Zobrist.QUEEN), "Only one Queen was recycled.");
+    }
+
 }
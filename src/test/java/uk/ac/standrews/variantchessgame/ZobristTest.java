@@ -0,0 +1,70 @@
+package uk.ac.standrews.variantchessgame;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.standrews.variantchessgame.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZobristTest {
+
+    /**
+     * Tests that the hash depends only on the position.
+     * Verifies that two boards with the same pieces hash equally and that moving a piece changes the hash.
+     */
+    @Test
+    void testHashDependsOnPlacement() {
+        VariantChessBoard board = emptyBoard();
+        board.setPieceAt(3, 3, new Rook(Color.WHITE));
+        VariantChessBoard other = emptyBoard();
+        other.setPieceAt(3, 3, new Rook(Color.WHITE));
+
+        assertEquals(Zobrist.hash(board), Zobrist.hash(other), "Identical positions should hash equally.");
+
+        other.movePiece(new VariantChessMove(3, 3, 3, 4));
+        assertNotEquals(Zobrist.hash(board), Zobrist.hash(other), "Moving a piece should change the hash.");
+    }
+
+    /**
+     * Tests that piece state is part of the hash.
+     * Verifies that the pawn first-move flag, capture count and color change the hash.
+     */
+    @Test
+    void testHashIncludesPieceState() {
+        VariantChessBoard board = emptyBoard();
+        Pawn pawn = new Pawn(Color.WHITE);
+        board.setPieceAt(6, 0, pawn);
+        long initial = Zobrist.hash(board);
+
+        pawn.setFirstMove(false);
+        long moved = Zobrist.hash(board);
+        assertNotEquals(initial, moved, "The first-move flag should be hashed.");
+
+        pawn.incrementCaptureCount();
+        long captured = Zobrist.hash(board);
+        assertNotEquals(moved, captured, "The capture count should be hashed.");
+
+        pawn.updateDirection(Color.BLACK);
+        assertNotEquals(captured, Zobrist.hash(board), "The piece color should be hashed.");
+    }
+
+    /**
+     * Tests the side-to-move key.
+     * Verifies that the same placement hashes differently for each side to move.
+     */
+    @Test
+    void testSideToMove() {
+        VariantChessBoard board = new VariantChessBoard();
+        assertEquals(Zobrist.hash(board), Zobrist.hash(board, Color.WHITE), "WHITE to move should not change the hash.");
+        assertNotEquals(Zobrist.hash(board, Color.WHITE), Zobrist.hash(board, Color.BLACK), "Side to move should be hashed.");
+    }
+
+    private VariantChessBoard emptyBoard() {
+        VariantChessBoard board = new VariantChessBoard();
+        for (int i = 0; i < 8; i++) {
+            for (int j = 0; j < 8; j++) {
+                board.setPieceAt(i, j, null);
+            }
+        }
+        return board;
+    }
+}